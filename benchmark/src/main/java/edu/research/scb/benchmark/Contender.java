@@ -0,0 +1,81 @@
+package edu.research.scb.benchmark;
+
+import edu.research.scb.internal.SmartCircuitBreaker;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.SingleFlightProperties;
+import io.grpc.ClientInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The circuit breakers compared by the load test, each created afresh for a run with its default configuration. The
+ * count-min-sketch strategy is not a contender, as it is not implemented yet and would reject every call.
+ */
+public enum Contender {
+
+    // No circuit breaker, the baseline for the added latency.
+    NONE("none"),
+    BLOOM_FILTER(BLOOM_FILTER_STRATEGY),
+    ADAPTIVE_THROTTLING(ADAPTIVE_THROTTLING_STRATEGY),
+    RESILIENCE4J("resilience4j"),
+    // The bloom filter strategy, with the identical calls in-flight coalesced by single-flight.
+    SINGLE_FLIGHT("single-flight");
+
+    private final String name;
+
+    Contender(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the interceptor applying the circuit breaker to the channel, or {@code null} for the baseline.
+     */
+    public ClientInterceptor newInterceptor() {
+        return switch (this) {
+            case NONE -> null;
+            case RESILIENCE4J -> new Resilience4jInterceptor();
+            case SINGLE_FLIGHT -> {
+                final SingleFlightProperties singleFlight = new SingleFlightProperties();
+                singleFlight.setEnabled(true);
+                singleFlight.setMethods(List.of(FaultInjectingService.GET_METHOD.getFullMethodName()));
+                final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+                properties.setStrategy(BLOOM_FILTER_STRATEGY);
+                properties.setSingleFlight(singleFlight);
+                yield SmartCircuitBreaker.builder()
+                        .properties(properties)
+                        .meterRegistry(new SimpleMeterRegistry())
+                        .build();
+            }
+            default -> {
+                final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+                properties.setStrategy(name);
+                yield SmartCircuitBreaker.builder()
+                        .properties(properties)
+                        .meterRegistry(new SimpleMeterRegistry())
+                        .build();
+            }
+        };
+    }
+
+    public static Contender of(String name) {
+        if(COUNT_MIN_SKETCH_STRATEGY.equals(name.trim()))
+            throw new IllegalArgumentException("The contender '" + name + "' is not implemented yet, expected one of " + Arrays.toString(values()));
+        return Arrays.stream(values())
+                .filter(c -> c.name.equals(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown contender '" + name + "', expected one of " + Arrays.toString(values())));
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,91 @@
+package edu.research.scb.benchmark;
+
+import com.google.protobuf.StringValue;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The backend of the load test, a single unary method echoing the request key, with the faults injected per key.
+ *
+ * <p>The service is defined without any generated stubs, using the well-known {@code StringValue} as both the
+ * request and the response, so that the harness doesn't depend on any proto of its own.
+ */
+public class FaultInjectingService {
+
+    public static final String SERVICE_NAME = "scb.benchmark.Backend";
+
+    public static final MethodDescriptor<StringValue, StringValue> GET_METHOD =
+            MethodDescriptor.<StringValue, StringValue>newBuilder()
+                    .setType(MethodDescriptor.MethodType.UNARY)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "Get"))
+                    .setRequestMarshaller(ProtoUtils.marshaller(StringValue.getDefaultInstance()))
+                    .setResponseMarshaller(ProtoUtils.marshaller(StringValue.getDefaultInstance()))
+                    .build();
+
+    private final Map<String, FaultProfile> faults;
+    private final FaultProfile background;
+    private final long startNanos;
+
+    // The calls that reached the backend, and those among them that failed due to an injected fault.
+    private final LongAdder received;
+    private final LongAdder wasted;
+
+    public FaultInjectingService(Map<String, FaultProfile> faults, FaultProfile background, long startNanos) {
+        this.faults = faults;
+        this.background = background;
+        this.startNanos = startNanos;
+        this.received = new LongAdder();
+        this.wasted = new LongAdder();
+    }
+
+    public ServerServiceDefinition bindService() {
+        return ServerServiceDefinition.builder(SERVICE_NAME)
+                .addMethod(GET_METHOD, ServerCalls.asyncUnaryCall(this::get))
+                .build();
+    }
+
+    private void get(StringValue request, StreamObserver<StringValue> responseObserver) {
+        received.increment();
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        final FaultProfile fault = faults.getOrDefault(request.getValue(), background);
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if(fault.isActive(elapsedMillis)) {
+            if(random.nextDouble() < fault.spikeRate())
+                sleep(fault.spikeMillis());
+
+            if(random.nextDouble() < fault.errorRate()) {
+                wasted.increment();
+                responseObserver.onError(Status.UNAVAILABLE.withDescription("Injected fault").asRuntimeException());
+                return;
+            }
+        }
+        responseObserver.onNext(request);
+        responseObserver.onCompleted();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getWasted() {
+        return wasted.sum();
+    }
+}
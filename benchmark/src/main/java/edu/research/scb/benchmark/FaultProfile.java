@@ -0,0 +1,44 @@
+package edu.research.scb.benchmark;
+
+/**
+ * The faults injected by the backend for a request signature, while the fault is active.
+ *
+ * @param errorRate the probability of a request failing with {@code UNAVAILABLE}
+ * @param spikeRate the probability of a request being delayed by a latency spike
+ * @param spikeMillis the delay of a latency spike in milliseconds
+ * @param fromMillis the time since the start of the run at which the fault becomes active
+ * @param toMillis the time since the start of the run at which the signature recovers
+ */
+public record FaultProfile(double errorRate, double spikeRate, long spikeMillis, long fromMillis, long toMillis) {
+
+    // No faults at all.
+    public static final FaultProfile NONE = new FaultProfile(0.0, 0.0, 0, 0, 0);
+
+    public boolean isActive(long elapsedMillis) {
+        return elapsedMillis >= fromMillis && elapsedMillis < toMillis;
+    }
+
+    public boolean recovers() {
+        return errorRate > 0.0 && toMillis < Long.MAX_VALUE;
+    }
+
+    /**
+     * Parses the fault of the form {@code errorRate:spikeRate:spikeMillis:fromSeconds:toSeconds}, where the
+     * times are optional and the fault is active for the whole run if they are left out.
+     *
+     * @param spec the fault specification, e.g. {@code 1.0:0.1:50:2:10}
+     * @return the fault profile
+     */
+    public static FaultProfile parse(String spec) {
+        final String[] parts = spec.split(":");
+        if(parts.length != 3 && parts.length != 5)
+            throw new IllegalArgumentException("Invalid fault '" + spec + "', expected errorRate:spikeRate:spikeMillis[:fromSeconds:toSeconds]");
+
+        return new FaultProfile(
+                Double.parseDouble(parts[0]),
+                Double.parseDouble(parts[1]),
+                Long.parseLong(parts[2]),
+                parts.length == 5 ? (long) (Double.parseDouble(parts[3]) * 1000) : 0,
+                parts.length == 5 ? (long) (Double.parseDouble(parts[4]) * 1000) : Long.MAX_VALUE);
+    }
+}
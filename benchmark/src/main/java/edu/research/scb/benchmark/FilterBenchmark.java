@@ -0,0 +1,72 @@
+package edu.research.scb.benchmark;
+
+import edu.research.scb.internal.bloomfilter.SignatureFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookup cost of the bloom filter backends, with half of the lookups hitting a signature that was put
+ * and half of them missing, over the whole filter so that the cache misses dominate at the larger capacities.
+ * The fpp measured over a million absent signatures is printed once the filter is filled. Run from the root of the
+ * repository :
+ * <pre>{@code
+ * ./gradlew :benchmark:jmh --args="FilterBenchmark"
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FilterBenchmark {
+
+    private static final double FPP = 0.05;
+    private static final int PROBES = 1 << 16;
+    private static final int FPP_SAMPLES = 1_000_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    private long capacity;
+
+    @Param({"guava", "blocked"})
+    private String backend;
+
+    private SignatureFilter filter;
+    private String[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filter = SignatureFilter.create(backend, StandardCharsets.UTF_8, capacity, FPP);
+        for(long i = 0; i < capacity; i++)
+            filter.put(present(i));
+
+        final SplittableRandom random = new SplittableRandom(42);
+        probes = new String[PROBES];
+        for(int i = 0; i < PROBES; i++)
+            probes[i] = i % 2 == 0 ? present(random.nextLong(capacity)) : absent(random.nextLong());
+
+        int falsePositives = 0;
+        for(int i = 0; i < FPP_SAMPLES; i++)
+            if(filter.mightContain(absent(i)))
+                falsePositives++;
+        System.out.printf("%n# backend=%s capacity=%d size=%d bytes fpp measured=%.4f expected=%.4f%n", backend,
+                capacity, filter.sizeInBytes(), (double) falsePositives / FPP_SAMPLES, filter.expectedFpp());
+    }
+
+    @Benchmark
+    public boolean mightContain() {
+        return filter.mightContain(probes[next++ & (PROBES - 1)]);
+    }
+
+    private static String present(long i) {
+        return "media.MediaStreamService/SearchByTitle-title:present-" + i;
+    }
+
+    private static String absent(long i) {
+        return "media.MediaStreamService/SearchByTitle-title:absent-" + i;
+    }
+}
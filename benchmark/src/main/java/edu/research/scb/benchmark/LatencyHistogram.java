@@ -0,0 +1,63 @@
+package edu.research.scb.benchmark;
+
+/**
+ * A log-linear histogram of latencies in nanoseconds, with 32 linear sub-buckets per power of two, i.e. a relative
+ * error of about 3%. A histogram is recorded by a single thread, and merged once the run is over.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[64 * SUB_BUCKETS];
+    private long total;
+
+    void record(long nanos) {
+        counts[index(Math.max(1, nanos))]++;
+        total++;
+    }
+
+    void merge(LatencyHistogram other) {
+        for(int i = 0; i < counts.length; i++)
+            counts[i] += other.counts[i];
+        total += other.total;
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * @param quantile the quantile within {@code [0, 1]}
+     * @return the upper bound of the bucket holding the quantile in nanoseconds, or 0 if nothing was recorded.
+     */
+    long quantile(double quantile) {
+        if(total == 0)
+            return 0;
+
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= Math.max(1, rank))
+                return upperBound(i);
+        }
+        return upperBound(counts.length - 1);
+    }
+
+    private static int index(long value) {
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if(exponent < SUB_BUCKET_BITS)
+            return (int) value;
+        final int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBound(int index) {
+        if(index < SUB_BUCKETS)
+            return index;
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
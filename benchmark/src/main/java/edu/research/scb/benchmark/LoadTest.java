@@ -0,0 +1,170 @@
+package edu.research.scb.benchmark;
+
+import com.google.protobuf.StringValue;
+import io.grpc.*;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The load test comparing the circuit breakers against an in-process gRPC backend with the injected faults.
+ *
+ * <p>Every contender is run on its own server and channel, for the same duration and with the same faults. The
+ * clients issue the unary calls in a closed loop, each for a key drawn uniformly out of the configured signatures.
+ * For example, run from the root of the repository :
+ * <pre>{@code
+ * ./gradlew :benchmark:run --args="--threads=8 --durationSeconds=30 --faultySignatures=50 --faultProfile=1.0:0.0:0:5:15"
+ * }</pre>
+ */
+public class LoadTest {
+
+    private final LoadTestConfig config;
+    private final Contender contender;
+
+    public LoadTest(LoadTestConfig config, Contender contender) {
+        this.config = config;
+        this.contender = contender;
+    }
+
+    public static void main(String[] args) throws Exception {
+        final LoadTestConfig config = LoadTestConfig.parse(args);
+        System.out.println("Load test : " + config);
+
+        final List<LoadTestResult> results = new ArrayList<>();
+        for(Contender contender : config.contenders()) {
+            System.out.println("Running '" + contender + "' for " + config.durationSeconds() + " seconds ...");
+            results.add(new LoadTest(config, contender).run());
+        }
+        LoadTestResult.print(results, System.out);
+    }
+
+    public LoadTestResult run() throws Exception {
+        final Map<String, FaultProfile> faults = config.faults();
+        final long startNanos = System.nanoTime();
+        final long endNanos = startNanos + TimeUnit.SECONDS.toNanos(config.durationSeconds());
+        final FaultInjectingService service = new FaultInjectingService(faults, config.background(), startNanos);
+
+        final String name = "scb-load-test-" + contender.getName();
+        final Server server = InProcessServerBuilder.forName(name)
+                .addService(service.bindService())
+                .build()
+                .start();
+        final InProcessChannelBuilder channelBuilder = InProcessChannelBuilder.forName(name);
+        final ClientInterceptor interceptor = contender.newInterceptor();
+        if(interceptor != null)
+            channelBuilder.intercept(interceptor);
+        final ManagedChannel channel = channelBuilder.build();
+
+        // The time at which the first call of every faulty key succeeded after its recovery, if it did.
+        final AtomicLongArray recoveredAtNanos = new AtomicLongArray(config.signatures());
+
+        final ExecutorService clients = Executors.newFixedThreadPool(config.threads());
+        final List<Future<Worker>> workers = new ArrayList<>();
+        for(int i = 0; i < config.threads(); i++) {
+            final Worker worker = new Worker(channel, faults, startNanos, endNanos, recoveredAtNanos);
+            workers.add(clients.submit(worker, worker));
+        }
+
+        final Worker total = new Worker(channel, faults, startNanos, endNanos, recoveredAtNanos);
+        for(Future<Worker> worker : workers)
+            total.merge(worker.get());
+        final double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        clients.shutdown();
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+
+        // The time to recover is measured from the end of the fault to the first succeeded call thereafter.
+        long recoveryNanos = 0;
+        int recovered = 0;
+        int unrecovered = 0;
+        for(int i = 0; i < config.signatures(); i++) {
+            final FaultProfile fault = faults.get(LoadTestConfig.key(i));
+            if(fault == null || !fault.recovers() || startNanos + TimeUnit.MILLISECONDS.toNanos(fault.toMillis()) > endNanos)
+                continue;
+            if(recoveredAtNanos.get(i) == 0) {
+                unrecovered++;
+            } else {
+                recoveryNanos += recoveredAtNanos.get(i) - startNanos - TimeUnit.MILLISECONDS.toNanos(fault.toMillis());
+                recovered++;
+            }
+        }
+
+        return new LoadTestResult(contender, total.calls, seconds, total.succeeded, total.failed, total.rejected,
+                total.healthyRejected, total.latencies.quantile(0.5), total.latencies.quantile(0.99),
+                service.getReceived(), service.getWasted(),
+                recovered > 0 ? recoveryNanos / 1e6 / recovered : 0.0, unrecovered);
+    }
+
+    /**
+     * A client issuing the calls in a closed loop, recording its outcomes without any sharing across the clients.
+     */
+    private class Worker implements Runnable {
+
+        private final Channel channel;
+        private final Map<String, FaultProfile> faults;
+        private final long startNanos;
+        private final long endNanos;
+        private final AtomicLongArray recoveredAtNanos;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private long calls;
+        private long succeeded;
+        private long failed;
+        private long rejected;
+        private long healthyRejected;
+
+        private Worker(Channel channel, Map<String, FaultProfile> faults, long startNanos, long endNanos,
+                       AtomicLongArray recoveredAtNanos) {
+            this.channel = channel;
+            this.faults = faults;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+            this.recoveredAtNanos = recoveredAtNanos;
+        }
+
+        @Override
+        public void run() {
+            final ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now;
+            while((now = System.nanoTime()) < endNanos) {
+                final int index = random.nextInt(config.signatures());
+                final String key = LoadTestConfig.key(index);
+                final FaultProfile fault = faults.get(key);
+                calls++;
+                try {
+                    ClientCalls.blockingUnaryCall(channel, FaultInjectingService.GET_METHOD,
+                            CallOptions.DEFAULT.withDeadlineAfter(config.deadlineMillis(), TimeUnit.MILLISECONDS),
+                            StringValue.of(key));
+                    final long end = System.nanoTime();
+                    succeeded++;
+                    if(fault == null)
+                        latencies.record(end - now);
+                    else if(fault.recovers() && end - startNanos >= TimeUnit.MILLISECONDS.toNanos(fault.toMillis()))
+                        recoveredAtNanos.compareAndSet(index, 0, end);
+                } catch (StatusRuntimeException e) {
+                    failed++;
+                } catch (RuntimeException e) {
+                    // Thrown by the circuit breaker when the call is not permitted.
+                    rejected++;
+                    if(fault == null)
+                        healthyRejected++;
+                }
+            }
+        }
+
+        private void merge(Worker other) {
+            latencies.merge(other.latencies);
+            calls += other.calls;
+            succeeded += other.succeeded;
+            failed += other.failed;
+            rejected += other.rejected;
+            healthyRejected += other.healthyRejected;
+        }
+    }
+}
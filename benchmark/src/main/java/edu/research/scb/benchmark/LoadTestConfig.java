@@ -0,0 +1,66 @@
+package edu.research.scb.benchmark;
+
+import java.util.*;
+
+/**
+ * The configuration of the load test, parsed from the arguments of the form {@code --name=value}.
+ *
+ * <p>The first {@code faultySignatures} out of the {@code signatures} request keys fail as per {@code fault}, and
+ * every key suffers from the {@code background} fault, e.g. the occasional latency spikes. The fault of a single
+ * key can be overridden by {@code --fault=key-7:1.0:0.0:0:5:30}.
+ */
+public record LoadTestConfig(int threads,
+                             long durationSeconds,
+                             int signatures,
+                             int faultySignatures,
+                             FaultProfile fault,
+                             FaultProfile background,
+                             Map<String, FaultProfile> faultOverrides,
+                             long deadlineMillis,
+                             List<Contender> contenders) {
+
+    public static LoadTestConfig parse(String[] args) {
+        final Map<String, String> options = new HashMap<>();
+        final Map<String, FaultProfile> faultOverrides = new LinkedHashMap<>();
+        for(String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Invalid argument '" + arg + "', expected --name=value");
+
+            final String name = arg.substring(2, arg.indexOf('='));
+            final String value = arg.substring(arg.indexOf('=') + 1);
+            if(name.equals("fault")) {
+                final int separator = value.indexOf(':');
+                faultOverrides.put(value.substring(0, separator), FaultProfile.parse(value.substring(separator + 1)));
+            } else
+                options.put(name, value);
+        }
+
+        return new LoadTestConfig(
+                Integer.parseInt(options.getOrDefault("threads", "8")),
+                Long.parseLong(options.getOrDefault("durationSeconds", "30")),
+                Integer.parseInt(options.getOrDefault("signatures", "1000")),
+                Integer.parseInt(options.getOrDefault("faultySignatures", "50")),
+                FaultProfile.parse(options.getOrDefault("faultProfile", "1.0:0.0:0:5:15")),
+                FaultProfile.parse(options.getOrDefault("backgroundProfile", "0.0:0.001:50")),
+                faultOverrides,
+                Long.parseLong(options.getOrDefault("deadlineMillis", "1000")),
+                Arrays.stream(options.getOrDefault("contenders", "none,bloom-filter,adaptive-throttling,resilience4j,single-flight").split(","))
+                        .map(Contender::of)
+                        .toList());
+    }
+
+    public static String key(int index) {
+        return "key-" + index;
+    }
+
+    /**
+     * @return the faults of all the keys deviating from the background
+     */
+    public Map<String, FaultProfile> faults() {
+        final Map<String, FaultProfile> faults = new HashMap<>();
+        for(int i = 0; i < Math.min(faultySignatures, signatures); i++)
+            faults.put(key(i), fault);
+        faults.putAll(faultOverrides);
+        return faults;
+    }
+}
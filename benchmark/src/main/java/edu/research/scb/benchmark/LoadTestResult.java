@@ -0,0 +1,66 @@
+package edu.research.scb.benchmark;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * The outcome of the load test for a single contender.
+ *
+ * @param contender the circuit breaker under test
+ * @param calls the calls issued by the clients
+ * @param seconds the duration of the run
+ * @param succeeded the calls that succeeded
+ * @param failed the calls that failed at the backend or due to the deadline
+ * @param rejected the calls rejected by the circuit breaker
+ * @param healthyRejected the rejected calls of the keys without any fault, i.e. the collateral rejections
+ * @param healthyP50Nanos the median latency of the succeeded calls of the keys without any fault
+ * @param healthyP99Nanos the 99th percentile latency of the succeeded calls of the keys without any fault
+ * @param received the calls that reached the backend
+ * @param wasted the calls that reached the backend and failed due to an injected fault
+ * @param meanRecoveryMillis the mean time from the recovery of a faulty key to its first succeeded call
+ * @param unrecovered the faulty keys without any succeeded call after their recovery
+ */
+public record LoadTestResult(Contender contender,
+                             long calls,
+                             double seconds,
+                             long succeeded,
+                             long failed,
+                             long rejected,
+                             long healthyRejected,
+                             long healthyP50Nanos,
+                             long healthyP99Nanos,
+                             long received,
+                             long wasted,
+                             double meanRecoveryMillis,
+                             int unrecovered) {
+
+    public double throughput() {
+        return calls / seconds;
+    }
+
+    /**
+     * Prints the results as a table, where the added latency is relative to the baseline without any circuit
+     * breaker, if it was part of the run.
+     */
+    public static void print(List<LoadTestResult> results, PrintStream out) {
+        final LoadTestResult baseline = results.stream()
+                .filter(r -> r.contender() == Contender.NONE)
+                .findFirst()
+                .orElse(null);
+
+        out.printf("%-18s %12s %10s %10s %10s %10s %12s %12s %10s %10s %12s %12s%n",
+                "contender", "calls/s", "succeeded", "failed", "rejected", "collateral",
+                "+p50 (us)", "+p99 (us)", "received", "wasted", "ttr (ms)", "unrecovered");
+        for(LoadTestResult r : results) {
+            out.printf("%-18s %12.0f %10d %10d %10d %10d %12s %12s %10d %10d %12.0f %12d%n",
+                    r.contender(), r.throughput(), r.succeeded(), r.failed(), r.rejected(), r.healthyRejected(),
+                    added(r.healthyP50Nanos(), baseline != null ? baseline.healthyP50Nanos() : 0),
+                    added(r.healthyP99Nanos(), baseline != null ? baseline.healthyP99Nanos() : 0),
+                    r.received(), r.wasted(), r.meanRecoveryMillis(), r.unrecovered());
+        }
+    }
+
+    private static String added(long nanos, long baselineNanos) {
+        return String.format("%.1f", (nanos - baselineNanos) / 1000.0);
+    }
+}
@@ -0,0 +1,80 @@
+package edu.research.scb.benchmark;
+
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.OutcomeBufferProperties;
+import edu.research.scb.internal.outcome.BufferedOutcomeStrategy;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Compares the multi-threaded throughput of the requests, i.e. an admission followed by an outcome, when the
+ * outcomes are recorded by the calling threads against when they are buffered for a single writer. A quarter of the
+ * requests fail, over a thousand distinct signatures. The writer competes with the benchmark threads for the cores,
+ * thus the results only hold on a host with more cores than benchmark threads. Run from the root of the repository :
+ * <pre>{@code
+ * ./gradlew :benchmark:jmh --args="OutcomeBenchmark"
+ * }</pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class OutcomeBenchmark {
+
+    private static final String SERVICE_NAME = "media.MediaStreamService";
+    private static final String METHOD_NAME = "media.MediaStreamService/SearchByTitle";
+    private static final int SIGNATURES = 1024;
+
+    @Param({"direct", "buffered"})
+    private String mode;
+
+    private MeterRegistry meterRegistry;
+    private CircuitBreakerStrategy strategy;
+    private String[] signatures;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(BLOOM_FILTER_STRATEGY);
+        meterRegistry = new SimpleMeterRegistry();
+
+        final BloomFilterCircuitBreakerStrategy bloomFilter = new BloomFilterCircuitBreakerStrategy(properties, meterRegistry);
+        strategy = mode.equals("buffered") ?
+                new BufferedOutcomeStrategy(bloomFilter, new OutcomeBufferProperties(), meterRegistry) : bloomFilter;
+
+        signatures = new String[SIGNATURES];
+        for(int i = 0; i < SIGNATURES; i++)
+            signatures[i] = "title:" + i;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if(strategy instanceof BufferedOutcomeStrategy buffered) {
+            buffered.close();
+            System.out.printf("%n# outcomes recorded by the calling threads=%.0f%n", meterRegistry.counter(METRIC_OUTCOME_OVERFLOW_COUNTER_NAME).count());
+        }
+    }
+
+    @Benchmark
+    public boolean request() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String signature = signatures[random.nextInt(SIGNATURES)];
+        final boolean allowed = strategy.allowRequest(SERVICE_NAME, METHOD_NAME, signature);
+        if(random.nextInt(4) == 0)
+            strategy.onFailure(SERVICE_NAME, METHOD_NAME, signature);
+        else
+            strategy.onSuccess(SERVICE_NAME, METHOD_NAME, signature);
+        return allowed;
+    }
+}
@@ -0,0 +1,53 @@
+package edu.research.scb.benchmark;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.grpc.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The stock resilience4j circuit breaker with its default configuration, applied to the whole channel as a
+ * {@code ClientInterceptor}, i.e. a single circuit for all the request signatures.
+ */
+public class Resilience4jInterceptor implements ClientInterceptor {
+
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults(RESILIENCY_CIRCUIT_BREAKER_NAME);
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+                                                               CallOptions callOptions,
+                                                               Channel next) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+            private long startNanos;
+            private volatile boolean permitted;
+
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                    @Override
+                    public void onClose(Status status, Metadata trailers) {
+                        // The calls that were not permitted are cancelled, and not recorded as failures.
+                        if(permitted) {
+                            final long duration = System.nanoTime() - startNanos;
+                            if(status.isOk())
+                                circuitBreaker.onSuccess(duration, TimeUnit.NANOSECONDS);
+                            else
+                                circuitBreaker.onError(duration, TimeUnit.NANOSECONDS, status.asRuntimeException());
+                        }
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+
+            @Override
+            public void sendMessage(ReqT message) {
+                circuitBreaker.acquirePermission();
+                startNanos = System.nanoTime();
+                permitted = true;
+                super.sendMessage(message);
+            }
+        };
+    }
+}
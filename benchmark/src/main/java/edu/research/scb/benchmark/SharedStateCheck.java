@@ -0,0 +1,144 @@
+package edu.research.scb.benchmark;
+
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.bloomfilter.SharedCircuitState;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.SharedStateProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Checks the circuit state shared through a memory-mapped file by several JVM processes of the host, each one run as
+ * a child process of this one. For example, run from the root of the repository :
+ * <pre>{@code
+ * ./gradlew :benchmark:shared --args="--processes=4 --rounds=2000"
+ * }</pre>
+ *
+ * <ul>
+ *     <li>The processes record failures of the same signatures concurrently, and none of them is lost, i.e. the
+ *     atomic updates of the mapped buffer hold across the processes.</li>
+ *     <li>A process records the failures of a signature with the bloom filter strategy, and a fresh process, which
+ *     never saw any failure, rejects the signature while still allowing the healthy ones.</li>
+ *     <li>A process records the successes of the signature, and a fresh process allows it again.</li>
+ * </ul>
+ * The run fails if any check does.
+ */
+public class SharedStateCheck {
+
+    private static final String SERVICE = "media.MediaStreamService";
+    private static final String METHOD = "media.MediaStreamService/SearchByTitle";
+    private static final String FAILING = "title: \"poison\"";
+    private static final String HEALTHY = "title: \"healthy\"";
+    private static final int CAPACITY = 1 << 12;
+    private static final double FPP = 0.01;
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new LinkedHashMap<>(Map.of("role", "check", "processes", "4", "rounds", "2000", "signatures", "100"));
+        for(String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Invalid argument '" + arg + "', expected --name=value");
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        final int rounds = Integer.parseInt(options.get("rounds"));
+        final int signatures = Integer.parseInt(options.get("signatures"));
+        final Path file = options.containsKey("file") ? Path.of(options.get("file")) : null;
+
+        switch (options.get("role")) {
+            case "check" -> check(Integer.parseInt(options.get("processes")), rounds, signatures);
+            case "hammer" -> hammer(file, rounds, signatures);
+            case "fail" -> {
+                final BloomFilterCircuitBreakerStrategy strategy = strategy(file);
+                for(int i = 0; i < 20; i++)
+                    strategy.onFailure(SERVICE, METHOD, FAILING);
+            }
+            case "recover" -> {
+                final BloomFilterCircuitBreakerStrategy strategy = strategy(file);
+                for(int i = 0; i < 2; i++)
+                    strategy.onSuccess(SERVICE, METHOD, FAILING);
+            }
+            case "probe" -> {
+                final BloomFilterCircuitBreakerStrategy strategy = strategy(file);
+                final boolean failingAllowed = strategy.allowRequest(SERVICE, METHOD, FAILING);
+                final boolean healthyAllowed = strategy.allowRequest(SERVICE, METHOD, HEALTHY);
+                final boolean expected = Boolean.parseBoolean(options.get("failingAllowed"));
+                System.out.printf("  pid %d : failing signature allowed=%b, healthy signature allowed=%b%n",
+                        ProcessHandle.current().pid(), failingAllowed, healthyAllowed);
+                System.exit(failingAllowed == expected && healthyAllowed ? 0 : 1);
+            }
+            default -> throw new IllegalArgumentException("Unknown role '" + options.get("role") + "'");
+        }
+    }
+
+    private static void check(int processes, int rounds, int signatures) throws Exception {
+        boolean failed = false;
+
+        final Path counts = Files.createTempFile("scb-shared-counts", ".state");
+        System.out.println("Recording " + rounds + " failures of " + signatures + " signatures from each of " + processes + " processes ...");
+        final List<Process> hammers = new ArrayList<>();
+        for(int i = 0; i < processes; i++)
+            hammers.add(spawn("--role=hammer", "--file=" + counts, "--rounds=" + rounds, "--signatures=" + signatures));
+        for(Process hammer : hammers)
+            failed |= hammer.waitFor() != 0;
+        try(SharedCircuitState state = new SharedCircuitState(counts, CAPACITY, FPP)) {
+            int lost = 0;
+            for(int s = 0; s < signatures; s++)
+                lost += processes * rounds - state.getFailureCount("signature-" + s);
+            System.out.println("  failures lost : " + lost + " of " + (long) processes * rounds * signatures);
+            failed |= lost != 0;
+        }
+        Files.delete(counts);
+
+        final Path circuits = Files.createTempFile("scb-shared-circuits", ".state");
+        System.out.println("Failing a signature in one process, and probing it from a fresh one ...");
+        failed |= spawn("--role=fail", "--file=" + circuits).waitFor() != 0;
+        failed |= spawn("--role=probe", "--file=" + circuits, "--failingAllowed=false").waitFor() != 0;
+        System.out.println("Recovering the signature in one process, and probing it from a fresh one ...");
+        failed |= spawn("--role=recover", "--file=" + circuits).waitFor() != 0;
+        failed |= spawn("--role=probe", "--file=" + circuits, "--failingAllowed=true").waitFor() != 0;
+        Files.delete(circuits);
+
+        System.out.println(failed ? "FAILED" : "PASSED");
+        if(failed)
+            System.exit(1);
+    }
+
+    private static void hammer(Path file, int rounds, int signatures) throws Exception {
+        try(SharedCircuitState state = new SharedCircuitState(file, CAPACITY, FPP)) {
+            final long now = Instant.now().getEpochSecond();
+            for(int r = 0; r < rounds; r++) {
+                for(int s = 0; s < signatures; s++)
+                    state.recordFailure("signature-" + s, Integer.MAX_VALUE, Long.MAX_VALUE, now);
+            }
+        }
+    }
+
+    private static BloomFilterCircuitBreakerStrategy strategy(Path file) {
+        final SharedStateProperties shared = new SharedStateProperties();
+        shared.setEnabled(true);
+        shared.setFile(file.toString());
+        shared.setCapacity(CAPACITY);
+        shared.setFpp(FPP);
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(BLOOM_FILTER_STRATEGY);
+        properties.setSharedState(shared);
+        return new BloomFilterCircuitBreakerStrategy(properties, new SimpleMeterRegistry());
+    }
+
+    // The child process runs this class with the same JVM, classpath and logging.
+    private static Process spawn(String... args) throws Exception {
+        final List<String> command = new ArrayList<>(List.of(ProcessHandle.current().info().command().orElse("java"),
+                "-Dorg.apache.logging.log4j.simplelog.level=FATAL", "-cp", System.getProperty("java.class.path"),
+                SharedStateCheck.class.getName()));
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).inheritIO().start();
+    }
+}
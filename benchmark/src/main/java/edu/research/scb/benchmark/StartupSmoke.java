@@ -0,0 +1,117 @@
+package edu.research.scb.benchmark;
+
+import com.google.protobuf.StringValue;
+import edu.research.scb.internal.SmartCircuitBreaker;
+import edu.research.scb.internal.actuator.CircuitStateEndpoint;
+import edu.research.scb.internal.config.BloomFilterProperties;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.MemoryProperties;
+import edu.research.scb.internal.metrics.SpaceSavingSketch;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.SpringApplicationAotProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.aot.AbstractAotProcessor;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The start-up smoke test of a short-lived client with the circuit breaker. It boots a spring application with the
+ * auto-configuration of the starter, and reports the time from the start of the JVM till the context is refreshed,
+ * and till the first call allowed through the circuit breaker is answered by an in-process backend. For example, run
+ * from the root of the repository :
+ * <pre>{@code
+ * ./gradlew :benchmark:startup
+ * }</pre>
+ *
+ * <p>With {@code --aot=<dir>}, the application is processed ahead-of-time instead, as the spring boot plugin does for
+ * a native image, into the given directory. The run fails if the generated reflection metadata misses any of the
+ * properties or the actuator payloads of the library.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableAutoConfiguration
+public class StartupSmoke {
+
+    private static final List<Class<?>> HINTED_TYPES = List.of(CircuitBreakerProperties.class, BloomFilterProperties.class,
+            MemoryProperties.class, CircuitStateEndpoint.CircuitState.class, CircuitStateEndpoint.SignatureState.class,
+            SpaceSavingSketch.HeavyHitter.class);
+
+    public static void main(String[] args) throws Exception {
+        final Map<String, String> options = new LinkedHashMap<>();
+        for(String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Invalid argument '" + arg + "', expected --name=value");
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if(options.containsKey("aot"))
+            processAheadOfTime(Path.of(options.get("aot")));
+        else
+            boot();
+    }
+
+    // Also run by the ahead-of-time processing, which abandons the run once the context is prepared.
+    private static void boot() throws Exception {
+        final SpringApplication application = new SpringApplication(StartupSmoke.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setDefaultProperties(Map.of("grpc.server.port", "-1", "spring.main.banner-mode", "off"));
+        try(ConfigurableApplicationContext context = application.run()) {
+            final long refreshedMillis = uptimeMillis();
+
+            final Server server = InProcessServerBuilder.forName("scb-startup-smoke")
+                    .addService(new FaultInjectingService(Map.of(), FaultProfile.NONE, System.nanoTime()).bindService())
+                    .build()
+                    .start();
+            final ManagedChannel channel = InProcessChannelBuilder.forName("scb-startup-smoke")
+                    .intercept(new SmartCircuitBreaker(context.getBean(CircuitBreakerStrategy.class)))
+                    .build();
+            ClientCalls.blockingUnaryCall(channel, FaultInjectingService.GET_METHOD, CallOptions.DEFAULT, StringValue.of("smoke"));
+            final long firstCallMillis = uptimeMillis();
+
+            System.out.printf("JVM start to context refreshed : %6d ms%n", refreshedMillis);
+            System.out.printf("JVM start to first allowed call : %6d ms%n", firstCallMillis);
+            channel.shutdownNow();
+            server.shutdownNow();
+        }
+    }
+
+    private static void processAheadOfTime(Path output) throws Exception {
+        final AbstractAotProcessor.Settings settings = AbstractAotProcessor.Settings.builder()
+                .sourceOutput(output.resolve("sources"))
+                .resourceOutput(output.resolve("resources"))
+                .classOutput(output.resolve("classes"))
+                .groupId("edu.research")
+                .artifactId("benchmark")
+                .build();
+        new SpringApplicationAotProcessor(StartupSmoke.class, settings, new String[0]).process();
+
+        final String metadata = Files.readString(output.resolve("resources/META-INF/native-image/edu.research/benchmark/reflect-config.json"));
+        final List<String> missing = HINTED_TYPES.stream()
+                .map(Class::getName)
+                .filter(type -> !metadata.contains("\"" + type + "\""))
+                .toList();
+        System.out.println("Processed ahead-of-time into " + output.toAbsolutePath());
+        if(!missing.isEmpty()) {
+            System.out.println("Missing from the reflection metadata : " + missing);
+            System.exit(1);
+        }
+        System.out.println("The reflection metadata covers the " + HINTED_TYPES.size() + " types of the library");
+    }
+
+    private static long uptimeMillis() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
@@ -0,0 +1,172 @@
+package edu.research.scb.benchmark;
+
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.throttling.AdaptiveThrottlingStrategy;
+import edu.research.scb.internal.config.BloomFilterProperties;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.CircuitThresholds;
+import edu.research.scb.internal.trace.TraceReader;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Replays a trace recorded by the {@code TraceRecorder} through a strategy, on a virtual clock and at the maximum
+ * speed, in order to tune the thresholds without redeploying.
+ *
+ * <p>Every property may be given a comma separated list of values, and the trace is replayed for every combination
+ * of them. For example, run from the root of the repository :
+ * <pre>{@code
+ * ./gradlew :benchmark:replay --args="--trace=smart-circuit-breaker.trace --failureCountThreshold=2,3,5 --openStateWaitDurationInSeconds=5,30"
+ * }</pre>
+ *
+ * <p>A request rejected at the time of the recording has no known outcome. If the replayed strategy allows it, it is
+ * counted as such, and neither a success nor a failure is fed back to the strategy.
+ */
+public class TraceReplay {
+
+    // The signatures of the trace are fingerprints, which already include the method.
+    private static final String METHOD_NAME = "replay";
+
+    // The properties that can be swept, and how they are applied.
+    private static final Map<String, BiConsumer<CircuitBreakerProperties, String>> PROPERTIES = new LinkedHashMap<>();
+
+    static {
+        PROPERTIES.put("strategy", CircuitBreakerProperties::setStrategy);
+        PROPERTIES.put("transientFaultCountThreshold", (p, v) -> p.getThresholds().setTransientFaultCountThreshold(Integer.parseInt(v)));
+        PROPERTIES.put("failureCountThreshold", (p, v) -> p.getThresholds().setFailureCountThreshold(Integer.parseInt(v)));
+        PROPERTIES.put("openStateWaitDurationInSeconds", (p, v) -> p.getThresholds().setOpenStateWaitDurationInSeconds(Long.parseLong(v)));
+        PROPERTIES.put("openStateServiceLevelWaitDurationInSeconds", (p, v) -> p.getThresholds().setOpenStateServiceLevelWaitDurationInSeconds(Long.parseLong(v)));
+        PROPERTIES.put("serviceFailureRateThreshold", (p, v) -> p.getThresholds().setServiceFailureRateThreshold(Double.parseDouble(v)));
+        PROPERTIES.put("capacity", (p, v) -> p.getBloomFilter().setCapacity(Long.parseLong(v)));
+        PROPERTIES.put("fpp", (p, v) -> p.getBloomFilter().setFpp(Double.parseDouble(v)));
+        PROPERTIES.put("storeCapacity", (p, v) -> p.getBloomFilter().setStoreCapacity(Integer.parseInt(v)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path trace = null;
+        final Map<String, List<String>> sweep = new LinkedHashMap<>();
+        sweep.put("strategy", List.of(BLOOM_FILTER_STRATEGY));
+        for(String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("="))
+                throw new IllegalArgumentException("Invalid argument '" + arg + "', expected --name=value");
+
+            final String name = arg.substring(2, arg.indexOf('='));
+            final String value = arg.substring(arg.indexOf('=') + 1);
+            if(name.equals("trace"))
+                trace = Path.of(value);
+            else if(PROPERTIES.containsKey(name))
+                sweep.put(name, Arrays.asList(value.split(",")));
+            else
+                throw new IllegalArgumentException("Unknown property '" + name + "', expected one of " + PROPERTIES.keySet());
+        }
+        if(trace == null)
+            throw new IllegalArgumentException("The trace file is missing, expected --trace=<file>");
+
+        System.out.printf("%-60s %10s %10s %10s %12s %12s %12s %12s %12s %12s%n",
+                "configuration", "records", "allowed", "blocked", "false-block", "true-block", "missed-fail",
+                "unknown", "peak-mem-kb", "records/s");
+        for(Map<String, String> combination : combinations(sweep))
+            replay(trace, combination);
+    }
+
+    private static void replay(Path trace, Map<String, String> combination) throws Exception {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setThresholds(new CircuitThresholds());
+        properties.setBloomFilter(new BloomFilterProperties());
+        combination.forEach((name, value) -> PROPERTIES.get(name).accept(properties, value));
+
+        final VirtualClock clock = new VirtualClock();
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final Outcomes outcomes = new Outcomes();
+
+        try(TraceReader reader = new TraceReader(trace)) {
+            clock.set(reader.getFirstEpochMicros() / 1000);
+
+            final CircuitBreakerStrategy strategy = switch (properties.getStrategy()) {
+                case COUNT_MIN_SKETCH_STRATEGY -> throw new IllegalArgumentException("The strategy '" + COUNT_MIN_SKETCH_STRATEGY +
+                        "' is not implemented yet, and can't be replayed");
+                case ADAPTIVE_THROTTLING_STRATEGY -> new AdaptiveThrottlingStrategy(properties, meterRegistry, clock);
+                default -> new BloomFilterCircuitBreakerStrategy(properties, meterRegistry, clock);
+            };
+
+            final long start = System.nanoTime();
+            reader.forEach(r -> {
+                clock.set(r.epochMicros() / 1000);
+                final String service = Long.toHexString(r.serviceFingerprint());
+                final String signature = Long.toHexString(r.signatureFingerprint());
+                outcomes.records++;
+
+                if(strategy.allowRequest(service, METHOD_NAME, signature)) {
+                    outcomes.allowed++;
+                    if(r.isRejected()) {
+                        outcomes.unknown++;
+                    } else if(r.isSuccess()) {
+                        strategy.onSuccess(service, METHOD_NAME, signature);
+                    } else {
+                        outcomes.missedFailures++;
+                        strategy.onFailure(service, METHOD_NAME, signature);
+                    }
+                } else {
+                    outcomes.blocked++;
+                    if(r.isRejected())
+                        outcomes.unknown++;
+                    else if(r.isSuccess())
+                        outcomes.falseBlocks++;
+                    else
+                        outcomes.trueBlocks++;
+                }
+
+                if(outcomes.records % 4096 == 0)
+                    outcomes.peakMemory = Math.max(outcomes.peakMemory, memory(meterRegistry));
+            });
+            outcomes.peakMemory = Math.max(outcomes.peakMemory, memory(meterRegistry));
+            outcomes.seconds = (System.nanoTime() - start) / 1e9;
+        }
+
+        System.out.printf("%-60s %10d %10d %10d %12d %12d %12d %12d %12d %12.0f%n",
+                combination, outcomes.records, outcomes.allowed, outcomes.blocked, outcomes.falseBlocks,
+                outcomes.trueBlocks, outcomes.missedFailures, outcomes.unknown, outcomes.peakMemory / 1024,
+                outcomes.records / Math.max(outcomes.seconds, 1e-9));
+    }
+
+    // The estimated memory of the strategy, as reported by its memory gauges.
+    private static long memory(MeterRegistry meterRegistry) {
+        return (long) meterRegistry.find(METRIC_MEMORY_NAME).gauges().stream().mapToDouble(Gauge::value).sum();
+    }
+
+    private static List<Map<String, String>> combinations(Map<String, List<String>> sweep) {
+        List<Map<String, String>> combinations = List.of(new LinkedHashMap<>());
+        for(Map.Entry<String, List<String>> property : sweep.entrySet()) {
+            final List<Map<String, String>> next = new ArrayList<>();
+            for(Map<String, String> combination : combinations) {
+                for(String value : property.getValue()) {
+                    final Map<String, String> extended = new LinkedHashMap<>(combination);
+                    extended.put(property.getKey(), value.trim());
+                    next.add(extended);
+                }
+            }
+            combinations = next;
+        }
+        return combinations;
+    }
+
+    private static final class Outcomes {
+        private long records;
+        private long allowed;
+        private long blocked;
+        private long falseBlocks;
+        private long trueBlocks;
+        private long missedFailures;
+        private long unknown;
+        private long peakMemory;
+        private double seconds;
+    }
+}
@@ -0,0 +1,39 @@
+package edu.research.scb.benchmark;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock that only moves when it is set, so that a trace is replayed at the maximum speed while the strategy
+ * observes the recorded time.
+ */
+class VirtualClock extends Clock {
+
+    private volatile long epochMillis;
+
+    void set(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    @Override
+    public long millis() {
+        return epochMillis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(epochMillis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException("The virtual clock is always in UTC");
+    }
+}
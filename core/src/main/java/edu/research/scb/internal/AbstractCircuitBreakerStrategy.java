@@ -2,20 +2,38 @@ package edu.research.scb.internal;
 
 import edu.research.scb.internal.config.CircuitBreakerProperties;
 import edu.research.scb.internal.config.CircuitThresholds;
+import edu.research.scb.internal.config.MemoryProperties;
+import edu.research.scb.internal.config.MetricsProperties;
+import edu.research.scb.internal.config.ThresholdsSnapshot;
+import edu.research.scb.internal.criticality.CriticalityAdmission;
+import edu.research.scb.internal.jfr.CircuitBreakerEvents;
+import edu.research.scb.internal.memory.MemoryAccountant;
+import edu.research.scb.internal.metrics.SignatureCardinality;
+import edu.research.scb.internal.metrics.SpaceSavingSketch;
+import edu.research.scb.internal.metrics.StateMeters;
+import edu.research.scb.sdk.CallContext;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import edu.research.scb.sdk.Criticality;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
 
 import static edu.research.scb.internal.DefaultConstants.*;
 
-public abstract class AbstractCircuitBreakerStrategy {
+public abstract class AbstractCircuitBreakerStrategy implements CircuitBreakerStrategy {
 
     private static final Logger logger = LogManager.getLogger(AbstractCircuitBreakerStrategy.class);
 
@@ -26,28 +44,33 @@ public abstract class AbstractCircuitBreakerStrategy {
     // Service Counter for storing the success rate of any particular service.
     protected final ConcurrentHashMap<String, ServiceCounter> serviceCounter = new ConcurrentHashMap<>();
 
+    // The states forced by the operators for a service or a request signature, overriding the evaluation
+    // of the circuit until they are released.
+    protected final ConcurrentHashMap<String, States> forcedServiceStates = new ConcurrentHashMap<>();
+    protected final ConcurrentHashMap<String, States> forcedSignatureStates = new ConcurrentHashMap<>();
+
     // The overall properties of the circuit breaker configuration
     protected final CircuitBreakerProperties config;
 
     // Internal flag for enabling or disabling the circuit breaker.
     protected final boolean enableCircuitBreaker;
 
-    // The thresholds properties which are exposed as configuration properties.
-    protected final CircuitThresholds thresholds;
+    // The thresholds properties which are exposed as configuration properties, compiled into an immutable
+    // snapshot that is replaced as a whole when the thresholds are reloaded.
+    private final AtomicReference<ThresholdsSnapshot> thresholds;
+    private final Counter THRESHOLDS_RELOAD_COUNTER;
+
+    // The clock for all the timestamps and cooling periods, which is the system clock except when a recorded
+    // trace is replayed on a virtual clock.
+    protected final Clock clock;
 
     // Request Signature
     // ------------------------------------------
     // Primary function that creates the signature using the method name and the request data. Trims each of the input
-    // strings and removes and leading and trailing white-spaces before creating the signature. If either of the
-    // method-name or the data is null, then returns an empty string.
-    protected  static final BiFunction<String, String, String> CREATE_SIGNATURE = (methodName, data) -> {
-        if(methodName != null && data != null){
-            methodName = methodName.trim().replaceAll("^\\s+|\\s+$","");
-            data = data.trim().replaceAll("^\\s+|\\s+$","");
-            return String.join("-", methodName, data);
-        }
-        return "";
-    };
+    // strings of any leading and trailing white-spaces before creating the signature. If either of the method-name
+    // or the data is null, then returns an empty string. The calls through the {@code CallPolicy} carry the
+    // signature precomputed by their {@code CallContext} instead.
+    protected  static final BiFunction<String, String, String> CREATE_SIGNATURE = CallContext::signatureOf;
 
     // Circuit Evaluation
     // ------------------------------------------
@@ -62,11 +85,11 @@ public abstract class AbstractCircuitBreakerStrategy {
     // (4) OPEN   : If none of the above conditions are met, it implies that the circuit is open
     //              for the particular signature and no requests will be allowed to proceed
     //
-    protected static final BiPredicate<RequestMetrics, CircuitThresholds> CIRCUIT_EVALUATION = (reqMetric, threshold) -> {
-        if(reqMetric.getTransientFaultCount() <= threshold.getTransientFaultCountThreshold() ||
-                reqMetric.getFailureCount() <= threshold.getFailureCountThreshold()){
+    protected final BiPredicate<RequestMetrics, ThresholdsSnapshot> CIRCUIT_EVALUATION = (reqMetric, threshold) -> {
+        if(reqMetric.getTransientFaultCount() <= threshold.transientFaultCountThreshold() ||
+                reqMetric.getFailureCount() <= threshold.failureCountThreshold()){
             return true;
-        } else return ChronoUnit.SECONDS.between(reqMetric.getLastFailureTimestamp(), LocalDateTime.now()) > threshold.getOpenStateWaitDurationInSeconds();
+        } else return ChronoUnit.SECONDS.between(reqMetric.getLastFailureTimestamp(), now()) > threshold.openStateWaitDurationInSeconds();
     };
 
     // Prometheus Metric Counter for the states.
@@ -77,9 +100,34 @@ public abstract class AbstractCircuitBreakerStrategy {
     // trend of the requests over the timeline.
     // Also, it is difficult to track which request signature moved from which exact state and when, and hence
     // showing this as a ratio is a more practical approach.
-    protected final Counter OPEN_STATE_COUNTER;
-    protected final Counter CLOSED_STATE_COUNTER;
-    protected final Counter TOTAL_COUNTER;
+    // The counters are tagged by the service and the method, bounded by the 'max-tag-cardinality'.
+    protected final StateMeters stateMeters;
+
+    // Heavy Hitters
+    // ------------------------------------------
+    // The most frequently failing and rejected request signatures, which is what the tagged counters
+    // above cannot show without an unbounded cardinality.
+    protected final SpaceSavingSketch failingSignatures;
+    protected final SpaceSavingSketch rejectedSignatures;
+
+    // Signature Cardinality
+    // ------------------------------------------
+    // The estimated distinct signatures, and failing ones, of every service, which flag the services whose
+    // signatures explode and size the membership structures of the strategies.
+    protected final SignatureCardinality signatureCardinality;
+
+    // Memory Account
+    // ------------------------------------------
+    // The estimated heap of the structures of this strategy, within the memory budget shared by all the strategies
+    // of the JVM, on which the strategies track their own structures and evictors.
+    protected final MemoryAccountant.Account memoryAccount;
+
+    // The admission decisions are recorded as JFR events for 1 out of these many requests.
+    protected final int admissionEventSampleRate;
+
+    // The admission of the requests by their criticality while the circuit of their service is open, or
+    // null if all the requests are rejected alike.
+    protected final CriticalityAdmission criticalityAdmission;
 
     /**
      * Super Constructor
@@ -87,13 +135,87 @@ public abstract class AbstractCircuitBreakerStrategy {
      * @param config the {@code CircuitBreakerProperties} properties
      */
     protected AbstractCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry) {
+        this(config, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Super Constructor
+     *
+     * @param config the {@code CircuitBreakerProperties} properties
+     * @param clock the clock for the timestamps and the cooling periods
+     */
+    protected AbstractCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry, Clock clock) {
         this.config = config;
+        this.clock = clock;
         this.enableCircuitBreaker = config.getStrategy() != null;
-        this.thresholds = config.getThresholds();
-        logger.info("Thresholds: {}", thresholds);
-        OPEN_STATE_COUNTER = meterRegistry.counter(METRIC_OPEN_STATE_COUNTER_NAME);
-        CLOSED_STATE_COUNTER = meterRegistry.counter(METRIC_CLOSED_STATE_COUNTER_NAME);
-        TOTAL_COUNTER = meterRegistry.counter(METRIC_TOTAL_COUNTER_NAME);
+        this.thresholds = new AtomicReference<>(ThresholdsSnapshot.of(config.getThresholds()));
+        this.THRESHOLDS_RELOAD_COUNTER = meterRegistry.counter(METRIC_THRESHOLDS_RELOAD_COUNTER_NAME);
+        logger.info("Thresholds: {}", thresholds.get());
+        MetricsProperties metrics = config.getMetrics();
+        this.stateMeters = new StateMeters(meterRegistry, metrics.getMaxTagCardinality());
+        this.failingSignatures = new SpaceSavingSketch(metrics.getHeavyHitterCapacity());
+        this.rejectedSignatures = new SpaceSavingSketch(metrics.getHeavyHitterCapacity());
+        this.signatureCardinality = new SignatureCardinality(meterRegistry, metrics.getCardinalityPrecision(),
+                metrics.getSignatureExplosionRatio(), metrics.getSignatureExplosionMinRequests(), metrics.getCardinalityWindowSeconds(), clock);
+        final MemoryProperties memory = config.getMemory();
+        if(memory.getBudgetInBytes() > 0)
+            MemoryAccountant.global().configure(memory.getBudgetInBytes(), memory.getEnforceIntervalMillis());
+        this.memoryAccount = MemoryAccountant.global().open(enableCircuitBreaker ? config.getStrategy() : "disabled", meterRegistry)
+                .track("service_counters", () -> serviceCounter.size() * DEFAULT_ESTIMATED_SERVICE_COUNTER_SIZE_IN_BYTES)
+                .track("hyperloglog", signatureCardinality::getEstimatedSizeInBytes);
+        this.admissionEventSampleRate = metrics.getAdmissionEventSampleRate();
+        this.criticalityAdmission = config.getCriticality().getEnabled() ?
+                new CriticalityAdmission(config.getCriticality(), meterRegistry) : null;
+    }
+
+    /**
+     * The current snapshot of the thresholds, which is to be read once per evaluation, so that a reload in between
+     * doesn't mix the old and the new values.
+     *
+     * @return the thresholds snapshot
+     */
+    public ThresholdsSnapshot getThresholds() {
+        return thresholds.get();
+    }
+
+    /**
+     * Replaces the thresholds without any restart, for example when the configuration properties are refreshed.
+     * The requests already being evaluated complete with the previous thresholds.
+     *
+     * @param circuitThresholds the new thresholds, where the missing ones fall back to their defaults
+     */
+    public void reloadThresholds(CircuitThresholds circuitThresholds) {
+        final ThresholdsSnapshot snapshot = ThresholdsSnapshot.of(circuitThresholds);
+        final ThresholdsSnapshot previous = thresholds.getAndSet(snapshot);
+        THRESHOLDS_RELOAD_COUNTER.increment();
+        logger.info("THRESHOLDS-RELOAD: Reloaded the thresholds from {} to {}", previous, snapshot);
+    }
+
+    protected LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    /**
+     * @return the clock of the timestamps and the cooling periods of this strategy
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    public SpaceSavingSketch getFailingSignatures() {
+        return failingSignatures;
+    }
+
+    public SpaceSavingSketch getRejectedSignatures() {
+        return rejectedSignatures;
+    }
+
+    public SignatureCardinality getSignatureCardinality() {
+        return signatureCardinality;
+    }
+
+    public MemoryAccountant.Account getMemoryAccount() {
+        return memoryAccount;
     }
 
     /**
@@ -103,7 +225,7 @@ public abstract class AbstractCircuitBreakerStrategy {
      */
     protected void incrTotalCountForService(String serviceName){
         ServiceCounter sc = serviceCounter.getOrDefault(serviceName, new ServiceCounter(serviceName));
-        sc.incTotalCount();
+        sc.incTotalCount(now());
         serviceCounter.put(serviceName, sc);
     }
 
@@ -114,8 +236,12 @@ public abstract class AbstractCircuitBreakerStrategy {
      */
     protected void incrFailureCountForService(String serviceName){
         ServiceCounter sc = serviceCounter.getOrDefault(serviceName, new ServiceCounter(serviceName));
-        sc.incFailureCount();
+        double before = sc.getFailurePercentage();
+        sc.incFailureCount(now());
         serviceCounter.put(serviceName, sc);
+        final double threshold = thresholds.get().serviceFailureRateThreshold();
+        if(before <= threshold && sc.getFailurePercentage() > threshold)
+            CircuitBreakerEvents.transition(serviceName, null, States.CLOSED, States.OPEN);
     }
 
     /**
@@ -125,8 +251,12 @@ public abstract class AbstractCircuitBreakerStrategy {
      */
     protected void decrFailureCountForService(String serviceName){
         ServiceCounter sc = serviceCounter.getOrDefault(serviceName, new ServiceCounter(serviceName));
-        sc.decrFailureCount();
+        double before = sc.getFailurePercentage();
+        sc.decrFailureCount(now());
         serviceCounter.put(serviceName, sc);
+        final double threshold = thresholds.get().serviceFailureRateThreshold();
+        if(before > threshold && sc.getFailurePercentage() <= threshold)
+            CircuitBreakerEvents.transition(serviceName, null, States.OPEN, States.CLOSED);
     }
 
     /**
@@ -140,8 +270,107 @@ public abstract class AbstractCircuitBreakerStrategy {
         return serviceCounter.getOrDefault(serviceName, new ServiceCounter(serviceName)).getFailurePercentage();
     }
 
-    protected boolean isServiceHalfOpen(String serviceName){
+    /**
+     * Fetches the state forced for the request, if any. The state forced for the signature takes precedence
+     * over the one forced for the overall service. The maps are only looked up when non-empty, so that the
+     * request path is not taxed when nothing is forced.
+     *
+     * @param serviceName the name of the service
+     * @param signature the request signature
+     * @return the forced state, or {@code null} if the circuit is to be evaluated.
+     */
+    protected States getForcedState(String serviceName, String signature){
+        if(!forcedSignatureStates.isEmpty()) {
+            States state = forcedSignatureStates.get(signature);
+            if(state != null)
+                return state;
+        }
+        return forcedServiceStates.isEmpty() ? null : forcedServiceStates.get(serviceName);
+    }
+
+    /**
+     * Forces the circuit of the service to the given state, or releases it back to the evaluation.
+     *
+     * @param serviceName the name of the service
+     * @param state either {@code OPEN} or {@code CLOSED}, or {@code null} to release the forced state.
+     */
+    public void forceServiceState(String serviceName, States state){
+        logger.warn("FORCED-STATE: Forcing the circuit of the service '{}' to {}", serviceName, state);
+        if(state == null)
+            forcedServiceStates.remove(serviceName);
+        else
+            forcedServiceStates.put(serviceName, state);
+    }
+
+    /**
+     * Forces the circuit of the request signature to the given state, or releases it back to the evaluation.
+     *
+     * @param signature the request signature
+     * @param state either {@code OPEN} or {@code CLOSED}, or {@code null} to release the forced state.
+     */
+    public void forceSignatureState(String signature, States state){
+        logger.warn("FORCED-STATE: Forcing the circuit of the signature '{}' to {}", signature, state);
+        if(state == null)
+            forcedSignatureStates.remove(signature);
+        else
+            forcedSignatureStates.put(signature, state);
+    }
+
+    public Map<String, States> getForcedServiceStates(){
+        return Collections.unmodifiableMap(forcedServiceStates);
+    }
+
+    public Map<String, States> getForcedSignatureStates(){
+        return Collections.unmodifiableMap(forcedSignatureStates);
+    }
+
+    /**
+     * A weakly consistent view of the service counters, that never blocks the request path.
+     *
+     * @return the service counters
+     */
+    public Collection<ServiceCounter> getServiceCounters(){
+        return Collections.unmodifiableCollection(serviceCounter.values());
+    }
+
+    /**
+     * A weakly consistent stream of the metrics of the failing request signatures, that never blocks the
+     * request path. Strategies that do not track the signatures return an empty stream.
+     *
+     * @return the request metrics of the failing signatures
+     */
+    public Stream<RequestMetrics> getFailingRequestMetrics(){
+        return Stream.empty();
+    }
+
+    /**
+     * Determines if the signature is recorded as failing in the membership structure of the strategy.
+     *
+     * @param signature the request signature
+     * @return {@code true} if the signature may be failing
+     */
+    public boolean mightBeFailing(String signature){
+        return false;
+    }
+
+    /**
+     * Decides the admission of a request to a service whose failure rate is above the threshold. Unless the
+     * admission by criticality is enabled, the requests are only admitted once the service is half-open.
+     *
+     * @param serviceName the name of the service
+     * @param criticality the criticality of the request, or {@code null} for the default one
+     * @param thresholds the thresholds of the evaluation
+     * @return {@code true} if the request is to be evaluated further, {@code false} if it is rejected
+     */
+    protected boolean isAdmittedByService(String serviceName, Criticality criticality, ThresholdsSnapshot thresholds){
+        final boolean halfOpen = isServiceHalfOpen(serviceName, thresholds);
+        if(criticalityAdmission == null)
+            return halfOpen;
+        return criticalityAdmission.admit(criticality, getFailurePercentage(serviceName), thresholds.serviceFailureRateThreshold(), halfOpen);
+    }
+
+    protected boolean isServiceHalfOpen(String serviceName, ThresholdsSnapshot thresholds){
         return ChronoUnit.SECONDS.between(serviceCounter.getOrDefault(serviceName, new ServiceCounter(serviceName))
-                .getLastTimeStamp(), LocalDateTime.now()) > thresholds.getOpenStateServiceLevelWaitDurationInSeconds();
+                .getLastTimeStamp(), now()) > thresholds.openStateServiceLevelWaitDurationInSeconds();
     }
 }
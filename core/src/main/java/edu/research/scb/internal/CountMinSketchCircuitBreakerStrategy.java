@@ -3,11 +3,9 @@ package edu.research.scb.internal;
 import edu.research.scb.internal.config.CircuitBreakerProperties;
 import edu.research.scb.sdk.CircuitBreakerStrategy;
 import io.micrometer.core.instrument.MeterRegistry;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.stereotype.Service;
 
-@Service
-@ConditionalOnProperty(name = "circuit-breaker.strategy", havingValue = "count-min-sketch")
+import java.time.Clock;
+
 public class CountMinSketchCircuitBreakerStrategy extends AbstractCircuitBreakerStrategy implements CircuitBreakerStrategy {
 
 
@@ -16,10 +14,14 @@ public class CountMinSketchCircuitBreakerStrategy extends AbstractCircuitBreaker
      *
      * @param config the {@code CircuitBreakerProperties} properties
      */
-    protected CountMinSketchCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry) {
+    public CountMinSketchCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry) {
         super(config, meterRegistry);
     }
 
+    public CountMinSketchCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry, Clock clock) {
+        super(config, meterRegistry, clock);
+    }
+
     /**
      * Determines if the client request should be allowed to be sent to the server, based on the
      * state of the circuit breaker.
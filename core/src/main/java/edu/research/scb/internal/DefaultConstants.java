@@ -1,8 +1,10 @@
 package edu.research.scb.internal;
 
+import edu.research.scb.sdk.Criticality;
 import io.grpc.Status;
 
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,15 +29,41 @@ public class DefaultConstants {
     // This will be over-ridden using the property 'circuit-breaker.bloom-filter.charset'
     public static final Charset DEFAULT_BLOOM_FILTER_CHARSET = Charset.defaultCharset();
 
-    // The static capacity of the failure store that will house all the failed requests.
-    // If the failure capacity is full, then it is considered to be a service level
-    // failure and the circuit should be opened.
+    // The implementation of the bloom filter, either the guava one or the cache-line-blocked one.
+    // This will be over-ridden using the property 'circuit-breaker.bloom-filter.backend'
+    public static final String DEFAULT_BLOOM_FILTER_BACKEND = "guava";
+
+    // The hard capacity of the failure store that will house all the failed requests.
+    // If the failure capacity is full, then the entry closest to its expiry is evicted
+    // to make room for the new one. The entries otherwise expire after the store time-to-live
+    // without any further failure.
     public static final Integer DEFAULT_REQUEST_FAILURE_CAPACITY = 10000;
 
+    // The time-to-live of the entries of the failure store as a multiple of the open state wait duration, when not
+    // set by the property 'circuit-breaker.bloom-filter.store-ttl-seconds'. The entries must outlive the open wait,
+    // so that a failed half-open probe still finds its counts and opens the circuit again.
+    public static final Long DEFAULT_STORE_TTL_OPEN_WAIT_MULTIPLIER = 2L;
+
+    // The approximate heap occupied by a single entry of the failure store, i.e. the map node, the request
+    // metrics with its counters and timestamp, and the signature string of a typical length. Used only for
+    // reporting the estimated memory footprint.
+    public static final Long DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES = 320L;
+
+    // The approximate heap occupied by a single entry of the reset queue, i.e. the queue node and the request metrics
+    // it holds, as verified by the MemoryFootprintTest.
+    public static final Long DEFAULT_ESTIMATED_RESET_QUEUE_ENTRY_SIZE_IN_BYTES = 296L;
+
+    // The approximate heap occupied by the counter of a single service, i.e. the map node, the counters, the
+    // timestamp and the service name, as verified by the MemoryFootprintTest.
+    public static final Long DEFAULT_ESTIMATED_SERVICE_COUNTER_SIZE_IN_BYTES = 275L;
+
+    // The approximate heap occupied by the sliding window of a single service of the adaptive throttling, per bucket.
+    // The buckets are atomic counters of their own, as verified by the MemoryFootprintTest.
+    public static final Long DEFAULT_ESTIMATED_WINDOW_BUCKET_SIZE_IN_BYTES = 112L;
+
     // The queue buffer that will store the requests that have now recovered from failures
-    // and need to be reset in the bloom filter. Once the queue is full, the auxiliary queue
-    // is used for storing additional requests and meanwhile this queue is used to reset the
-    // bloom filter.
+    // and need to be reset in the bloom filter. Once the queue is full, the bloom filter is
+    // rebuilt into the next generation, whose queue stores the additional requests meanwhile.
     public static final Integer DEFAULT_BLOOM_FILTER_RESET_QUEUE_BUFFER = 100;
 
     // If the reset queue buffer is above this threshold, then it will be reset and
@@ -46,6 +74,212 @@ public class DefaultConstants {
     // the above threshold or this time in minutes.
     public static final Double DEFAULT_BLOOM_FILTER_QUEUE_BUFFER_TIME_THRESHOLD_IN_MINUTES = 2.0;
 
+    // The auto-sizing of the bloom filter by the estimated distinct failing signatures, on every rebuild by the
+    // finalizer, is disabled by default and is enabled using the property 'circuit-breaker.bloom-filter.auto-size'
+    public static final Boolean DEFAULT_BLOOM_FILTER_AUTO_SIZE = false;
+
+    // The capacity of the auto-sized bloom filter, as a multiple of the estimated distinct failing signatures,
+    // so that the filter keeps its fpp while the failing signatures keep growing till the next rebuild.
+    public static final Double BLOOM_FILTER_AUTO_SIZE_HEADROOM = 2.0;
+
+    // ============== DEFAULT : Adaptive Throttling Properties ==============
+    // The multiplier of the accepted requests in the rejection probability of the adaptive throttling,
+    // max(0, (requests - K * accepts) / (requests + 1)), where 2 is the value suggested by the Google SRE book.
+    // This will be over-ridden using the property 'circuit-breaker.adaptive-throttling.k'
+    public static final Double DEFAULT_ADAPTIVE_THROTTLING_K = 2.0;
+
+    // The sliding window in seconds over which the requests and the accepts of a service are counted.
+    // This will be over-ridden using the property 'circuit-breaker.adaptive-throttling.window-seconds'
+    public static final Long DEFAULT_ADAPTIVE_THROTTLING_WINDOW_IN_SECS = 60L;
+
+    // The number of buckets the window slides by.
+    // This will be over-ridden using the property 'circuit-breaker.adaptive-throttling.buckets'
+    public static final Integer DEFAULT_ADAPTIVE_THROTTLING_BUCKETS = 12;
+
+    // ============== DEFAULT : Single Flight Properties ==============
+    // Coalescing of identical in-flight unary requests is disabled by default and is
+    // enabled using the property 'circuit-breaker.single-flight.enabled'
+    public static final Boolean DEFAULT_SINGLE_FLIGHT_ENABLED = false;
+
+    // The maximum number of distinct request signatures that can be in-flight at once. Requests
+    // beyond this bound are sent as is, without being coalesced.
+    // This will be over-ridden using the property 'circuit-breaker.single-flight.max-in-flight'
+    public static final Integer DEFAULT_SINGLE_FLIGHT_MAX_IN_FLIGHT = 1000;
+
+    // ============== DEFAULT : Stale Response Cache Properties ==============
+    // Serving of stale responses while the circuit is open is disabled by default and is
+    // enabled using the property 'circuit-breaker.stale-response-cache.enabled'
+    public static final Boolean DEFAULT_STALE_RESPONSE_CACHE_ENABLED = false;
+
+    // The budget for all the cached serialized responses together, 16 MB by default.
+    // This will be over-ridden using the property 'circuit-breaker.stale-response-cache.max-size-in-bytes'
+    public static final Long DEFAULT_STALE_RESPONSE_CACHE_MAX_SIZE_IN_BYTES = 16L * 1024 * 1024;
+
+    // The time period in seconds for which a successful response can be served as a stale response.
+    // This will be over-ridden using the property 'circuit-breaker.stale-response-cache.ttl-in-seconds'
+    public static final Long DEFAULT_STALE_RESPONSE_CACHE_TTL_IN_SECS = 60L;
+
+    // The name of the response header flagging a response served from the stale response cache.
+    public static final String STALE_RESPONSE_HEADER_NAME = "x-smart-circuit-breaker-stale";
+
+    // ============== DEFAULT : Load Shedding Properties ==============
+    // Shedding of the poison requests by the server-side interceptor is disabled by default and is
+    // enabled using the property 'circuit-breaker.load-shedding.enabled'
+    public static final Boolean DEFAULT_LOAD_SHEDDING_ENABLED = false;
+
+    // ============== DEFAULT : Outcome Buffer Properties ==============
+    // Buffering of the request outcomes for a single writer thread is disabled by default and is
+    // enabled using the property 'circuit-breaker.outcome-buffer.enabled'
+    public static final Boolean DEFAULT_OUTCOME_BUFFER_ENABLED = false;
+
+    // The number of ring buffers the outcomes are striped across, rounded up to a power of two.
+    // This will be over-ridden using the property 'circuit-breaker.outcome-buffer.stripes'
+    public static final Integer DEFAULT_OUTCOME_BUFFER_STRIPES = Runtime.getRuntime().availableProcessors();
+
+    // The capacity of each ring buffer in outcomes, rounded up to a power of two. Once all the rings are full, the
+    // outcomes are recorded by the calling threads till the writer catches up.
+    // This will be over-ridden using the property 'circuit-breaker.outcome-buffer.capacity'
+    public static final Integer DEFAULT_OUTCOME_BUFFER_CAPACITY = 1024;
+
+    // The longest time in microseconds the writer waits before draining the buffers, if not woken up earlier
+    // by a buffer filling up.
+    // This will be over-ridden using the property 'circuit-breaker.outcome-buffer.drain-interval-micros'
+    public static final Long DEFAULT_OUTCOME_BUFFER_DRAIN_INTERVAL_MICROS = 1000L;
+
+    // ============== DEFAULT : Endpoint Ejection Properties ==============
+    // The load balancing policy ejecting the outlier endpoints is only registered when explicitly switched on,
+    // using the property 'circuit-breaker.endpoint-ejection.enabled'
+    public static final Boolean DEFAULT_ENDPOINT_EJECTION_ENABLED = false;
+
+    // The name of the load balancing policy, as given to the 'defaultLoadBalancingPolicy' of the channels.
+    public static final String OUTLIER_EJECTION_POLICY_NAME = "smart_circuit_breaker_outlier_ejection";
+
+    // The load balancing policy picking among the endpoints that are not ejected.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.child-policy'
+    public static final String DEFAULT_ENDPOINT_EJECTION_CHILD_POLICY = "round_robin";
+
+    // The failure percentage of an endpoint within an interval, beyond which it is ejected.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.failure-rate-threshold'
+    public static final Double DEFAULT_ENDPOINT_EJECTION_FAILURE_RATE_THRESHOLD = 50.0;
+
+    // The least number of calls to an endpoint within an interval, for its failure percentage to be evaluated.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.minimum-requests'
+    public static final Integer DEFAULT_ENDPOINT_EJECTION_MINIMUM_REQUESTS = 20;
+
+    // The interval in milliseconds at which the endpoints are evaluated and their counts are reset.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.interval-millis'
+    public static final Long DEFAULT_ENDPOINT_EJECTION_INTERVAL_MILLIS = 10000L;
+
+    // The time in milliseconds an endpoint is ejected for, multiplied by the number of its consecutive ejections.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.base-ejection-time-millis'
+    public static final Long DEFAULT_ENDPOINT_EJECTION_BASE_TIME_MILLIS = 30000L;
+
+    // The longest time in milliseconds an endpoint is ejected for, however many times it has been ejected.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.max-ejection-time-millis'
+    public static final Long DEFAULT_ENDPOINT_EJECTION_MAX_TIME_MILLIS = 300000L;
+
+    // The largest percentage of the endpoints of a channel that can be ejected at once, so that a failure of
+    // the whole service never ejects all of its endpoints.
+    // This will be over-ridden using the property 'circuit-breaker.endpoint-ejection.max-ejection-percent'
+    public static final Integer DEFAULT_ENDPOINT_EJECTION_MAX_PERCENT = 50;
+
+    // ============== DEFAULT : Deadline Properties ==============
+    // The rejection of the calls whose remaining deadline is below the latency of their method is disabled by
+    // default and is enabled using the property 'circuit-breaker.deadline.enabled'
+    public static final Boolean DEFAULT_DEADLINE_ENABLED = false;
+
+    // The quantile of the recent latencies of a method, which the remaining deadline of its calls has to cover.
+    // This will be over-ridden using the property 'circuit-breaker.deadline.quantile'
+    public static final Double DEFAULT_DEADLINE_QUANTILE = 0.5;
+
+    // The latencies a method has to record before its calls are rejected by their deadline.
+    // This will be over-ridden using the property 'circuit-breaker.deadline.minimum-samples'
+    public static final Integer DEFAULT_DEADLINE_MINIMUM_SAMPLES = 20;
+
+    // The interval at which the recorded latencies are halved, so that the older ones fade away.
+    // This will be over-ridden using the property 'circuit-breaker.deadline.decay-interval-millis'
+    public static final Long DEFAULT_DEADLINE_DECAY_INTERVAL_MILLIS = 5000L;
+
+    // ============== DEFAULT : Memory Properties ==============
+    // The budget for the estimated heap of all the strategies of the JVM together, which is unbounded by default.
+    // This will be over-ridden using the property 'circuit-breaker.memory.budget-in-bytes'
+    public static final Long DEFAULT_MEMORY_BUDGET_IN_BYTES = 0L;
+
+    // The least interval at which the memory budget is checked.
+    // This will be over-ridden using the property 'circuit-breaker.memory.enforce-interval-millis'
+    public static final Long DEFAULT_MEMORY_ENFORCE_INTERVAL_MILLIS = 1000L;
+
+    // ============== DEFAULT : Criticality Properties ==============
+    // The admission by the criticality of the requests, while the circuit of their service is open, is disabled
+    // by default and is enabled using the property 'circuit-breaker.criticality.enabled'
+    public static final Boolean DEFAULT_CRITICALITY_ENABLED = false;
+
+    // The criticality of the requests that carry none.
+    // This will be over-ridden using the property 'circuit-breaker.criticality.default-criticality'
+    public static final Criticality DEFAULT_CRITICALITY = Criticality.CRITICAL;
+
+    // The name of the request header carrying the criticality of the request, defined by the sdk for the clients.
+    public static final String CRITICALITY_HEADER_NAME = Criticality.HEADER_NAME;
+
+    // ============== DEFAULT : Metrics Properties ==============
+    // The maximum number of distinct service and method combinations for which tagged meters are registered.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.max-tag-cardinality'
+    public static final Integer DEFAULT_METRICS_MAX_TAG_CARDINALITY = 500;
+
+    // The tag value used for all the service and method combinations beyond the above cardinality.
+    public static final String METRIC_TAG_OVERFLOW_VALUE = "overflow";
+
+    // The number of most frequently failing and rejected signatures that are tracked.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.heavy-hitter-capacity'
+    public static final Integer DEFAULT_METRICS_HEAVY_HITTER_CAPACITY = 50;
+
+    // The JFR admission decision events are recorded for 1 out of these many requests.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.admission-event-sample-rate'
+    public static final Integer DEFAULT_METRICS_ADMISSION_EVENT_SAMPLE_RATE = 100;
+
+    // The precision of the HyperLogLog sketches of the distinct signatures of every service, i.e. 2^12 registers
+    // of 4 KB, with a standard error of 1.6%.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.cardinality-precision'
+    public static final Integer DEFAULT_METRICS_CARDINALITY_PRECISION = 12;
+
+    // The signatures of a service are flagged as exploding when these many of its requests are distinct ones.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.signature-explosion-ratio'
+    public static final Double DEFAULT_METRICS_SIGNATURE_EXPLOSION_RATIO = 0.9;
+
+    // The requests a service has to see before its signatures are checked for an explosion.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.signature-explosion-min-requests'
+    public static final Long DEFAULT_METRICS_SIGNATURE_EXPLOSION_MIN_REQUESTS = 10000L;
+
+    // The window of the cardinality sketches, after which the current sketches become the previous ones, and the
+    // previous ones are dropped.
+    // This will be over-ridden using the property 'circuit-breaker.metrics.cardinality-window-seconds'
+    public static final Long DEFAULT_METRICS_CARDINALITY_WINDOW_SECONDS = 300L;
+
+    // ============== DEFAULT : Trace Properties ==============
+    // Recording of the request outcomes into a trace file is disabled unless explicitly switched on.
+    public static final Boolean DEFAULT_TRACE_ENABLED = false;
+
+    // The memory-mapped trace file, which is truncated on every start.
+    public static final String DEFAULT_TRACE_FILE = "smart-circuit-breaker.trace";
+
+    // The capacity of the trace in records of 32 bytes each, i.e. 32 MB, beyond which the oldest
+    // records are overwritten.
+    public static final Integer DEFAULT_TRACE_MAX_RECORDS = 1 << 20;
+
+    // ============== DEFAULT : Shared State Properties ==============
+    // Sharing the failing signatures with the other processes of the host is disabled unless explicitly switched on.
+    public static final Boolean DEFAULT_SHARED_STATE_ENABLED = false;
+
+    // The memory-mapped file of the shared state, which all the processes sharing it are to be configured with.
+    public static final String DEFAULT_SHARED_STATE_FILE = Path.of(System.getProperty("java.io.tmpdir"), "smart-circuit-breaker.state").toString();
+
+    // The number of failing signatures held by the table of the shared state, of 16 bytes each, i.e. 1 MB.
+    // It is rounded up to a power of two.
+    public static final Integer DEFAULT_SHARED_STATE_CAPACITY = 1 << 16;
+
+    // The desired false positive probability of the shared filter at its capacity.
+    public static final Double DEFAULT_SHARED_STATE_FPP = 0.01;
+
     // ============== DEFAULT : Overall Circuit Breaker Properties ==============
     // Allows certain failed requests to pass through, discounting them initially
     // as transient faults only if the circuit for the requests is closed. Post
@@ -71,6 +305,21 @@ public class DefaultConstants {
     // pertaining to that service will be opened.
     public static final Double DEFAULT_SERVICE_FAILURE_RATE_THRESHOLD = 20.0;
 
+    // The initial interval and the multiplier of the retry backoff, if not specified via the config properties.
+    // These are the same as the defaults of the resiliency4j 'IntervalFunction', which are repeated here so
+    // that the core does not depend on the resiliency library.
+    public static final Long DEFAULT_BACKOFF_INITIAL_INTERVAL_MILLIS = 500L;
+    public static final Double DEFAULT_BACKOFF_MULTIPLIER = 1.5;
+
+    // The valid values of the property 'circuit-breaker.strategy'.
+    public static final String BLOOM_FILTER_STRATEGY = "bloom-filter";
+    public static final String COUNT_MIN_SKETCH_STRATEGY = "count-min-sketch";
+    public static final String ADAPTIVE_THROTTLING_STRATEGY = "adaptive-throttling";
+
+    // The valid values of the property 'circuit-breaker.bloom-filter.backend'.
+    public static final String GUAVA_BLOOM_FILTER_BACKEND = "guava";
+    public static final String BLOCKED_BLOOM_FILTER_BACKEND = "blocked";
+
     // The name of the circuit breaker that is used in several config parameters
     // This is specified by the consuming services as the name of the retry config.
     public static final String CIRCUIT_BREAKER_NAME = "SmartCircuitBreaker";
@@ -95,7 +344,6 @@ public class DefaultConstants {
     public static final String METRIC_FPP_NAME = "bloom_filter_false_positive_probability";
     public static final String METRIC_DISTINCT_COUNT_NAME = "bloom_filter_approx_distinct_elements_count";
     public static final String METRIC_FINALIZER_QUEUE_NAME = "bloom_filter_finalizer_queue_size";
-    public static final String METRIC_FINALIZER_AUX_QUEUE_NAME = "bloom_filter_finalizer_aux_queue_size";
     public static final String METRIC_BLOOM_FILTER_FINALIZER_NAME = "bloom_filter_finalizer_time";
     public static final String METRIC_BLOOM_FILTER_FINALIZER_COUNTER_NAME = "bloom_filter_finalizer_counter";
     public static final String METRIC_BLOOM_FILTER_RESET_NAME = "bloom_filter_reset_time";
@@ -103,6 +351,38 @@ public class DefaultConstants {
     public static final String METRIC_CLOSED_STATE_COUNTER_NAME = "smart_circuit_breaker_closed_state_counter";
     public static final String METRIC_HALF_OPEN_STATE_COUNTER_NAME = "smart_circuit_breaker_half_open_state_counter";
     public static final String METRIC_TOTAL_COUNTER_NAME = "smart_circuit_breaker_total_counter";
+    public static final String METRIC_MEMORY_NAME = "smart_circuit_breaker_memory_bytes";
+    public static final String METRIC_MEMORY_TOTAL_NAME = "smart_circuit_breaker_memory_total_bytes";
+    public static final String METRIC_MEMORY_BUDGET_NAME = "smart_circuit_breaker_memory_budget_bytes";
+    public static final String METRIC_MEMORY_EVICTED_COUNTER_NAME = "smart_circuit_breaker_memory_evicted_bytes_counter";
+    public static final String METRIC_TAG_STRUCTURE = "structure";
+    public static final String METRIC_TAG_SERVICE = "service";
+    public static final String METRIC_TAG_METHOD = "method";
+    public static final String METRIC_TAG_CAUSE = "cause";
+    public static final String METRIC_TAG_CRITICALITY = "criticality";
+    public static final String METRIC_TAG_KIND = "kind";
+    public static final String METRIC_TAG_INSTANCE = "instance";
+    public static final String METRIC_THRESHOLDS_RELOAD_COUNTER_NAME = "smart_circuit_breaker_thresholds_reload_counter";
+    public static final String METRIC_STORE_EVICTION_COUNTER_NAME = "bloom_filter_store_eviction_counter";
+    public static final String METRIC_SINGLE_FLIGHT_LEADER_COUNTER_NAME = "smart_circuit_breaker_single_flight_leader_counter";
+    public static final String METRIC_SINGLE_FLIGHT_COALESCED_COUNTER_NAME = "smart_circuit_breaker_single_flight_coalesced_counter";
+    public static final String METRIC_SINGLE_FLIGHT_BYPASS_COUNTER_NAME = "smart_circuit_breaker_single_flight_bypass_counter";
+    public static final String METRIC_SINGLE_FLIGHT_IN_FLIGHT_NAME = "smart_circuit_breaker_single_flight_in_flight";
+    public static final String METRIC_STALE_RESPONSE_CACHE_NAME = "smart_circuit_breaker_stale_response_cache";
+    public static final String METRIC_SHED_COUNTER_NAME = "smart_circuit_breaker_shed_counter";
+    public static final String METRIC_SERVER_TOTAL_COUNTER_NAME = "smart_circuit_breaker_server_total_counter";
+    public static final String METRIC_OUTCOME_OVERFLOW_COUNTER_NAME = "smart_circuit_breaker_outcome_overflow_counter";
+    public static final String METRIC_OUTCOME_BUFFER_SIZE_NAME = "smart_circuit_breaker_outcome_buffer_size";
+    public static final String METRIC_ENDPOINT_EJECTION_COUNTER_NAME = "smart_circuit_breaker_endpoint_ejection_counter";
+    public static final String METRIC_EJECTED_ENDPOINTS_NAME = "smart_circuit_breaker_ejected_endpoints";
+    public static final String METRIC_CRITICALITY_ADMITTED_COUNTER_NAME = "smart_circuit_breaker_criticality_admitted_counter";
+    public static final String METRIC_CRITICALITY_REJECTED_COUNTER_NAME = "smart_circuit_breaker_criticality_rejected_counter";
+    public static final String METRIC_STALE_RESPONSE_SERVED_COUNTER_NAME = "smart_circuit_breaker_stale_response_served_counter";
+    public static final String METRIC_SIGNATURE_CARDINALITY_NAME = "smart_circuit_breaker_signature_cardinality";
+    public static final String METRIC_DEADLINE_REJECTED_COUNTER_NAME = "smart_circuit_breaker_deadline_rejected_counter";
+    public static final String METRIC_SIGNATURE_EXPLOSION_NAME = "smart_circuit_breaker_signature_explosion";
+    public static final String METRIC_SHARED_STATE_FPP_NAME = "smart_circuit_breaker_shared_state_fpp";
+    public static final String METRIC_SHARED_STATE_DROPPED_COUNTER_NAME = "smart_circuit_breaker_shared_state_dropped_counter";
 
 }
 
@@ -0,0 +1,204 @@
+package edu.research.scb.internal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, scheduling the expiry of items in O(1).
+ *
+ * <p>The wheel consists of {@code LEVELS} wheels of {@code WHEEL_SIZE} slots each, where a slot of the level
+ * {@code n} spans {@code WHEEL_SIZE^n} ticks. An item is placed on the lowest level that can hold its deadline,
+ * and is cascaded down to the lower levels as the time advances, until it expires from the lowest level. With
+ * 64 slots and 4 levels, deadlines up to {@code 64^4} ticks away are held, and further deadlines are parked on
+ * the highest level and re-placed when cascaded.
+ *
+ * <p>The wheel is not driven by a thread of its own. The time is advanced by the callers via {@link #advance}, and
+ * none of the operations ever waits on another thread. The scheduled items are appended to a lock-free queue of
+ * pending items, which are placed on the wheel by the next thread holding its lock. {@link #advance} and
+ * {@link #pollEarliest} only try to acquire the lock, and return right away if another thread holds it. An advance
+ * expires at most {@value #MAX_EXPIRED_PER_ADVANCE} items, plus the rest of the slot reaching that bound, and the
+ * remaining ticks are caught up by the next advance.
+ *
+ * @param <T> the type of the scheduled items
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = 1L << (WHEEL_BITS * LEVELS);
+    static final int MAX_EXPIRED_PER_ADVANCE = 1024;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final ReentrantLock lock;
+
+    // The slots of all the levels, indexed by 'level * WHEEL_SIZE + index', allocated lazily on their first use.
+    private final List<ArrayDeque<Entry<T>>> slots;
+    // The items scheduled since the wheel was last held, to be placed on it.
+    private final ConcurrentLinkedQueue<Entry<T>> pending;
+    // Only moved under the lock, and read by the scheduling threads without it.
+    private volatile long currentTick;
+    private final AtomicInteger size;
+
+    public HierarchicalTimingWheel(long tickNanos, long startNanos) {
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+        this.lock = new ReentrantLock();
+        this.slots = new ArrayList<>(Collections.nCopies(LEVELS * WHEEL_SIZE, null));
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.currentTick = 0;
+        this.size = new AtomicInteger();
+    }
+
+    /**
+     * Schedules the item to expire after the given delay, rounded up to the next tick. The item is only queued
+     * here, without waiting on the lock of the wheel.
+     *
+     * @param item the item
+     * @param delayNanos the delay in nanoseconds
+     */
+    public void schedule(T item, long delayNanos) {
+        final long ticks = Math.max(1, delayNanos / tickNanos + (delayNanos % tickNanos != 0 ? 1 : 0));
+        pending.add(new Entry<>(item, currentTick + ticks));
+        size.incrementAndGet();
+    }
+
+    /**
+     * Advances the wheel up to the given time, handing over every expired item to the consumer. If the wheel is
+     * being advanced or updated by another thread, this is a no-op. The consumer may schedule the item again.
+     *
+     * @param nowNanos the current time in nanoseconds, on the same time base as the start of the wheel
+     * @param onExpiry the consumer of the expired items
+     */
+    public void advance(long nowNanos, Consumer<T> onExpiry) {
+        final long targetTick = (nowNanos - startNanos) / tickNanos;
+        if(targetTick <= currentTick || !lock.tryLock())
+            return;
+
+        try {
+            placePending();
+            // Nothing to expire, so the wheel is moved right away to the target.
+            if(size.get() == 0) {
+                currentTick = targetTick;
+                return;
+            }
+
+            int expiredCount = 0;
+            while(currentTick < targetTick && expiredCount < MAX_EXPIRED_PER_ADVANCE) {
+                final long tick = currentTick + 1;
+                currentTick = tick;
+
+                // Cascading the slot of every higher level whose period starts at this tick.
+                for(int level = 1; level < LEVELS; level++) {
+                    if((tick & ((1L << (WHEEL_BITS * level)) - 1)) != 0)
+                        break;
+                    final ArrayDeque<Entry<T>> cascaded = take(level, (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+                    if(cascaded != null)
+                        cascaded.forEach(this::place);
+                }
+
+                final ArrayDeque<Entry<T>> expired = take(0, (int) (tick & WHEEL_MASK));
+                if(expired != null) {
+                    for(Entry<T> e : expired) {
+                        if(e.deadlineTick > tick) {
+                            // Parked beyond the range of the wheel, not due yet.
+                            place(e);
+                        } else {
+                            size.decrementAndGet();
+                            expiredCount++;
+                            onExpiry.accept(e.item);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the item with the nearest deadline, in order to make room for a new item. If the wheel is being
+     * advanced or updated by another thread, nothing is removed.
+     *
+     * @return the item with the nearest deadline, or {@code null} if the wheel is empty or held by another thread.
+     */
+    public T pollEarliest() {
+        if(!lock.tryLock())
+            return null;
+        try {
+            placePending();
+            for(int level = 0; level < LEVELS; level++) {
+                final long period = currentTick >>> (WHEEL_BITS * level);
+                for(int i = 0; i < WHEEL_SIZE; i++) {
+                    final ArrayDeque<Entry<T>> slot = slots.get(level * WHEEL_SIZE + (int) ((period + i) & WHEEL_MASK));
+                    if(slot != null && !slot.isEmpty()) {
+                        size.decrementAndGet();
+                        return slot.poll().item;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the items scheduled, including the ones not yet placed on the wheel
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // The items scheduled against an earlier tick, and thus already due, expire on the next tick.
+    private void placePending() {
+        Entry<T> e;
+        while((e = pending.poll()) != null)
+            place(e.deadlineTick > currentTick ? e : new Entry<>(e.item, currentTick + 1));
+    }
+
+    private void place(Entry<T> e) {
+        long delta = e.deadlineTick - currentTick;
+        if(delta <= 0) {
+            slot(0, (int) (currentTick & WHEEL_MASK)).add(e);
+            return;
+        }
+
+        int level = 0;
+        while(level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1))))
+            level++;
+
+        // Deadlines beyond the range of the wheel are parked in the farthest slot of the highest level.
+        final long placementTick = delta >= MAX_DELTA ? currentTick + MAX_DELTA - 1 : e.deadlineTick;
+        slot(level, (int) ((placementTick >>> (WHEEL_BITS * level)) & WHEEL_MASK)).add(e);
+    }
+
+    private ArrayDeque<Entry<T>> slot(int level, int index) {
+        ArrayDeque<Entry<T>> slot = slots.get(level * WHEEL_SIZE + index);
+        if(slot == null) {
+            slot = new ArrayDeque<>();
+            slots.set(level * WHEEL_SIZE + index, slot);
+        }
+        return slot;
+    }
+
+    // Detaches the slot, so that the entries can be re-placed without running into the same slot again.
+    private ArrayDeque<Entry<T>> take(int level, int index) {
+        final ArrayDeque<Entry<T>> slot = slots.get(level * WHEEL_SIZE + index);
+        if(slot == null || slot.isEmpty())
+            return null;
+        slots.set(level * WHEEL_SIZE + index, null);
+        return slot;
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+}
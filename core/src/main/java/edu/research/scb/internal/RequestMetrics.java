@@ -2,6 +2,7 @@ package edu.research.scb.internal;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class RequestMetrics {
@@ -10,19 +11,26 @@ public class RequestMetrics {
     private final AtomicInteger transientFaultCount;
     private final AtomicInteger failureCount;
     private LocalDateTime lastFailureTimestamp;
+    // Set while the entry is held by the reset queue, which is thus never scanned for it.
+    private final AtomicBoolean queued;
 
     public RequestMetrics(String data) {
+        this(data, LocalDateTime.now());
+    }
+
+    public RequestMetrics(String data, LocalDateTime now) {
         this.data = data;
         this.transientFaultCount = new AtomicInteger(0);
         this.failureCount = new AtomicInteger(0);
-        this.lastFailureTimestamp = LocalDateTime.now();
+        this.lastFailureTimestamp = now;
+        this.queued = new AtomicBoolean(false);
     }
 
     public String getData() {
         return data;
     }
 
-    public Integer getTransientFaultCount() {
+    public int getTransientFaultCount() {
         return transientFaultCount.get();
     }
 
@@ -30,7 +38,7 @@ public class RequestMetrics {
         this.transientFaultCount.incrementAndGet();
     }
 
-    public Integer decrTransientFaultCount() {
+    public int decrTransientFaultCount() {
         return this.transientFaultCount.get() > 0 ? this.transientFaultCount.decrementAndGet() : this.transientFaultCount.get();
     }
 
@@ -38,7 +46,7 @@ public class RequestMetrics {
         this.transientFaultCount.set(0);
     }
 
-    public Integer getFailureCount() {
+    public int getFailureCount() {
         return failureCount.get();
     }
 
@@ -46,7 +54,7 @@ public class RequestMetrics {
         this.failureCount.incrementAndGet();
     }
 
-    public Integer decrFailureCount() {
+    public int decrFailureCount() {
         return this.failureCount.get() > 0 ? this.failureCount.decrementAndGet() : this.failureCount.get();
     }
 
@@ -54,8 +62,30 @@ public class RequestMetrics {
         return lastFailureTimestamp;
     }
 
-    public synchronized void updateLastFailureTimestamp() {
-        this.lastFailureTimestamp = LocalDateTime.now();
+    public void updateLastFailureTimestamp() {
+        updateLastFailureTimestamp(LocalDateTime.now());
+    }
+
+    public synchronized void updateLastFailureTimestamp(LocalDateTime now) {
+        this.lastFailureTimestamp = now;
+    }
+
+    /**
+     * Marks the entry as held by the reset queue.
+     *
+     * @return {@code false} if the entry is already queued
+     */
+    public boolean markQueued() {
+        return queued.compareAndSet(false, true);
+    }
+
+    /**
+     * Marks the entry as taken out of the reset queue.
+     *
+     * @return {@code false} if the entry was not marked as queued
+     */
+    public boolean unmarkQueued() {
+        return queued.compareAndSet(true, false);
     }
 
     @Override
@@ -28,8 +28,12 @@ public class ServiceCounter {
         return totalCount.get();
     }
 
-    public synchronized void incTotalCount(){
-        lastTimeStamp = LocalDateTime.now();
+    public void incTotalCount(){
+        incTotalCount(LocalDateTime.now());
+    }
+
+    public synchronized void incTotalCount(LocalDateTime now){
+        lastTimeStamp = now;
         totalCount.incrementAndGet();
     }
 
@@ -41,13 +45,21 @@ public class ServiceCounter {
         return failureCount.get();
     }
 
-    public synchronized void incFailureCount() {
-        lastTimeStamp = LocalDateTime.now();
+    public void incFailureCount(){
+        incFailureCount(LocalDateTime.now());
+    }
+
+    public synchronized void incFailureCount(LocalDateTime now){
+        lastTimeStamp = now;
         failurePercentage.set(totalCount.get() != 0 ? ((double) failureCount.incrementAndGet() / totalCount.get()) * 100 : 0.0);
     }
 
-    public synchronized void decrFailureCount() {
-        lastTimeStamp = LocalDateTime.now();
+    public void decrFailureCount(){
+        decrFailureCount(LocalDateTime.now());
+    }
+
+    public synchronized void decrFailureCount(LocalDateTime now){
+        lastTimeStamp = now;
         failurePercentage.set(totalCount.get() != 0 ?
                 ((failureCount.get() > 0 ? failureCount.decrementAndGet() : (double) failureCount.get()) / totalCount.get()) * 100
                 : 0.0);
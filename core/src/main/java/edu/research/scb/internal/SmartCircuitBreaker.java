@@ -1,10 +1,35 @@
 package edu.research.scb.internal;
 
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.cache.StaleResponseCache;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.deadline.DeadlineAdmission;
+import edu.research.scb.internal.outcome.BufferedOutcomeStrategy;
+import edu.research.scb.internal.signature.SignatureExtractor;
+import edu.research.scb.internal.throttling.AdaptiveThrottlingStrategy;
+import edu.research.scb.internal.singleflight.SingleFlightClientCall;
+import edu.research.scb.internal.singleflight.SingleFlightGroup;
+import edu.research.scb.internal.trace.TraceRecorder;
+import edu.research.scb.sdk.CallContext;
+import edu.research.scb.sdk.CallPipeline;
+import edu.research.scb.sdk.CallPolicy;
 import edu.research.scb.sdk.CircuitBreakerStrategy;
+import edu.research.scb.sdk.Criticality;
+import edu.research.scb.sdk.Outcome;
 import io.grpc.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
 public class SmartCircuitBreaker implements ClientInterceptor {
 
     private static final Logger logger = LogManager.getLogger(SmartCircuitBreaker.class);
@@ -14,11 +39,84 @@ public class SmartCircuitBreaker implements ClientInterceptor {
      * - The property {@code scb-strategy="bloom-filter"} activates the {@code BloomFilterCircuitBreakerStrategy}.
      * This is the default strategy to be used even if the application property is missing.
      * - The property {@code scb-strategy="count-min-sketch"} activates the {@code CountMinSketchCircuitBreakerStrategy}.
+     * - The property {@code scb-strategy="adaptive-throttling"} activates the {@code AdaptiveThrottlingStrategy}.
+     * The strategy may also be the last stage of a {@code CallPipeline}, which is consulted as a whole.
+     */
+    private final CallPolicy circuitBreaker;
+
+    /**
+     * The optional group for coalescing identical in-flight unary requests, configured via the properties
+     * {@code circuit-breaker.single-flight.*}. When {@code null}, every request is sent individually.
      */
-    private final CircuitBreakerStrategy circuitBreaker;
+    private final SingleFlightGroup singleFlightGroup;
+
+    /**
+     * The optional cache of successful responses, configured via the properties
+     * {@code circuit-breaker.stale-response-cache.*}, which are served while the circuit is open.
+     * When {@code null}, the {@code ServiceInvocationNotPermittedException} is always thrown.
+     */
+    private final StaleResponseCache staleResponseCache;
+
+    /**
+     * The optional extractor of the request signatures from the proto field paths configured via the properties
+     * {@code circuit-breaker.signature.*}. When {@code null}, the whole request message is used as the signature.
+     */
+    private final SignatureExtractor signatureExtractor;
+
+    /**
+     * The optional recorder of the request outcomes, configured via the properties {@code circuit-breaker.trace.*},
+     * for replaying them offline. When {@code null}, nothing is recorded.
+     */
+    private final TraceRecorder traceRecorder;
+
+    /**
+     * The optional admission of the calls by their remaining deadline, configured via the properties
+     * {@code circuit-breaker.deadline.*}. When {@code null}, the calls are sent whatever their deadline.
+     */
+    private final DeadlineAdmission deadlineAdmission;
 
     public SmartCircuitBreaker(CircuitBreakerStrategy circuitBreaker) {
+        this(circuitBreaker, null, null, null);
+    }
+
+    public SmartCircuitBreaker(CircuitBreakerStrategy circuitBreaker, SingleFlightGroup singleFlightGroup) {
+        this(circuitBreaker, singleFlightGroup, null, null);
+    }
+
+    public SmartCircuitBreaker(CircuitBreakerStrategy circuitBreaker, SingleFlightGroup singleFlightGroup,
+                               StaleResponseCache staleResponseCache) {
+        this(circuitBreaker, singleFlightGroup, staleResponseCache, null);
+    }
+
+    public SmartCircuitBreaker(CircuitBreakerStrategy circuitBreaker, SingleFlightGroup singleFlightGroup,
+                               StaleResponseCache staleResponseCache, SignatureExtractor signatureExtractor) {
+        this(circuitBreaker, singleFlightGroup, staleResponseCache, signatureExtractor, null);
+    }
+
+    public SmartCircuitBreaker(CallPolicy circuitBreaker, SingleFlightGroup singleFlightGroup,
+                               StaleResponseCache staleResponseCache, SignatureExtractor signatureExtractor,
+                               TraceRecorder traceRecorder) {
+        this(circuitBreaker, singleFlightGroup, staleResponseCache, signatureExtractor, traceRecorder, null);
+    }
+
+    public SmartCircuitBreaker(CallPolicy circuitBreaker, SingleFlightGroup singleFlightGroup,
+                               StaleResponseCache staleResponseCache, SignatureExtractor signatureExtractor,
+                               TraceRecorder traceRecorder, DeadlineAdmission deadlineAdmission) {
         this.circuitBreaker = circuitBreaker;
+        this.singleFlightGroup = singleFlightGroup;
+        this.staleResponseCache = staleResponseCache;
+        this.signatureExtractor = signatureExtractor;
+        this.traceRecorder = traceRecorder;
+        this.deadlineAdmission = deadlineAdmission;
+    }
+
+    /**
+     * Creates a builder for the circuit breaker, for the applications that do not use the spring boot starter.
+     *
+     * @return a new {@code Builder}
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
@@ -35,11 +133,23 @@ public class SmartCircuitBreaker implements ClientInterceptor {
      * <p>The circuit breaker's is applied here where the data signature is evaluated and the request
      * is allowed to be forwarded to the service if the circuit is <i>closed</i>. If the circuit is
      * <i>open</i>, then the request is blocked and the {@code ServiceInvocationNotPermittedException}
-     * is thrown to notify the client about the situation.
+     * is thrown to notify the client about the situation. If the stale response cache is enabled for
+     * the method and holds a response for the signature, the stale response is served instead.
      *
      * <p>The circuit breaker records the succeeded and failed requests on the basis of the
      * {@code Status.Code} returned by the grpc request.
      *
+     * <p>The criticality of the request, given by the {@code Criticality.CALL_OPTION} or the
+     * {@code Criticality.HEADER}, decides its admission while the circuit of the service is open, if the
+     * admission by criticality is enabled.
+     *
+     * <p>If the deadline admission is enabled for the method, the requests whose remaining deadline is below the
+     * recent latency of the method are failed right away with {@code DEADLINE_EXCEEDED}, without being evaluated
+     * or recorded by the circuit breaker.
+     *
+     * <p>If single-flight is enabled for the method, identical requests in-flight at the same time
+     * are coalesced, and only the first one of them is evaluated by the circuit breaker and sent.
+     *
      * @param method      the remote method to be called.
      * @param callOptions the runtime options to be applied to this call.
      * @param next        the channel which is being intercepted.
@@ -50,10 +160,38 @@ public class SmartCircuitBreaker implements ClientInterceptor {
                                                                CallOptions callOptions,
                                                                Channel next) {
 
+        if(singleFlightGroup != null && singleFlightGroup.isEnabled(method)) {
+            final String methodName = method.getFullMethodName();
+            return new SingleFlightClientCall<>(singleFlightGroup,
+                    message -> CallContext.signatureOf(methodName, signatureData(method, message)),
+                    () -> newCircuitBreakerCall(method, callOptions, next),
+                    callOptions.getExecutor(),
+                    earliest(callOptions.getDeadline(), Context.current().getDeadline()));
+        }
+        return newCircuitBreakerCall(method, callOptions, next);
+    }
+
+    // The signature data of the request, either from the configured field paths or the whole message.
+    private <ReqT> String signatureData(MethodDescriptor<ReqT, ?> method, ReqT message) {
+        return signatureExtractor != null ? signatureExtractor.extract(method, message) : message.toString();
+    }
+
+    private <ReqT, RespT> ClientCall<ReqT, RespT> newCircuitBreakerCall(MethodDescriptor<ReqT, RespT> method,
+                                                                        CallOptions callOptions,
+                                                                        Channel next) {
         return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
             private final String serviceName = method.getServiceName();
             private final String methodName = method.getFullMethodName();
-            private String requestMessage;
+            private final boolean cacheResponses = staleResponseCache != null && staleResponseCache.isEnabled(method);
+            private final boolean checkDeadline = deadlineAdmission != null && deadlineAdmission.isEnabled(method);
+            // The deadline of the call is the earlier one of its call options and of the current context.
+            private final Deadline deadline = earliest(callOptions.getDeadline(), Context.current().getDeadline());
+            private CallContext context;
+            private Criticality criticality;
+            private Listener<RespT> responseListener;
+            private RespT response;
+            private volatile boolean closedLocally;
+            private volatile boolean rejected;
 
             @Override
             protected ClientCall<ReqT, RespT> delegate() {
@@ -62,31 +200,226 @@ public class SmartCircuitBreaker implements ClientInterceptor {
 
             @Override
             public void start(Listener<RespT> responseListener, Metadata headers) {
+                this.responseListener = responseListener;
+                // The criticality given by the call options is propagated to the server by the header.
+                this.criticality = Criticality.of(callOptions, headers);
+                if(criticality != null && !headers.containsKey(Criticality.HEADER))
+                    headers.put(Criticality.HEADER, criticality.name());
                 super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+                    @Override
+                    public void onMessage(RespT message) {
+                        if(cacheResponses)
+                            response = message;
+                        super.onMessage(message);
+                    }
+
                     @Override
                     public void onClose(Status status, Metadata trailers) {
-                        logger.debug("Closing the request: {} with status: {}", requestMessage, status.getCode());
-                        if(!status.isOk()){
-                            circuitBreaker.onFailure(serviceName, methodName, requestMessage);
-                        } else
-                            circuitBreaker.onSuccess(serviceName, methodName, requestMessage);
+                        // The listener has already been closed with the stale response, or as failed fast.
+                        if(closedLocally)
+                            return;
+
+                        // The call closed before its request was sent has nothing to be recorded against.
+                        if(context == null) {
+                            super.onClose(status, trailers);
+                            return;
+                        }
+
+                        logger.debug("Closing the request: {} with status: {}", context, status.getCode());
+                        final Outcome outcome = Outcome.of(context, status.getCode(), callOptions.getOption(Outcome.ATTEMPT_CALL_OPTION));
+                        circuitBreaker.onOutcome(context, outcome);
+                        if(checkDeadline && !rejected)
+                            deadlineAdmission.record(methodName, outcome.status(), outcome.latencyNanos());
+                        if(outcome.isSuccess() && cacheResponses && response != null)
+                            staleResponseCache.put(context.signature(), method, response);
+                        // The rejected requests are already recorded, and are only closed here as cancelled.
+                        if(traceRecorder != null && !rejected)
+                            traceRecorder.record(serviceName, context.signature(), status.getCode().value(), outcome.latencyNanos());
                         super.onClose(status, trailers);
                     }
                 }, headers);
             }
 
+            @Override
+            public void halfClose() {
+                if(!closedLocally)
+                    super.halfClose();
+            }
+
 
             @Override
             public void sendMessage(ReqT message) {
-                requestMessage = message.toString();
-                if(circuitBreaker.allowRequest(serviceName, methodName, requestMessage)) {
-                    logger.debug("ALLOW-REQUEST: ** APPROVED **. \nSending request for service='{}', method='{}', message='{}'", serviceName, methodName, requestMessage);
+                // The signature is computed once here, for the admission as well as the outcome of the call.
+                // The calls unlikely to finish in time are failed before the circuit breaker sees them at all.
+                if(checkDeadline && !deadlineAdmission.admit(serviceName, methodName, deadline)) {
+                    closeLocally(Status.DEADLINE_EXCEEDED.withDescription("Rejected by the smart circuit breaker, as the " +
+                            "remaining deadline is below the recent latency of the method"), null, "Failed fast as the deadline is too short");
+                    return;
+                }
+
+                final CallContext context = CallContext.of(serviceName, methodName, signatureData(method, message), criticality, deadline);
+                this.context = context;
+                if(circuitBreaker.admit(context)) {
+                    logger.debug("ALLOW-REQUEST: ** APPROVED **. \nSending request for service='{}', method='{}', message='{}'", serviceName, methodName, context.data());
                     super.sendMessage(message);
                 } else {
-                    logger.debug("ALLOW-REQUEST: ** REJECTED **. \nCircuit is '## OPEN ##' for service='{}', method='{}', message='{}'", serviceName, methodName, requestMessage);
-                    throw new ServiceInvocationNotPermittedException(serviceName, methodName);
+                    logger.debug("ALLOW-REQUEST: ** REJECTED **. \nCircuit is '## OPEN ##' for service='{}', method='{}', message='{}'", serviceName, methodName, context.data());
+                    rejected = true;
+                    if(traceRecorder != null)
+                        traceRecorder.record(serviceName, context.signature(), TraceRecorder.REJECTED, context.elapsedNanos());
+                    if(!serveStaleResponse())
+                        throw new ServiceInvocationNotPermittedException(serviceName, methodName);
                 }
             }
+
+            // Closes the call with the last successful response of the signature, if one is cached. The underlying
+            // call is cancelled as nothing is going to be sent on it.
+            private boolean serveStaleResponse() {
+                if(!cacheResponses)
+                    return false;
+
+                final RespT stale = staleResponseCache.get(context.signature(), method);
+                if(stale == null)
+                    return false;
+
+                logger.debug("STALE-RESPONSE: Serving the cached response for service='{}', method='{}', message='{}'", serviceName, methodName, context.data());
+                closeLocally(Status.OK, stale, "Served a stale response as the circuit is open");
+                return true;
+            }
+
+            // Closes the listener with the given status, and the response if any, in place of the underlying call,
+            // which is cancelled as nothing is going to be sent on it.
+            private void closeLocally(Status status, RespT response, String cancelMessage) {
+                closedLocally = true;
+                super.cancel(cancelMessage, null);
+
+                final Runnable replay = () -> {
+                    if(response != null) {
+                        responseListener.onHeaders(StaleResponseCache.staleResponseHeaders());
+                        responseListener.onMessage(response);
+                    }
+                    responseListener.onClose(status, new Metadata());
+                };
+                if(callOptions.getExecutor() != null)
+                    callOptions.getExecutor().execute(replay);
+                else
+                    replay.run();
+            }
         };
     }
+
+    private static Deadline earliest(Deadline first, Deadline second) {
+        if(first == null)
+            return second;
+        return second == null ? first : first.minimum(second);
+    }
+
+    /**
+     * Builds the circuit breaker along with its strategy from the {@code CircuitBreakerProperties}, without any
+     * dependency on the spring framework. For example :
+     * <pre>{@code
+     * CircuitBreakerProperties properties = new CircuitBreakerProperties();
+     * properties.setStrategy("bloom-filter");
+     *
+     * ManagedChannel channel = ManagedChannelBuilder.forTarget("localhost:9090")
+     *         .intercept(SmartCircuitBreaker.builder().properties(properties).build())
+     *         .build();
+     * }</pre>
+     */
+    public static final class Builder {
+
+        private CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+        private CircuitBreakerStrategy strategy;
+        private final List<CallPolicy> policies = new ArrayList<>();
+        private final List<ServiceDescriptor> services = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * @param properties the circuit breaker configuration properties. As with the spring boot starter, the
+         *                   circuit breaker only records and evaluates the requests once the strategy is set.
+         * @return this builder
+         */
+        public Builder properties(CircuitBreakerProperties properties) {
+            this.properties = properties;
+            return this;
+        }
+
+        /**
+         * @param meterRegistry the registry for the circuit breaker metrics. Defaults to the global registry.
+         * @return this builder
+         */
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * @param strategy an already created strategy, in place of the one determined by the properties.
+         * @return this builder
+         */
+        public Builder strategy(CircuitBreakerStrategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * @param policies the policies consulted in order ahead of the strategy, e.g. the limiters, which are
+         *                 chained with the strategy by a {@code CallPipeline}.
+         * @return this builder
+         */
+        public Builder policies(CallPolicy... policies) {
+            this.policies.addAll(Arrays.asList(policies));
+            return this;
+        }
+
+        /**
+         * @param services the services of the methods signed by their fields under {@code signature.fields}, against
+         *                 whose request descriptors the field paths are resolved when the circuit breaker is built.
+         * @return this builder
+         */
+        public Builder services(ServiceDescriptor... services) {
+            this.services.addAll(Arrays.asList(services));
+            return this;
+        }
+
+        public SmartCircuitBreaker build() {
+            final CircuitBreakerStrategy created = strategy != null ? strategy : createStrategy();
+            final CircuitBreakerStrategy cbs = properties.getOutcomeBuffer().getEnabled() ?
+                    new BufferedOutcomeStrategy(created, properties.getOutcomeBuffer(), meterRegistry) : created;
+            final SingleFlightGroup sfg = properties.getSingleFlight().getEnabled() ?
+                    new SingleFlightGroup(properties.getSingleFlight(), meterRegistry) : null;
+            final StaleResponseCache src = properties.getStaleResponseCache().getEnabled() ?
+                    new StaleResponseCache(properties.getStaleResponseCache(), meterRegistry) : null;
+            final SignatureExtractor se = properties.getSignature().getFields().isEmpty() ?
+                    null : new SignatureExtractor(properties.getSignature(), services);
+            final List<CallPolicy> stages = new ArrayList<>(policies);
+            stages.add(cbs);
+            final DeadlineAdmission da = properties.getDeadline().getEnabled() ?
+                    new DeadlineAdmission(properties.getDeadline(), meterRegistry) : null;
+            return new SmartCircuitBreaker(CallPipeline.of(stages), sfg, src, se, createTraceRecorder(), da);
+        }
+
+        private TraceRecorder createTraceRecorder() {
+            if(!properties.getTrace().getEnabled())
+                return null;
+            try {
+                return new TraceRecorder(properties.getTrace());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to create the trace file '" + properties.getTrace().getFile() + "'", e);
+            }
+        }
+
+        // The strategy is determined by the property 'circuit-breaker.strategy', where the bloom-filter strategy
+        // is the default one, same as for the spring boot starter.
+        private CircuitBreakerStrategy createStrategy() {
+            if(COUNT_MIN_SKETCH_STRATEGY.equals(properties.getStrategy()))
+                return new CountMinSketchCircuitBreakerStrategy(properties, meterRegistry);
+            if(ADAPTIVE_THROTTLING_STRATEGY.equals(properties.getStrategy()))
+                return new AdaptiveThrottlingStrategy(properties, meterRegistry);
+            return new BloomFilterCircuitBreakerStrategy(properties, meterRegistry);
+        }
+    }
 }
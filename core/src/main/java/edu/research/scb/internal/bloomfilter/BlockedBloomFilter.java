@@ -0,0 +1,148 @@
+package edu.research.scb.internal.bloomfilter;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The split block bloom filter, where all the bits of a signature live in a single block of 512 bits, i.e. one cache
+ * line, in place of being spread over the whole bit array. A lookup thus touches one cache line rather than k of
+ * them, or at most two adjacent ones, as the JVM doesn't align the array to the cache lines.
+ *
+ * <p>A signature sets exactly one bit in each of the 8 words of its block. The block is chosen by the upper half of
+ * the 64-bit murmur3 hash, and the bit of each word by multiplying the lower half with a distinct odd salt and taking
+ * the top 6 bits, as in the split block bloom filter of Apache Parquet. The probe is a fixed loop of 8 independent
+ * word tests accumulated without any branch, which the JIT unrolls and may vectorize.
+ *
+ * <p>The bits are only ever set, with an atomic bitwise or of the word, so the filter is lock-free. The probe reads
+ * the words plainly, hence a signature put concurrently may be observed slightly late, which at worst allows one
+ * more request of a freshly failing signature, as with any unsynchronized read of the guava filter.
+ *
+ * <p>For the same number of bits, the blocked filter has a higher fpp than the standard one, as the blocks are
+ * unevenly loaded. It is thus sized by the fpp averaged over the Poisson distributed load of the blocks, which is
+ * about 13% more bits at the default fpp of 0.05.
+ */
+final class BlockedBloomFilter implements SignatureFilter {
+
+    static final int WORDS_PER_BLOCK = 8;
+    private static final int BITS_PER_BLOCK = WORDS_PER_BLOCK * Long.SIZE;
+    private static final int MAX_BLOCKS = (Integer.MAX_VALUE - 8) / WORDS_PER_BLOCK;
+
+    private static final int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31};
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Charset charset;
+    private final long[] words;
+    private final int numBlocks;
+    private final LongAdder bitCount;
+
+    BlockedBloomFilter(Charset charset, long capacity, double fpp) {
+        if(capacity <= 0 || fpp <= 0 || fpp >= 1)
+            throw new IllegalArgumentException("The capacity must be positive and the fpp within 0 and 1, exclusive");
+
+        this.charset = charset;
+        this.numBlocks = (int) Math.max(1, Math.min(MAX_BLOCKS, (long) Math.ceil(capacity / maxBlockLoad(fpp))));
+        this.words = new long[numBlocks * WORDS_PER_BLOCK];
+        this.bitCount = new LongAdder();
+    }
+
+    @Override
+    public boolean mightContain(String signature) {
+        final long hash = hash(signature);
+        final int base = block(hash);
+        final int key = (int) hash;
+
+        long missing = 0;
+        for(int i = 0; i < WORDS_PER_BLOCK; i++)
+            missing |= mask(key, i) & ~words[base + i];
+        return missing == 0;
+    }
+
+    @Override
+    public boolean put(String signature) {
+        final long hash = hash(signature);
+        final int base = block(hash);
+        final int key = (int) hash;
+
+        int changed = 0;
+        for(int i = 0; i < WORDS_PER_BLOCK; i++) {
+            final long mask = mask(key, i);
+            final long previous = (long) WORDS.getAndBitwiseOr(words, base + i, mask);
+            if((previous & mask) == 0)
+                changed++;
+        }
+        if(changed > 0)
+            bitCount.add(changed);
+        return changed > 0;
+    }
+
+    @Override
+    public double expectedFpp() {
+        return blockFpp((double) approximateElementCount() / numBlocks);
+    }
+
+    // The same estimate as the guava filter, i.e. {@code -m * ln(1 - x/m) / k} for x of the m bits set.
+    @Override
+    public long approximateElementCount() {
+        final double fractionOfBitsSet = (double) bitCount.sum() / bitSize();
+        return Math.round(-Math.log1p(-fractionOfBitsSet) * bitSize() / WORDS_PER_BLOCK);
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    // The highest mean number of signatures per block, at which the fpp is still within the desired one.
+    static double maxBlockLoad(double fpp) {
+        double low = 0, high = BITS_PER_BLOCK;
+        for(int i = 0; i < 64; i++) {
+            final double mid = (low + high) / 2;
+            if(blockFpp(mid) <= fpp)
+                low = mid;
+            else
+                high = mid;
+        }
+        return Math.max(low, 1e-3);
+    }
+
+    // The fpp of a block with j signatures is {@code (1 - (63/64)^j)^8}, which is averaged over the Poisson
+    // distributed number of signatures per block, of the given mean.
+    static double blockFpp(double load) {
+        if(load <= 0)
+            return 0;
+        final int limit = (int) (load + 12 * Math.sqrt(load) + 24);
+        double poisson = Math.exp(-load);
+        double fpp = 0;
+        for(int j = 1; j <= limit; j++) {
+            poisson *= load / j;
+            fpp += poisson * Math.pow(1 - Math.pow(1 - 1.0 / Long.SIZE, j), WORDS_PER_BLOCK);
+        }
+        return fpp;
+    }
+
+    private long bitSize() {
+        return (long) words.length * Long.SIZE;
+    }
+
+    private long hash(String signature) {
+        return HASH.hashString(signature, charset).asLong();
+    }
+
+    // The first word of the block, where the block is chosen by the upper half of the hash with a multiply and a
+    // shift, in place of a modulo.
+    private int block(long hash) {
+        return (int) (((hash >>> 32) * numBlocks) >>> 32) * WORDS_PER_BLOCK;
+    }
+
+    static long mask(int key, int word) {
+        return 1L << ((key * SALT[word]) >>> 26);
+    }
+}
@@ -1,61 +1,109 @@
 package edu.research.scb.internal.bloomfilter;
 
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnels;
 import edu.research.scb.internal.RequestMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.nio.charset.Charset;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 public class BloomFilterAdapter {
 
     private static final Logger logger = LogManager.getLogger(BloomFilterAdapter.class);
 
+    private final String backend;
     private final Charset charset;
-    private final Long capacity;
+    private final LongSupplier capacity;
     private final Double fpp;
-    private BloomFilter<String> bloomFilter;
-    private BloomFilter<String> auxBloomFilter;
-    private final AtomicBoolean switchToAux;
 
-    public BloomFilterAdapter(Charset charset, Long capacity, Double fpp) {
+    // The current generation, whose filter is read and written.
+    private final AtomicReference<Generation> generation;
+
+    // The filter of the next generation is only allocated while the finalizer is rebuilding it, and is accounted
+    // for in the memory footprint till it is published.
+    private volatile SignatureFilter nextFilter;
+
+    /**
+     * @param capacity the capacity of every filter rebuilt by the finalizer, read on every rebuild so that the
+     *                 filter can be resized to the failing signatures seen meanwhile
+     */
+    public BloomFilterAdapter(AtomicReference<Generation> generation, String backend, Charset charset, LongSupplier capacity, Double fpp) {
+        this.generation = generation;
+        this.backend = backend;
         this.charset = charset;
         this.capacity = capacity;
         this.fpp = fpp;
-        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(charset), capacity, fpp);
-        this.auxBloomFilter = BloomFilter.create(Funnels.stringFunnel(charset), capacity, fpp);
-        this.switchToAux = new AtomicBoolean(false);
     }
 
     public boolean mightContain(String data){
-        return switchToAux.get() ? auxBloomFilter.mightContain(data) : bloomFilter.mightContain(data);
+        return generation.get().filter().mightContain(data);
     }
 
+    /**
+     * Puts the signature into the filter of the current generation. If the finalizer has published the next
+     * generation in the meantime, the signature is put into it as well, so that it is never lost.
+     *
+     * @param data the request signature
+     * @return {@code true} if any bits of the filter changed
+     */
     public boolean put(String data){
-        return switchToAux.get() ? auxBloomFilter.put(data) : bloomFilter.put(data);
+        Generation current;
+        boolean changed = false;
+        do {
+            current = generation.get();
+            changed |= current.filter().put(data);
+        } while(generation.get() != current);
+        return changed;
+    }
+
+    /**
+     * Creates an empty filter of the same configuration, filled with the signatures of the given entries. The filter
+     * is neither published nor visible to the requests until it is part of a published generation.
+     *
+     * @param requestMetrics the entries of the failure store
+     * @return the filled filter
+     */
+    SignatureFilter rebuild(Collection<RequestMetrics> requestMetrics){
+        logger.info("FINALIZER: Rebuilding the bloom filter within the Adapter. Before fpp: {}", getExpectedFalsePositiveRate());
+        final SignatureFilter filter = newFilter(capacity.getAsLong());
+        this.nextFilter = filter;
+        requestMetrics.forEach(m -> filter.put(m.getData()));
+        logger.info("FINALIZER: Bloom filter rebuilt. After fpp: {}", filter.expectedFpp());
+        return filter;
     }
 
-    void switchToAux(){
-        this.switchToAux.set(true);
+    // The rebuilt filter has been published, thus it is no more accounted for separately.
+    void rebuilt(){
+        this.nextFilter = null;
     }
 
-    synchronized void resetBloomFilter(Set<RequestMetrics> requestMetrics){
-        logger.info("FINALIZER: Resetting the bloom filter within the Adapter. Before fpp: {}", bloomFilter.expectedFpp());
-        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(charset), capacity, fpp);
-        requestMetrics.forEach(m -> bloomFilter.put(m.getData()));
-        logger.info("FINALIZER: Bloom filter reset. After fpp: {}", bloomFilter.expectedFpp());
-        this.switchToAux.set(false);
-        this.auxBloomFilter = BloomFilter.create(Funnels.stringFunnel(charset), capacity, fpp);
+    private SignatureFilter newFilter(long capacity){
+        final SignatureFilter current = generation.get().filter();
+        final SignatureFilter filter = SignatureFilter.create(backend, charset, capacity, fpp);
+        if(filter.sizeInBytes() != current.sizeInBytes())
+            logger.info("FINALIZER: Resizing the bloom filter to the capacity {}, from {} to {} bytes", capacity, current.sizeInBytes(), filter.sizeInBytes());
+        return filter;
     }
 
     public double getExpectedFalsePositiveRate(){
-        return bloomFilter.expectedFpp(); // * 10000;
+        return generation.get().filter().expectedFpp();
     }
 
     public long getApproxDistinctElementCount(){
-        return bloomFilter.approximateElementCount();
+        return generation.get().filter().approximateElementCount();
+    }
+
+    /**
+     * The estimated heap occupied by the bit arrays of the filters, including the filter of the next generation
+     * while the finalizer is rebuilding it.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedSizeInBytes(){
+        final SignatureFilter next = nextFilter;
+        final long size = generation.get().filter().sizeInBytes();
+        return next != null ? size + next.sizeInBytes() : size;
     }
 }
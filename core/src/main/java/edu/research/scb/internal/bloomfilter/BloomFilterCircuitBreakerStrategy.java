@@ -4,14 +4,29 @@ import edu.research.scb.internal.AbstractCircuitBreakerStrategy;
 import edu.research.scb.internal.RequestMetrics;
 import edu.research.scb.internal.config.BloomFilterProperties;
 import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.SharedStateProperties;
+import edu.research.scb.internal.config.ThresholdsSnapshot;
+import edu.research.scb.internal.jfr.AdmissionPath;
+import edu.research.scb.internal.jfr.CircuitBreakerEvents;
+import edu.research.scb.internal.memory.MemoryAccountant;
+import edu.research.scb.internal.metrics.StateMeters;
+import edu.research.scb.sdk.CallContext;
 import edu.research.scb.sdk.CircuitBreakerStrategy;
+import edu.research.scb.sdk.Criticality;
+import edu.research.scb.sdk.Outcome;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static edu.research.scb.internal.DefaultConstants.*;
 
@@ -21,8 +36,6 @@ import static edu.research.scb.internal.DefaultConstants.*;
  * {@code bloom-filter}. Even if no strategy is specified, this is the default strategy to be used, however, in that
  * situation, the retry configuration won't instantiate the circuit breaker for any retries.
  */
-@Service
-@ConditionalOnProperty(name = "circuit-breaker.strategy", havingValue = "bloom-filter", matchIfMissing = true)
 public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStrategy implements CircuitBreakerStrategy {
 
     private static final Logger logger = LogManager.getLogger(BloomFilterCircuitBreakerStrategy.class);
@@ -40,17 +53,55 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
     // The finalizer for resetting and re-instantiating the bloom filter.
     private final BloomFilterFinalizer bfFinalizer;
 
-    @Autowired
+    // The failing signatures shared with the other processes of the host, or null if not enabled.
+    private final SharedCircuitState sharedState;
+    private final Counter sharedStateDropped;
+
     public BloomFilterCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry) {
-        super(config, meterRegistry);
+        this(config, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    public BloomFilterCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry, Clock clock) {
+        super(config, meterRegistry, clock);
 
         // Setting up the configuration properties of the bloom filter.
         BloomFilterProperties bfp = config.getBloomFilter();
         logger.info("Bloom Filter Properties: {}", bfp);
-        this.bloomFilterAdapter = new BloomFilterAdapter(bfp.getCharset(), bfp.getCapacity(), bfp.getFpp());
-        this.hashStoreAdapter = new HashStoreAdapter(bfp.getStoreCapacity());
-        this.resetQueueAdapter = new ResetBufferQueueAdapter();
-        this.bfFinalizer = new BloomFilterFinalizer(resetQueueAdapter, bloomFilterAdapter, hashStoreAdapter, bfp.getResetBufferCapacity(), bfp.getResetThreshold(), bfp.getResetTimeThresholdInMinutes(), meterRegistry);
+        // The bloom filter, the hash store and the reset queue are published together as a single generation,
+        // which the finalizer replaces as a whole.
+        final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(
+                SignatureFilter.create(bfp.getBackend(), bfp.getCharset(), bfp.getCapacity(), bfp.getFpp()),
+                new ConcurrentHashMap<>(bfp.getStoreCapacity()), new ConcurrentLinkedQueue<>()));
+        // If auto-sized, the filter grows on its next rebuild to the failing signatures estimated meanwhile, but
+        // never shrinks below the configured capacity, to which it falls back while the memory budget is exceeded.
+        final long capacity = bfp.getCapacity();
+        this.bloomFilterAdapter = new BloomFilterAdapter(generation, bfp.getBackend(), bfp.getCharset(), bfp.getAutoSize() ?
+                () -> MemoryAccountant.global().isOverBudget() ? capacity :
+                        Math.max(capacity, (long) (BLOOM_FILTER_AUTO_SIZE_HEADROOM * signatureCardinality.getFailingCardinality())) :
+                () -> capacity, bfp.getFpp());
+        this.resetQueueAdapter = new ResetBufferQueueAdapter(generation);
+
+        // The evicted entries are pushed to the reset queue, as the guava bloom filter doesn't support removals,
+        // so that they are dropped from the bloom filter on its next rebuild by the finalizer. The entries evicted for
+        // the memory budget are queued too, and the queue holding them is accounted for till the finalizer runs.
+        final Counter expiredEvictions = meterRegistry.counter(METRIC_STORE_EVICTION_COUNTER_NAME, METRIC_TAG_CAUSE, "expired");
+        final Counter capacityEvictions = meterRegistry.counter(METRIC_STORE_EVICTION_COUNTER_NAME, METRIC_TAG_CAUSE, "capacity");
+        final Counter budgetEvictions = meterRegistry.counter(METRIC_STORE_EVICTION_COUNTER_NAME, METRIC_TAG_CAUSE, "budget");
+        final Long storeTtlSeconds = bfp.getStoreTtlSeconds();
+        if(storeTtlSeconds != null && storeTtlSeconds <= getThresholds().openStateWaitDurationInSeconds())
+            logger.warn("The store TTL of {} seconds is not longer than the open state wait duration of {} seconds, and is " +
+                    "raised above it", storeTtlSeconds, getThresholds().openStateWaitDurationInSeconds());
+        this.hashStoreAdapter = new HashStoreAdapter(generation, bfp.getStoreCapacity(),
+                () -> storeTtlSeconds(storeTtlSeconds, getThresholds().openStateWaitDurationInSeconds()), clock, (rm, cause) -> {
+            logger.debug("STORE-EVICTION: Evicted the signature='{}' from the failure store due to {}", rm.getData(), cause);
+            resetQueueAdapter.add(rm);
+            (switch (cause) {
+                case EXPIRED -> expiredEvictions;
+                case CAPACITY -> capacityEvictions;
+                case BUDGET -> budgetEvictions;
+            }).increment();
+        });
+        this.bfFinalizer = new BloomFilterFinalizer(generation, resetQueueAdapter, bloomFilterAdapter, bfp.getResetBufferCapacity(), bfp.getResetThreshold(), bfp.getResetTimeThresholdInMinutes(), meterRegistry);
 
         // Setting up custom metrics for capturing the false positive rate and approximate element count
         // for the bloom filter.
@@ -62,13 +113,48 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
                 .description("The approximate distinct element count of the bloom filter")
                 .register(meterRegistry);
 
-        Gauge.builder(METRIC_FINALIZER_QUEUE_NAME, () -> resetQueueAdapter.getResetQueue().size())
+        Gauge.builder(METRIC_FINALIZER_QUEUE_NAME, resetQueueAdapter::size)
                 .description("The size of the reset buffer queue")
                 .register(meterRegistry);
 
-        Gauge.builder(METRIC_FINALIZER_AUX_QUEUE_NAME, () -> resetQueueAdapter.getAuxResetQueue().size())
-                .description("The size of the auxiliary reset buffer queue")
-                .register(meterRegistry);
+        // The estimated memory footprint, where the bloom filter of the next generation is only accounted for
+        // while the finalizer is rebuilding it. Beyond the memory budget, the failure store is evicted into the reset
+        // queue, which is finalized right away, for the evicted entries to be freed rather than only moved over.
+        memoryAccount.track("bloom_filter", bloomFilterAdapter::getEstimatedSizeInBytes)
+                .track("hash_store", hashStoreAdapter::getEstimatedSizeInBytes)
+                .track("reset_queue", resetQueueAdapter::getEstimatedSizeInBytes)
+                .evictor(this::evictForBudget);
+
+        // The shared state is off-heap, in the page cache shared by the processes, hence not within the memory budget.
+        final SharedStateProperties ssp = config.getSharedState();
+        this.sharedState = enableCircuitBreaker && ssp.getEnabled() ? openSharedState(ssp) : null;
+        this.sharedStateDropped = meterRegistry.counter(METRIC_SHARED_STATE_DROPPED_COUNTER_NAME);
+        if(sharedState != null)
+            Gauge.builder(METRIC_SHARED_STATE_FPP_NAME, sharedState, SharedCircuitState::expectedFpp)
+                    .description("The expected false positive probability of the filter shared by the processes of the host")
+                    .register(meterRegistry);
+    }
+
+    private long evictForBudget(long bytes) {
+        final long freed = hashStoreAdapter.evictForBudget(bytes);
+        if(freed > 0)
+            bfFinalizer.runFinalizerNow();
+        return freed;
+    }
+
+    // The entries outlive the open wait, even as the thresholds are reloaded, so that a failed half-open probe is
+    // evaluated against the counts that opened the circuit, rather than against a fresh entry.
+    static long storeTtlSeconds(Long configured, long openStateWaitDurationInSeconds) {
+        final long ttl = configured != null ? configured : DEFAULT_STORE_TTL_OPEN_WAIT_MULTIPLIER * openStateWaitDurationInSeconds;
+        return Math.max(ttl, openStateWaitDurationInSeconds + 1);
+    }
+
+    private static SharedCircuitState openSharedState(SharedStateProperties properties) {
+        try {
+            return new SharedCircuitState(properties);
+        } catch(IOException e) {
+            throw new UncheckedIOException("Failed to open the shared state '" + properties.getFile() + "'", e);
+        }
     }
 
     /**
@@ -85,15 +171,67 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
      */
     @Override
     public boolean allowRequest(String serviceName, String methodName, String data) {
+        return allowRequest(serviceName, methodName, data, null);
+    }
+
+    /**
+     * Determines if the client request should be allowed to be sent to the server, where the criticality of the
+     * request decides its admission while the failure rate of the service is above the threshold, if the admission
+     * by criticality is enabled.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @param data        the string content used to determine the request signature
+     * @param criticality the criticality of the request, or {@code null} for the default one
+     * @return {@code true} if request can be sent.
+     */
+    @Override
+    public boolean allowRequest(String serviceName, String methodName, String data, Criticality criticality) {
+        final String signature = CREATE_SIGNATURE.apply(methodName, data);
+        return admit(serviceName, methodName, signature, CallContext.hashOf(signature), criticality);
+    }
+
+    /**
+     * Determines if the call should be allowed to be sent to the server, on the signature precomputed by its context.
+     *
+     * @param context the context of the call
+     * @return {@code true} if the call can be sent.
+     */
+    @Override
+    public boolean admit(CallContext context) {
+        return admit(context.serviceName(), context.methodName(), context.signature(), context.signatureHash(), context.criticality());
+    }
+
+    private boolean admit(String serviceName, String methodName, String signature, long signatureHash, Criticality criticality) {
+        final boolean allowed = evaluate(serviceName, methodName, signature, signatureHash, criticality);
+        return criticalityAdmission != null ? criticalityAdmission.record(criticality, allowed) : allowed;
+    }
+
+    private boolean evaluate(String serviceName, String methodName, String signature, long signatureHash, Criticality criticality) {
         // If circuit breaker is disabled, all calls will be let through.
         if(!enableCircuitBreaker)
-            return true;
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.DISABLED, true);
 
         incrTotalCountForService(serviceName);
-        TOTAL_COUNTER.increment();
+        final StateMeters.Handle meters = stateMeters.of(serviceName, methodName);
+        meters.total().increment();
 
-        final String signature = CREATE_SIGNATURE.apply(methodName, data);
+        signatureCardinality.offerRequest(serviceName, signatureHash);
         logger.debug(hashStoreAdapter.printRequestMetric(signature));
+        final ThresholdsSnapshot thresholds = getThresholds();
+
+        // STATE : FORCED
+        // The state forced by the operators overrides any evaluation of the circuit.
+        final States forced = getForcedState(serviceName, signature);
+        if(forced != null) {
+            if(forced == States.OPEN) {
+                meters.open().increment();
+                rejectedSignatures.offer(signature);
+                return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.FORCED, false);
+            }
+            meters.closed().increment();
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.FORCED, true);
+        }
 
         // If the data is not present within the bloom filter, then the request can be allowed right away.
         // If present, it will be further evaluated.
@@ -102,31 +240,75 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
             // STATE : OPEN
             // Checking for server level circuit breaker state. If the failure percentage is
             // above the threshold, the circuit is open, and thus requests won't be allowed.
-            // The service level circuit is also evaluated based on the last time stamp request.
-            if(getFailurePercentage(serviceName) > thresholds.getServiceFailureRateThreshold() && !isServiceHalfOpen(serviceName)) {
-                logger.error("CIRCUIT-OPEN: Circuit is opened for the service {} due to failure percentage above the service-failure-threshold: {}", serviceName, thresholds.getServiceFailureRateThreshold());
-                OPEN_STATE_COUNTER.increment();
-                return false;
+            // The service level circuit is also evaluated based on the last time stamp request, and on the
+            // criticality of the request if enabled.
+            if(getFailurePercentage(serviceName) > thresholds.serviceFailureRateThreshold() && !isAdmittedByService(serviceName, criticality, thresholds)) {
+                logger.error("CIRCUIT-OPEN: Circuit is opened for the service {} due to failure percentage above the service-failure-threshold: {}", serviceName, thresholds.serviceFailureRateThreshold());
+                meters.open().increment();
+                rejectedSignatures.offer(signature);
+                return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.SERVICE_OPEN, false);
             }
 
 
             // Check the definition for the CIRCUIT_EVALUATION predicate
             // If the local request metric cache contains the data, then it is further evaluated
             // to determine if the circuit is open or closed.
-            if(hashStoreAdapter.containsKey(signature)) {
-                boolean status = CIRCUIT_EVALUATION.test(hashStoreAdapter.get(signature), thresholds);
-                if(!status)
-                    OPEN_STATE_COUNTER.increment();
+            // The entry is read once, as it may be expired or dropped by the finalizer in the meantime.
+            final RequestMetrics rm = hashStoreAdapter.get(signature);
+            if(rm != null) {
+                boolean status = CIRCUIT_EVALUATION.test(rm, thresholds);
+                if(!status) {
+                    meters.open().increment();
+                    rejectedSignatures.offer(signature);
+                }
                 /*else
                     HALF_OPEN_STATE_COUNTER.increment();*/
-                return status;
+                return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.STORE_EVALUATED, status);
             }
 
+            // STATE : OPEN, elsewhere
+            if(isOpenInSharedState(signature, thresholds)) {
+                meters.open().increment();
+                rejectedSignatures.offer(signature);
+                return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.SHARED_OPEN, false);
+            }
+
+            // STATE : CLOSED
+            meters.closed().increment();
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.STORE_MISS, true);
+        }
+
+        // STATE : OPEN, elsewhere
+        // The signature may be failing in the other processes of the host, while never failed in this one.
+        if(isOpenInSharedState(signature, thresholds)) {
+            meters.open().increment();
+            rejectedSignatures.offer(signature);
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.SHARED_OPEN, false);
         }
 
         // STATE : CLOSED
-        CLOSED_STATE_COUNTER.increment();
-        return true;
+        meters.closed().increment();
+        return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.BLOOM_NEGATIVE, true);
+    }
+
+    private boolean isOpenInSharedState(String signature, ThresholdsSnapshot thresholds) {
+        return sharedState != null && sharedState.isOpen(signature, thresholds.failureCountThreshold(),
+                thresholds.openStateWaitDurationInSeconds(), clock.instant().getEpochSecond());
+    }
+
+    /**
+     * A weakly consistent stream over the hash store, which is the same store while the finalizer is running.
+     *
+     * @return the request metrics of the failing signatures
+     */
+    @Override
+    public Stream<RequestMetrics> getFailingRequestMetrics() {
+        return hashStoreAdapter.stream();
+    }
+
+    @Override
+    public boolean mightBeFailing(String signature) {
+        return bloomFilterAdapter.mightContain(signature);
     }
 
     /**
@@ -139,24 +321,47 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
      */
     @Override
     public void onSuccess(String serviceName, String methodName, String data) {
+        recordSuccess(serviceName, CREATE_SIGNATURE.apply(methodName, data));
+    }
+
+    /**
+     * Records the outcome of the call as a success or a failure, on the signature precomputed by its context.
+     *
+     * @param context the context of the call
+     * @param outcome the outcome of the call
+     */
+    @Override
+    public void onOutcome(CallContext context, Outcome outcome) {
+        if(outcome.isSuccess())
+            recordSuccess(context.serviceName(), context.signature());
+        else
+            recordFailure(context.serviceName(), context.signature(), context.signatureHash());
+    }
+
+    private void recordSuccess(String serviceName, String signature) {
         // If circuit breaker is disabled, no records are maintained.
         if(!enableCircuitBreaker)
             return;
 
-        final String signature = CREATE_SIGNATURE.apply(methodName, data);
         logger.debug("** SUCCEEDED **: gRPC call succeeded for service='{}' with signature='{}'", serviceName, signature);
 
-        // Checking for finalizer process if applicable
+        // Expiring the stale failure entries and checking for finalizer process if applicable
+        hashStoreAdapter.expire();
         bfFinalizer.runFinalizer();
 
         // The overall success count for the service is recorded by decrementing the overall failure count.
         decrFailureCountForService(serviceName);
 
+        // A success takes back a failure shared by any process, as the signature may never have failed in this one.
+        if(sharedState != null)
+            sharedState.recordSuccess(signature);
+
         // Upon succeeding if there were previous failures present for the signature, the
         // failure count is decremented. If the failure count reaches 0, then the request
         // is pushed to the queue for resetting during the bloom filter brown-out
-        if(hashStoreAdapter.containsKey(signature)) {
-            final RequestMetrics rm = hashStoreAdapter.get(signature);
+        // The entry is read once, as it may be expired or dropped by the finalizer in the meantime.
+        final RequestMetrics rm = hashStoreAdapter.get(signature);
+        if(rm != null) {
             rm.resetTransientFaultCount();
 
             // Decrementing the failure count for the request
@@ -166,6 +371,7 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
 
                 // Adding the request to the reset queue.
                 resetQueueAdapter.add(rm);
+                CircuitBreakerEvents.transition(serviceName, signature, States.HALF_OPEN, States.CLOSED);
             }
         }
     }
@@ -179,27 +385,37 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
      */
     @Override
     public void onFailure(String serviceName, String methodName, String data) {
+        final String signature = CREATE_SIGNATURE.apply(methodName, data);
+        recordFailure(serviceName, signature, CallContext.hashOf(signature));
+    }
+
+    private void recordFailure(String serviceName, String signature, long signatureHash) {
         // If circuit breaker is disabled, no records are maintained.
         if(!enableCircuitBreaker)
             return;
 
-        final String signature = CREATE_SIGNATURE.apply(methodName, data);
         logger.debug(" ** FAILED ** : gRPC call failed for service='{}' with signature='{}'", serviceName, signature);
 
-        // Checking for finalizer process if applicable
+        // Expiring the stale failure entries and checking for finalizer process if applicable
+        hashStoreAdapter.expire();
         bfFinalizer.runFinalizer();
 
+        failingSignatures.offer(signature);
+        signatureCardinality.offerFailure(serviceName, signatureHash);
+        memoryAccount.enforceBudget();
+
         // The request metric is created only in situation of a failure
-        RequestMetrics rm = hashStoreAdapter.getOrDefault(signature);
+        RequestMetrics rm = hashStoreAdapter.getOrCreate(signature);
+        final ThresholdsSnapshot thresholds = getThresholds();
 
         // The failure timestamp is always updated, irrespective of transient faults or the
         // primary failure count
-        rm.updateLastFailureTimestamp();
+        rm.updateLastFailureTimestamp(now());
 
         // Checking for the transient faults. Transient faults are ignored as long as they
         // are below the threshold. Transient faults are reset every time a success occurs
         // but incremented initially till they do not cross the threshold
-        if(rm.getTransientFaultCount() <= thresholds.getTransientFaultCountThreshold()){
+        if(rm.getTransientFaultCount() <= thresholds.transientFaultCountThreshold()){
             rm.incTransientFaultCount();
             hashStoreAdapter.put(signature, rm);
             return;
@@ -207,14 +423,23 @@ public class BloomFilterCircuitBreakerStrategy extends AbstractCircuitBreakerStr
 
         // If the transient faults have cross the threshold, then it is regarded as a failure.
         // The failure count and the failure time stamp are updated for the request.
-        // Also, an entry is registered in the bloom filter for the same.
+        // Also, an entry is registered in the bloom filter for the same, only after it is in the hash store, so
+        // that the finalizer rebuilding the filter from the hash store in the meantime never misses it.
         // If the failure count has already surpassed the failure threshold, then we don't increment the counter
         // This will help in moving the circuit to half-open state when the service does a self-recovery.
-        if(rm.getFailureCount() <= thresholds.getFailureCountThreshold()) {
+        final boolean counted = rm.getFailureCount() <= thresholds.failureCountThreshold();
+        if(counted)
             rm.incFailureCount();
+        hashStoreAdapter.put(signature, rm);
+        if(counted) {
             bloomFilterAdapter.put(signature);
+            // The shared count saturates above the threshold as the local one, however many processes fail.
+            if(sharedState != null && !sharedState.recordFailure(signature, thresholds.failureCountThreshold() + 1,
+                    thresholds.openStateWaitDurationInSeconds(), clock.instant().getEpochSecond()))
+                sharedStateDropped.increment();
+            if(rm.getFailureCount() > thresholds.failureCountThreshold())
+                CircuitBreakerEvents.transition(serviceName, signature, States.CLOSED, States.OPEN);
         }
-        hashStoreAdapter.put(signature, rm);
 
         // The overall failure count for the service is incremented.
         incrFailureCountForService(serviceName);
@@ -1,18 +1,19 @@
 package edu.research.scb.internal.bloomfilter;
 
 import edu.research.scb.internal.RequestMetrics;
+import edu.research.scb.internal.jfr.FinalizerRunEvent;
 import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.time.LocalDateTime;
-import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static edu.research.scb.internal.DefaultConstants.*;
 
@@ -20,33 +21,33 @@ public class BloomFilterFinalizer {
 
     private static final Logger logger = LogManager.getLogger(BloomFilterFinalizer.class);
 
+    private final AtomicReference<Generation> generation;
     private final ResetBufferQueueAdapter resetQueueAdapter;
     private final BloomFilterAdapter bloomFilterAdapter;
-    private final HashStoreAdapter hashStoreAdapter;
     private final Integer queueBuffer;
     private final Double resetThreshold;
     private final Double resetTimeInMinutes;
     private LocalDateTime lastResetTimestamp;
     private final Semaphore mutex;
-    private final AtomicLong finalizerTime = new AtomicLong(0);
-    private final AtomicLong resetTime = new AtomicLong(0);
+    private final Timer finalizerTimer;
+    private final Timer resetTimer;
     private final Counter finalizerCounter;
 
-    public BloomFilterFinalizer(ResetBufferQueueAdapter resetQueueAdapter, BloomFilterAdapter bloomFilterAdapter, HashStoreAdapter hashStoreAdapter, Integer queueBuffer, Double resetThreshold, Double resetTimeInMinutes, MeterRegistry meterRegistry) {
+    public BloomFilterFinalizer(AtomicReference<Generation> generation, ResetBufferQueueAdapter resetQueueAdapter, BloomFilterAdapter bloomFilterAdapter, Integer queueBuffer, Double resetThreshold, Double resetTimeInMinutes, MeterRegistry meterRegistry) {
         this.mutex = new Semaphore(1);
+        this.generation = generation;
         this.resetQueueAdapter = resetQueueAdapter;
         this.bloomFilterAdapter = bloomFilterAdapter;
-        this.hashStoreAdapter = hashStoreAdapter;
         this.queueBuffer = queueBuffer;
         this.resetThreshold = resetThreshold;
         this.resetTimeInMinutes = resetTimeInMinutes;
         this.lastResetTimestamp = LocalDateTime.now();
 
-        Gauge.builder(METRIC_BLOOM_FILTER_RESET_NAME, resetTime::get)
+        resetTimer = Timer.builder(METRIC_BLOOM_FILTER_RESET_NAME)
                 .description("Timer for recording the bloom filter reset process")
                 .register(meterRegistry);
 
-        Gauge.builder(METRIC_BLOOM_FILTER_FINALIZER_NAME, finalizerTime::get)
+        finalizerTimer = Timer.builder(METRIC_BLOOM_FILTER_FINALIZER_NAME)
                 .description("Timer for recording the bloom filter finalizing process")
                 .register(meterRegistry);
 
@@ -56,7 +57,8 @@ public class BloomFilterFinalizer {
     /**
      * Primary finalizer method that performs the reset of the bloom filter and the hash store
      * <p>The finalizing operation is performed using a mutex, i.e. only a single thread/request will have
-     * access to this implementation.</p>
+     * access to this implementation. The other threads never wait for it, they skip the finalizing operation
+     * while it is running, and keep reading and writing the current generation.</p>
      *
      * <p>The finalizing operation is only performed when the reset queue is filled above the reset-threshold,
      * which is fixed at around 80% i.e. only when the queue is for e.g. 80% filled, the finalizing operation
@@ -66,17 +68,29 @@ public class BloomFilterFinalizer {
      */
 
     public void runFinalizer(){
+        if(!mutex.tryAcquire())
+            return;
         try {
-            mutex.acquire();
-
             // If the queue is filled above the reset-threshold, then only the finalizing operation will be
             // performed. The threshold is fixed at 80%.
             logger.trace("Size='{}', Queue-Buffer-Threshold='{}'", resetQueueAdapter.size(), queueBuffer * resetThreshold * 0.01);
             if((resetQueueAdapter.size() > queueBuffer * resetThreshold * 0.01)) //|| (ChronoUnit.MINUTES.between(lastResetTimestamp, LocalDateTime.now()) > resetTimeInMinutes)
                 initiateProcess();
+        } finally {
+            mutex.release();
+        }
+    }
 
-        } catch (InterruptedException e) {
-            logger.error(e.getMessage());
+    /**
+     * Runs the finalizing operation right away, whatever the size of the reset queue, e.g. for the entries evicted
+     * for the memory budget to be dropped along with the bloom filter bits of their signatures. This is a no-op if
+     * the finalizer is already running on another thread.
+     */
+    public void runFinalizerNow(){
+        if(!mutex.tryAcquire())
+            return;
+        try {
+            initiateProcess();
         } finally {
             mutex.release();
         }
@@ -84,54 +98,61 @@ public class BloomFilterFinalizer {
 
     void initiateProcess(){
         finalizerCounter.increment();
-        finalizerTime.set(System.nanoTime());
+        final long finalizerStart = System.nanoTime();
+        final FinalizerRunEvent event = new FinalizerRunEvent();
+        event.begin();
         logger.trace("----------------------------- Finalizer -----------------------------");
         lastResetTimestamp = LocalDateTime.now();
         logger.debug("FINALIZER: Initiating the finalizing process for the bloom filter and hash store.");
 
-        // If threshold is met, all the adapters are switched to the auxiliary data structures.
-        hashStoreAdapter.switchToAux();
-        bloomFilterAdapter.switchToAux();
-        resetQueueAdapter.switchToAux();
-
-        // The current hast store, containing the failed requests is fetched. Also, the current queue
-        // holding the requests that are now recovered from previous failures is fetched, that would
-        // eventually be removed from the hash-store and the bloom filter.
-        final ConcurrentHashMap<String, RequestMetrics> orgReq = hashStoreAdapter.getRequestMetrics();
-        logger.trace("FINALIZER: Original Hash Store size: {}", orgReq.size());
-        final ConcurrentLinkedQueue<RequestMetrics> orgQueue = resetQueueAdapter.getResetQueue();
-        logger.trace("FINALIZER: Original queue size: {}", orgQueue.size());
-
-        // The queue is emptied out and the corresponding succeeded requests are then removed from the
-        // hash store.
-        while(!orgQueue.isEmpty()){
-            orgReq.remove(orgQueue.poll().getData());
+        // The requests keep reading and writing the current generation, while the next one is built aside.
+        final Generation current = generation.get();
+        final ConcurrentHashMap<String, RequestMetrics> store = current.store();
+        logger.trace("FINALIZER: Hash Store size: {}", store.size());
+
+        // The queue holding the requests that are now recovered from previous failures is drained, and they are
+        // removed from the hash store. An entry that has failed again in the meantime is kept, as it is the very
+        // same instance that is still being counted.
+        int queueSize = 0;
+        RequestMetrics recovered;
+        while((recovered = resetQueueAdapter.poll(current)) != null) {
+            queueSize++;
+            if(recovered.getFailureCount() == 0)
+                store.remove(recovered.getData(), recovered);
         }
-        logger.trace("FINALIZER: Original Hash Store size (after removal): {}", orgReq.size());
-
-        // Storing any new failures that have been recorded in the auxiliary hash store in parallel,
-        // meanwhile this finalizing operation was being done.
-        logger.trace("FINALIZER: Putting any more 'failure' request metrices, recorded in the aux store to primary store: {}", hashStoreAdapter.getAuxRequestMetrics().size());
-        orgReq.putAll(hashStoreAdapter.getAuxRequestMetrics());
-
-        // The bloom filter is reset here. The existing filter is re-instantiated with the same
-        // configuration as before. All the remaining requests in the hash store which are still
-        // failing are then added to the bloom filter by iterating over the entire hash store.
-        // The aux switch is switched back to the primary filter and the aux filter is then again
-        // re-instantiated. There is no need to capture the entries in the aux filter as they are
-        // captured by the aux has store also.
-        logger.trace("FINALIZER: Resetting the bloom filter");
-        resetTime.set(System.nanoTime());
-        bloomFilterAdapter.resetBloomFilter(new HashSet<>(orgReq.values()));
-        resetTime.updateAndGet(t -> System.nanoTime() - t);
-
-        // The queue and the hash store are switched back to the primary data structures from the
-        // auxiliary one.
-        logger.trace("FINALIZER: Switching the hashstore and reset-buffer-queue to the primary.");
-        resetQueueAdapter.resetSwitch();
-        hashStoreAdapter.resetSwitch();
+        logger.trace("FINALIZER: Hash Store size (after removal): {}", store.size());
+
+        // The bloom filter of the next generation is built from all the requests in the hash store which are still
+        // failing, with the same configuration as before.
+        logger.trace("FINALIZER: Rebuilding the bloom filter");
+        final long resetStart = System.nanoTime();
+        final SignatureFilter filter = bloomFilterAdapter.rebuild(store.values());
+        final long resetDuration = System.nanoTime() - resetStart;
+        resetTimer.record(resetDuration, TimeUnit.NANOSECONDS);
+
+        // The next generation is published with a single write. The failures recorded while the filter was being
+        // built, and thus only put into the previous filter, are put again into the published one, with a second
+        // pass over the store. Any later writer to the previous generation notices the publication and writes
+        // into the published one too.
+        logger.trace("FINALIZER: Publishing the next generation.");
+        final Generation next = new Generation(filter, store, new ConcurrentLinkedQueue<>());
+        generation.set(next);
+        store.values().forEach(m -> filter.put(m.getData()));
+        bloomFilterAdapter.rebuilt();
+
+        // The entries queued into the previous generation while the filter was being built are moved over.
+        while((recovered = resetQueueAdapter.poll(current)) != null)
+            resetQueueAdapter.add(recovered);
 
         logger.debug("FINALIZER: Finalizer process Completed !!!");
-        finalizerTime.updateAndGet(t -> System.nanoTime() - t);
+        finalizerTimer.record(System.nanoTime() - finalizerStart, TimeUnit.NANOSECONDS);
+
+        event.end();
+        if(event.shouldCommit()) {
+            event.storeSize = store.size();
+            event.queueSize = queueSize;
+            event.rebuildDuration = resetDuration;
+            event.commit();
+        }
     }
 }
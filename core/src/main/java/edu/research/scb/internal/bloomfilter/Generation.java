@@ -0,0 +1,25 @@
+package edu.research.scb.internal.bloomfilter;
+
+import edu.research.scb.internal.RequestMetrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One generation of the bloom filter, the failure store and the reset queue, which the adapters share through a
+ * single {@code AtomicReference}. A generation is never modified as a whole, the finalizer builds the next one
+ * aside and publishes it with a single write, so that a reader always observes a consistent combination of the
+ * three, and never a structure that is being rebuilt.
+ *
+ * <p>Only the bloom filter is rebuilt, as it doesn't support removals. The failure store is carried over to the next
+ * generation with the recovered entries removed in place, so that a failure is never recorded into a store that is
+ * about to be dropped. The reset queue starts empty, with the entries queued during the rebuild moved over.
+ *
+ * @param filter the filter of the failed signatures
+ * @param store the failure store
+ * @param resetQueue the queue of the recovered and evicted entries to be dropped on the next rebuild
+ */
+record Generation(SignatureFilter filter,
+                  ConcurrentHashMap<String, RequestMetrics> store,
+                  ConcurrentLinkedQueue<RequestMetrics> resetQueue) {
+}
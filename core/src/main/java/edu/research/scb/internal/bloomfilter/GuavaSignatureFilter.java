@@ -0,0 +1,52 @@
+package edu.research.scb.internal.bloomfilter;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.Charset;
+
+/**
+ * The guava bloom filter, whose k bits of a signature are spread over the whole bit array.
+ */
+final class GuavaSignatureFilter implements SignatureFilter {
+
+    private final BloomFilter<String> bloomFilter;
+    private final long sizeInBytes;
+
+    GuavaSignatureFilter(Charset charset, long capacity, double fpp) {
+        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(charset), capacity, fpp);
+        this.sizeInBytes = estimateSizeInBytes(capacity, fpp);
+    }
+
+    @Override
+    public boolean mightContain(String signature) {
+        return bloomFilter.mightContain(signature);
+    }
+
+    @Override
+    public boolean put(String signature) {
+        return bloomFilter.put(signature);
+    }
+
+    @Override
+    public double expectedFpp() {
+        return bloomFilter.expectedFpp();
+    }
+
+    @Override
+    public long approximateElementCount() {
+        return bloomFilter.approximateElementCount();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    // The number of bits as computed by the guava implementation, i.e. {@code -n * ln(p) / (ln 2)^2},
+    // rounded up to the 64 bit words of the backing array.
+    static long estimateSizeInBytes(long capacity, double fpp){
+        final long bits = (long) (-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        return ((bits + Long.SIZE - 1) / Long.SIZE) * Long.BYTES;
+    }
+}
@@ -1,82 +1,223 @@
 package edu.research.scb.internal.bloomfilter;
 
+import edu.research.scb.internal.HierarchicalTimingWheel;
 import edu.research.scb.internal.RequestMetrics;
 
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The failure store, bounded by an entry budget. Every entry expires once no failure has been recorded for it
+ * for the time-to-live, which is tracked by a hierarchical timing wheel. When the budget is exhausted, the entry
+ * with the nearest expiry is evicted to make room for the new one. The evicted entries are handed over to the
+ * eviction listener, so that they can be dropped from the bloom filter on its next rebuild.
+ *
+ * <p>No request thread ever waits on the wheel. An insertion finding the wheel held by another thread leaves the
+ * store above its budget by that entry, until the next failure expires the entries and evicts down to the budget.
+ */
 public class HashStoreAdapter {
 
-    // The failure store for housing all the failed requests.
-    private final ConcurrentHashMap<String, RequestMetrics> requestMetrics;
-    private final ConcurrentHashMap<String, RequestMetrics> auxRequestMetrics;
-    private final AtomicBoolean switchToAux;
+    // The current generation, whose failure store houses all the failed requests.
+    private final AtomicReference<Generation> generation;
+
+    // The hard budget for the entries of the store.
+    private final int capacity;
+    private final LongSupplier ttlInSeconds;
+
+    // The expiry of the entries, where the wheel holds the very request metric instances, so that the timers
+    // of the entries that have been removed or replaced in the meantime are recognized and dropped.
+    private final HierarchicalTimingWheel<RequestMetrics> expiryWheel;
+    private final BiConsumer<RequestMetrics, EvictionCause> evictionListener;
+
+    // The clock of the strategy, for the new entries and their expiry.
+    private final Clock clock;
+
+    public HashStoreAdapter(AtomicReference<Generation> generation, int capacity, LongSupplier ttlInSeconds, Clock clock,
+                            BiConsumer<RequestMetrics, EvictionCause> evictionListener) {
+        this.generation = generation;
+        this.capacity = capacity;
+        this.ttlInSeconds = ttlInSeconds;
+        this.clock = clock;
+        this.expiryWheel = new HierarchicalTimingWheel<>(TimeUnit.SECONDS.toNanos(1), nowNanos());
+        this.evictionListener = evictionListener;
+    }
 
-    public HashStoreAdapter(int capacity) {
-        this.requestMetrics = new ConcurrentHashMap<>(capacity);
-        this.auxRequestMetrics = new ConcurrentHashMap<>(capacity);
-        switchToAux = new AtomicBoolean(false);
+    // The store of the current generation. It is carried over across the generations, thus a failure recorded
+    // while the finalizer is running is never lost.
+    private ConcurrentHashMap<String, RequestMetrics> store(){
+        return generation.get().store();
     }
 
     public boolean containsKey(String data){
-        return switchToAux.get() ? auxRequestMetrics.containsKey(data) : requestMetrics.containsKey(data);
+        return store().containsKey(data);
     }
 
-    public RequestMetrics getOrDefault(String data){
-        return switchToAux.get() ?
-                auxRequestMetrics.getOrDefault(data, new RequestMetrics(data)) :
-                requestMetrics.getOrDefault(data, new RequestMetrics(data));
+    /**
+     * Gets the entry of the signature, or inserts a new one. Of the concurrent first failures of a signature, only
+     * the one winning the insert schedules its entry for the expiry, and all of them share that very entry.
+     *
+     * @param data the request signature
+     * @return the entry held by the store
+     */
+    public RequestMetrics getOrCreate(String data){
+        final ConcurrentHashMap<String, RequestMetrics> store = store();
+        final RequestMetrics existing = store.get(data);
+        if(existing != null)
+            return existing;
+        final RequestMetrics created = new RequestMetrics(data, LocalDateTime.now(clock));
+        final RequestMetrics raced = store.putIfAbsent(data, created);
+        if(raced != null)
+            return raced;
+        inserted(created);
+        return created;
     }
 
+    /**
+     * Puts the entry back into the store, if it has been evicted since it was obtained. The entry held by the store
+     * in the meantime, if any, is kept as is, so that every entry in the store is always scheduled for the expiry.
+     *
+     * @param data the request signature
+     * @param requestMetric the entry obtained by {@link #getOrCreate}
+     */
     public void put(String data, RequestMetrics requestMetric){
-        if(switchToAux.get())
-            auxRequestMetrics.put(data, requestMetric);
-        else
-            requestMetrics.put(data, requestMetric);
+        if(store().putIfAbsent(data, requestMetric) == null)
+            inserted(requestMetric);
     }
 
-    public void remove(String data){
-        if(switchToAux.get())
-            auxRequestMetrics.remove(data);
-        else
-            requestMetrics.remove(data);
+    // Only a new entry is scheduled for the expiry, the refreshed entries are rescheduled when their timer fires.
+    private void inserted(RequestMetrics requestMetric){
+        expiryWheel.schedule(requestMetric, TimeUnit.SECONDS.toNanos(ttlInSeconds.getAsLong()));
+        if(size() > capacity)
+            evictEarliest(EvictionCause.CAPACITY);
+    }
 
+    /**
+     * Expires the entries that have not seen a failure for the time-to-live, and evicts the entries above the
+     * budget. This is a no-op if the expiry is already being processed by another thread.
+     */
+    public void expire(){
+        expiryWheel.advance(nowNanos(), this::onTimerExpiry);
+        // The insertions finding the wheel held by another thread could not evict, and are caught up here.
+        while(size() > capacity) {
+            if(!evictEarliest(EvictionCause.CAPACITY))
+                break;
+        }
     }
 
-    public RequestMetrics get(String data){
-        return switchToAux.get() ? auxRequestMetrics.get(data) : requestMetrics.get(data);
+    private long nowNanos(){
+        return TimeUnit.MILLISECONDS.toNanos(clock.millis());
     }
 
-    public String printRequestMetric(String data){
-        return get(data) != null ? get(data).toString() : "";
+    public int size(){
+        return store().size();
     }
 
-    ConcurrentHashMap<String, RequestMetrics> getRequestMetrics() {
-        return requestMetrics;
+    private void onTimerExpiry(RequestMetrics rm){
+        if(!isLive(rm))
+            return;
+
+        // The entry has seen a failure since it was scheduled, or the time-to-live has been reloaded in the meantime,
+        // thus it is rescheduled for the remaining time.
+        final long ttl = ttlInSeconds.getAsLong();
+        final long idle = ChronoUnit.SECONDS.between(rm.getLastFailureTimestamp(), LocalDateTime.now(clock));
+        if(idle < ttl) {
+            expiryWheel.schedule(rm, TimeUnit.SECONDS.toNanos(ttl - idle));
+            return;
+        }
+        evict(rm, EvictionCause.EXPIRED);
+    }
+
+    private boolean evictEarliest(EvictionCause cause){
+        RequestMetrics rm;
+        while((rm = expiryWheel.pollEarliest()) != null) {
+            if(isLive(rm)) {
+                evict(rm, cause);
+                return true;
+            }
+        }
+        return false;
     }
 
-    ConcurrentHashMap<String, RequestMetrics> getAuxRequestMetrics() {
-        return auxRequestMetrics;
+    /**
+     * Evicts the entries nearest to their expiry, to free the given estimated heap when the memory budget is
+     * exceeded.
+     *
+     * @param bytes the estimated heap to be freed
+     * @return the estimated heap freed
+     */
+    public long evictForBudget(long bytes){
+        final long entries = (bytes + DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES - 1) / DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES;
+        long evicted = 0;
+        while(evicted < entries && evictEarliest(EvictionCause.BUDGET))
+            evicted++;
+        return evicted * DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES;
     }
 
-    void switchToAux(){
-        this.switchToAux.set(true);
+    private boolean isLive(RequestMetrics rm){
+        return store().get(rm.getData()) == rm;
     }
 
-    void resetSwitch(){
-        this.switchToAux.set(false);
+    private void evict(RequestMetrics rm, EvictionCause cause){
+        if(store().remove(rm.getData(), rm))
+            evictionListener.accept(rm, cause);
+    }
+
+    public void remove(String data){
+        store().remove(data);
+    }
+
+    public RequestMetrics get(String data){
+        return store().get(data);
+    }
+
+    public String printRequestMetric(String data){
+        final RequestMetrics requestMetrics = get(data);
+        return requestMetrics != null ? requestMetrics.toString() : "";
+    }
+
+    /**
+     * A weakly consistent stream over the store. The iteration never locks the store and may or may not reflect
+     * the updates made after it began.
+     *
+     * @return the request metrics in the store
+     */
+    public Stream<RequestMetrics> stream(){
+        return store().values().stream();
+    }
+
+    /**
+     * The estimated heap occupied by the entries of the store.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedSizeInBytes(){
+        return (long) size() * DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES;
     }
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        if(switchToAux.get() && !auxRequestMetrics.isEmpty()){
-            sb.append("AUXILIARY-HASH-STORE: ").append(auxRequestMetrics);
-        } else if(!requestMetrics.isEmpty()){
-            sb.append("PRIMARY-HASH-STORE: ").append(requestMetrics);
-        } else {
-            sb.append("Hash stores are empty !!!");
-        }
-        return sb.toString();
+        final ConcurrentHashMap<String, RequestMetrics> store = store();
+        return store.isEmpty() ? "Hash store is empty !!!" : "HASH-STORE: " + store;
+    }
+
+    /**
+     * The reason for an entry to be evicted from the failure store.
+     */
+    public enum EvictionCause {
+        // No failure has been recorded for the entry for the time-to-live.
+        EXPIRED,
+        // The entry has been evicted to make room for a new one, as the store was full.
+        CAPACITY,
+        // The entry has been evicted as the estimated heap of all the strategies was above the memory budget.
+        BUDGET
     }
 }
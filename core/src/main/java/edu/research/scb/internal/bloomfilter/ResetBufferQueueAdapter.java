@@ -2,50 +2,64 @@ package edu.research.scb.internal.bloomfilter;
 
 import edu.research.scb.internal.RequestMetrics;
 
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static edu.research.scb.internal.DefaultConstants.*;
 
 public class ResetBufferQueueAdapter {
 
-    private ConcurrentLinkedQueue<RequestMetrics> resetQueue;
-    private ConcurrentLinkedQueue<RequestMetrics> auxResetQueue;
-    private final AtomicBoolean switchToAux;
+    // The current generation, whose reset queue is read and written.
+    private final AtomicReference<Generation> generation;
+    // The entries marked as queued, as the size of the queue itself is counted by traversing it.
+    private final AtomicInteger size;
 
-    public ResetBufferQueueAdapter() {
-        this.resetQueue = new ConcurrentLinkedQueue<>();
-        this.auxResetQueue = new ConcurrentLinkedQueue<>();
-        this.switchToAux = new AtomicBoolean(false);
+    public ResetBufferQueueAdapter(AtomicReference<Generation> generation) {
+        this.generation = generation;
+        this.size = new AtomicInteger();
     }
 
+    /**
+     * Queues the entry into the current generation, unless it is queued already. If the finalizer has published the
+     * next generation in the meantime, the entry is queued into it as well, so that it is never lost.
+     *
+     * @param requestMetric the recovered or evicted entry
+     */
     public void add(RequestMetrics requestMetric){
-        if(switchToAux.get() && !auxResetQueue.contains(requestMetric)) {
-            auxResetQueue.add(requestMetric);
-        } else if(!resetQueue.contains(requestMetric)) {
-            resetQueue.add(requestMetric);
-        }
-    }
-
-    public int size(){
-        return resetQueue.size();
+        if(!requestMetric.markQueued())
+            return;
+        size.incrementAndGet();
+        Generation current;
+        do {
+            current = generation.get();
+            current.resetQueue().add(requestMetric);
+        } while(generation.get() != current);
     }
 
-    synchronized ConcurrentLinkedQueue<RequestMetrics> switchToAux(){
-        this.switchToAux.set(true);
-        return resetQueue;
+    /**
+     * Takes the next entry out of the reset queue of the given generation, which may be queued again afterwards.
+     *
+     * @param generation the generation being finalized
+     * @return the entry, or {@code null} if the queue is empty
+     */
+    RequestMetrics poll(Generation generation){
+        final RequestMetrics requestMetric = generation.resetQueue().poll();
+        if(requestMetric != null && requestMetric.unmarkQueued())
+            size.decrementAndGet();
+        return requestMetric;
     }
 
-    void resetSwitch(){
-        this.resetQueue = new ConcurrentLinkedQueue<>();
-        this.switchToAux.set(false);
-        this.resetQueue.addAll(auxResetQueue);
-        this.auxResetQueue = new ConcurrentLinkedQueue<>();
-    }
-
-    ConcurrentLinkedQueue<RequestMetrics> getResetQueue() {
-        return resetQueue;
+    public int size(){
+        return size.get();
     }
 
-    public ConcurrentLinkedQueue<RequestMetrics> getAuxResetQueue() {
-        return auxResetQueue;
+    /**
+     * The estimated heap occupied by the entries of the reset queue, including the entries evicted from the failure
+     * store that are only held by the queue till the finalizer runs.
+     *
+     * @return the estimated size in bytes
+     */
+    public long getEstimatedSizeInBytes(){
+        return (long) size() * DEFAULT_ESTIMATED_RESET_QUEUE_ENTRY_SIZE_IN_BYTES;
     }
 }
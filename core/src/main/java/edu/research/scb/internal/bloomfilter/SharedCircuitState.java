@@ -0,0 +1,293 @@
+package edu.research.scb.internal.bloomfilter;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import edu.research.scb.internal.config.SharedStateProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The failing signatures shared by all the processes of a host that call the same services, so that the failures
+ * seen by one process protect the others right away. The state lives in a memory-mapped file, which every process
+ * maps and updates in place with atomic {@code VarHandle} operations on the mapped buffer, without any lock or
+ * system call on the request path.
+ *
+ * <p>The file holds a split block bloom filter of the failing signatures, as the {@link BlockedBloomFilter}, followed
+ * by a table of fixed-size slots, each holding the 64-bit fingerprint of a signature, and its failure count along with
+ * the epoch second of its last failure packed into a single word. A signature is looked up by a short linear probe
+ * from the slot of its fingerprint, and only if the filter reports it, so that a healthy signature costs a single
+ * block of the filter. A slot whose count is back to 0, or whose last failure is older than the time-to-live, is
+ * reclaimed by the next signature probing it. When the probe finds no such slot, the failure is only kept by the
+ * local process.
+ *
+ * <p>The bits of the filter are never cleared, as no single process can rebuild them for the others. The filter thus
+ * only saves the probes of the table, which the stale bits add back as they accumulate. The file is to be removed,
+ * with all the processes sharing it stopped, to start anew.
+ *
+ * <p>The file starts with a header of {@value #HEADER_SIZE} bytes : the magic, the version, the number of blocks of
+ * the filter and the number of slots of the table. It is created and initialized by the first process, under an
+ * exclusive lock of the file, and the processes opening it later must be configured with the same capacity and fpp.
+ * The whole file is mapped by a single buffer, thus it is bound to 2 GB.
+ */
+public class SharedCircuitState implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(SharedCircuitState.class);
+
+    static final int MAGIC = 0x53434253;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int BLOCK_SIZE = BlockedBloomFilter.WORDS_PER_BLOCK * Long.BYTES;
+    static final int SLOT_SIZE = 16;
+    static final int PROBES = 8;
+
+    // The count of a slot in the lower bits of its state, below the epoch second of its last failure.
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    // The mapped buffer is page aligned, and all the offsets are multiples of 8, as required by the atomic accesses.
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    // The lock of a file is held by the whole JVM, and a second channel of the same JVM locking it meanwhile fails
+    // rather than waits, thus the instances of the same JVM take their turn first.
+    private static final Object OPEN_LOCK = new Object();
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int numBlocks;
+    private final int slotMask;
+    private final int tableOffset;
+
+    public SharedCircuitState(SharedStateProperties properties) throws IOException {
+        this(Path.of(properties.getFile()), properties.getCapacity(), properties.getFpp());
+    }
+
+    public SharedCircuitState(Path file, int capacity, double fpp) throws IOException {
+        if(capacity <= 0 || capacity > 1 << 26 || fpp <= 0 || fpp >= 1)
+            throw new IllegalArgumentException("The capacity must be within 1 and " + (1 << 26) + ", and the fpp within 0 and 1, exclusive");
+
+        final long blocks = (long) Math.max(1, Math.ceil(capacity / BlockedBloomFilter.maxBlockLoad(fpp)));
+        final int slots = Math.max(PROBES, Integer.highestOneBit(capacity - 1) << 1);
+        final long size = HEADER_SIZE + blocks * BLOCK_SIZE + (long) slots * SLOT_SIZE;
+        if(size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("The shared state of a capacity of " + capacity + " and an fpp of " + fpp +
+                    " takes " + size + " bytes, beyond the " + Integer.MAX_VALUE + " bytes of a single mapped buffer");
+
+        this.file = file;
+        this.numBlocks = (int) blocks;
+        this.slotMask = slots - 1;
+        this.tableOffset = (int) (HEADER_SIZE + blocks * BLOCK_SIZE);
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = false, compatible = false;
+        MappedByteBuffer mapped = null;
+        synchronized (OPEN_LOCK) {
+            FileLock lock = null;
+            try {
+                lock = channel.lock();
+                created = channel.size() == 0;
+                if(created || channel.size() == size) {
+                    mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                    if(created) {
+                        // The magic is written last, as the mark of an initialized file.
+                        mapped.putInt(4, VERSION);
+                        mapped.putInt(8, numBlocks);
+                        mapped.putInt(12, slots);
+                        mapped.putInt(0, MAGIC);
+                        mapped.force();
+                    }
+                    compatible = mapped.getInt(0) == MAGIC && mapped.getInt(4) == VERSION && mapped.getInt(8) == numBlocks && mapped.getInt(12) == slots;
+                }
+            } catch(IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            } finally {
+                // The lock is already released when the channel is closed on a failure.
+                if(lock != null && lock.isValid())
+                    lock.release();
+            }
+        }
+        if(!compatible) {
+            channel.close();
+            throw new IllegalStateException("The shared state '" + file + "' was created with another capacity or fpp, " +
+                    "or by another version, and is to be removed once all the processes sharing it are stopped");
+        }
+        this.buffer = mapped;
+        logger.info("SHARED-STATE: {} the shared state '{}' with {} slots and a filter of {} bytes", created ? "Created" : "Opened",
+                file, slots, (long) numBlocks * BLOCK_SIZE);
+    }
+
+    /**
+     * Records a failure of the signature, for all the processes sharing the state.
+     *
+     * @param signature the request signature
+     * @param maxCount the count beyond which the failures are no longer counted
+     * @param ttlSeconds the seconds after the last failure, beyond which a slot may be reclaimed
+     * @param nowSeconds the current epoch second
+     * @return {@code false} if no slot could be claimed for the signature, which is then only filtered
+     */
+    public boolean recordFailure(String signature, int maxCount, long ttlSeconds, long nowSeconds) {
+        final long hash = hash(signature);
+        final int base = block(hash);
+        final int key = (int) hash;
+        for(int i = 0; i < BlockedBloomFilter.WORDS_PER_BLOCK; i++)
+            LONGS.getAndBitwiseOr(buffer, base + i * Long.BYTES, BlockedBloomFilter.mask(key, i));
+
+        final long fingerprint = fingerprint(hash);
+        final int offset = claim(fingerprint, ttlSeconds, nowSeconds);
+        if(offset < 0)
+            return false;
+        long state, next;
+        do {
+            state = (long) LONGS.getVolatile(buffer, offset + Long.BYTES);
+            final long count = isStale(state, ttlSeconds, nowSeconds) ? 1 : Math.min(Math.min(maxCount, COUNT_MASK), (state & COUNT_MASK) + 1);
+            next = nowSeconds << COUNT_BITS | count;
+        } while(!LONGS.compareAndSet(buffer, offset + Long.BYTES, state, next));
+        return true;
+    }
+
+    /**
+     * Records a success of the signature, which takes back one of its failures.
+     *
+     * @param signature the request signature
+     */
+    public void recordSuccess(String signature) {
+        final int offset = find(signature);
+        if(offset < 0)
+            return;
+        long state;
+        do {
+            state = (long) LONGS.getVolatile(buffer, offset + Long.BYTES);
+            if((state & COUNT_MASK) == 0)
+                return;
+        } while(!LONGS.compareAndSet(buffer, offset + Long.BYTES, state, state - 1));
+    }
+
+    /**
+     * Determines if the circuit of the signature is open by the failures shared by all the processes, i.e. its
+     * failure count is above the threshold and its last failure is within the wait duration of the open state.
+     *
+     * @param signature the request signature
+     * @param failureCountThreshold the failure count threshold
+     * @param openStateWaitDurationInSeconds the wait duration of the open state
+     * @param nowSeconds the current epoch second
+     * @return {@code true} if the circuit is open
+     */
+    public boolean isOpen(String signature, int failureCountThreshold, long openStateWaitDurationInSeconds, long nowSeconds) {
+        final int offset = find(signature);
+        if(offset < 0)
+            return false;
+        final long state = (long) LONGS.getVolatile(buffer, offset + Long.BYTES);
+        return (state & COUNT_MASK) > failureCountThreshold && nowSeconds - (state >>> COUNT_BITS) <= openStateWaitDurationInSeconds;
+    }
+
+    /**
+     * @param signature the request signature
+     * @return the failure count of the signature shared by all the processes, or 0 if it is not held
+     */
+    public int getFailureCount(String signature) {
+        final int offset = find(signature);
+        return offset < 0 ? 0 : (int) ((long) LONGS.getVolatile(buffer, offset + Long.BYTES) & COUNT_MASK);
+    }
+
+    /**
+     * @return the probability of a false positive of the shared filter, as estimated from the bits set so far by
+     * all the processes, counted by a scan of the filter
+     */
+    public double expectedFpp() {
+        long bitCount = 0;
+        for(int offset = HEADER_SIZE; offset < tableOffset; offset += Long.BYTES)
+            bitCount += Long.bitCount((long) LONGS.getOpaque(buffer, offset));
+        final long bitSize = (long) numBlocks * BlockedBloomFilter.WORDS_PER_BLOCK * Long.SIZE;
+        final double elements = -Math.log1p(-(double) bitCount / bitSize) * bitSize / BlockedBloomFilter.WORDS_PER_BLOCK;
+        return BlockedBloomFilter.blockFpp(elements / numBlocks);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // The offset of the slot of the signature, or -1 if it is neither in the filter nor in the table.
+    private int find(String signature) {
+        final long hash = hash(signature);
+        final int base = block(hash);
+        final int key = (int) hash;
+        long missing = 0;
+        for(int i = 0; i < BlockedBloomFilter.WORDS_PER_BLOCK; i++)
+            missing |= BlockedBloomFilter.mask(key, i) & ~(long) LONGS.getOpaque(buffer, base + i * Long.BYTES);
+        return missing == 0 ? probe(fingerprint(hash)) : -1;
+    }
+
+    // The offset of the slot held by the fingerprint, or else of an empty or stale slot claimed for it, or -1 if
+    // there is none. A stale slot claimed loses at most a concurrent failure of its expired signature.
+    private int claim(long fingerprint, long ttlSeconds, long nowSeconds) {
+        final int held = probe(fingerprint);
+        if(held >= 0)
+            return held;
+        final int first = slot(fingerprint);
+        for(int probe = 0; probe < PROBES; probe++) {
+            final int offset = slotOffset(first + probe);
+            final long owner = (long) LONGS.getVolatile(buffer, offset);
+            if(owner == fingerprint)
+                return offset;
+            if(owner != 0 && !isStale((long) LONGS.getVolatile(buffer, offset + Long.BYTES), ttlSeconds, nowSeconds))
+                continue;
+            if(LONGS.compareAndSet(buffer, offset, owner, fingerprint) || (long) LONGS.getVolatile(buffer, offset) == fingerprint)
+                return offset;
+        }
+        return -1;
+    }
+
+    private int probe(long fingerprint) {
+        final int first = slot(fingerprint);
+        for(int probe = 0; probe < PROBES; probe++) {
+            final int offset = slotOffset(first + probe);
+            if((long) LONGS.getVolatile(buffer, offset) == fingerprint)
+                return offset;
+        }
+        return -1;
+    }
+
+    private static boolean isStale(long state, long ttlSeconds, long nowSeconds) {
+        return (state & COUNT_MASK) == 0 || nowSeconds - (state >>> COUNT_BITS) > ttlSeconds;
+    }
+
+    private static long hash(String signature) {
+        return HASH.hashString(signature, StandardCharsets.UTF_8).asLong();
+    }
+
+    // The offset of the block, chosen by the upper half of the hash as in the blocked bloom filter.
+    private int block(long hash) {
+        return (int) (HEADER_SIZE + (((hash >>> 32) * numBlocks) >>> 32) * BLOCK_SIZE);
+    }
+
+    // The offset of the slot, wrapped around the table, within the size validated on opening the file.
+    private int slotOffset(int slot) {
+        return (int) (tableOffset + (long) (slot & slotMask) * SLOT_SIZE);
+    }
+
+    // The fingerprint is the full hash, where 0 is left to mark the empty slots.
+    private static long fingerprint(long hash) {
+        return hash != 0 ? hash : 1;
+    }
+
+    private int slot(long fingerprint) {
+        return (int) ((fingerprint * 0x9E3779B97F4A7C15L) >>> 32) & slotMask;
+    }
+}
@@ -0,0 +1,57 @@
+package edu.research.scb.internal.bloomfilter;
+
+import java.nio.charset.Charset;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The probabilistic membership filter of the failed request signatures, backing the {@code BloomFilterAdapter}.
+ * The implementations are thread-safe and lock-free.
+ */
+public interface SignatureFilter {
+
+    /**
+     * @param signature the request signature
+     * @return {@code true} if the signature might have been put, {@code false} if it definitely has not been
+     */
+    boolean mightContain(String signature);
+
+    /**
+     * @param signature the request signature
+     * @return {@code true} if any of the bits of the filter changed
+     */
+    boolean put(String signature);
+
+    /**
+     * @return the probability of a false positive, as estimated from the bits set so far
+     */
+    double expectedFpp();
+
+    /**
+     * @return the number of distinct signatures put so far, as estimated from the bits set so far
+     */
+    long approximateElementCount();
+
+    /**
+     * @return the heap occupied by the bit array in bytes
+     */
+    long sizeInBytes();
+
+    /**
+     * Creates an empty filter of the given backend.
+     *
+     * @param backend either {@code guava} or {@code blocked}
+     * @param charset the charset of the signatures
+     * @param capacity the expected number of signatures
+     * @param fpp the desired false positive probability at the expected number of signatures
+     * @return the empty filter
+     */
+    static SignatureFilter create(String backend, Charset charset, long capacity, double fpp) {
+        return switch (backend) {
+            case GUAVA_BLOOM_FILTER_BACKEND -> new GuavaSignatureFilter(charset, capacity, fpp);
+            case BLOCKED_BLOOM_FILTER_BACKEND -> new BlockedBloomFilter(charset, capacity, fpp);
+            default -> throw new IllegalArgumentException("Unknown bloom filter backend '" + backend + "', expected '"
+                    + GUAVA_BLOOM_FILTER_BACKEND + "' or '" + BLOCKED_BLOOM_FILTER_BACKEND + "'");
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package edu.research.scb.internal.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import edu.research.scb.internal.config.StaleResponseCacheProperties;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * A bounded cache of the last successful response per request signature, that is served in place of the
+ * {@code ServiceInvocationNotPermittedException} while the circuit for the signature is open.
+ *
+ * <p>The responses are stored serialized, using the response marshaller of the method, so that the size of the
+ * cache can be bounded in bytes. Entries are evicted in least-recently-used order once the byte budget is
+ * exceeded, and expire after the configured TTL since they were written.
+ *
+ * <p>A response served from the cache carries the header {@link #STALE_RESPONSE_HEADER} set to {@code true}.
+ */
+public class StaleResponseCache {
+
+    private static final Logger logger = LogManager.getLogger(StaleResponseCache.class);
+
+    // The response header marking the response as stale, i.e. served from the cache and not the server.
+    public static final Metadata.Key<String> STALE_RESPONSE_HEADER =
+            Metadata.Key.of(STALE_RESPONSE_HEADER_NAME, Metadata.ASCII_STRING_MARSHALLER);
+
+    private final boolean enabled;
+    private final Set<String> methods;
+    private final Cache<String, byte[]> responses;
+    private final Counter SERVED_COUNTER;
+
+    public StaleResponseCache(StaleResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        logger.info("Stale Response Cache Properties: {}", properties);
+        this.enabled = properties.getEnabled();
+        this.methods = new HashSet<>(properties.getMethods());
+
+        // The weight of each entry is approximated by the serialized response and the UTF-16 signature.
+        this.responses = CacheBuilder.newBuilder()
+                .maximumWeight(properties.getMaxSizeInBytes())
+                .weigher((String signature, byte[] response) -> response.length + 2 * signature.length())
+                .expireAfterWrite(properties.getTtlInSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        GuavaCacheMetrics.monitor(meterRegistry, responses, METRIC_STALE_RESPONSE_CACHE_NAME);
+        SERVED_COUNTER = meterRegistry.counter(METRIC_STALE_RESPONSE_SERVED_COUNTER_NAME);
+    }
+
+    /**
+     * Determines if the responses of the given method are to be cached. Only unary methods that are
+     * explicitly listed in the configuration properties are cached.
+     *
+     * @param method the remote method
+     * @return {@code true} if the responses of the method are to be cached.
+     */
+    public boolean isEnabled(MethodDescriptor<?, ?> method) {
+        return enabled
+                && method.getType() == MethodDescriptor.MethodType.UNARY
+                && methods.contains(method.getFullMethodName());
+    }
+
+    /**
+     * Stores the successful response for the signature, replacing any previous response.
+     *
+     * @param signature the request signature
+     * @param method the remote method, whose marshaller serializes the response
+     * @param response the successful response
+     */
+    public <RespT> void put(String signature, MethodDescriptor<?, RespT> method, RespT response) {
+        try (InputStream stream = method.streamResponse(response)) {
+            responses.put(signature, stream.readAllBytes());
+        } catch (IOException e) {
+            logger.error("STALE-CACHE: Unable to serialize the response for signature='{}': {}", signature, e.getMessage());
+        }
+    }
+
+    /**
+     * Fetches the last successful response for the signature, if it has not expired yet.
+     *
+     * @param signature the request signature
+     * @param method the remote method, whose marshaller de-serializes the response
+     * @return the stale response, or {@code null} if there is none.
+     */
+    public <RespT> RespT get(String signature, MethodDescriptor<?, RespT> method) {
+        byte[] response = responses.getIfPresent(signature);
+        if(response == null)
+            return null;
+
+        SERVED_COUNTER.increment();
+        return method.parseResponse(new ByteArrayInputStream(response));
+    }
+
+    /**
+     * Creates the response headers for a response served from the cache.
+     *
+     * @return headers with the {@link #STALE_RESPONSE_HEADER} flag set.
+     */
+    public static Metadata staleResponseHeaders() {
+        Metadata headers = new Metadata();
+        headers.put(STALE_RESPONSE_HEADER, Boolean.TRUE.toString());
+        return headers;
+    }
+}
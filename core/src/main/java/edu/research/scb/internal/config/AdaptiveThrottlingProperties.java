@@ -0,0 +1,33 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class AdaptiveThrottlingProperties {
+
+    private Double k;
+    private Long windowSeconds;
+    private Integer buckets;
+
+    // The multiplier of the accepted requests, i.e. the client sends up to K times as many requests as the
+    // backend accepts before it starts throttling. Lower is more aggressive.
+    public Double getK() {
+        return k != null ? k : DEFAULT_ADAPTIVE_THROTTLING_K;
+    }
+
+    // The sliding window over which the requests and the accepts of a service are counted.
+    public Long getWindowSeconds() {
+        return windowSeconds != null ? windowSeconds : DEFAULT_ADAPTIVE_THROTTLING_WINDOW_IN_SECS;
+    }
+
+    // The number of buckets the window slides by.
+    public Integer getBuckets() {
+        return buckets != null ? buckets : DEFAULT_ADAPTIVE_THROTTLING_BUCKETS;
+    }
+}
@@ -1,20 +1,17 @@
 package edu.research.scb.internal.config;
 
-import io.github.resilience4j.core.IntervalFunction;
 import io.grpc.Status;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
-import org.springframework.stereotype.Component;
 
 import java.util.List;
 
-import static edu.research.scb.internal.DefaultConstants.DEFAULT_RETRY_STATUS_CODES;
+import static edu.research.scb.internal.DefaultConstants.*;
 
 @Data
 @RequiredArgsConstructor
 @ToString
-@Component
 public class BackoffStrategyProperties {
 
     private List<Status.Code> grpcRetryCodes;
@@ -34,7 +31,7 @@ public class BackoffStrategyProperties {
         private Integer maxElapseTimeMillis;
 
         public Integer getFixedIntervalMillis() {
-            return fixedIntervalMillis != null ? fixedIntervalMillis : (int) IntervalFunction.DEFAULT_INITIAL_INTERVAL;
+            return fixedIntervalMillis != null ? fixedIntervalMillis : DEFAULT_BACKOFF_INITIAL_INTERVAL_MILLIS.intValue();
         }
     }
 
@@ -47,11 +44,11 @@ public class BackoffStrategyProperties {
         private Long maxIntervalMillis;
 
         public Long getInitialIntervalMillis() {
-            return initialIntervalMillis != null ? initialIntervalMillis : (int) IntervalFunction.DEFAULT_INITIAL_INTERVAL;
+            return initialIntervalMillis != null ? initialIntervalMillis : DEFAULT_BACKOFF_INITIAL_INTERVAL_MILLIS;
         }
 
         public Double getMultiplier() {
-            return multiplier != null ? multiplier : IntervalFunction.DEFAULT_MULTIPLIER;
+            return multiplier != null ? multiplier : DEFAULT_BACKOFF_MULTIPLIER;
         }
     }
 }
@@ -3,7 +3,6 @@ package edu.research.scb.internal.config;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
-import org.springframework.stereotype.Component;
 
 import java.nio.charset.Charset;
 
@@ -12,16 +11,21 @@ import static edu.research.scb.internal.DefaultConstants.*;
 @Data
 @RequiredArgsConstructor
 @ToString
-@Component
 public class BloomFilterProperties {
 
     private Long capacity;
     private Double fpp;
     private Charset charset;
+    private String backend;
     private Double resetThreshold;
     private Double resetTimeThresholdInMinutes;
     private Integer resetBufferCapacity;
     private Integer storeCapacity;
+    private Boolean autoSize;
+    // The seconds without a failure after which an entry of the hash store expires. When not set, it is derived from
+    // the thresholds as a multiple of 'openStateWaitDurationInSeconds', and it is always kept strictly longer than the
+    // open wait, for a failed half-open probe to find the entry still there and open the circuit again.
+    private Long storeTtlSeconds;
 
     public Long getCapacity() {
         return capacity != null ? capacity : DEFAULT_BLOOM_FILTER_CAPACITY;
@@ -35,6 +39,12 @@ public class BloomFilterProperties {
         return charset != null ? charset : DEFAULT_BLOOM_FILTER_CHARSET;
     }
 
+    // Either 'guava' or 'blocked', where the blocked filter keeps all the bits of a signature within a
+    // single cache line, at the cost of slightly more bits for the same fpp.
+    public String getBackend() {
+        return backend != null ? backend : DEFAULT_BLOOM_FILTER_BACKEND;
+    }
+
     public Double getResetThreshold() {
         return resetThreshold != null ? resetThreshold : DEFAULT_BLOOM_FILTER_QUEUE_BUFFER_RESET_THRESHOLD;
     }
@@ -50,4 +60,10 @@ public class BloomFilterProperties {
     public Integer getStoreCapacity() {
         return storeCapacity != null ? storeCapacity : DEFAULT_REQUEST_FAILURE_CAPACITY;
     }
+
+    // Grows the capacity of the filter on every rebuild by the finalizer to twice the estimated distinct
+    // failing signatures, whenever that is above the configured capacity, which then is only the minimum.
+    public Boolean getAutoSize() {
+        return autoSize != null ? autoSize : DEFAULT_BLOOM_FILTER_AUTO_SIZE;
+    }
 }
@@ -3,8 +3,6 @@ package edu.research.scb.internal.config;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
-import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.stereotype.Component;
 
 /**
  * Circuit Breaker Configuration Properties
@@ -13,14 +11,25 @@ import org.springframework.stereotype.Component;
 @Data
 @RequiredArgsConstructor
 @ToString
-@Component
-@ConfigurationProperties(prefix = "circuit-breaker", ignoreInvalidFields = true)
 public class CircuitBreakerProperties {
 
     private String strategy;
     private BloomFilterProperties bloomFilter;
+    private AdaptiveThrottlingProperties adaptiveThrottling;
     private BackoffStrategyProperties backoffStrategy;
     private CircuitThresholds thresholds;
+    private SingleFlightProperties singleFlight;
+    private StaleResponseCacheProperties staleResponseCache;
+    private MetricsProperties metrics;
+    private SignatureProperties signature;
+    private TraceProperties trace;
+    private LoadSheddingProperties loadShedding;
+    private OutcomeBufferProperties outcomeBuffer;
+    private EndpointEjectionProperties endpointEjection;
+    private CriticalityProperties criticality;
+    private DeadlineProperties deadline;
+    private MemoryProperties memory;
+    private SharedStateProperties sharedState;
 
     public String getStrategy() {
         return strategy;
@@ -30,6 +39,10 @@ public class CircuitBreakerProperties {
         return bloomFilter != null ? bloomFilter : new BloomFilterProperties();
     }
 
+    public AdaptiveThrottlingProperties getAdaptiveThrottling() {
+        return adaptiveThrottling != null ? adaptiveThrottling : new AdaptiveThrottlingProperties();
+    }
+
     public BackoffStrategyProperties getBackoffStrategy() {
         return backoffStrategy != null ? backoffStrategy : new BackoffStrategyProperties();
     }
@@ -37,4 +50,52 @@ public class CircuitBreakerProperties {
     public CircuitThresholds getThresholds() {
         return thresholds != null ? thresholds : new CircuitThresholds();
     }
+
+    public SingleFlightProperties getSingleFlight() {
+        return singleFlight != null ? singleFlight : new SingleFlightProperties();
+    }
+
+    public StaleResponseCacheProperties getStaleResponseCache() {
+        return staleResponseCache != null ? staleResponseCache : new StaleResponseCacheProperties();
+    }
+
+    public MetricsProperties getMetrics() {
+        return metrics != null ? metrics : new MetricsProperties();
+    }
+
+    public SignatureProperties getSignature() {
+        return signature != null ? signature : new SignatureProperties();
+    }
+
+    public TraceProperties getTrace() {
+        return trace != null ? trace : new TraceProperties();
+    }
+
+    public LoadSheddingProperties getLoadShedding() {
+        return loadShedding != null ? loadShedding : new LoadSheddingProperties();
+    }
+
+    public OutcomeBufferProperties getOutcomeBuffer() {
+        return outcomeBuffer != null ? outcomeBuffer : new OutcomeBufferProperties();
+    }
+
+    public EndpointEjectionProperties getEndpointEjection() {
+        return endpointEjection != null ? endpointEjection : new EndpointEjectionProperties();
+    }
+
+    public CriticalityProperties getCriticality() {
+        return criticality != null ? criticality : new CriticalityProperties();
+    }
+
+    public DeadlineProperties getDeadline() {
+        return deadline != null ? deadline : new DeadlineProperties();
+    }
+
+    public MemoryProperties getMemory() {
+        return memory != null ? memory : new MemoryProperties();
+    }
+
+    public SharedStateProperties getSharedState() {
+        return sharedState != null ? sharedState : new SharedStateProperties();
+    }
 }
@@ -3,14 +3,12 @@ package edu.research.scb.internal.config;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
-import org.springframework.stereotype.Component;
 
 import static edu.research.scb.internal.DefaultConstants.*;
 
 @Data
 @RequiredArgsConstructor
 @ToString
-@Component
 public class CircuitThresholds {
 
     private Integer transientFaultCountThreshold;
@@ -0,0 +1,27 @@
+package edu.research.scb.internal.config;
+
+import edu.research.scb.sdk.Criticality;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class CriticalityProperties {
+
+    private Boolean enabled;
+    private Criticality defaultCriticality;
+
+    // All the requests to a service whose circuit is open are rejected alike unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_CRITICALITY_ENABLED;
+    }
+
+    // The criticality of the requests that carry none, neither by the call options nor by the header.
+    public Criticality getDefaultCriticality() {
+        return defaultCriticality != null ? defaultCriticality : DEFAULT_CRITICALITY;
+    }
+}
@@ -0,0 +1,48 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class DeadlineProperties {
+
+    private Boolean enabled;
+    private List<String> methods;
+    private Double quantile;
+    private Integer minimumSamples;
+    private Long decayIntervalMillis;
+
+    // The rejection of the calls unlikely to finish within their deadline is disabled unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_DEADLINE_ENABLED;
+    }
+
+    // The full gRPC method names (e.g. 'package.Service/Method') whose calls are checked against their deadline.
+    // When empty, the calls of all the methods are checked.
+    public List<String> getMethods() {
+        return methods != null ? methods : Collections.emptyList();
+    }
+
+    // The quantile of the recent latencies of the method, e.g. 0.5 for the median, below which the remaining
+    // deadline of a call gets it rejected. The higher the quantile, the more calls are rejected.
+    public Double getQuantile() {
+        return quantile != null ? quantile : DEFAULT_DEADLINE_QUANTILE;
+    }
+
+    public Integer getMinimumSamples() {
+        return minimumSamples != null ? minimumSamples : DEFAULT_DEADLINE_MINIMUM_SAMPLES;
+    }
+
+    // The interval at which the recorded latencies are halved, which is how quickly a slowdown is forgotten.
+    public Long getDecayIntervalMillis() {
+        return decayIntervalMillis != null ? decayIntervalMillis : DEFAULT_DEADLINE_DECAY_INTERVAL_MILLIS;
+    }
+}
@@ -0,0 +1,62 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class EndpointEjectionProperties {
+
+    private Boolean enabled;
+    private String childPolicy;
+    private Double failureRateThreshold;
+    private Integer minimumRequests;
+    private Long intervalMillis;
+    private Long baseEjectionTimeMillis;
+    private Long maxEjectionTimeMillis;
+    private Integer maxEjectionPercent;
+
+    // The load balancing policy is only registered when explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_ENDPOINT_EJECTION_ENABLED;
+    }
+
+    // The registered load balancing policy picking among the endpoints that are not ejected, e.g. 'round_robin'.
+    public String getChildPolicy() {
+        return childPolicy != null ? childPolicy : DEFAULT_ENDPOINT_EJECTION_CHILD_POLICY;
+    }
+
+    // The failure percentage of an endpoint within an interval, beyond which it is ejected.
+    public Double getFailureRateThreshold() {
+        return failureRateThreshold != null ? failureRateThreshold : DEFAULT_ENDPOINT_EJECTION_FAILURE_RATE_THRESHOLD;
+    }
+
+    // The least number of calls to an endpoint within an interval, for it to be evaluated at all.
+    public Integer getMinimumRequests() {
+        return minimumRequests != null ? minimumRequests : DEFAULT_ENDPOINT_EJECTION_MINIMUM_REQUESTS;
+    }
+
+    // The interval at which the endpoints are evaluated.
+    public Long getIntervalMillis() {
+        return intervalMillis != null ? intervalMillis : DEFAULT_ENDPOINT_EJECTION_INTERVAL_MILLIS;
+    }
+
+    // The ejection time, multiplied by the number of consecutive ejections of the endpoint.
+    public Long getBaseEjectionTimeMillis() {
+        return baseEjectionTimeMillis != null ? baseEjectionTimeMillis : DEFAULT_ENDPOINT_EJECTION_BASE_TIME_MILLIS;
+    }
+
+    // The cap of the ejection time.
+    public Long getMaxEjectionTimeMillis() {
+        return maxEjectionTimeMillis != null ? maxEjectionTimeMillis : DEFAULT_ENDPOINT_EJECTION_MAX_TIME_MILLIS;
+    }
+
+    // The largest percentage of the endpoints of a channel that are ejected at once.
+    public Integer getMaxEjectionPercent() {
+        return maxEjectionPercent != null ? maxEjectionPercent : DEFAULT_ENDPOINT_EJECTION_MAX_PERCENT;
+    }
+}
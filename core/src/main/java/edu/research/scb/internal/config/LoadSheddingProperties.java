@@ -0,0 +1,30 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class LoadSheddingProperties {
+
+    private Boolean enabled;
+    private List<String> methods;
+
+    // Shedding of the poison requests on the server side is disabled unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_LOAD_SHEDDING_ENABLED;
+    }
+
+    // The full gRPC method names (e.g. 'package.Service/Method') of the handlers that are guarded.
+    // When empty, all the methods of the server are guarded.
+    public List<String> getMethods() {
+        return methods != null ? methods : Collections.emptyList();
+    }
+}
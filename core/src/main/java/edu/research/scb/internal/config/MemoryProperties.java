@@ -0,0 +1,27 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class MemoryProperties {
+
+    private Long budgetInBytes;
+    private Long enforceIntervalMillis;
+
+    // The budget for the estimated heap of the data structures of all the strategies of the JVM together, beyond
+    // which the failure stores are evicted. Unbounded when 0.
+    public Long getBudgetInBytes() {
+        return budgetInBytes != null ? budgetInBytes : DEFAULT_MEMORY_BUDGET_IN_BYTES;
+    }
+
+    // The least interval at which the budget is checked, by whichever thread records a failure first.
+    public Long getEnforceIntervalMillis() {
+        return enforceIntervalMillis != null ? enforceIntervalMillis : DEFAULT_MEMORY_ENFORCE_INTERVAL_MILLIS;
+    }
+}
@@ -0,0 +1,61 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class MetricsProperties {
+
+    private Integer maxTagCardinality;
+    private Integer heavyHitterCapacity;
+    private Integer admissionEventSampleRate;
+    private Integer cardinalityPrecision;
+    private Double signatureExplosionRatio;
+    private Long signatureExplosionMinRequests;
+    private Long cardinalityWindowSeconds;
+
+    // The maximum number of distinct service and method tag combinations for which the state counters
+    // are registered. Any further combinations are recorded under the overflow tag values.
+    public Integer getMaxTagCardinality() {
+        return maxTagCardinality != null ? maxTagCardinality : DEFAULT_METRICS_MAX_TAG_CARDINALITY;
+    }
+
+    // The number of signatures tracked by each of the heavy-hitter sketches, for the failing and the
+    // rejected signatures.
+    public Integer getHeavyHitterCapacity() {
+        return heavyHitterCapacity != null ? heavyHitterCapacity : DEFAULT_METRICS_HEAVY_HITTER_CAPACITY;
+    }
+
+    // The admission decisions are recorded as JFR events for 1 out of these many requests, only while
+    // a flight recording is running.
+    public Integer getAdmissionEventSampleRate() {
+        return admissionEventSampleRate != null ? admissionEventSampleRate : DEFAULT_METRICS_ADMISSION_EVENT_SAMPLE_RATE;
+    }
+
+    // The precision of the HyperLogLog sketches of the distinct signatures of every service, between 4 and 18,
+    // where every increment doubles the registers and divides the error by the square root of 2.
+    public Integer getCardinalityPrecision() {
+        return cardinalityPrecision != null ? cardinalityPrecision : DEFAULT_METRICS_CARDINALITY_PRECISION;
+    }
+
+    // The ratio of the distinct signatures to the requests of a service, at or above which its signatures
+    // are flagged as exploding.
+    public Double getSignatureExplosionRatio() {
+        return signatureExplosionRatio != null ? signatureExplosionRatio : DEFAULT_METRICS_SIGNATURE_EXPLOSION_RATIO;
+    }
+
+    public Long getSignatureExplosionMinRequests() {
+        return signatureExplosionMinRequests != null ? signatureExplosionMinRequests : DEFAULT_METRICS_SIGNATURE_EXPLOSION_MIN_REQUESTS;
+    }
+
+    // The window of the cardinality sketches, which are rotated every window and estimate the signatures of the
+    // last one to two windows.
+    public Long getCardinalityWindowSeconds() {
+        return cardinalityWindowSeconds != null ? cardinalityWindowSeconds : DEFAULT_METRICS_CARDINALITY_WINDOW_SECONDS;
+    }
+}
@@ -0,0 +1,39 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class OutcomeBufferProperties {
+
+    private Boolean enabled;
+    private Integer stripes;
+    private Integer capacity;
+    private Long drainIntervalMicros;
+
+    // The outcomes are recorded by the calling threads unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_OUTCOME_BUFFER_ENABLED;
+    }
+
+    // The number of ring buffers the outcomes are striped across, by the calling thread.
+    public Integer getStripes() {
+        return stripes != null ? stripes : DEFAULT_OUTCOME_BUFFER_STRIPES;
+    }
+
+    // The capacity of each ring buffer. Once all the rings are full, the outcomes are recorded by the calling threads
+    // till the writer catches up.
+    public Integer getCapacity() {
+        return capacity != null ? capacity : DEFAULT_OUTCOME_BUFFER_CAPACITY;
+    }
+
+    // The longest time the writer waits before draining the buffers.
+    public Long getDrainIntervalMicros() {
+        return drainIntervalMicros != null ? drainIntervalMicros : DEFAULT_OUTCOME_BUFFER_DRAIN_INTERVAL_MICROS;
+    }
+}
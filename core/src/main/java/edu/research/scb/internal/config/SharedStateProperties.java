@@ -0,0 +1,38 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class SharedStateProperties {
+
+    private Boolean enabled;
+    private String file;
+    private Integer capacity;
+    private Double fpp;
+
+    // Sharing the failing signatures with the other processes of the host is disabled unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_SHARED_STATE_ENABLED;
+    }
+
+    // The path of the memory-mapped file shared by the processes, which is created by the first one of them.
+    public String getFile() {
+        return file != null ? file : DEFAULT_SHARED_STATE_FILE;
+    }
+
+    // The number of failing signatures held by the shared table, the same for all the processes sharing the file.
+    public Integer getCapacity() {
+        return capacity != null ? capacity : DEFAULT_SHARED_STATE_CAPACITY;
+    }
+
+    // The desired false positive probability of the shared filter, the same for all the processes sharing the file.
+    public Double getFpp() {
+        return fpp != null ? fpp : DEFAULT_SHARED_STATE_FPP;
+    }
+}
@@ -0,0 +1,24 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class SignatureProperties {
+
+    private Map<String, List<String>> fields;
+
+    // The proto field paths (e.g. 'SearchByTitleRequest.title' or 'filter.genre') defining the request signature,
+    // keyed by the full gRPC method name (e.g. 'package.Service/Method'). The requests of the methods that are not
+    // listed here are signed by their whole message.
+    public Map<String, List<String>> getFields() {
+        return fields != null ? fields : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,36 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class SingleFlightProperties {
+
+    private Boolean enabled;
+    private List<String> methods;
+    private Integer maxInFlight;
+
+    // Single-flight coalescing is disabled unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_SINGLE_FLIGHT_ENABLED;
+    }
+
+    // The full gRPC method names (e.g. 'package.Service/Method') for which identical in-flight
+    // unary calls are coalesced. Only idempotent read methods should be listed here.
+    public List<String> getMethods() {
+        return methods != null ? methods : Collections.emptyList();
+    }
+
+    // The maximum number of distinct in-flight signatures tracked at any point in time.
+    public Integer getMaxInFlight() {
+        return maxInFlight != null ? maxInFlight : DEFAULT_SINGLE_FLIGHT_MAX_IN_FLIGHT;
+    }
+}
@@ -0,0 +1,42 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import java.util.Collections;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class StaleResponseCacheProperties {
+
+    private Boolean enabled;
+    private List<String> methods;
+    private Long maxSizeInBytes;
+    private Long ttlInSeconds;
+
+    // Serving of stale responses is disabled unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_STALE_RESPONSE_CACHE_ENABLED;
+    }
+
+    // The full gRPC method names (e.g. 'package.Service/Method') whose successful responses are cached
+    // and served while the circuit is open. Only read methods should be listed here.
+    public List<String> getMethods() {
+        return methods != null ? methods : Collections.emptyList();
+    }
+
+    // The budget in bytes for all the cached serialized responses together.
+    public Long getMaxSizeInBytes() {
+        return maxSizeInBytes != null ? maxSizeInBytes : DEFAULT_STALE_RESPONSE_CACHE_MAX_SIZE_IN_BYTES;
+    }
+
+    // The time period in seconds for which a successful response remains servable.
+    public Long getTtlInSeconds() {
+        return ttlInSeconds != null ? ttlInSeconds : DEFAULT_STALE_RESPONSE_CACHE_TTL_IN_SECS;
+    }
+}
@@ -0,0 +1,22 @@
+package edu.research.scb.internal.config;
+
+/**
+ * The immutable snapshot of the {@link CircuitThresholds}, with the defaults already applied, so that the request
+ * path reads plain primitive fields with no null checks and no unboxing. A snapshot is compiled once per
+ * (re)load of the thresholds, and replaced as a whole.
+ */
+public record ThresholdsSnapshot(int transientFaultCountThreshold,
+                                 int failureCountThreshold,
+                                 long openStateWaitDurationInSeconds,
+                                 long openStateServiceLevelWaitDurationInSeconds,
+                                 double serviceFailureRateThreshold) {
+
+    public static ThresholdsSnapshot of(CircuitThresholds thresholds) {
+        return new ThresholdsSnapshot(
+                thresholds.getTransientFaultCountThreshold(),
+                thresholds.getFailureCountThreshold(),
+                thresholds.getOpenStateWaitDurationInSeconds(),
+                thresholds.getOpenStateServiceLevelWaitDurationInSeconds(),
+                thresholds.getServiceFailureRateThreshold());
+    }
+}
@@ -0,0 +1,32 @@
+package edu.research.scb.internal.config;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+@Data
+@RequiredArgsConstructor
+@ToString
+public class TraceProperties {
+
+    private Boolean enabled;
+    private String file;
+    private Integer maxRecords;
+
+    // Recording of the request outcomes is disabled unless explicitly switched on.
+    public Boolean getEnabled() {
+        return enabled != null ? enabled : DEFAULT_TRACE_ENABLED;
+    }
+
+    // The path of the memory-mapped trace file, which is truncated on every start.
+    public String getFile() {
+        return file != null ? file : DEFAULT_TRACE_FILE;
+    }
+
+    // The number of records held by the trace, beyond which the oldest records are overwritten.
+    public Integer getMaxRecords() {
+        return maxRecords != null ? maxRecords : DEFAULT_TRACE_MAX_RECORDS;
+    }
+}
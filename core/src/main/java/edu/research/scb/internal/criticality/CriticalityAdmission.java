@@ -0,0 +1,103 @@
+package edu.research.scb.internal.criticality;
+
+import edu.research.scb.internal.config.CriticalityProperties;
+import edu.research.scb.sdk.Criticality;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.EnumMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Admits the requests to a service whose failure rate is above the threshold by their criticality, in place of
+ * rejecting all of them alike, so that the critical traffic is protected while the sheddable traffic is dropped.
+ *
+ * <p>The requests are admitted with a probability that falls with the excess of the failure rate over the
+ * threshold, {@code e = (failureRate - threshold) / (100 - threshold)}, and with their criticality :
+ * <pre>
+ *                    OPEN      HALF-OPEN
+ *   CRITICAL_PLUS    1         1
+ *   CRITICAL         1 - e     1
+ *   SHEDDABLE_PLUS   0         1 - e
+ *   SHEDDABLE        0         (1 - e)^2
+ * </pre>
+ * where the service is half-open once its cooling period has elapsed, during which all the requests were admitted
+ * before. The admitted requests are still evaluated against the circuit of their signature.
+ *
+ * <p>Every admission decision of the strategy is counted by the criticality of the request, by
+ * {@code smart_circuit_breaker_criticality_admitted_counter} and {@code smart_circuit_breaker_criticality_rejected_counter}.
+ */
+public class CriticalityAdmission {
+
+    private static final Logger logger = LogManager.getLogger(CriticalityAdmission.class);
+
+    private final Criticality defaultCriticality;
+    private final EnumMap<Criticality, Counter> admitted;
+    private final EnumMap<Criticality, Counter> rejected;
+
+    public CriticalityAdmission(CriticalityProperties properties, MeterRegistry meterRegistry) {
+        this.defaultCriticality = properties.getDefaultCriticality();
+        this.admitted = new EnumMap<>(Criticality.class);
+        this.rejected = new EnumMap<>(Criticality.class);
+        for(Criticality criticality : Criticality.values()) {
+            final Tags tags = Tags.of(METRIC_TAG_CRITICALITY, criticality.name());
+            admitted.put(criticality, meterRegistry.counter(METRIC_CRITICALITY_ADMITTED_COUNTER_NAME, tags));
+            rejected.put(criticality, meterRegistry.counter(METRIC_CRITICALITY_REJECTED_COUNTER_NAME, tags));
+        }
+        logger.info("Admitting the requests by their criticality. Criticality Properties: {}", properties);
+    }
+
+    /**
+     * @param criticality the criticality given with the request, may be {@code null}
+     * @return the criticality of the request, or the default one
+     */
+    public Criticality resolve(Criticality criticality) {
+        return criticality != null ? criticality : defaultCriticality;
+    }
+
+    /**
+     * Decides the admission of a request to a service whose failure rate is above the threshold.
+     *
+     * @param criticality the criticality of the request
+     * @param failureRate the failure percentage of the service
+     * @param threshold the service failure rate threshold
+     * @param halfOpen {@code true} if the cooling period of the service has elapsed
+     * @return {@code true} if the request is admitted
+     */
+    public boolean admit(Criticality criticality, double failureRate, double threshold, boolean halfOpen) {
+        final double probability = admissionProbability(resolve(criticality), excess(failureRate, threshold), halfOpen);
+        return probability >= 1.0 || (probability > 0.0 && ThreadLocalRandom.current().nextDouble() < probability);
+    }
+
+    static double admissionProbability(Criticality criticality, double excess, boolean halfOpen) {
+        return switch (criticality) {
+            case CRITICAL_PLUS -> 1.0;
+            case CRITICAL -> halfOpen ? 1.0 : 1.0 - excess;
+            case SHEDDABLE_PLUS -> halfOpen ? 1.0 - excess : 0.0;
+            case SHEDDABLE -> halfOpen ? (1.0 - excess) * (1.0 - excess) : 0.0;
+        };
+    }
+
+    private static double excess(double failureRate, double threshold) {
+        if(threshold >= 100.0)
+            return 1.0;
+        return Math.min(1.0, Math.max(0.0, (failureRate - threshold) / (100.0 - threshold)));
+    }
+
+    /**
+     * Counts the admission decision of the strategy.
+     *
+     * @param criticality the criticality of the request
+     * @param allowed the decision
+     * @return the decision
+     */
+    public boolean record(Criticality criticality, boolean allowed) {
+        (allowed ? admitted : rejected).get(resolve(criticality)).increment();
+        return allowed;
+    }
+}
@@ -0,0 +1,128 @@
+package edu.research.scb.internal.deadline;
+
+import edu.research.scb.internal.config.DeadlineProperties;
+import io.grpc.Deadline;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Rejects the calls that are unlikely to finish within their deadline, i.e. whose remaining deadline is below the
+ * configured quantile of the recent latencies of their method. Such calls are bound to fail with
+ * {@code DEADLINE_EXCEEDED} anyway, after adding to the load of an already slow service, thus they are failed fast
+ * locally with the same status instead.
+ *
+ * <p>The rejected calls are counted by {@code smart_circuit_breaker_deadline_rejected_counter} tagged by the service,
+ * and are neither evaluated by the circuit breaker nor recorded as its failures, so that they never trip a circuit
+ * by themselves. The calls without a deadline, and the methods with too few recorded latencies, are always admitted.
+ *
+ * <p>The elapsed time of a call closed with {@code DEADLINE_EXCEEDED} or {@code CANCELLED} is censored, i.e. it is only
+ * a lower bound of the latency the call would have taken. Such calls are recorded apart, and ranked above all the
+ * completed ones, so that they can only raise the quantile : leaving them out would only keep the calls finishing in
+ * time, and once a slowdown times out every call, the estimate would never rise to it, while recording them as
+ * completed would pull the quantile down to the deadlines of the callers.
+ */
+public class DeadlineAdmission {
+
+    private static final Logger logger = LogManager.getLogger(DeadlineAdmission.class);
+
+    private final boolean enabled;
+    private final Set<String> methods;
+    private final double quantile;
+    private final int minimumSamples;
+    private final long decayIntervalNanos;
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms;
+    private final ConcurrentHashMap<String, Counter> rejectedCounters;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+
+    public DeadlineAdmission(DeadlineProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, System::nanoTime);
+    }
+
+    DeadlineAdmission(DeadlineProperties properties, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        logger.info("Deadline Properties: {}", properties);
+        this.enabled = properties.getEnabled();
+        this.methods = new HashSet<>(properties.getMethods());
+        this.quantile = properties.getQuantile();
+        this.minimumSamples = properties.getMinimumSamples();
+        this.decayIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getDecayIntervalMillis());
+        this.histograms = new ConcurrentHashMap<>();
+        this.rejectedCounters = new ConcurrentHashMap<>();
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Determines if the calls of the given method are checked against their deadline.
+     *
+     * @param method the remote method to be called
+     * @return {@code true} if the calls of the method are checked.
+     */
+    public boolean isEnabled(MethodDescriptor<?, ?> method) {
+        return enabled && (methods.isEmpty() || methods.contains(method.getFullMethodName()));
+    }
+
+    /**
+     * Determines if the call has enough of its deadline left to finish, going by the recent latencies of its method.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the full name of the method
+     * @param deadline the deadline of the call, or {@code null} if it has none
+     * @return {@code true} if the call can be sent, {@code false} if it is to be failed with {@code DEADLINE_EXCEEDED}
+     */
+    public boolean admit(String serviceName, String methodName, Deadline deadline) {
+        if(deadline == null)
+            return true;
+        final LatencyHistogram histogram = histograms.get(methodName);
+        if(histogram == null)
+            return true;
+        final long estimate = histogram.quantileNanos(quantile, minimumSamples, nanoTime.getAsLong());
+        if(estimate == 0)
+            return true;
+        final long remaining = deadline.timeRemaining(TimeUnit.NANOSECONDS);
+        if(remaining >= estimate)
+            return true;
+
+        logger.debug("DEADLINE-REJECTED: Only {} ms left for method='{}', whose latency is {} ms at the quantile {}",
+                TimeUnit.NANOSECONDS.toMillis(remaining), methodName, TimeUnit.NANOSECONDS.toMillis(estimate), quantile);
+        rejectedCounters.computeIfAbsent(serviceName,
+                name -> meterRegistry.counter(METRIC_DEADLINE_REJECTED_COUNTER_NAME, METRIC_TAG_SERVICE, name)).increment();
+        return false;
+    }
+
+    /**
+     * Records the latency of a call that was sent to the server. The elapsed time of a call cut short by its deadline
+     * or its cancellation is recorded as censored, i.e. as a lower bound of its latency.
+     *
+     * @param methodName the full name of the method
+     * @param status the status the call was closed with
+     * @param latencyNanos the latency of the call
+     */
+    public void record(String methodName, Status.Code status, long latencyNanos) {
+        LatencyHistogram histogram = histograms.get(methodName);
+        if(histogram == null)
+            histogram = histograms.computeIfAbsent(methodName, name -> new LatencyHistogram(decayIntervalNanos, nanoTime.getAsLong()));
+        histogram.record(latencyNanos, status == Status.Code.DEADLINE_EXCEEDED || status == Status.Code.CANCELLED);
+    }
+
+    /**
+     * @param methodName the full name of the method
+     * @return the latency of the method at the configured quantile in nanos, or 0 if there are too few latencies
+     */
+    public long getEstimatedLatencyNanos(String methodName) {
+        final LatencyHistogram histogram = histograms.get(methodName);
+        return histogram != null ? histogram.quantileNanos(quantile, minimumSamples, nanoTime.getAsLong()) : 0;
+    }
+}
@@ -0,0 +1,108 @@
+package edu.research.scb.internal.deadline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The recent latencies of a method, counted in log-linear buckets of microseconds, i.e. four buckets for every power
+ * of two, within 25% of the actual latency. A latency is recorded with a single atomic increment, and the quantile
+ * is recomputed at most once per refresh interval by whichever thread finds it stale, and is read from a volatile
+ * field otherwise. The counts are halved on every decay interval, so that the latencies of a past slowdown fade away
+ * within a few intervals.
+ *
+ * <p>The censored latencies, i.e. the elapsed times of the calls cut short before completing, are counted apart. As
+ * the latency of such a call is only known to be above its elapsed time, the censored ones are ranked above all the
+ * completed ones, in the order of their elapsed times, and a quantile falling among them is never below the highest
+ * completed latency.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXPONENT = 40;
+    private static final long REFRESH_INTERVAL_NANOS = 50_000_000L;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT + 1) * SUB_BUCKETS);
+    private final AtomicLongArray censored = new AtomicLongArray((MAX_EXPONENT + 1) * SUB_BUCKETS);
+    private final AtomicLong refreshedNanos;
+    private final long decayIntervalNanos;
+    private long decayedNanos;
+    private volatile long quantileNanos;
+
+    LatencyHistogram(long decayIntervalNanos, long nowNanos) {
+        this.decayIntervalNanos = decayIntervalNanos;
+        this.refreshedNanos = new AtomicLong(nowNanos);
+        this.decayedNanos = nowNanos;
+    }
+
+    /**
+     * @param latencyNanos the latency of the call, or its elapsed time if censored
+     * @param isCensored {@code true} if the call was cut short, and its latency is only known to be above the given one
+     */
+    void record(long latencyNanos, boolean isCensored) {
+        (isCensored ? censored : counts).incrementAndGet(index(Math.max(1, latencyNanos / 1000)));
+    }
+
+    /**
+     * @param quantile the quantile of the latencies
+     * @param minimumSamples the latencies to be recorded before there is an estimate
+     * @param nowNanos the current time
+     * @return the lower bound of the bucket of the quantile in nanos, or 0 if there are too few latencies
+     */
+    long quantileNanos(double quantile, int minimumSamples, long nowNanos) {
+        final long refreshed = refreshedNanos.get();
+        if(nowNanos - refreshed >= REFRESH_INTERVAL_NANOS && refreshedNanos.compareAndSet(refreshed, nowNanos))
+            quantileNanos = compute(quantile, minimumSamples, nowNanos);
+        return quantileNanos;
+    }
+
+    // Only ever called by the single thread that won the refresh.
+    private long compute(double quantile, int minimumSamples, long nowNanos) {
+        final boolean decay = nowNanos - decayedNanos >= decayIntervalNanos;
+        if(decay)
+            decayedNanos = nowNanos;
+        final long completed = total(counts, decay);
+        final long total = completed + total(censored, decay);
+        if(total < minimumSamples)
+            return 0;
+        final long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        int highest = -1;
+        for(int i = 0; i < counts.length(); i++) {
+            final long count = counts.get(i);
+            seen += count;
+            if(seen >= rank)
+                return lowerBoundMicros(i) * 1000;
+            if(count > 0)
+                highest = i;
+        }
+
+        // The quantile falls among the censored latencies, ranked above all the completed ones.
+        for(int i = 0; i < censored.length(); i++) {
+            seen += censored.get(i);
+            if(seen >= rank)
+                return lowerBoundMicros(Math.max(i, highest)) * 1000;
+        }
+        return lowerBoundMicros(counts.length() - 1) * 1000;
+    }
+
+    private static long total(AtomicLongArray counts, boolean decay) {
+        long total = 0;
+        for(int i = 0; i < counts.length(); i++)
+            total += decay ? counts.addAndGet(i, -(counts.get(i) >> 1)) : counts.get(i);
+        return total;
+    }
+
+    private static int index(long micros) {
+        final int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if(exponent > MAX_EXPONENT)
+            return (MAX_EXPONENT + 1) * SUB_BUCKETS - 1;
+        final int sub = (int) ((micros << 2) >>> exponent) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBoundMicros(int index) {
+        final int exponent = index / SUB_BUCKETS;
+        final int sub = index % SUB_BUCKETS;
+        return Math.max(1, ((long) (SUB_BUCKETS + sub) << exponent) >> 2);
+    }
+}
@@ -0,0 +1,331 @@
+package edu.research.scb.internal.endpoint;
+
+import edu.research.scb.internal.config.EndpointEjectionProperties;
+import io.grpc.*;
+import io.grpc.util.ForwardingClientStreamTracer;
+import io.grpc.util.ForwardingLoadBalancer;
+import io.grpc.util.ForwardingLoadBalancerHelper;
+import io.grpc.util.ForwardingSubchannel;
+import io.micrometer.core.instrument.Counter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.SocketAddress;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Ejects the outlier endpoints of a channel from the pick set of the child load balancer.
+ *
+ * <p>Every pick of a subchannel carries a stream tracer, which records the outcome of the call against the endpoint
+ * of the subchannel, i.e. the addresses of its {@code EquivalentAddressGroup}, as a failure for the
+ * {@code DEFAULT_RETRY_STATUS_CODES} and as a success otherwise. On every interval, an endpoint with at least the
+ * minimum requests and a failure percentage above the threshold is ejected, by reporting its subchannels to the
+ * child balancer as {@code TRANSIENT_FAILURE}, which then stops picking them. An endpoint is returned to the pick set
+ * with the actual state of its subchannels once its ejection time has elapsed, i.e. the base ejection time multiplied
+ * by the number of its consecutive ejections, up to the maximum ejection time. At most the maximum ejection percent
+ * of the endpoints are ejected at once.
+ *
+ * <p>The endpoints, the subchannel states and the evaluation are only accessed within the synchronization context
+ * of the channel, while the outcomes are counted by any transport thread.
+ */
+class OutlierEjectionLoadBalancer extends ForwardingLoadBalancer {
+
+    private static final Logger logger = LogManager.getLogger(OutlierEjectionLoadBalancer.class);
+
+    private static final Set<Status.Code> FAILURE_CODES = Set.copyOf(DEFAULT_RETRY_STATUS_CODES);
+
+    private final Helper helper;
+    private final LoadBalancer child;
+    private final Object childConfig;
+    private final EndpointEjectionProperties properties;
+    private final Counter ejectionCounter;
+    private final AtomicInteger ejectedEndpoints;
+    private final Map<List<SocketAddress>, Endpoint> endpoints;
+    private SynchronizationContext.ScheduledHandle evaluation;
+
+    OutlierEjectionLoadBalancer(Helper helper, LoadBalancerProvider childProvider, EndpointEjectionProperties properties,
+                                Counter ejectionCounter, AtomicInteger ejectedEndpoints) {
+        this.helper = helper;
+        this.child = childProvider.newLoadBalancer(new EjectingHelper());
+        this.childConfig = childProvider.parseLoadBalancingPolicyConfig(Collections.emptyMap()).getConfig();
+        this.properties = properties;
+        this.ejectionCounter = ejectionCounter;
+        this.ejectedEndpoints = ejectedEndpoints;
+        this.endpoints = new HashMap<>();
+    }
+
+    @Override
+    protected LoadBalancer delegate() {
+        return child;
+    }
+
+    @Override
+    public void handleResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+        acceptResolvedAddresses(resolvedAddresses);
+    }
+
+    // The endpoints that are no more resolved are dropped, while the tracked ones keep their counts and ejections.
+    @Override
+    public boolean acceptResolvedAddresses(ResolvedAddresses resolvedAddresses) {
+        final Set<List<SocketAddress>> resolved = new HashSet<>();
+        for(EquivalentAddressGroup addressGroup : resolvedAddresses.getAddresses()) {
+            resolved.add(addressGroup.getAddresses());
+            endpoints.computeIfAbsent(addressGroup.getAddresses(), Endpoint::new);
+        }
+        endpoints.values().removeIf(endpoint -> {
+            if(resolved.contains(endpoint.addresses))
+                return false;
+            if(endpoint.ejected)
+                ejectedEndpoints.decrementAndGet();
+            return true;
+        });
+
+        if(evaluation == null) {
+            final long interval = properties.getIntervalMillis();
+            evaluation = helper.getSynchronizationContext().scheduleWithFixedDelay(this::evaluate, interval, interval,
+                    TimeUnit.MILLISECONDS, helper.getScheduledExecutorService());
+        }
+        return child.acceptResolvedAddresses(resolvedAddresses.toBuilder().setLoadBalancingPolicyConfig(childConfig).build());
+    }
+
+    @Override
+    public void shutdown() {
+        if(evaluation != null)
+            evaluation.cancel();
+        for(Endpoint endpoint : endpoints.values()) {
+            if(endpoint.ejected)
+                ejectedEndpoints.decrementAndGet();
+        }
+        endpoints.clear();
+        child.shutdown();
+    }
+
+    /**
+     * Returns the ejected endpoints whose ejection time has elapsed, and then ejects the outliers among the rest,
+     * by the outcomes since the previous evaluation.
+     */
+    void evaluate() {
+        final long now = System.nanoTime();
+        int ejected = 0;
+        for(Endpoint endpoint : endpoints.values()) {
+            if(endpoint.ejected && now - endpoint.ejectedAt >= ejectionTimeNanos(endpoint)) {
+                logger.info("ENDPOINT-UNEJECTED: The endpoint {} is returned to the pick set", endpoint.addresses);
+                endpoint.uneject();
+                ejectedEndpoints.decrementAndGet();
+            }
+            if(endpoint.ejected)
+                ejected++;
+        }
+
+        int ejectable = endpoints.size() * properties.getMaxEjectionPercent() / 100 - ejected;
+        for(Endpoint endpoint : endpoints.values()) {
+            final long failures = endpoint.failures.sumThenReset();
+            final long total = failures + endpoint.successes.sumThenReset();
+            if(endpoint.ejected)
+                continue;
+
+            final double failureRate = total > 0 ? failures * 100.0 / total : 0.0;
+            if(total >= properties.getMinimumRequests() && failureRate > properties.getFailureRateThreshold() && ejectable > 0) {
+                logger.warn("ENDPOINT-EJECTED: The endpoint {} is ejected with a failure rate of {}% over {} calls",
+                        endpoint.addresses, failureRate, total);
+                endpoint.eject(now);
+                ejectable--;
+                ejectionCounter.increment();
+                ejectedEndpoints.incrementAndGet();
+            } else if(endpoint.ejections > 0 && failureRate <= properties.getFailureRateThreshold()) {
+                // A healthy interval forgets one of the consecutive ejections.
+                endpoint.ejections--;
+            }
+        }
+    }
+
+    private long ejectionTimeNanos(Endpoint endpoint) {
+        final long base = properties.getBaseEjectionTimeMillis();
+        final long ejectionTime = Math.min(base * endpoint.ejections, Math.max(base, properties.getMaxEjectionTimeMillis()));
+        return TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+    }
+
+    private Endpoint endpointOf(List<EquivalentAddressGroup> addressGroups) {
+        return endpoints.computeIfAbsent(addressGroups.get(0).getAddresses(), Endpoint::new);
+    }
+
+    /**
+     * The outcomes and the ejection of a backend endpoint, shared by all its subchannels.
+     */
+    private static final class Endpoint {
+
+        private final List<SocketAddress> addresses;
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final Set<EndpointSubchannel> subchannels = new HashSet<>();
+        private boolean ejected;
+        private long ejectedAt;
+        private int ejections;
+
+        Endpoint(List<SocketAddress> addresses) {
+            this.addresses = addresses;
+        }
+
+        void record(Status status) {
+            if(FAILURE_CODES.contains(status.getCode()))
+                failures.increment();
+            else
+                successes.increment();
+        }
+
+        void eject(long now) {
+            ejected = true;
+            ejectedAt = now;
+            ejections++;
+            subchannels.forEach(EndpointSubchannel::eject);
+        }
+
+        void uneject() {
+            ejected = false;
+            subchannels.forEach(EndpointSubchannel::uneject);
+        }
+    }
+
+    /**
+     * Wraps the subchannels created by the child balancer, and its pickers.
+     */
+    private final class EjectingHelper extends ForwardingLoadBalancerHelper {
+
+        @Override
+        protected Helper delegate() {
+            return helper;
+        }
+
+        @Override
+        public Subchannel createSubchannel(CreateSubchannelArgs args) {
+            final Endpoint endpoint = endpointOf(args.getAddresses());
+            final EndpointSubchannel subchannel = new EndpointSubchannel(helper.createSubchannel(args), endpoint);
+            endpoint.subchannels.add(subchannel);
+            return subchannel;
+        }
+
+        @Override
+        public void updateBalancingState(ConnectivityState newState, SubchannelPicker newPicker) {
+            helper.updateBalancingState(newState, new TrackingPicker(newPicker));
+        }
+    }
+
+    /**
+     * A subchannel whose states are hidden from the child balancer while its endpoint is ejected.
+     */
+    private final class EndpointSubchannel extends ForwardingSubchannel {
+
+        private final Subchannel delegate;
+        private Endpoint endpoint;
+        private SubchannelStateListener listener;
+        private ConnectivityStateInfo lastState;
+
+        EndpointSubchannel(Subchannel delegate, Endpoint endpoint) {
+            this.delegate = delegate;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        protected Subchannel delegate() {
+            return delegate;
+        }
+
+        @Override
+        public void start(SubchannelStateListener listener) {
+            this.listener = listener;
+            delegate.start(state -> {
+                lastState = state;
+                if(!endpoint.ejected)
+                    listener.onSubchannelState(state);
+            });
+        }
+
+        @Override
+        public void updateAddresses(List<EquivalentAddressGroup> addresses) {
+            final Endpoint previous = endpoint;
+            previous.subchannels.remove(this);
+            endpoint = endpointOf(addresses);
+            endpoint.subchannels.add(this);
+            if(endpoint.ejected && !previous.ejected)
+                eject();
+            else if(!endpoint.ejected && previous.ejected)
+                uneject();
+            delegate.updateAddresses(addresses);
+        }
+
+        @Override
+        public void shutdown() {
+            endpoint.subchannels.remove(this);
+            delegate.shutdown();
+        }
+
+        void eject() {
+            if(listener != null)
+                listener.onSubchannelState(ConnectivityStateInfo.forTransientFailure(
+                        Status.UNAVAILABLE.withDescription("The endpoint is ejected as an outlier")));
+        }
+
+        void uneject() {
+            if(listener != null && lastState != null)
+                listener.onSubchannelState(lastState);
+        }
+    }
+
+    /**
+     * Attaches the outcome tracer of the endpoint to every pick of the child picker.
+     */
+    private static final class TrackingPicker extends SubchannelPicker {
+
+        private final SubchannelPicker delegate;
+
+        TrackingPicker(SubchannelPicker delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public PickResult pickSubchannel(PickSubchannelArgs args) {
+            final PickResult result = delegate.pickSubchannel(args);
+            if(result.getSubchannel() instanceof EndpointSubchannel subchannel)
+                return PickResult.withSubchannel(subchannel, new OutcomeTracerFactory(subchannel.endpoint, result.getStreamTracerFactory()));
+            return result;
+        }
+    }
+
+    /**
+     * Records the status of the stream against the endpoint, chaining the tracer of the child picker if any.
+     */
+    private static final class OutcomeTracerFactory extends ClientStreamTracer.Factory {
+
+        private static final ClientStreamTracer NOOP_TRACER = new ClientStreamTracer() {};
+
+        private final Endpoint endpoint;
+        private final ClientStreamTracer.Factory delegate;
+
+        OutcomeTracerFactory(Endpoint endpoint, ClientStreamTracer.Factory delegate) {
+            this.endpoint = endpoint;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+            final ClientStreamTracer tracer = delegate != null ? delegate.newClientStreamTracer(info, headers) : NOOP_TRACER;
+            return new ForwardingClientStreamTracer() {
+                @Override
+                protected ClientStreamTracer delegate() {
+                    return tracer;
+                }
+
+                @Override
+                public void streamClosed(Status status) {
+                    endpoint.record(status);
+                    super.streamClosed(status);
+                }
+            };
+        }
+    }
+}
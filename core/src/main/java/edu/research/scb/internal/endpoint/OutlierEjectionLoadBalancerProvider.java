@@ -0,0 +1,98 @@
+package edu.research.scb.internal.endpoint;
+
+import edu.research.scb.internal.config.EndpointEjectionProperties;
+import io.grpc.LoadBalancer;
+import io.grpc.LoadBalancerProvider;
+import io.grpc.LoadBalancerRegistry;
+import io.grpc.NameResolver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Provides the load balancing policy {@code smart_circuit_breaker_outlier_ejection}, which tracks the outcome of the
+ * calls per backend endpoint and temporarily ejects the outlier endpoints from the pick set, in place of opening the
+ * circuit of the whole service when one of its many endpoints goes bad.
+ *
+ * <p>The policy is registered with the default {@code LoadBalancerRegistry} by {@link #register()}, and is then
+ * selected per channel, e.g. by {@code ManagedChannelBuilder.defaultLoadBalancingPolicy()}. The thresholds are taken
+ * from the {@code EndpointEjectionProperties} and not from the service config. The ejections are counted by
+ * {@code smart_circuit_breaker_endpoint_ejection_counter}, and the endpoints ejected across all the channels are
+ * shown by {@code smart_circuit_breaker_ejected_endpoints}.
+ */
+public class OutlierEjectionLoadBalancerProvider extends LoadBalancerProvider implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(OutlierEjectionLoadBalancerProvider.class);
+
+    private final EndpointEjectionProperties properties;
+    private final Counter ejectionCounter;
+    private final AtomicInteger ejectedEndpoints;
+
+    public OutlierEjectionLoadBalancerProvider(EndpointEjectionProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ejectionCounter = meterRegistry.counter(METRIC_ENDPOINT_EJECTION_COUNTER_NAME);
+        this.ejectedEndpoints = new AtomicInteger();
+
+        Gauge.builder(METRIC_EJECTED_ENDPOINTS_NAME, ejectedEndpoints::get)
+                .description("The number of the backend endpoints that are currently ejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the policy with the default registry, so that the channels can select it by its name.
+     *
+     * @return this provider
+     */
+    public OutlierEjectionLoadBalancerProvider register() {
+        LoadBalancerRegistry.getDefaultRegistry().register(this);
+        logger.info("Registered the load balancing policy '{}'. Endpoint Ejection Properties: {}", getPolicyName(), properties);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        LoadBalancerRegistry.getDefaultRegistry().deregister(this);
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int getPriority() {
+        return 5;
+    }
+
+    @Override
+    public String getPolicyName() {
+        return OUTLIER_EJECTION_POLICY_NAME;
+    }
+
+    @Override
+    public NameResolver.ConfigOrError parseLoadBalancingPolicyConfig(Map<String, ?> rawConfig) {
+        return NameResolver.ConfigOrError.fromConfig(properties);
+    }
+
+    /**
+     * Creates the balancer of a channel, over a balancer of the child policy.
+     *
+     * @param helper the helper of the channel
+     * @return the balancer
+     * @throws IllegalStateException if the child policy is not registered
+     */
+    @Override
+    public LoadBalancer newLoadBalancer(LoadBalancer.Helper helper) {
+        final LoadBalancerProvider childProvider = LoadBalancerRegistry.getDefaultRegistry().getProvider(properties.getChildPolicy());
+        if(childProvider == null)
+            throw new IllegalStateException("The child load balancing policy '" + properties.getChildPolicy() + "' is not registered");
+        return new OutlierEjectionLoadBalancer(helper, childProvider, properties, ejectionCounter, ejectedEndpoints);
+    }
+}
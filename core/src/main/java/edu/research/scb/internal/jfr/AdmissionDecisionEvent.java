@@ -0,0 +1,28 @@
+package edu.research.scb.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A sampled admission decision of {@code allowRequest}.
+ */
+@Name("edu.research.scb.AdmissionDecision")
+@Label("Admission Decision")
+@Category({"Smart Circuit Breaker"})
+@Description("A sampled admission decision of the circuit breaker, with the path taken to arrive at it")
+class AdmissionDecisionEvent extends jdk.jfr.Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Allowed")
+    boolean allowed;
+}
@@ -0,0 +1,35 @@
+package edu.research.scb.internal.jfr;
+
+/**
+ * The path taken by {@code allowRequest} to arrive at the admission decision.
+ */
+public enum AdmissionPath {
+
+    // The circuit breaker is disabled, and all requests are let through.
+    DISABLED,
+
+    // The state of the service or the signature is forced by the operators.
+    FORCED,
+
+    // The signature is not present in the bloom filter, and the request is let through right away.
+    BLOOM_NEGATIVE,
+
+    // The service level failure rate is above the threshold, and the request is rejected.
+    SERVICE_OPEN,
+
+    // The signature is present in the failure store, and the circuit is evaluated against the thresholds.
+    STORE_EVALUATED,
+
+    // The bloom filter reported the signature, but it is not present in the failure store.
+    STORE_MISS,
+
+    // The signature is failing in another process of the host, as recorded in the shared state, and the request is
+    // rejected.
+    SHARED_OPEN,
+
+    // The request is rejected with the rejection probability of the adaptive throttling.
+    THROTTLED,
+
+    // The request is admitted by the adaptive throttling, whatever its rejection probability.
+    THROTTLE_ADMITTED
+}
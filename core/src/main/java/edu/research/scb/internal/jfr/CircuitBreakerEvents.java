@@ -0,0 +1,62 @@
+package edu.research.scb.internal.jfr;
+
+import jdk.jfr.EventType;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Emits the JDK Flight Recorder events of the circuit breaker.
+ *
+ * <p>Every method checks first if the event is enabled in any running recording, which is a single read of
+ * a settings field. When recording is off, no event is allocated and no field is computed, so the events are
+ * safe to be emitted on the request path.
+ */
+public final class CircuitBreakerEvents {
+
+    private static final EventType ADMISSION_DECISION = EventType.getEventType(AdmissionDecisionEvent.class);
+    private static final EventType STATE_TRANSITION = EventType.getEventType(StateTransitionEvent.class);
+
+    private CircuitBreakerEvents() {
+    }
+
+    /**
+     * Records the admission decision, sampled at 1 out of {@code sampleRate} decisions.
+     *
+     * @param sampleRate the sampling rate, where {@code 1} records every decision
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @param path the path taken to arrive at the decision
+     * @param allowed the decision
+     * @return the decision, so that it can be returned right away
+     */
+    public static boolean admission(int sampleRate, String serviceName, String methodName, AdmissionPath path, boolean allowed) {
+        if(ADMISSION_DECISION.isEnabled() && (sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0)) {
+            AdmissionDecisionEvent event = new AdmissionDecisionEvent();
+            event.service = serviceName;
+            event.method = methodName;
+            event.path = path.name();
+            event.allowed = allowed;
+            event.commit();
+        }
+        return allowed;
+    }
+
+    /**
+     * Records the transition of the circuit state.
+     *
+     * @param serviceName the name of the service
+     * @param signature the request signature, or {@code null} for the service level transitions
+     * @param from the state before the transition
+     * @param to the state after the transition
+     */
+    public static void transition(String serviceName, String signature, Enum<?> from, Enum<?> to) {
+        if(STATE_TRANSITION.isEnabled()) {
+            StateTransitionEvent event = new StateTransitionEvent();
+            event.service = serviceName;
+            event.signature = signature != null ? signature : "";
+            event.from = from.name();
+            event.to = to.name();
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package edu.research.scb.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A run of the bloom filter finalizer, spanning the whole finalizing process.
+ */
+@Name("edu.research.scb.FinalizerRun")
+@Label("Finalizer Run")
+@Category({"Smart Circuit Breaker"})
+@Description("A run of the bloom filter finalizer, resetting the bloom filter and the hash store")
+public class FinalizerRunEvent extends jdk.jfr.Event {
+
+    @Label("Store Size")
+    @Description("The size of the hash store after the recovered signatures were removed")
+    public int storeSize;
+
+    @Label("Queue Size")
+    @Description("The number of recovered signatures in the reset queue")
+    public int queueSize;
+
+    @Label("Rebuild Duration")
+    @Description("The time taken to rebuild the bloom filter")
+    @Timespan(Timespan.NANOSECONDS)
+    public long rebuildDuration;
+}
@@ -0,0 +1,29 @@
+package edu.research.scb.internal.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A transition of the circuit state, either for a single request signature or for the overall service.
+ */
+@Name("edu.research.scb.StateTransition")
+@Label("State Transition")
+@Category({"Smart Circuit Breaker"})
+@Description("A transition of the circuit state of a request signature or of a service")
+class StateTransitionEvent extends jdk.jfr.Event {
+
+    @Label("Service")
+    String service;
+
+    @Label("Signature")
+    @Description("The request signature, empty for the service level transitions")
+    String signature;
+
+    @Label("From")
+    String from;
+
+    @Label("To")
+    String to;
+}
@@ -0,0 +1,270 @@
+package edu.research.scb.internal.memory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Accounts for the estimated heap of the data structures of every strategy instance of the JVM, and keeps their total
+ * within a single budget, however many clients and strategies there are. Every strategy holds an {@link Account}, on
+ * which it tracks the estimate of each of its structures, reported by the gauge
+ * {@code smart_circuit_breaker_memory_bytes} tagged by the {@code structure} and the {@code instance}, and registers
+ * the evictors that free memory when the budget is exceeded.
+ *
+ * <p>The budget is checked at most once per the enforce interval, by whichever thread records a failure first. When
+ * the total is above the budget, the accounts are asked to free the excess, the largest one first, e.g. by evicting
+ * the entries of the failure store nearest to their expiry. The accounts are only weakly held, thus a strategy that
+ * is no longer used is dropped from the total once it is collected.
+ */
+public class MemoryAccountant {
+
+    private static final Logger logger = LogManager.getLogger(MemoryAccountant.class);
+
+    private static final MemoryAccountant GLOBAL = new MemoryAccountant();
+
+    private final CopyOnWriteArrayList<WeakReference<Account>> accounts = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, AtomicInteger> instances = new ConcurrentHashMap<>();
+    private final AtomicLong enforcedNanos = new AtomicLong(System.nanoTime());
+    private volatile long budgetInBytes;
+    private volatile long enforceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MEMORY_ENFORCE_INTERVAL_MILLIS);
+
+    /**
+     * @return the accountant shared by all the strategies of the JVM
+     */
+    public static MemoryAccountant global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Sets the budget of the total estimated heap, which is shared by all the strategies. The budget is only set once,
+     * by the first strategy given one, and the strategies created later on are to be given the same budget, or none.
+     *
+     * @param budgetInBytes the budget, or 0 for unbounded
+     * @param enforceIntervalMillis the least interval at which the budget is checked
+     * @throws IllegalStateException if another budget or enforce interval is already set
+     */
+    public synchronized void configure(long budgetInBytes, long enforceIntervalMillis) {
+        final long enforceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(enforceIntervalMillis);
+        if(this.budgetInBytes == 0) {
+            this.enforceIntervalNanos = enforceIntervalNanos;
+            this.budgetInBytes = budgetInBytes;
+            return;
+        }
+        if(this.budgetInBytes != budgetInBytes || this.enforceIntervalNanos != enforceIntervalNanos)
+            throw new IllegalStateException("The memory budget of all the strategies is already set to " + this.budgetInBytes +
+                    " bytes enforced every " + TimeUnit.NANOSECONDS.toMillis(this.enforceIntervalNanos) + " ms, and cannot be " +
+                    "changed to " + budgetInBytes + " bytes enforced every " + enforceIntervalMillis + " ms");
+    }
+
+    /**
+     * Opens the account of a strategy instance, named after the kind of strategy and the order of its creation,
+     * e.g. {@code bloom-filter-1}.
+     *
+     * @param kind the kind of strategy
+     * @param meterRegistry the registry for the gauges of the account
+     * @return the account
+     */
+    public Account open(String kind, MeterRegistry meterRegistry) {
+        final String instance = kind + "-" + instances.computeIfAbsent(kind, k -> new AtomicInteger()).incrementAndGet();
+        final Account account = new Account(instance, meterRegistry);
+        accounts.removeIf(reference -> reference.get() == null);
+        accounts.add(new WeakReference<>(account));
+
+        Gauge.builder(METRIC_MEMORY_TOTAL_NAME, this, MemoryAccountant::getTotalInBytes)
+                .description("The estimated heap occupied by the data structures of all the strategies")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_MEMORY_BUDGET_NAME, this, accountant -> accountant.budgetInBytes)
+                .description("The budget for the estimated heap of all the strategies, where 0 is unbounded")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        return account;
+    }
+
+    /**
+     * @return the estimated heap of all the live accounts
+     */
+    public long getTotalInBytes() {
+        long total = 0;
+        for(Account account : liveAccounts())
+            total += account.getEstimatedSizeInBytes();
+        return total;
+    }
+
+    public long getBudgetInBytes() {
+        return budgetInBytes;
+    }
+
+    /**
+     * @return {@code true} if a budget is set and the estimated heap of all the accounts is above it
+     */
+    public boolean isOverBudget() {
+        final long budget = budgetInBytes;
+        return budget > 0 && getTotalInBytes() > budget;
+    }
+
+    private List<Account> liveAccounts() {
+        final List<Account> live = new ArrayList<>(accounts.size());
+        for(WeakReference<Account> reference : accounts) {
+            final Account account = reference.get();
+            if(account != null)
+                live.add(account);
+        }
+        return live;
+    }
+
+    // Only ever run by the single thread that won the interval.
+    private void enforceIfDue() {
+        final long budget = budgetInBytes;
+        if(budget <= 0)
+            return;
+        final long now = System.nanoTime();
+        final long enforced = enforcedNanos.get();
+        if(now - enforced < enforceIntervalNanos || !enforcedNanos.compareAndSet(enforced, now))
+            return;
+        enforce(budget);
+    }
+
+    /**
+     * Frees the excess of the total over the budget, from the largest account first.
+     *
+     * @param budget the budget in bytes
+     * @return the bytes freed
+     */
+    long enforce(long budget) {
+        final List<Account> live = liveAccounts();
+        final Map<Account, Long> sizes = new LinkedHashMap<>();
+        long total = 0;
+        for(Account account : live) {
+            final long size = account.getEstimatedSizeInBytes();
+            sizes.put(account, size);
+            total += size;
+        }
+        if(total <= budget)
+            return 0;
+
+        final long excess = total - budget;
+        long freed = 0;
+        live.sort(Comparator.comparingLong(sizes::get).reversed());
+        for(Account account : live) {
+            if(freed >= excess)
+                break;
+            freed += account.free(excess - freed);
+        }
+        if(freed < excess)
+            logger.warn("MEMORY-BUDGET: The estimated heap of {} bytes is above the budget of {} bytes, and only {} bytes " +
+                    "could be freed", total, budget, freed);
+        else
+            logger.info("MEMORY-BUDGET: Freed {} bytes as the estimated heap of {} bytes was above the budget of {} bytes",
+                    freed, total, budget);
+        return freed;
+    }
+
+    /**
+     * The memory account of a single strategy instance.
+     */
+    public final class Account {
+
+        private final String instance;
+        private final MeterRegistry meterRegistry;
+        private final Map<String, LongSupplier> structures = new ConcurrentHashMap<>();
+        private final List<LongUnaryOperator> evictors = new CopyOnWriteArrayList<>();
+        private final Counter evictedCounter;
+
+        private Account(String instance, MeterRegistry meterRegistry) {
+            this.instance = instance;
+            this.meterRegistry = meterRegistry;
+            this.evictedCounter = meterRegistry.counter(METRIC_MEMORY_EVICTED_COUNTER_NAME, METRIC_TAG_INSTANCE, instance);
+        }
+
+        /**
+         * Tracks the estimated heap of a structure of the strategy, which is reported by its gauge.
+         *
+         * @param structure the name of the structure, e.g. {@code hash_store}
+         * @param estimate the estimated heap of the structure in bytes
+         * @return this account
+         */
+        public Account track(String structure, LongSupplier estimate) {
+            structures.put(structure, estimate);
+            // The gauge only holds the account weakly, which is held by the strategy.
+            Gauge.builder(METRIC_MEMORY_NAME, this, account -> account.structures.get(structure).getAsLong())
+                    .description("The estimated heap occupied by the data structures of the strategy")
+                    .tags(Tags.of(METRIC_TAG_STRUCTURE, structure, METRIC_TAG_INSTANCE, instance))
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            return this;
+        }
+
+        /**
+         * Registers an evictor that frees memory of the strategy when the budget is exceeded.
+         *
+         * @param evictor given the bytes to be freed, frees up to as many and returns the bytes actually freed
+         * @return this account
+         */
+        public Account evictor(LongUnaryOperator evictor) {
+            evictors.add(evictor);
+            return this;
+        }
+
+        public String getInstance() {
+            return instance;
+        }
+
+        /**
+         * @return the estimated heap of the structures of the strategy, by structure
+         */
+        public Map<String, Long> getEstimatedSizesInBytes() {
+            final Map<String, Long> sizes = new LinkedHashMap<>();
+            structures.forEach((structure, estimate) -> sizes.put(structure, estimate.getAsLong()));
+            return sizes;
+        }
+
+        public long getEstimatedSizeInBytes() {
+            long size = 0;
+            for(LongSupplier estimate : structures.values())
+                size += estimate.getAsLong();
+            return size;
+        }
+
+        /**
+         * Checks the budget of all the strategies, at most once per the enforce interval. This is a no-op unless a
+         * budget is set, and is cheap enough to be called on every recorded failure.
+         */
+        public void enforceBudget() {
+            enforceIfDue();
+        }
+
+        private long free(long bytes) {
+            long freed = 0;
+            for(LongUnaryOperator evictor : evictors) {
+                if(freed >= bytes)
+                    break;
+                freed += evictor.applyAsLong(bytes - freed);
+            }
+            if(freed > 0) {
+                evictedCounter.increment(freed);
+                logger.debug("MEMORY-BUDGET: Freed {} bytes of the strategy '{}'", freed, instance);
+            }
+            return freed;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package edu.research.scb.internal.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The number of distinct request signatures flowing through every service, and of the failing ones among them,
+ * each estimated by a {@link HyperLogLog}, and exposed by the gauge {@code smart_circuit_breaker_signature_cardinality}
+ * tagged by the {@code service} and the {@code kind}, i.e. {@code all} or {@code failing}.
+ *
+ * <p>The sketches and the request counts are kept per window of time, as a current and a previous generation, and
+ * the current one is rotated into the previous one every window. The estimates are of the union of both the
+ * generations, i.e. of the last one to two windows, so that they fall back once the signatures stop flowing, in
+ * place of growing for the lifetime of the process.
+ *
+ * <p>A service whose requests are almost all distinct, i.e. whose distinct signatures are above the explosion ratio
+ * of its requests once it has seen the minimum requests, is flagged by the gauge
+ * {@code smart_circuit_breaker_signature_explosion}. It usually means that the signature includes a unique id, such
+ * as a request id or a timestamp, which makes every request a signature of its own that never trips its circuit, and
+ * floods the failure store. The ratio is checked on every rotation, and on a sample of the requests in between.
+ */
+public class SignatureCardinality {
+
+    private static final Logger logger = LogManager.getLogger(SignatureCardinality.class);
+
+    // The explosion is checked for 1 out of these many requests of a service.
+    private static final int EXPLOSION_CHECK_MASK = 1023;
+
+    private final MeterRegistry meterRegistry;
+    private final int precision;
+    private final double explosionRatio;
+    private final long explosionMinRequests;
+    private final long windowMillis;
+    private final Clock clock;
+    private final ConcurrentHashMap<String, Service> services;
+
+    public SignatureCardinality(MeterRegistry meterRegistry, int precision, double explosionRatio, long explosionMinRequests,
+                                long windowSeconds, Clock clock) {
+        if(windowSeconds <= 0)
+            throw new IllegalArgumentException("The cardinality window must be positive, but was " + windowSeconds);
+        this.meterRegistry = meterRegistry;
+        this.precision = precision;
+        this.explosionRatio = explosionRatio;
+        this.explosionMinRequests = explosionMinRequests;
+        this.windowMillis = windowSeconds * 1000;
+        this.clock = clock;
+        this.services = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Records the signature of a request to the service.
+     *
+     * @param serviceName the name of the service
+     * @param signatureHash the hash of the request signature, as held by its call context
+     */
+    public void offerRequest(String serviceName, long signatureHash) {
+        final Service service = service(serviceName);
+        final Window window = service.current();
+        window.all.offerHash(signatureHash);
+        window.requests.increment();
+        if((ThreadLocalRandom.current().nextInt() & EXPLOSION_CHECK_MASK) == 0)
+            service.checkExplosion();
+    }
+
+    /**
+     * Records the signature of a failed request to the service.
+     *
+     * @param serviceName the name of the service
+     * @param signatureHash the hash of the request signature, as held by its call context
+     */
+    public void offerFailure(String serviceName, long signatureHash) {
+        service(serviceName).current().failing.offerHash(signatureHash);
+    }
+
+    /**
+     * @return the estimated number of distinct failing signatures of the last one to two windows, summed over all
+     * the services
+     */
+    public long getFailingCardinality() {
+        long cardinality = 0;
+        for(Service service : services.values())
+            cardinality += service.failingCardinality();
+        return cardinality;
+    }
+
+    /**
+     * @param serviceName the name of the service
+     * @return {@code true} if the signatures of the service are flagged as exploding
+     */
+    public boolean isExploding(String serviceName) {
+        final Service service = services.get(serviceName);
+        return service != null && service.exploding;
+    }
+
+    /**
+     * @return the heap occupied by the registers of all the sketches of both the generations
+     */
+    public long getEstimatedSizeInBytes() {
+        long size = 0;
+        for(Service service : services.values()) {
+            size += service.current.sizeInBytes();
+            final Window previous = service.previous;
+            if(previous != null)
+                size += previous.sizeInBytes();
+        }
+        return size;
+    }
+
+    private Service service(String serviceName) {
+        final Service service = services.get(serviceName);
+        return service != null ? service : services.computeIfAbsent(serviceName, this::newService);
+    }
+
+    private Service newService(String serviceName) {
+        final Service service = new Service(serviceName, clock.millis());
+        Gauge.builder(METRIC_SIGNATURE_CARDINALITY_NAME, service, Service::allCardinality)
+                .description("The estimated number of distinct request signatures of the service")
+                .tags(Tags.of(METRIC_TAG_SERVICE, serviceName, METRIC_TAG_KIND, "all"))
+                .register(meterRegistry);
+        Gauge.builder(METRIC_SIGNATURE_CARDINALITY_NAME, service, Service::failingCardinality)
+                .description("The estimated number of distinct request signatures of the service")
+                .tags(Tags.of(METRIC_TAG_SERVICE, serviceName, METRIC_TAG_KIND, "failing"))
+                .register(meterRegistry);
+        Gauge.builder(METRIC_SIGNATURE_EXPLOSION_NAME, service, s -> s.exploding ? 1.0 : 0.0)
+                .description("Flags the service whose request signatures are almost all distinct")
+                .tags(Tags.of(METRIC_TAG_SERVICE, serviceName))
+                .register(meterRegistry);
+        return service;
+    }
+
+    private static final class Window {
+
+        private final HyperLogLog all;
+        private final HyperLogLog failing;
+        private final LongAdder requests = new LongAdder();
+
+        Window(int precision) {
+            this.all = new HyperLogLog(precision);
+            this.failing = new HyperLogLog(precision);
+        }
+
+        long sizeInBytes() {
+            return all.sizeInBytes() + failing.sizeInBytes();
+        }
+    }
+
+    private final class Service {
+
+        private final String name;
+        private volatile Window current = new Window(precision);
+        private volatile Window previous;
+        private volatile long windowStart;
+        private volatile boolean exploding;
+
+        Service(String name, long now) {
+            this.name = name;
+            this.windowStart = now;
+        }
+
+        // The current window, rotated first if it is over. The previous window is dropped as well if no signature
+        // was offered for a whole window since.
+        Window current() {
+            final long now = clock.millis();
+            if(now - windowStart >= windowMillis)
+                rotate(now);
+            return current;
+        }
+
+        private synchronized void rotate(long now) {
+            if(now - windowStart < windowMillis)
+                return;
+            previous = now - windowStart < 2 * windowMillis ? current : null;
+            current = new Window(precision);
+            windowStart = now;
+            checkExplosion();
+        }
+
+        long allCardinality() {
+            final Window window = current();
+            final Window previous = this.previous;
+            return window.all.estimateUnion(previous != null ? previous.all : null);
+        }
+
+        long failingCardinality() {
+            final Window window = current();
+            final Window previous = this.previous;
+            return window.failing.estimateUnion(previous != null ? previous.failing : null);
+        }
+
+        void checkExplosion() {
+            final Window window = current;
+            final Window previous = this.previous;
+            final long total = window.requests.sum() + (previous != null ? previous.requests.sum() : 0);
+            if(total < explosionMinRequests) {
+                exploding = false;
+                return;
+            }
+            final long distinct = window.all.estimateUnion(previous != null ? previous.all : null);
+            final boolean explosion = distinct >= explosionRatio * total;
+            if(explosion && !exploding)
+                logger.warn("SIGNATURE-EXPLOSION: {} distinct signatures out of {} requests for the service '{}'. The signature " +
+                        "probably includes a unique id, which is to be left out by 'circuit-breaker.signature.fields'", distinct, total, name);
+            else if(!explosion && exploding)
+                logger.info("SIGNATURE-EXPLOSION: The signatures of the service '{}' are repeating again, {} distinct out of {} requests", name, distinct, total);
+            exploding = explosion;
+        }
+    }
+}
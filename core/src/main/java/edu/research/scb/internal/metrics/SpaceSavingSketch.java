@@ -0,0 +1,181 @@
+package edu.research.scb.internal.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Space-Saving sketch for tracking the most frequent items of a stream within a fixed number of counters.
+ *
+ * <p>Every tracked item holds a count and the maximum over-estimation of that count. When a new item is seen
+ * and all the counters are taken, the item with the minimum count is replaced by the new one, which inherits
+ * the minimum count as its over-estimation. Any item occurring more than {@code N / capacity} times in a stream
+ * of {@code N} items is guaranteed to be tracked.
+ *
+ * <p>The counters are kept in the Stream-Summary of the paper, a list of buckets in the ascending order of their
+ * counts where every bucket links the items sharing its count. Incrementing an item moves it to the next bucket,
+ * and the item with the minimum count is the head of the first bucket, so an offer takes a constant time whether
+ * it hits or replaces an item, and a replacement reuses the counter of the evicted item. The offers are serialized,
+ * while {@link #topK(int)} reads the counters without the lock, as a weakly consistent snapshot where an item
+ * being replaced concurrently may be missed.
+ *
+ * @see <a href="https://www.cs.ucsb.edu/sites/default/files/documents/2005-23.pdf">Efficient Computation of Frequent and Top-k Elements in Data Streams</a>
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<String, Entry> entries;
+    private Bucket first;
+
+    public SpaceSavingSketch(int capacity) {
+        this.capacity = capacity;
+        this.entries = new ConcurrentHashMap<>(capacity * 2);
+    }
+
+    /**
+     * Records an occurrence of the item.
+     *
+     * @param item the item, e.g. the request signature
+     */
+    public synchronized void offer(String item) {
+        Entry entry = entries.get(item);
+        if(entry != null) {
+            increment(entry);
+            return;
+        }
+
+        if(entries.size() < capacity) {
+            entry = new Entry(item);
+            if(first == null || first.count != 1) {
+                final Bucket bucket = new Bucket(1);
+                bucket.next = first;
+                if(first != null)
+                    first.prev = bucket;
+                first = bucket;
+            }
+            first.attach(entry);
+            entries.put(item, entry);
+            return;
+        }
+
+        // Replacing the item with the minimum count, the new item inherits the count as the error.
+        entry = first.head;
+        entries.remove(entry.item);
+        entry.item = item;
+        entry.error = first.count;
+        entries.put(item, entry);
+        increment(entry);
+    }
+
+    /**
+     * Fetches the tracked items in the descending order of their counts.
+     *
+     * @param k the maximum number of items to be returned
+     * @return the top items with their estimated counts
+     */
+    public List<HeavyHitter> topK(int k) {
+        final List<HeavyHitter> result = new ArrayList<>(capacity);
+        entries.forEach((item, e) -> {
+            // Skipping an item being replaced, whose counter is already taken by the new item.
+            if(item.equals(e.item))
+                result.add(new HeavyHitter(item, e.count, e.error));
+        });
+        result.sort(Comparator.comparingLong(HeavyHitter::count).reversed());
+        return result.size() > k ? result.subList(0, k) : result;
+    }
+
+    /**
+     * Fetches all the tracked items in the descending order of their counts.
+     *
+     * @return the tracked items with their estimated counts
+     */
+    public List<HeavyHitter> topK() {
+        return topK(capacity);
+    }
+
+    // Moving the entry to the bucket of the next count, which is created after its bucket when missing. The bucket is
+    // reused in place when the entry is alone in it.
+    private void increment(Entry entry) {
+        final Bucket bucket = entry.bucket;
+        final long count = bucket.count + 1;
+        final Bucket next = bucket.next;
+        if(next != null && next.count == count) {
+            bucket.detach(entry);
+            if(bucket.head == null)
+                unlink(bucket);
+            next.attach(entry);
+        } else if(bucket.head == entry && entry.next == null) {
+            bucket.count = count;
+        } else {
+            final Bucket created = new Bucket(count);
+            created.prev = bucket;
+            created.next = next;
+            if(next != null)
+                next.prev = created;
+            bucket.next = created;
+            bucket.detach(entry);
+            created.attach(entry);
+        }
+        entry.count = count;
+    }
+
+    private void unlink(Bucket bucket) {
+        if(bucket.prev != null)
+            bucket.prev.next = bucket.next;
+        else
+            first = bucket.next;
+        if(bucket.next != null)
+            bucket.next.prev = bucket.prev;
+    }
+
+    /**
+     * A tracked item, where the actual count lies within {@code [count - error, count]}.
+     */
+    public record HeavyHitter(String item, long count, long error) {
+    }
+
+    private static final class Bucket {
+        private long count;
+        private Entry head;
+        private Bucket prev;
+        private Bucket next;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+
+        private void attach(Entry entry) {
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = head;
+            if(head != null)
+                head.prev = entry;
+            head = entry;
+            entry.count = count;
+        }
+
+        private void detach(Entry entry) {
+            if(entry.prev != null)
+                entry.prev.next = entry.next;
+            else
+                head = entry.next;
+            if(entry.next != null)
+                entry.next.prev = entry.prev;
+        }
+    }
+
+    private static final class Entry {
+        private volatile String item;
+        private volatile long count;
+        private volatile long error;
+        private Bucket bucket;
+        private Entry prev;
+        private Entry next;
+
+        private Entry(String item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package edu.research.scb.internal.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The state counters of the circuit breaker, tagged by the service and the method of the request.
+ *
+ * <p>The counters are registered once per service and method combination and the handles are cached, so that
+ * recording a state on the request path is only a lookup in the nested maps and an increment, without any
+ * allocation. The number of registered combinations is capped, beyond which all the further combinations are
+ * recorded under the {@code overflow} tag values.
+ */
+public class StateMeters {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxCardinality;
+    private final AtomicInteger cardinality;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Handle>> handles;
+    private final Handle overflow;
+
+    public StateMeters(MeterRegistry meterRegistry, int maxCardinality) {
+        this.meterRegistry = meterRegistry;
+        this.maxCardinality = maxCardinality;
+        this.cardinality = new AtomicInteger(0);
+        this.handles = new ConcurrentHashMap<>();
+        this.overflow = newHandle(METRIC_TAG_OVERFLOW_VALUE, METRIC_TAG_OVERFLOW_VALUE);
+    }
+
+    /**
+     * Fetches the counters for the given service and method, registering them on the first use.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @return the cached counter handles
+     */
+    public Handle of(String serviceName, String methodName) {
+        if(serviceName == null || methodName == null)
+            return overflow;
+
+        final ConcurrentHashMap<String, Handle> methods = handles.get(serviceName);
+        if(methods != null) {
+            final Handle handle = methods.get(methodName);
+            if(handle != null)
+                return handle;
+        }
+        return register(serviceName, methodName);
+    }
+
+    private Handle register(String serviceName, String methodName) {
+        if(cardinality.get() >= maxCardinality)
+            return overflow;
+
+        return handles.computeIfAbsent(serviceName, s -> new ConcurrentHashMap<>())
+                .computeIfAbsent(methodName, m -> {
+                    cardinality.incrementAndGet();
+                    return newHandle(serviceName, methodName);
+                });
+    }
+
+    private Handle newHandle(String serviceName, String methodName) {
+        final Tags tags = Tags.of(METRIC_TAG_SERVICE, serviceName, METRIC_TAG_METHOD, methodName);
+        return new Handle(
+                meterRegistry.counter(METRIC_OPEN_STATE_COUNTER_NAME, tags),
+                meterRegistry.counter(METRIC_CLOSED_STATE_COUNTER_NAME, tags),
+                meterRegistry.counter(METRIC_TOTAL_COUNTER_NAME, tags));
+    }
+
+    /**
+     * The registered state counters of a single service and method combination.
+     */
+    public record Handle(Counter open, Counter closed, Counter total) {
+    }
+}
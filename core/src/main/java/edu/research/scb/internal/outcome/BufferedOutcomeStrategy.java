@@ -0,0 +1,158 @@
+package edu.research.scb.internal.outcome;
+
+import edu.research.scb.internal.config.OutcomeBufferProperties;
+import edu.research.scb.sdk.CallContext;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import edu.research.scb.sdk.Criticality;
+import edu.research.scb.sdk.Outcome;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Records the outcomes of the requests with a single writer thread, in place of every grpc callback thread mutating
+ * the state of the strategy, i.e. the service counters, the request metrics, the bloom filter and the reset queue.
+ *
+ * <p>The outcomes are appended to striped ring buffers and drained in batches by the writer thread, which is then
+ * the only thread calling {@code onSuccess} and {@code onFailure} of the strategy, much like the write buffer of
+ * Caffeine. The requests are still admitted by the calling threads, and {@code allowRequest} observes the outcomes
+ * once they are drained, i.e. at most the drain interval later. No outcome is ever dropped : under a burst that fills
+ * all the rings before the writer catches up, the further outcomes are recorded by the calling threads themselves, as
+ * without the buffers, and counted by {@code smart_circuit_breaker_outcome_overflow_counter}.
+ */
+public class BufferedOutcomeStrategy implements CircuitBreakerStrategy, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(BufferedOutcomeStrategy.class);
+
+    private static final Outcome FAILED = new Outcome(Status.Code.UNKNOWN, 0, 1);
+
+    private final CircuitBreakerStrategy delegate;
+    private final StripedRingBuffer<BufferedOutcome> buffer;
+    private final long drainIntervalNanos;
+    private final int wakeUpThreshold;
+    private final Counter overflowCounter;
+    private final Thread writer;
+    private volatile boolean running;
+
+    public BufferedOutcomeStrategy(CircuitBreakerStrategy delegate, OutcomeBufferProperties properties, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.buffer = new StripedRingBuffer<>(properties.getStripes(), properties.getCapacity());
+        this.drainIntervalNanos = TimeUnit.MICROSECONDS.toNanos(properties.getDrainIntervalMicros());
+        this.wakeUpThreshold = buffer.capacity() / 2;
+        this.overflowCounter = meterRegistry.counter(METRIC_OUTCOME_OVERFLOW_COUNTER_NAME);
+        this.running = true;
+
+        Gauge.builder(METRIC_OUTCOME_BUFFER_SIZE_NAME, buffer::size)
+                .description("The number of outcomes waiting to be recorded by the writer")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::drainLoop, "smart-circuit-breaker-outcome-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        logger.info("Recording the outcomes with a single writer. Outcome Buffer Properties: {}", properties);
+    }
+
+    @Override
+    public boolean allowRequest(String serviceName, String methodName, String data) {
+        return delegate.allowRequest(serviceName, methodName, data);
+    }
+
+    @Override
+    public boolean allowRequest(String serviceName, String methodName, String data, Criticality criticality) {
+        return delegate.allowRequest(serviceName, methodName, data, criticality);
+    }
+
+    @Override
+    public boolean admit(CallContext context) {
+        return delegate.admit(context);
+    }
+
+    @Override
+    public void onSuccess(String serviceName, String methodName, String data) {
+        offer(new BufferedOutcome(serviceName, methodName, data, null, null));
+    }
+
+    @Override
+    public void onFailure(String serviceName, String methodName, String data) {
+        offer(new BufferedOutcome(serviceName, methodName, data, null, FAILED));
+    }
+
+    @Override
+    public void onOutcome(CallContext context, Outcome outcome) {
+        offer(new BufferedOutcome(null, null, null, context, outcome));
+    }
+
+    /**
+     * @return the strategy whose state is owned by the writer
+     */
+    public CircuitBreakerStrategy getDelegate() {
+        return delegate;
+    }
+
+    // The writer is only woken up once a ring is half full, and otherwise drains on its own interval, so that
+    // the calling threads don't pay for an unpark on every outcome. An outcome finding all the rings full, or the
+    // writer stopped, is recorded by the calling thread rather than lost.
+    private void offer(BufferedOutcome outcome) {
+        final int size = running ? buffer.offer(outcome) : -1;
+        if(size < 0) {
+            overflowCounter.increment();
+            LockSupport.unpark(writer);
+            record(outcome);
+        } else if(size >= wakeUpThreshold) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drainLoop() {
+        while(running) {
+            if(drain() == 0)
+                LockSupport.parkNanos(this, drainIntervalNanos);
+        }
+        drain();
+    }
+
+    private int drain() {
+        return buffer.drainTo(this::record);
+    }
+
+    private void record(BufferedOutcome outcome) {
+        try {
+            if(outcome.context() != null)
+                delegate.onOutcome(outcome.context(), outcome.outcome());
+            else if(outcome.outcome() == null)
+                delegate.onSuccess(outcome.serviceName(), outcome.methodName(), outcome.data());
+            else
+                delegate.onFailure(outcome.serviceName(), outcome.methodName(), outcome.data());
+        } catch (RuntimeException e) {
+            logger.error("Unable to record the outcome {}", outcome, e);
+        }
+    }
+
+    /**
+     * Stops the writer, once it has recorded the outcomes buffered so far. The outcomes reported afterwards are
+     * recorded by the calling threads.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Either the outcome of a call through the CallPolicy, or one through the String methods, whose failures are
+    // marked by the FAILED outcome.
+    private record BufferedOutcome(String serviceName, String methodName, String data, CallContext context, Outcome outcome) {
+    }
+}
@@ -0,0 +1,152 @@
+package edu.research.scb.internal.outcome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A set of bounded ring buffers with many producers and a single consumer, in the style of the read buffer of
+ * Caffeine. Each producer thread offers to the ring of its stripe, so that the producers rarely contend on the same
+ * counter, and the single consumer drains all the rings in batches.
+ *
+ * <p>An element is never dropped by the buffer. A producer finding its ring contended or full moves on to the next
+ * ring, and the element is only rejected once all the rings are found full, in place of waiting for the consumer,
+ * in which case it is left to the producer to handle it otherwise.
+ *
+ * @param <E> the type of the elements
+ */
+class StripedRingBuffer<E> {
+
+    private final List<Ring<E>> rings;
+    private final int stripeMask;
+    private final int capacity;
+
+    StripedRingBuffer(int stripes, int capacity) {
+        final int stripeCount = ceilingPowerOfTwo(stripes);
+        this.capacity = ceilingPowerOfTwo(capacity);
+        this.stripeMask = stripeCount - 1;
+        this.rings = new ArrayList<>(stripeCount);
+        for(int i = 0; i < stripeCount; i++)
+            rings.add(new Ring<>(this.capacity));
+    }
+
+    /**
+     * Offers the element to the ring of the calling thread, moving on to the next ring while it is contended or full.
+     * A contended ring has been written by another producer meanwhile, and is tried again on the next pass, while the
+     * element is rejected once the rings have been found full as many times as there are rings.
+     *
+     * @param element the element
+     * @return the number of elements in the ring after the offer, or -1 if all the rings are full and the element
+     * has been rejected
+     */
+    int offer(E element) {
+        int stripe = stripe();
+        for(int full = 0; full < rings.size(); stripe = (stripe + 1) & stripeMask) {
+            final int result = rings.get(stripe).offer(element);
+            if(result >= 0)
+                return result;
+            if(result == Ring.FULL)
+                full++;
+        }
+        return -1;
+    }
+
+    /**
+     * Drains all the rings. Only to be called by the single consumer.
+     *
+     * @param consumer the consumer of the elements
+     * @return the number of elements drained
+     */
+    int drainTo(Consumer<E> consumer) {
+        int drained = 0;
+        for(Ring<E> ring : rings)
+            drained += ring.drainTo(consumer);
+        return drained;
+    }
+
+    /**
+     * @return the number of elements waiting in all the rings
+     */
+    long size() {
+        long size = 0;
+        for(Ring<E> ring : rings)
+            size += ring.size();
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    // The stripe of the calling thread, by a mix of its id, so that the consecutive ids are spread over the rings.
+    private int stripe() {
+        final long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * A bounded ring, where the producers claim a slot with a CAS of the write counter and publish the element into
+     * it with an ordered write. The consumer takes the elements in order, up to the first slot that is claimed but
+     * not yet published, and releases the slots by advancing the read counter.
+     */
+    private static final class Ring<E> {
+
+        private static final int FULL = -1;
+        private static final int CONTENDED = -2;
+
+        private final AtomicReferenceArray<E> slots;
+        private final int mask;
+        private final AtomicLong writeCounter;
+        private volatile long readCounter;
+
+        Ring(int capacity) {
+            this.slots = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+            this.writeCounter = new AtomicLong(0);
+        }
+
+        int offer(E element) {
+            final long head = readCounter;
+            final long tail = writeCounter.get();
+            final long size = tail - head;
+            if(size >= slots.length())
+                return FULL;
+            if(!writeCounter.compareAndSet(tail, tail + 1))
+                return CONTENDED;
+            slots.lazySet((int) (tail & mask), element);
+            return (int) size + 1;
+        }
+
+        // The slot is released before the element is consumed, so that a failing consumer never stalls the ring.
+        int drainTo(Consumer<E> consumer) {
+            long head = readCounter;
+            final long tail = writeCounter.get();
+            int drained = 0;
+            try {
+                while(head < tail) {
+                    final int index = (int) (head & mask);
+                    final E element = slots.get(index);
+                    if(element == null)
+                        break;
+                    slots.lazySet(index, null);
+                    head++;
+                    drained++;
+                    consumer.accept(element);
+                }
+            } finally {
+                readCounter = head;
+            }
+            return drained;
+        }
+
+        long size() {
+            return Math.max(0, writeCounter.get() - readCounter);
+        }
+    }
+}
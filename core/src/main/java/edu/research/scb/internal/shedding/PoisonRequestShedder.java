@@ -0,0 +1,204 @@
+package edu.research.scb.internal.shedding;
+
+import edu.research.scb.internal.config.LoadSheddingProperties;
+import edu.research.scb.internal.signature.SignatureExtractor;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import edu.research.scb.sdk.Criticality;
+import io.grpc.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The server-side counterpart of the {@code SmartCircuitBreaker}, which protects the handlers from the poison
+ * requests, i.e. the pathological payloads that keep failing the handler, arriving from many clients that are not
+ * under our control.
+ *
+ * <p>The outcome of every handled request is recorded against its signature with a {@code CircuitBreakerStrategy} of
+ * the same kind as on the client side, though an instance of its own, so that the failures of the handlers and the
+ * ones of the remote calls never open the circuits of each other. Only the statuses of the handler failures, i.e. the
+ * {@code DEFAULT_RETRY_STATUS_CODES}, are recorded as failures, while the statuses that reject the request on its
+ * merits, such as {@code INVALID_ARGUMENT}, are recorded as successes. Once the circuit of a signature is open, its
+ * repeat offenders are closed with {@code RESOURCE_EXHAUSTED} as soon as the request message is received, before
+ * the handler is invoked. The criticality of the request is read from the {@code Criticality.HEADER}, as propagated by
+ * the {@code SmartCircuitBreaker} of the clients.
+ *
+ * <p>A handler throwing an exception, the typical crash on a poison payload, never closes the call itself : the
+ * server closes its stream with {@code UNKNOWN} right away, bypassing the interceptors. Such a failure is thus recorded
+ * as the exception leaves the handler, before it is rethrown to the server.
+ *
+ * <p>The shed and the total requests are counted per method by {@code smart_circuit_breaker_shed_counter} and
+ * {@code smart_circuit_breaker_server_total_counter}, whose ratio is the shed rate of the method.
+ */
+public class PoisonRequestShedder implements ServerInterceptor {
+
+    private static final Logger logger = LogManager.getLogger(PoisonRequestShedder.class);
+
+    private static final Set<Status.Code> HANDLER_FAILURE_CODES = Set.copyOf(DEFAULT_RETRY_STATUS_CODES);
+
+    private final CircuitBreakerStrategy circuitBreaker;
+    private final SignatureExtractor signatureExtractor;
+    private final MeterRegistry meterRegistry;
+    private final Set<String> methods;
+    private final ConcurrentHashMap<String, Meters> meters;
+
+    public PoisonRequestShedder(CircuitBreakerStrategy circuitBreaker, LoadSheddingProperties properties,
+                                MeterRegistry meterRegistry) {
+        this(circuitBreaker, properties, null, meterRegistry);
+    }
+
+    public PoisonRequestShedder(CircuitBreakerStrategy circuitBreaker, LoadSheddingProperties properties,
+                                SignatureExtractor signatureExtractor, MeterRegistry meterRegistry) {
+        this.circuitBreaker = circuitBreaker;
+        this.signatureExtractor = signatureExtractor;
+        this.meterRegistry = meterRegistry;
+        this.methods = new HashSet<>(properties.getMethods());
+        this.meters = new ConcurrentHashMap<>();
+        logger.info("Shedding the poison requests for the methods: {}", methods.isEmpty() ? "all" : methods);
+    }
+
+    /**
+     * @return the strategy recording the outcomes of the handlers
+     */
+    public CircuitBreakerStrategy getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Checks if the handlers of the method are guarded.
+     *
+     * @param method the server method
+     * @return {@code true} if the poison requests are shed for the method
+     */
+    public boolean isEnabled(MethodDescriptor<?, ?> method) {
+        return methods.isEmpty() || methods.contains(method.getFullMethodName());
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        final MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+        if(!isEnabled(method))
+            return next.startCall(call, headers);
+
+        final Meters m = meters.computeIfAbsent(method.getFullMethodName(), name -> newMeters(method));
+        final GuardedCall<ReqT, RespT> guarded = new GuardedCall<>(call);
+        final Criticality criticality = Criticality.parse(headers.get(Criticality.HEADER));
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(next.startCall(guarded, headers)) {
+
+            // The handler is never invoked for a shed request, thus none of the further events are delivered to it,
+            // including the completion of the call closed by the shedder.
+            private boolean shed;
+
+            @Override
+            public void onMessage(ReqT message) {
+                if(shed)
+                    return;
+                // Only the first message of a client stream signs the request.
+                if(guarded.signature == null) {
+                    guarded.signature = signatureExtractor != null ?
+                            signatureExtractor.extract(method, message) : message.toString();
+                    m.total.increment();
+
+                    if(!circuitBreaker.allowRequest(guarded.serviceName, guarded.methodName, guarded.signature, criticality)) {
+                        logger.debug("SHED-REQUEST: Circuit is '## OPEN ##' for service='{}', method='{}', message='{}'",
+                                guarded.serviceName, guarded.methodName, guarded.signature);
+                        shed = true;
+                        m.shed.increment();
+                        call.close(Status.RESOURCE_EXHAUSTED.withDescription(
+                                "The request is shed as the same requests keep failing the handler"), new Metadata());
+                        return;
+                    }
+                }
+                try {
+                    super.onMessage(message);
+                } catch (RuntimeException | Error e) {
+                    guarded.record(Status.Code.UNKNOWN);
+                    throw e;
+                }
+            }
+
+            @Override
+            public void onHalfClose() {
+                if(shed)
+                    return;
+                try {
+                    super.onHalfClose();
+                } catch (RuntimeException | Error e) {
+                    guarded.record(Status.Code.UNKNOWN);
+                    throw e;
+                }
+            }
+
+            @Override
+            public void onCancel() {
+                if(!shed)
+                    super.onCancel();
+            }
+
+            @Override
+            public void onComplete() {
+                if(!shed)
+                    super.onComplete();
+            }
+
+            @Override
+            public void onReady() {
+                if(!shed)
+                    super.onReady();
+            }
+        };
+    }
+
+    private Meters newMeters(MethodDescriptor<?, ?> method) {
+        final Tags tags = Tags.of(METRIC_TAG_SERVICE, String.valueOf(method.getServiceName()),
+                METRIC_TAG_METHOD, method.getFullMethodName());
+        return new Meters(meterRegistry.counter(METRIC_SHED_COUNTER_NAME, tags),
+                meterRegistry.counter(METRIC_SERVER_TOTAL_COUNTER_NAME, tags));
+    }
+
+    // Records the outcome of the handler for the signature of the request, once the handler closes the call, or
+    // throws an exception out of it.
+    private final class GuardedCall<ReqT, RespT> extends ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT> {
+
+        private final String serviceName;
+        private final String methodName;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private volatile String signature;
+
+        GuardedCall(ServerCall<ReqT, RespT> delegate) {
+            super(delegate);
+            this.serviceName = delegate.getMethodDescriptor().getServiceName();
+            this.methodName = delegate.getMethodDescriptor().getFullMethodName();
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            record(status.getCode());
+            super.close(status, trailers);
+        }
+
+        // Only the first outcome is recorded, as a handler may close the call and throw afterwards. A handler that
+        // fails before any message is received has no signature to be recorded against.
+        void record(Status.Code code) {
+            if(signature == null || !recorded.compareAndSet(false, true))
+                return;
+            if(HANDLER_FAILURE_CODES.contains(code))
+                circuitBreaker.onFailure(serviceName, methodName, signature);
+            else
+                circuitBreaker.onSuccess(serviceName, methodName, signature);
+        }
+    }
+
+    private record Meters(Counter shed, Counter total) {
+    }
+}
@@ -0,0 +1,167 @@
+package edu.research.scb.internal.signature;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import com.google.protobuf.TextFormat;
+import edu.research.scb.internal.config.SignatureProperties;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServiceDescriptor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the signature data of the requests from the configured proto field paths of their methods, in place of
+ * the whole message.
+ *
+ * <p>The field paths are resolved once, when the extractor is created, against the {@code Descriptor} of the request
+ * prototype of every configured method of the given services, into the chains of {@code FieldDescriptor}s. Extracting
+ * the signature of a request is then only a walk over the chains, with no parsing of the paths nor rendering of the
+ * whole message. Leaving out the fields that vary per request, e.g. the timestamps or the request ids, keeps identical
+ * requests on the same signature.
+ *
+ * <p>A configured method that isn't one of the services, whose request isn't a protobuf message, or with a path that
+ * can't be resolved fails the creation of the extractor, rather than silently signing its requests by their whole
+ * message. The requests of the methods without any field paths are signed by their {@code toString()} as before.
+ */
+public class SignatureExtractor {
+
+    private static final Logger logger = LogManager.getLogger(SignatureExtractor.class);
+
+    private final Map<String, FieldPaths> compiled;
+
+    /**
+     * @param properties the field paths of the methods
+     * @param services the services of the configured methods, e.g. the {@code getServiceDescriptor()} of their
+     *                 generated grpc classes
+     * @throws IllegalArgumentException if the field paths of a method can't be resolved
+     */
+    public SignatureExtractor(SignatureProperties properties, Collection<ServiceDescriptor> services) {
+        logger.info("Signature Properties: {}", properties);
+        final Map<String, MethodDescriptor<?, ?>> methods = new HashMap<>();
+        for(ServiceDescriptor service : services) {
+            for(MethodDescriptor<?, ?> method : service.getMethods())
+                methods.put(method.getFullMethodName(), method);
+        }
+
+        final Map<String, FieldPaths> compiled = new HashMap<>();
+        properties.getFields().forEach((methodName, methodFields) -> {
+            if(methodFields == null || methodFields.isEmpty())
+                return;
+            final MethodDescriptor<?, ?> method = methods.get(methodName);
+            if(method == null)
+                throw new IllegalArgumentException("The method '" + methodName + "' of the signature fields is not a method of the services " +
+                        services.stream().map(ServiceDescriptor::getName).toList());
+            compiled.put(methodName, compile(method, methodFields));
+        });
+        this.compiled = Map.copyOf(compiled);
+    }
+
+    /**
+     * Creates the signature data of the request message.
+     *
+     * @param method the remote method
+     * @param message the request message
+     * @return the values of the configured field paths, or the whole message if none are configured.
+     */
+    public <ReqT> String extract(MethodDescriptor<ReqT, ?> method, ReqT message) {
+        final FieldPaths paths = compiled.get(method.getFullMethodName());
+        if(paths == null || !(message instanceof Message))
+            return message.toString();
+        return paths.extract((Message) message);
+    }
+
+    // Resolves the configured field paths of the method against the descriptor of its request prototype.
+    private static FieldPaths compile(MethodDescriptor<?, ?> method, List<String> methodFields) {
+        if(!(method.getRequestMarshaller() instanceof MethodDescriptor.PrototypeMarshaller<?> marshaller)
+                || !(marshaller.getMessagePrototype() instanceof Message prototype))
+            throw new IllegalArgumentException("The request of the method '" + method.getFullMethodName() + "' is not a protobuf message");
+
+        final Descriptors.Descriptor descriptor = prototype.getDescriptorForType();
+        final List<Descriptors.FieldDescriptor[]> chains = new ArrayList<>(methodFields.size());
+        for(String path : methodFields) {
+            final Descriptors.FieldDescriptor[] chain = resolve(descriptor, path);
+            if(chain == null)
+                throw new IllegalArgumentException("The field path '" + path + "' can't be resolved against '" + descriptor.getFullName() +
+                        "' of the method '" + method.getFullMethodName() + "'");
+            chains.add(chain);
+        }
+        logger.info("SIGNATURE: The requests of the method '{}' are signed by the fields {}", method.getFullMethodName(), methodFields);
+        return new FieldPaths(methodFields.toArray(new String[0]), chains.toArray(new Descriptors.FieldDescriptor[0][]));
+    }
+
+    // Resolves a dotted path, optionally prefixed by the name of the request message itself. Only the last field
+    // of the path may be a repeated one.
+    private static Descriptors.FieldDescriptor[] resolve(Descriptors.Descriptor descriptor, String path) {
+        final String[] segments = path.trim().split("\\.");
+        int start = 0;
+        if(segments.length > 1 && segments[0].equals(descriptor.getName()) && descriptor.findFieldByName(segments[0]) == null)
+            start = 1;
+
+        final Descriptors.FieldDescriptor[] chain = new Descriptors.FieldDescriptor[segments.length - start];
+        Descriptors.Descriptor current = descriptor;
+        for(int i = start; i < segments.length; i++) {
+            if(current == null)
+                return null;
+            final Descriptors.FieldDescriptor field = current.findFieldByName(segments[i]);
+            if(field == null)
+                return null;
+
+            final boolean last = i == segments.length - 1;
+            if(!last && (field.isRepeated() || field.getJavaType() != Descriptors.FieldDescriptor.JavaType.MESSAGE))
+                return null;
+            chain[i - start] = field;
+            current = last ? null : field.getMessageType();
+        }
+        return chain;
+    }
+
+    /**
+     * The resolved field paths of a single method.
+     */
+    private record FieldPaths(String[] names, Descriptors.FieldDescriptor[][] chains) {
+
+        private String extract(Message message) {
+            final StringBuilder sb = new StringBuilder(16 * chains.length);
+            for(int i = 0; i < chains.length; i++) {
+                if(i > 0)
+                    sb.append(',');
+                sb.append(names[i]).append('=');
+                append(sb, value(message, chains[i]));
+            }
+            return sb.toString();
+        }
+
+        // An unset message field yields its default instance, so the walk never runs into a null.
+        private static Object value(Message message, Descriptors.FieldDescriptor[] chain) {
+            Message current = message;
+            for(int i = 0; i < chain.length - 1; i++)
+                current = (Message) current.getField(chain[i]);
+            return current.getField(chain[chain.length - 1]);
+        }
+
+        private static void append(StringBuilder sb, Object value) {
+            if(value instanceof Message m)
+                sb.append(TextFormat.shortDebugString(m));
+            else if(value instanceof ByteString b)
+                sb.append(Base64.getEncoder().encodeToString(b.toByteArray()));
+            else if(value instanceof List<?> values) {
+                sb.append('[');
+                for(int i = 0; i < values.size(); i++) {
+                    if(i > 0)
+                        sb.append(',');
+                    append(sb, values.get(i));
+                }
+                sb.append(']');
+            } else
+                sb.append(value);
+        }
+    }
+}
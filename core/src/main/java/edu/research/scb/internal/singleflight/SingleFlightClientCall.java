@@ -0,0 +1,277 @@
+package edu.research.scb.internal.singleflight;
+
+import io.grpc.ClientCall;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A unary {@code ClientCall} that coalesces with other identical calls in-flight at the same time.
+ *
+ * <p>The underlying call is only created once the request message is known in {@code sendMessage()}, as the
+ * signature is derived from it. If this call is the leader of the flight, or if the flight could not be joined,
+ * the underlying call is created, started and the message is sent. Otherwise, nothing is sent to the server and
+ * the response and status of the leader are replayed to the listener of this call.
+ *
+ * <p>A call only follows a leader whose deadline is not earlier than its own, so that the leader is always closed
+ * in time for the follower. A follower cancelled by its caller leaves the flight, without affecting the leader. The
+ * cancellation and the deadline of the leader are its own though : if the leader is closed with {@code CANCELLED} or
+ * {@code DEADLINE_EXCEEDED}, its followers are not closed with the same status, and each one of them is sent on its
+ * own call instead.
+ *
+ * @param <ReqT> the type of the request message
+ * @param <RespT> the type of the response message
+ */
+public class SingleFlightClientCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+    private static final Logger logger = LogManager.getLogger(SingleFlightClientCall.class);
+
+    private final SingleFlightGroup group;
+    private final Function<ReqT, String> signatureFunction;
+    private final Supplier<ClientCall<ReqT, RespT>> callFactory;
+    private final Executor executor;
+    private final Deadline deadline;
+    // The context of the caller, under which the call of a follower sent on its own is created.
+    private final Context context;
+
+    // The state of the call is written by the caller, and read by the thread completing the leader as well. The
+    // underlying call of a follower sent on its own is created by that thread, under the lock of the call.
+    private volatile Listener<RespT> responseListener;
+    private volatile Metadata headers;
+    private volatile int requested;
+    private volatile ClientCall<ReqT, RespT> delegate;
+    private ReqT message;
+    private boolean halfClosed;
+    private boolean cancelled;
+    private SingleFlightGroup.Flight flight;
+
+    /**
+     * @param group the group tracking the in-flight calls
+     * @param signatureFunction creates the request signature from the request message
+     * @param callFactory creates the underlying call that is sent to the server
+     * @param executor the executor of the call options, used for replaying the response to followers.
+     *                 When {@code null}, the response is replayed on the thread completing the leader.
+     * @param deadline the effective deadline of the call, or {@code null} if it has none
+     */
+    public SingleFlightClientCall(SingleFlightGroup group, Function<ReqT, String> signatureFunction,
+                                  Supplier<ClientCall<ReqT, RespT>> callFactory, Executor executor, Deadline deadline) {
+        this.group = group;
+        this.signatureFunction = signatureFunction;
+        this.callFactory = callFactory;
+        this.executor = executor;
+        this.deadline = deadline;
+        this.context = Context.current();
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+        this.responseListener = responseListener;
+        this.headers = headers;
+    }
+
+    @Override
+    public synchronized void request(int numMessages) {
+        if(delegate != null)
+            delegate.request(numMessages);
+        else
+            requested += numMessages;
+    }
+
+    @Override
+    public void sendMessage(ReqT message) {
+        final String signature = signatureFunction.apply(message);
+        // The message is kept before joining, for the follower to be sent on its own as soon as the leader is done.
+        synchronized (this) {
+            this.message = message;
+        }
+        flight = group.join(signature, this);
+
+        // FOLLOWER : The identical request is already in-flight, waiting for its response.
+        if(flight != null && !flight.isLeader(this)) {
+            logger.debug("SINGLE-FLIGHT: Coalescing the request with the in-flight signature='{}'", signature);
+            return;
+        }
+
+        // LEADER or BYPASS : The request is sent to the server.
+        final ClientCall<ReqT, RespT> call = callFactory.get();
+        call.start(flight != null ? new LeaderListener() : responseListener, headers);
+        synchronized (this) {
+            delegate = call;
+            if(requested > 0)
+                call.request(requested);
+        }
+
+        try {
+            call.sendMessage(message);
+        } catch (RuntimeException e) {
+            // The followers are released, as the leader is never going to be sent. The exception itself is
+            // propagated to the caller of the leader.
+            if(flight != null)
+                closeFollowers(null, null, Status.UNAVAILABLE.withDescription(e.getMessage()).withCause(e), new Metadata());
+            throw e;
+        }
+    }
+
+    @Override
+    public void halfClose() {
+        final ClientCall<ReqT, RespT> call;
+        synchronized (this) {
+            halfClosed = true;
+            call = delegate;
+        }
+        if(call != null)
+            call.halfClose();
+    }
+
+    @Override
+    public void cancel(String message, Throwable cause) {
+        final ClientCall<ReqT, RespT> call;
+        synchronized (this) {
+            cancelled = true;
+            call = delegate;
+        }
+        if(call != null) {
+            call.cancel(message, cause);
+            return;
+        }
+
+        // The call was either never sent or is a follower still waiting on the leader. A follower released by the
+        // leader meanwhile is either delivered the outcome of the leader, or closed as cancelled by sendAlone().
+        if(responseListener != null && (flight == null || group.leave(flight, this)))
+            deliver(null, null, Status.CANCELLED.withDescription(message).withCause(cause), new Metadata());
+    }
+
+    @Override
+    public boolean isReady() {
+        final ClientCall<ReqT, RespT> call = delegate;
+        return call == null || call.isReady();
+    }
+
+    @Override
+    public void setMessageCompression(boolean enabled) {
+        final ClientCall<ReqT, RespT> call = delegate;
+        if(call != null)
+            call.setMessageCompression(enabled);
+    }
+
+    Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Replays the outcome of the leader to the listener of this call.
+     */
+    @SuppressWarnings("unchecked")
+    void deliver(Metadata responseHeaders, Object message, Status status, Metadata trailers) {
+        final Runnable replay = () -> {
+            if(responseHeaders != null)
+                responseListener.onHeaders(copyOf(responseHeaders));
+            if(message != null && requested > 0)
+                responseListener.onMessage((RespT) message);
+            responseListener.onClose(status, copyOf(trailers));
+        };
+
+        if(executor != null)
+            executor.execute(replay);
+        else
+            replay.run();
+    }
+
+    /**
+     * Sends the request of this follower on a call of its own, as the leader was cancelled or ran out of its deadline.
+     */
+    void sendAlone() {
+        final Runnable send = () -> {
+            synchronized (this) {
+                if(!cancelled) {
+                    final ClientCall<ReqT, RespT> call;
+                    final Context previous = context.attach();
+                    try {
+                        call = callFactory.get();
+                    } finally {
+                        context.detach(previous);
+                    }
+                    call.start(responseListener, headers);
+                    delegate = call;
+                    if(requested > 0)
+                        call.request(requested);
+                    try {
+                        call.sendMessage(message);
+                    } catch (RuntimeException e) {
+                        // As done by the stubs, for the exception to close the listener of the caller.
+                        call.cancel(null, e);
+                        return;
+                    }
+                    if(halfClosed)
+                        call.halfClose();
+                    return;
+                }
+            }
+            // Cancelled by its caller once released by the leader, which no longer delivers anything to it.
+            deliver(null, null, Status.CANCELLED.withDescription("The call was cancelled while following the leader"), new Metadata());
+        };
+
+        if(executor != null)
+            executor.execute(send);
+        else
+            send.run();
+    }
+
+    private void closeFollowers(Metadata responseHeaders, Object message, Status status, Metadata trailers) {
+        final List<SingleFlightClientCall<?, ?>> followers = group.complete(flight);
+        if(status.getCode() == Status.Code.CANCELLED || status.getCode() == Status.Code.DEADLINE_EXCEEDED) {
+            logger.debug("SINGLE-FLIGHT: Sending {} followers on their own, as the leader closed with status: {}", followers.size(), status.getCode());
+            followers.forEach(SingleFlightClientCall::sendAlone);
+            return;
+        }
+        logger.debug("SINGLE-FLIGHT: Releasing {} followers with status: {}", followers.size(), status.getCode());
+        followers.forEach(f -> f.deliver(responseHeaders, message, status, trailers));
+    }
+
+    private static Metadata copyOf(Metadata metadata) {
+        Metadata copy = new Metadata();
+        if(metadata != null)
+            copy.merge(metadata);
+        return copy;
+    }
+
+    /**
+     * Listener of the leader, that records the response and hands it over to the followers on closing.
+     */
+    private class LeaderListener extends Listener<RespT> {
+
+        private Metadata responseHeaders;
+        private RespT response;
+
+        @Override
+        public void onHeaders(Metadata headers) {
+            this.responseHeaders = copyOf(headers);
+            responseListener.onHeaders(headers);
+        }
+
+        @Override
+        public void onMessage(RespT message) {
+            this.response = message;
+            responseListener.onMessage(message);
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            closeFollowers(responseHeaders, response, status, copyOf(trailers));
+            responseListener.onClose(status, trailers);
+        }
+
+        @Override
+        public void onReady() {
+            responseListener.onReady();
+        }
+    }
+}
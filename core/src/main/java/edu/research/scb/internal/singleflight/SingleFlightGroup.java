@@ -0,0 +1,178 @@
+package edu.research.scb.internal.singleflight;
+
+import edu.research.scb.internal.config.SingleFlightProperties;
+import io.grpc.Deadline;
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * Tracks the identical unary requests that are in-flight at the same time, keyed by the request signature.
+ * The first call for a signature becomes the <i>leader</i> and is the only one that is sent to the server,
+ * all the other calls with the same signature join the leader's flight as <i>followers</i> and receive the
+ * response or the status of the leader, once it completes.
+ *
+ * <p>The number of flights is bounded by {@code max-in-flight}. Once the bound is reached, the calls are
+ * sent to the server as is, without being coalesced. So is a call whose deadline is earlier than the one of the
+ * leader in-flight.
+ */
+public class SingleFlightGroup {
+
+    private static final Logger logger = LogManager.getLogger(SingleFlightGroup.class);
+
+    private final boolean enabled;
+    private final Set<String> methods;
+    private final int maxInFlight;
+    private final ConcurrentHashMap<String, Flight> flights;
+
+    private final Counter LEADER_COUNTER;
+    private final Counter COALESCED_COUNTER;
+    private final Counter BYPASS_COUNTER;
+
+    public SingleFlightGroup(SingleFlightProperties properties, MeterRegistry meterRegistry) {
+        logger.info("Single Flight Properties: {}", properties);
+        this.enabled = properties.getEnabled();
+        this.methods = new HashSet<>(properties.getMethods());
+        this.maxInFlight = properties.getMaxInFlight();
+        this.flights = new ConcurrentHashMap<>();
+
+        LEADER_COUNTER = meterRegistry.counter(METRIC_SINGLE_FLIGHT_LEADER_COUNTER_NAME);
+        COALESCED_COUNTER = meterRegistry.counter(METRIC_SINGLE_FLIGHT_COALESCED_COUNTER_NAME);
+        BYPASS_COUNTER = meterRegistry.counter(METRIC_SINGLE_FLIGHT_BYPASS_COUNTER_NAME);
+
+        Gauge.builder(METRIC_SINGLE_FLIGHT_IN_FLIGHT_NAME, flights::size)
+                .description("The number of distinct request signatures currently in-flight")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Determines if the calls of the given method are to be coalesced. Only unary methods that are
+     * explicitly listed in the configuration properties are coalesced.
+     *
+     * @param method the remote method to be called
+     * @return {@code true} if identical in-flight calls of the method are to be coalesced.
+     */
+    public boolean isEnabled(MethodDescriptor<?, ?> method) {
+        return enabled
+                && method.getType() == MethodDescriptor.MethodType.UNARY
+                && methods.contains(method.getFullMethodName());
+    }
+
+    /**
+     * Joins the flight of the given signature. If there is no flight in progress, a new one is created with
+     * the call as its leader. If the flight is already in progress, the call is added as a follower.
+     *
+     * @param signature the request signature
+     * @param call the call joining the flight
+     * @return the joined flight, or {@code null} if the group is full, or if the leader in-flight may outlive the
+     * deadline of the call, and the call should be sent as is.
+     */
+    Flight join(String signature, SingleFlightClientCall<?, ?> call) {
+        Flight flight = flights.get(signature);
+        // The call is not to wait on a leader which may outlive its own deadline.
+        if(flight != null && !flight.isWithin(call.getDeadline())) {
+            BYPASS_COUNTER.increment();
+            return null;
+        }
+        if(flight != null && flight.addFollower(call)) {
+            COALESCED_COUNTER.increment();
+            return flight;
+        }
+
+        if(flights.size() >= maxInFlight) {
+            BYPASS_COUNTER.increment();
+            return null;
+        }
+
+        Flight created = new Flight(signature, call);
+        flight = flights.putIfAbsent(signature, created);
+        if(flight == null) {
+            LEADER_COUNTER.increment();
+            return created;
+        }
+
+        // Lost the race to another leader, joining its flight if it is still in progress.
+        if(flight.isWithin(call.getDeadline()) && flight.addFollower(call)) {
+            COALESCED_COUNTER.increment();
+            return flight;
+        }
+        BYPASS_COUNTER.increment();
+        return null;
+    }
+
+    /**
+     * Completes the flight, after which no more followers can join it.
+     *
+     * @param flight the flight to be completed
+     * @return the followers waiting on the flight, empty if the flight was already completed.
+     */
+    List<SingleFlightClientCall<?, ?>> complete(Flight flight) {
+        flights.remove(flight.signature, flight);
+        return flight.complete();
+    }
+
+    /**
+     * Removes a follower from the flight, in situations when the follower is cancelled by the client.
+     *
+     * @param flight the flight
+     * @param call the follower call
+     * @return {@code true} if the follower was still waiting on the flight.
+     */
+    boolean leave(Flight flight, SingleFlightClientCall<?, ?> call) {
+        return flight.removeFollower(call);
+    }
+
+    static final class Flight {
+
+        private final String signature;
+        private final SingleFlightClientCall<?, ?> leader;
+        private final List<SingleFlightClientCall<?, ?>> followers;
+        private boolean completed;
+
+        Flight(String signature, SingleFlightClientCall<?, ?> leader) {
+            this.signature = signature;
+            this.leader = leader;
+            this.followers = new ArrayList<>();
+        }
+
+        boolean isLeader(SingleFlightClientCall<?, ?> call) {
+            return leader == call;
+        }
+
+        // The leader is closed by its own deadline at the latest, which must not be later than the given one.
+        boolean isWithin(Deadline deadline) {
+            final Deadline leaderDeadline = leader.getDeadline();
+            return deadline == null || (leaderDeadline != null && !deadline.isBefore(leaderDeadline));
+        }
+
+        synchronized boolean addFollower(SingleFlightClientCall<?, ?> call) {
+            if(completed)
+                return false;
+            followers.add(call);
+            return true;
+        }
+
+        synchronized boolean removeFollower(SingleFlightClientCall<?, ?> call) {
+            return !completed && followers.remove(call);
+        }
+
+        synchronized List<SingleFlightClientCall<?, ?>> complete() {
+            if(completed)
+                return Collections.emptyList();
+            completed = true;
+            return followers;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package edu.research.scb.internal.throttling;
+
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy;
+import edu.research.scb.internal.config.AdaptiveThrottlingProperties;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.jfr.AdmissionPath;
+import edu.research.scb.internal.jfr.CircuitBreakerEvents;
+import edu.research.scb.internal.metrics.StateMeters;
+import edu.research.scb.sdk.CallContext;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import edu.research.scb.sdk.Outcome;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Clock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The adaptive throttling implementation of the {@code CircuitBreakerStrategy}, governed by the config property
+ * {@code circuit-breaker.strategy} with the value {@code adaptive-throttling}.
+ *
+ * <p>In place of opening and closing a circuit, every service is throttled on the client side in proportion to how
+ * much of its traffic the service fails, as per the client request rejection probability of the Google SRE book :
+ * <pre>
+ *   max(0, (requests - K * accepts) / (requests + 1))
+ * </pre>
+ * where the requests are all the requests attempted over the sliding window, including the ones rejected locally,
+ * and the accepts are the ones that succeeded. As long as the service accepts at least one out of K requests, nothing
+ * is rejected, and as its accept rate falls, the rejections rise smoothly, without the flapping of a hard open and
+ * closed state. The requests that keep being attempted while throttled raise the rejection probability further,
+ * while the few that get through detect the recovery of the service.
+ *
+ * <p>Only a few striped counters are kept per service, and no state per request signature, thus the failing
+ * signatures of a healthy service are never rejected.
+ */
+public class AdaptiveThrottlingStrategy extends AbstractCircuitBreakerStrategy implements CircuitBreakerStrategy {
+
+    private static final Logger logger = LogManager.getLogger(AdaptiveThrottlingStrategy.class);
+
+    private final double k;
+    private final long windowMillis;
+    private final int buckets;
+    private final ConcurrentHashMap<String, SlidingWindowCounter> windows;
+
+    public AdaptiveThrottlingStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry) {
+        this(config, meterRegistry, Clock.systemDefaultZone());
+    }
+
+    public AdaptiveThrottlingStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry, Clock clock) {
+        super(config, meterRegistry, clock);
+        final AdaptiveThrottlingProperties properties = config.getAdaptiveThrottling();
+        logger.info("Adaptive Throttling Properties: {}", properties);
+        this.k = properties.getK();
+        this.windowMillis = properties.getWindowSeconds() * 1000;
+        this.buckets = properties.getBuckets();
+        this.windows = new ConcurrentHashMap<>();
+        memoryAccount.track("sliding_windows", () -> windows.size() * buckets * DEFAULT_ESTIMATED_WINDOW_BUCKET_SIZE_IN_BYTES);
+    }
+
+    /**
+     * Determines if the client request should be allowed to be sent to the server, by rejecting it with the
+     * throttling probability of its service.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @param data        the string content used to determine the request signature
+     * @return {@code true} if request can be sent.
+     */
+    @Override
+    public boolean allowRequest(String serviceName, String methodName, String data) {
+        final String signature = CREATE_SIGNATURE.apply(methodName, data);
+        return admit(serviceName, methodName, signature, CallContext.hashOf(signature));
+    }
+
+    /**
+     * Determines if the call should be allowed to be sent to the server, on the signature precomputed by its context.
+     *
+     * @param context the context of the call
+     * @return {@code true} if the call can be sent.
+     */
+    @Override
+    public boolean admit(CallContext context) {
+        return admit(context.serviceName(), context.methodName(), context.signature(), context.signatureHash());
+    }
+
+    private boolean admit(String serviceName, String methodName, String signature, long signatureHash) {
+        // If circuit breaker is disabled, all calls will be let through.
+        if(!enableCircuitBreaker)
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.DISABLED, true);
+
+        incrTotalCountForService(serviceName);
+        final StateMeters.Handle meters = stateMeters.of(serviceName, methodName);
+        meters.total().increment();
+
+        signatureCardinality.offerRequest(serviceName, signatureHash);
+
+        // STATE : FORCED
+        // The state forced by the operators overrides the throttling.
+        final States forced = getForcedState(serviceName, signature);
+        if(forced != null) {
+            if(forced == States.OPEN) {
+                meters.open().increment();
+                rejectedSignatures.offer(signature);
+                return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.FORCED, false);
+            }
+            meters.closed().increment();
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.FORCED, true);
+        }
+
+        final long now = clock.millis();
+        final SlidingWindowCounter window = window(serviceName);
+        final double probability = window.rejectionProbability(now, k);
+        window.incrementRequests(now);
+
+        if(probability > 0.0 && ThreadLocalRandom.current().nextDouble() < probability) {
+            logger.debug("THROTTLED: Rejecting the request for service='{}' with probability {}", serviceName, probability);
+            meters.open().increment();
+            rejectedSignatures.offer(signature);
+            return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.THROTTLED, false);
+        }
+        meters.closed().increment();
+        return CircuitBreakerEvents.admission(admissionEventSampleRate, serviceName, methodName, AdmissionPath.THROTTLE_ADMITTED, true);
+    }
+
+    @Override
+    public void onSuccess(String serviceName, String methodName, String data) {
+        recordSuccess(serviceName);
+    }
+
+    @Override
+    public void onFailure(String serviceName, String methodName, String data) {
+        final String signature = CREATE_SIGNATURE.apply(methodName, data);
+        recordFailure(serviceName, signature, CallContext.hashOf(signature));
+    }
+
+    @Override
+    public void onOutcome(CallContext context, Outcome outcome) {
+        if(outcome.isSuccess())
+            recordSuccess(context.serviceName());
+        else
+            recordFailure(context.serviceName(), context.signature(), context.signatureHash());
+    }
+
+    private void recordSuccess(String serviceName) {
+        if(!enableCircuitBreaker)
+            return;
+        window(serviceName).incrementAccepts(clock.millis());
+        decrFailureCountForService(serviceName);
+    }
+
+    private void recordFailure(String serviceName, String signature, long signatureHash) {
+        if(!enableCircuitBreaker)
+            return;
+        failingSignatures.offer(signature);
+        signatureCardinality.offerFailure(serviceName, signatureHash);
+        memoryAccount.enforceBudget();
+        incrFailureCountForService(serviceName);
+    }
+
+    /**
+     * The current probability with which the requests to the service are rejected.
+     *
+     * @param serviceName the name of the service
+     * @return the rejection probability, between 0 and 1
+     */
+    public double getRejectionProbability(String serviceName) {
+        final SlidingWindowCounter window = windows.get(serviceName);
+        return window != null ? window.rejectionProbability(clock.millis(), k) : 0.0;
+    }
+
+    private SlidingWindowCounter window(String serviceName) {
+        return windows.computeIfAbsent(serviceName, name -> new SlidingWindowCounter(windowMillis, buckets));
+    }
+}
@@ -0,0 +1,71 @@
+package edu.research.scb.internal.throttling;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The requests and the accepts of a service over a sliding window, kept in a ring of time buckets of striped
+ * counters, so that the calling threads never contend on a single counter. The bucket of the current time is
+ * reset lazily by the first thread that finds it stale, and the buckets older than the window are left out of
+ * the sums.
+ */
+class SlidingWindowCounter {
+
+    private final Bucket[] buckets;
+    private final long bucketMillis;
+
+    SlidingWindowCounter(long windowMillis, int bucketCount) {
+        this.buckets = new Bucket[bucketCount];
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        for(int i = 0; i < bucketCount; i++)
+            buckets[i] = new Bucket();
+    }
+
+    void incrementRequests(long nowMillis) {
+        bucket(nowMillis).requests.increment();
+    }
+
+    void incrementAccepts(long nowMillis) {
+        bucket(nowMillis).accepts.increment();
+    }
+
+    /**
+     * The client request rejection probability over the window, summed in place on every request.
+     *
+     * @param nowMillis the current time
+     * @param k the multiplier of the accepts
+     * @return {@code max(0, (requests - k * accepts) / (requests + 1))} within the window
+     */
+    double rejectionProbability(long nowMillis, double k) {
+        final long epoch = nowMillis / bucketMillis;
+        long requests = 0;
+        long accepts = 0;
+        for(Bucket bucket : buckets) {
+            if(epoch - bucket.epoch < buckets.length) {
+                requests += bucket.requests.sum();
+                accepts += bucket.accepts.sum();
+            }
+        }
+        return Math.max(0.0, (requests - k * accepts) / (requests + 1));
+    }
+
+    private Bucket bucket(long nowMillis) {
+        final long epoch = nowMillis / bucketMillis;
+        final Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        if(bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if(bucket.epoch != epoch) {
+                    bucket.requests.reset();
+                    bucket.accepts.reset();
+                    bucket.epoch = epoch;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private static final class Bucket {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder accepts = new LongAdder();
+        private volatile long epoch = Long.MIN_VALUE / 2;
+    }
+}
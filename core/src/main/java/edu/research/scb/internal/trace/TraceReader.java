@@ -0,0 +1,81 @@
+package edu.research.scb.internal.trace;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+import static edu.research.scb.internal.trace.TraceRecorder.*;
+
+/**
+ * Reads a trace written by the {@link TraceRecorder}, from the oldest record still held by the ring to the newest.
+ */
+public class TraceReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long count;
+
+    public TraceReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+        if(channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("The file '" + file + "' is not a circuit breaker trace");
+        if(buffer.getInt(4) != VERSION || buffer.getInt(8) != RECORD_SIZE)
+            throw new IOException("The trace '" + file + "' is of an unsupported version " + buffer.getInt(4));
+
+        this.capacity = buffer.getInt(12);
+        this.count = buffer.getLong(COUNT_OFFSET);
+    }
+
+    /**
+     * @return the number of records held by the trace
+     */
+    public long size() {
+        return Math.min(count, capacity);
+    }
+
+    /**
+     * @return the number of records written to the trace, including the overwritten ones
+     */
+    public long getRecordedCount() {
+        return count;
+    }
+
+    /**
+     * @return the time of the oldest record held by the trace in microseconds since the epoch, or 0 if it is empty
+     */
+    public long getFirstEpochMicros() {
+        if(count == 0)
+            return 0;
+        final long first = count > capacity ? count - capacity : 0;
+        return buffer.getLong(HEADER_SIZE + (int) (first % capacity) * RECORD_SIZE);
+    }
+
+    /**
+     * Hands over the records in the order they were written.
+     *
+     * @param consumer the consumer of the records
+     */
+    public void forEach(Consumer<TraceRecord> consumer) {
+        final long first = count > capacity ? count - capacity : 0;
+        for(long seq = first; seq < count; seq++) {
+            final int offset = HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+            consumer.accept(new TraceRecord(
+                    buffer.getLong(offset),
+                    buffer.getLong(offset + 8),
+                    buffer.getLong(offset + 16),
+                    buffer.getInt(offset + 24),
+                    buffer.getInt(offset + 28)));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
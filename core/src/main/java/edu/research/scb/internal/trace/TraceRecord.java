@@ -0,0 +1,21 @@
+package edu.research.scb.internal.trace;
+
+/**
+ * A single recorded request outcome.
+ *
+ * @param epochMicros the time at which the request completed, in microseconds since the epoch
+ * @param serviceFingerprint the 64-bit fingerprint of the service name
+ * @param signatureFingerprint the 64-bit fingerprint of the request signature
+ * @param status the gRPC status code, or {@link TraceRecorder#REJECTED} if the circuit breaker rejected the request
+ * @param latencyMicros the latency of the request in microseconds
+ */
+public record TraceRecord(long epochMicros, long serviceFingerprint, long signatureFingerprint, int status, int latencyMicros) {
+
+    public boolean isRejected() {
+        return status == TraceRecorder.REJECTED;
+    }
+
+    public boolean isSuccess() {
+        return status == 0;
+    }
+}
@@ -0,0 +1,122 @@
+package edu.research.scb.internal.trace;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import edu.research.scb.internal.config.TraceProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the outcome of every request into a compact binary trace, to be replayed offline against any strategy
+ * and thresholds, see the {@code TraceReplay} of the module {@code benchmark}.
+ *
+ * <p>The trace is a ring buffer of fixed-size records, preallocated directly in a memory-mapped file, so that
+ * recording is only a claim of the next slot and a few absolute writes, with no copy and no system call. The pages
+ * are written back by the OS, and {@link #flush()} forces them. Once the ring is full, the oldest records are
+ * overwritten. The service names and the signatures are stored as their 64-bit fingerprints.
+ *
+ * <p>The file starts with a header of {@value #HEADER_SIZE} bytes : the magic, the version, the record size, the
+ * capacity in records and the number of records written so far, which is published every
+ * {@value #COUNT_PUBLISH_INTERVAL} records and on every flush.
+ */
+public class TraceRecorder implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(TraceRecorder.class);
+
+    // The status of the requests rejected by the circuit breaker, whose actual outcome is unknown.
+    public static final int REJECTED = -1;
+
+    static final int MAGIC = 0x53434254;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int RECORD_SIZE = 32;
+    static final int COUNT_OFFSET = 16;
+    static final int COUNT_PUBLISH_INTERVAL = 1024;
+
+    private static final HashFunction FINGERPRINT = Hashing.murmur3_128();
+
+    private final Path file;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicLong sequence;
+    private volatile boolean closed;
+
+    public TraceRecorder(TraceProperties properties) throws IOException {
+        this(Path.of(properties.getFile()), properties.getMaxRecords());
+    }
+
+    public TraceRecorder(Path file, int capacity) throws IOException {
+        if(capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE)
+            throw new IllegalArgumentException("The trace capacity must be within 1 and " + (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE + " records");
+
+        this.file = file;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        this.sequence = new AtomicLong(0);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putInt(12, capacity);
+        buffer.putLong(COUNT_OFFSET, 0);
+        logger.info("Recording the trace of the requests into '{}' with the capacity of {} records", file, capacity);
+    }
+
+    /**
+     * Records the outcome of a request.
+     *
+     * @param serviceName the name of the service
+     * @param signature the request signature
+     * @param status the gRPC status code, or {@link #REJECTED}
+     * @param latencyNanos the latency of the request in nanoseconds
+     */
+    public void record(String serviceName, String signature, int status, long latencyNanos) {
+        if(closed)
+            return;
+
+        final Instant now = Instant.now();
+        final long seq = sequence.getAndIncrement();
+        final int offset = HEADER_SIZE + (int) (seq % capacity) * RECORD_SIZE;
+        buffer.putLong(offset, TimeUnit.SECONDS.toMicros(now.getEpochSecond()) + now.getNano() / 1000);
+        buffer.putLong(offset + 8, fingerprint(serviceName));
+        buffer.putLong(offset + 16, fingerprint(signature));
+        buffer.putInt(offset + 24, status);
+        buffer.putInt(offset + 28, (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+
+        if((seq + 1) % COUNT_PUBLISH_INTERVAL == 0)
+            buffer.putLong(COUNT_OFFSET, seq + 1);
+    }
+
+    /**
+     * Publishes the number of records and forces the trace to the file.
+     */
+    public void flush() {
+        buffer.putLong(COUNT_OFFSET, sequence.get());
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        flush();
+        channel.close();
+        logger.info("Recorded {} requests into the trace '{}'", sequence.get(), file);
+    }
+
+    public static long fingerprint(String value) {
+        return value != null ? FINGERPRINT.hashString(value, StandardCharsets.UTF_8).asLong() : 0L;
+    }
+}
@@ -0,0 +1,139 @@
+package edu.research.scb.sdk;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.grpc.Deadline;
+
+/**
+ * The context of a single call, created once when its request is sent, and handed to every {@link CallPolicy} of the
+ * call for its admission and its {@link Outcome}, so that the request signature and its hash are computed only once per
+ * call, in place of once for the admission and once more for every outcome.
+ */
+public final class CallContext {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final String serviceName;
+    private final String methodName;
+    private final String data;
+    private final String signature;
+    private final long signatureHash;
+    private final Criticality criticality;
+    private final Deadline deadline;
+    private final long startNanos;
+
+    // The number of stages of a pipeline that were consulted for the admission, i.e. up to the one that rejected
+    // the call, which are the only ones the outcome is reported to.
+    int consultedStages;
+
+    private CallContext(String serviceName, String methodName, String data, Criticality criticality, Deadline deadline, long startNanos) {
+        this.serviceName = serviceName;
+        this.methodName = methodName;
+        this.data = data;
+        this.signature = signatureOf(methodName, data);
+        this.signatureHash = hashOf(signature);
+        this.criticality = criticality;
+        this.deadline = deadline;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Creates the context of a call that is starting now.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @param data the string content used to determine the request signature
+     * @param criticality the criticality of the request, or {@code null} for the default one
+     * @param deadline the deadline of the call, or {@code null} if it has none
+     * @return the call context
+     */
+    public static CallContext of(String serviceName, String methodName, String data, Criticality criticality, Deadline deadline) {
+        return new CallContext(serviceName, methodName, data, criticality, deadline, System.nanoTime());
+    }
+
+    /**
+     * Creates the context of a call without any criticality or deadline, as by the {@code String} methods of the
+     * {@link CircuitBreakerStrategy}.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @param data the string content used to determine the request signature
+     * @return the call context
+     */
+    public static CallContext of(String serviceName, String methodName, String data) {
+        return of(serviceName, methodName, data, null, null);
+    }
+
+    /**
+     * The signature of a request, i.e. the method name and the request data, each trimmed of the leading and
+     * trailing white-spaces, joined by a hyphen. If either of them is {@code null}, the signature is empty.
+     *
+     * @param methodName the name of the method
+     * @param data the string content used to determine the request signature
+     * @return the request signature
+     */
+    public static String signatureOf(String methodName, String data) {
+        if(methodName != null && data != null)
+            return String.join("-", methodName.trim(), data.trim());
+        return "";
+    }
+
+    /**
+     * The hash of a request signature, i.e. the 64 bit murmur3 hash of its characters, by which the signature is
+     * offered to the cardinality sketches.
+     *
+     * @param signature the request signature
+     * @return the hash of the signature
+     */
+    public static long hashOf(String signature) {
+        return HASH.hashUnencodedChars(signature).asLong();
+    }
+
+    public String serviceName() {
+        return serviceName;
+    }
+
+    public String methodName() {
+        return methodName;
+    }
+
+    public String data() {
+        return data;
+    }
+
+    public String signature() {
+        return signature;
+    }
+
+    /**
+     * @return the hash of the signature, as by {@link #hashOf(String)}
+     */
+    public long signatureHash() {
+        return signatureHash;
+    }
+
+    public Criticality criticality() {
+        return criticality;
+    }
+
+    public Deadline deadline() {
+        return deadline;
+    }
+
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return the nanoseconds elapsed since the call started
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "CallContext{service='" + serviceName + "', signature='" + signature + "', criticality=" + criticality +
+                ", deadline=" + deadline + "}";
+    }
+}
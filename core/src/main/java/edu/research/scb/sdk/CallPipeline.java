@@ -0,0 +1,79 @@
+package edu.research.scb.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An ordered chain of {@link CallPolicy} stages, which admits a call only if every stage admits it. The stages are
+ * consulted in order and the first one to reject the call ends the admission, so that the cheaper stages are best
+ * placed first. The outcome of the call is reported only to the stages that were consulted, up to and including the
+ * one that rejected it, so that the stages after it never see a call they did not admit, e.g. a limiter never
+ * releases a permit it did not acquire. The outcome of a call that was never admitted by the pipeline is reported to
+ * none of the stages.
+ *
+ * <pre>{@code
+ * CallPolicy policy = CallPipeline.of(concurrencyLimiter, bloomFilterStrategy);
+ * }</pre>
+ */
+public final class CallPipeline implements CallPolicy {
+
+    private final CallPolicy[] stages;
+
+    private CallPipeline(CallPolicy[] stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @param stages the stages, in the order they are consulted
+     * @return the pipeline, or the only stage itself if there is just one
+     */
+    public static CallPolicy of(CallPolicy... stages) {
+        if(stages.length == 0)
+            throw new IllegalArgumentException("A pipeline needs at least one stage");
+        if(stages.length == 1)
+            return stages[0];
+        // The nested pipelines are flattened, as the consulted stages of a call are tracked by a single pipeline.
+        final List<CallPolicy> flattened = new ArrayList<>();
+        for(CallPolicy stage : stages) {
+            if(stage instanceof CallPipeline pipeline)
+                flattened.addAll(Arrays.asList(pipeline.stages));
+            else
+                flattened.add(stage);
+        }
+        return new CallPipeline(flattened.toArray(new CallPolicy[0]));
+    }
+
+    /**
+     * @param stages the stages, in the order they are consulted
+     * @return the pipeline, or the only stage itself if there is just one
+     */
+    public static CallPolicy of(List<? extends CallPolicy> stages) {
+        return of(stages.toArray(new CallPolicy[0]));
+    }
+
+    @Override
+    public boolean admit(CallContext context) {
+        for(int i = 0; i < stages.length; i++) {
+            if(!stages[i].admit(context)) {
+                context.consultedStages = i + 1;
+                return false;
+            }
+        }
+        context.consultedStages = stages.length;
+        return true;
+    }
+
+    @Override
+    public void onOutcome(CallContext context, Outcome outcome) {
+        // A call that was never admitted by the pipeline consulted none of its stages.
+        final int consulted = context.consultedStages;
+        for(int i = 0; i < consulted; i++)
+            stages[i].onOutcome(context, outcome);
+    }
+
+    @Override
+    public String toString() {
+        return "CallPipeline" + List.of(stages);
+    }
+}
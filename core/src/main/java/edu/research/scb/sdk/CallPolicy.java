@@ -0,0 +1,26 @@
+package edu.research.scb.sdk;
+
+/**
+ * A stage deciding the admission of the calls and learning from their outcomes, e.g. a circuit breaker strategy or a
+ * concurrency limiter, which are chained in order by a {@link CallPipeline}.
+ *
+ * <p>Every {@link CircuitBreakerStrategy} is a policy as well, through its {@code String} methods.
+ */
+public interface CallPolicy {
+
+    /**
+     * Determines if the call should be allowed to be sent to the server.
+     *
+     * @param context the context of the call
+     * @return {@code true} if the call can be sent.
+     */
+    boolean admit(CallContext context);
+
+    /**
+     * Records the outcome of a call this policy was consulted for, whether or not it was admitted.
+     *
+     * @param context the context of the call
+     * @param outcome the outcome of the call
+     */
+    void onOutcome(CallContext context, Outcome outcome);
+}
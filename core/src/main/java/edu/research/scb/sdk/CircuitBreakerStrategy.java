@@ -1,6 +1,12 @@
 package edu.research.scb.sdk;
 
-public interface CircuitBreakerStrategy {
+/**
+ * The circuit breaker strategy, whose {@code String} methods are adapted to the {@link CallPolicy} of the calls, so
+ * that any strategy can be a stage of a {@link CallPipeline}. The built-in strategies implement the {@code CallPolicy}
+ * methods directly on the signature precomputed by the {@link CallContext}, and the {@code String} methods adapt to
+ * them in turn.
+ */
+public interface CircuitBreakerStrategy extends CallPolicy {
 
     /**
      * Determines if the client request should be allowed to be sent to the server, based on the
@@ -13,6 +19,21 @@ public interface CircuitBreakerStrategy {
      */
     boolean allowRequest(String serviceName, String methodName, String data);
 
+    /**
+     * Determines if the client request should be allowed to be sent to the server, taking into account the
+     * criticality of the request while the circuit of the service is open. The strategies that do not admit the
+     * requests by their criticality ignore it.
+     *
+     * @param serviceName the name of the service
+     * @param methodName the name of the method
+     * @param data the string content used to determine the request signature
+     * @param criticality the criticality of the request, or {@code null} for the default one
+     * @return {@code true} if request can be sent.
+     */
+    default boolean allowRequest(String serviceName, String methodName, String data, Criticality criticality) {
+        return allowRequest(serviceName, methodName, data);
+    }
+
     /**
      * Updates the circuit breaker to move to <i>half-open</i> or <i>closed</i> state when the
      * request succeeds
@@ -31,4 +52,29 @@ public interface CircuitBreakerStrategy {
      * @param data the string content used to determine the request signature
      */
     void onFailure(String serviceName, String methodName, String data);
+
+    /**
+     * Determines if the call should be allowed to be sent to the server, by the {@code String} method above.
+     *
+     * @param context the context of the call
+     * @return {@code true} if the call can be sent.
+     */
+    @Override
+    default boolean admit(CallContext context) {
+        return allowRequest(context.serviceName(), context.methodName(), context.data(), context.criticality());
+    }
+
+    /**
+     * Records the outcome of the call as a success or a failure, by the {@code String} methods above.
+     *
+     * @param context the context of the call
+     * @param outcome the outcome of the call
+     */
+    @Override
+    default void onOutcome(CallContext context, Outcome outcome) {
+        if(outcome.isSuccess())
+            onSuccess(context.serviceName(), context.methodName(), context.data());
+        else
+            onFailure(context.serviceName(), context.methodName(), context.data());
+    }
 }
@@ -0,0 +1,66 @@
+package edu.research.scb.sdk;
+
+import io.grpc.CallOptions;
+import io.grpc.Metadata;
+
+import java.util.Locale;
+
+/**
+ * The criticality of a request, which decides the order in which the requests are shed while the circuit of their
+ * service is open, from the most critical ones that are admitted first, to the sheddable ones that are shed first.
+ *
+ * <p>The criticality is given per call either by the {@link #CALL_OPTION} key, e.g.
+ * {@code stub.withOption(Criticality.CALL_OPTION, Criticality.SHEDDABLE)}, or by the {@link #HEADER} of the request
+ * metadata, which is also how it is propagated to the servers. The call option takes precedence over the header.
+ */
+public enum Criticality {
+
+    // The requests whose failure is visible to the users, and for which there is no fallback, e.g. the checkout.
+    CRITICAL_PLUS,
+
+    // The requests whose failure is visible to the users, but may be retried or degraded.
+    CRITICAL,
+
+    // The requests whose failure is tolerated, e.g. the batch jobs, which are retried later.
+    SHEDDABLE_PLUS,
+
+    // The requests that are not expected to always succeed, e.g. the prefetches.
+    SHEDDABLE;
+
+    public static final CallOptions.Key<Criticality> CALL_OPTION = CallOptions.Key.create("smart-circuit-breaker-criticality");
+
+    // The name of the request header carrying the criticality of the request.
+    public static final String HEADER_NAME = "x-smart-circuit-breaker-criticality";
+
+    public static final Metadata.Key<String> HEADER = Metadata.Key.of(HEADER_NAME, Metadata.ASCII_STRING_MARSHALLER);
+
+    /**
+     * Parses the criticality of the header, ignoring the case.
+     *
+     * @param value the value of the header
+     * @return the criticality, or {@code null} if the value is missing or unknown
+     */
+    public static Criticality parse(String value) {
+        if(value == null)
+            return null;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The criticality of a call, from its call options or else from its request metadata.
+     *
+     * @param callOptions the call options
+     * @param headers the request metadata, may be {@code null}
+     * @return the criticality, or {@code null} if none is given
+     */
+    public static Criticality of(CallOptions callOptions, Metadata headers) {
+        final Criticality criticality = callOptions.getOption(CALL_OPTION);
+        if(criticality != null || headers == null)
+            return criticality;
+        return parse(headers.get(HEADER));
+    }
+}
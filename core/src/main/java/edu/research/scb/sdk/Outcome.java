@@ -0,0 +1,36 @@
+package edu.research.scb.sdk;
+
+import io.grpc.CallOptions;
+import io.grpc.Status;
+
+/**
+ * The outcome of a call, reported to the {@link CallPolicy} once the call is closed.
+ *
+ * @param status the status code the call was closed with
+ * @param latencyNanos the nanoseconds from sending the request till the call was closed
+ * @param attempt the attempt of the call, starting with 1, as given by the {@link #ATTEMPT_CALL_OPTION}
+ */
+public record Outcome(Status.Code status, long latencyNanos, int attempt) {
+
+    /**
+     * The attempt of a call, set by the retries on the call options of every further attempt, e.g.
+     * {@code stub.withOption(Outcome.ATTEMPT_CALL_OPTION, 2)}. The first attempt needs none.
+     */
+    public static final CallOptions.Key<Integer> ATTEMPT_CALL_OPTION = CallOptions.Key.createWithDefault("smart-circuit-breaker-attempt", 1);
+
+    /**
+     * The outcome of a call closed now.
+     *
+     * @param context the context of the call
+     * @param status the status code the call was closed with
+     * @param attempt the attempt of the call
+     * @return the outcome
+     */
+    public static Outcome of(CallContext context, Status.Code status, int attempt) {
+        return new Outcome(status, context.elapsedNanos(), attempt);
+    }
+
+    public boolean isSuccess() {
+        return status == Status.Code.OK;
+    }
+}
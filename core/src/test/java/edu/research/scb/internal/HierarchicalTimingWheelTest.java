@@ -0,0 +1,101 @@
+package edu.research.scb.internal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void expiresTheItemsOnTheirDeadline() {
+        final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        wheel.schedule("soon", 3 * TICK);
+        wheel.schedule("later", 100 * TICK);
+        wheel.schedule("much-later", 5_000 * TICK);
+        assertEquals(3, wheel.size());
+
+        final List<String> expired = new ArrayList<>();
+        wheel.advance(2 * TICK, expired::add);
+        assertEquals(List.of(), expired);
+        wheel.advance(3 * TICK, expired::add);
+        assertEquals(List.of("soon"), expired);
+        wheel.advance(99 * TICK, expired::add);
+        assertEquals(List.of("soon"), expired);
+        wheel.advance(100 * TICK, expired::add);
+        assertEquals(List.of("soon", "later"), expired);
+        wheel.advance(4_999 * TICK, expired::add);
+        assertEquals(2, expired.size());
+        wheel.advance(5_000 * TICK, expired::add);
+        assertEquals(List.of("soon", "later", "much-later"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pollsTheItemWithTheNearestDeadline() {
+        final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        wheel.schedule("far", 1_000 * TICK);
+        wheel.schedule("near", 10 * TICK);
+        wheel.schedule("middle", 70 * TICK);
+
+        assertEquals("near", wheel.pollEarliest());
+        assertEquals("middle", wheel.pollEarliest());
+        assertEquals("far", wheel.pollEarliest());
+        assertNull(wheel.pollEarliest());
+    }
+
+    @Test
+    void boundsTheItemsExpiredByAnAdvance() {
+        final HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        final int items = HierarchicalTimingWheel.MAX_EXPIRED_PER_ADVANCE * 3;
+        for(int i = 0; i < items; i++)
+            wheel.schedule(i, (1 + i % 10) * TICK);
+
+        final List<Integer> expired = new ArrayList<>();
+        wheel.advance(10 * TICK, expired::add);
+        assertTrue(expired.size() < items);
+        assertTrue(expired.size() <= HierarchicalTimingWheel.MAX_EXPIRED_PER_ADVANCE + items / 10);
+        while(expired.size() < items) {
+            final int before = expired.size();
+            wheel.advance(10 * TICK, expired::add);
+            assertTrue(expired.size() > before);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void neverWaitsOnTheThreadAdvancingTheWheel() throws Exception {
+        final HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        wheel.schedule("first", TICK);
+
+        final List<String> expired = new ArrayList<>();
+        final List<String> polled = new ArrayList<>();
+        wheel.advance(TICK, item -> {
+            // Another thread schedules and polls while the wheel is held by this one.
+            final Thread other = new Thread(() -> {
+                wheel.schedule("second", TICK);
+                polled.add(String.valueOf(wheel.pollEarliest()));
+            });
+            other.start();
+            try {
+                other.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(other.isAlive());
+            expired.add(item);
+        });
+        assertEquals(List.of("first"), expired);
+        assertEquals(List.of("null"), polled);
+
+        // The item scheduled meanwhile is placed on the wheel by the next advance.
+        assertEquals(1, wheel.size());
+        wheel.advance(2 * TICK, expired::add);
+        assertEquals(List.of("first", "second"), expired);
+    }
+}
@@ -0,0 +1,239 @@
+package edu.research.scb.internal;
+
+import edu.research.scb.internal.cache.StaleResponseCache;
+import edu.research.scb.internal.config.StaleResponseCacheProperties;
+import edu.research.scb.sdk.CallContext;
+import edu.research.scb.sdk.CallPolicy;
+import edu.research.scb.sdk.Outcome;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Serves the stale responses through an in-process server and channel, where the circuit is opened by a fake policy,
+ * and the calls underneath the circuit breaker are recorded by an interceptor of their own.
+ */
+class SmartCircuitBreakerTest {
+
+    private static final MethodDescriptor<String, String> METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("media.MediaStreamService/SearchByTitle")
+            .setRequestMarshaller(new StringMarshaller())
+            .setResponseMarshaller(new StringMarshaller())
+            .build();
+
+    private final FakePolicy policy = new FakePolicy();
+    private final UnderlyingCalls underlying = new UnderlyingCalls();
+    private final AtomicInteger invocations = new AtomicInteger();
+    private Server server;
+    private ManagedChannel channel;
+    private Channel intercepted;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(ServerServiceDefinition.builder("media.MediaStreamService")
+                        .addMethod(METHOD, ServerCalls.asyncUnaryCall((request, observer) -> {
+                            invocations.incrementAndGet();
+                            if(request.startsWith("broken")) {
+                                observer.onError(Status.UNAVAILABLE.asRuntimeException());
+                                return;
+                            }
+                            observer.onNext("found " + request);
+                            observer.onCompleted();
+                        }))
+                        .build())
+                .build().start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+
+        final StaleResponseCacheProperties properties = new StaleResponseCacheProperties();
+        properties.setEnabled(true);
+        properties.setMethods(List.of(METHOD.getFullMethodName()));
+        final StaleResponseCache cache = new StaleResponseCache(properties, new SimpleMeterRegistry());
+        // The last interceptor is the first one to intercept the calls.
+        intercepted = ClientInterceptors.intercept(channel, underlying, new SmartCircuitBreaker(policy, null, cache, null, null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    @Test
+    void servesTheCachedResponseWhileTheCircuitIsOpen() {
+        assertEquals("found title", ClientCalls.blockingUnaryCall(intercepted, METHOD, CallOptions.DEFAULT, "title"));
+        assertEquals(List.of(Status.Code.OK), policy.outcomes);
+
+        policy.open = true;
+        final RecordingListener listener = call("title");
+        assertEquals("found title", listener.message);
+        assertEquals("true", listener.headers.get(StaleResponseCache.STALE_RESPONSE_HEADER));
+        assertEquals(Status.Code.OK, listener.status.getCode());
+        assertEquals(1, listener.closed);
+
+        // Nothing is sent on the underlying call, which is cancelled, and the stale response is no outcome.
+        assertEquals(1, invocations.get());
+        assertEquals(2, underlying.calls.size());
+        assertNull(underlying.calls.get(0).cancelled);
+        assertEquals("Served a stale response as the circuit is open", underlying.calls.get(1).cancelled);
+        assertEquals(0, underlying.calls.get(1).sent);
+        assertEquals(List.of(Status.Code.OK), policy.outcomes);
+    }
+
+    @Test
+    void rejectsTheCallsWithoutACachedResponse() {
+        final StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                () -> ClientCalls.blockingUnaryCall(intercepted, METHOD, CallOptions.DEFAULT, "broken title"));
+        assertEquals(Status.Code.UNAVAILABLE, e.getStatus().getCode());
+
+        // The failed response is never cached, and neither is any response of the other signatures.
+        policy.open = true;
+        assertThrows(ServiceInvocationNotPermittedException.class, () -> call("broken title"));
+        assertThrows(ServiceInvocationNotPermittedException.class, () -> call("another title"));
+        assertEquals(1, invocations.get());
+    }
+
+    @Test
+    void servesTheResponseOfTheSameSignatureOnly() {
+        ClientCalls.blockingUnaryCall(intercepted, METHOD, CallOptions.DEFAULT, "title");
+        ClientCalls.blockingUnaryCall(intercepted, METHOD, CallOptions.DEFAULT, "another title");
+
+        policy.open = true;
+        assertEquals("found another title", call("another title").message);
+        assertEquals("found title", call("title").message);
+        assertEquals(2, invocations.get());
+    }
+
+    // Starts a call with a listener of its own, so that the headers of the stale response are kept.
+    private RecordingListener call(String request) {
+        final RecordingListener listener = new RecordingListener();
+        final ClientCall<String, String> call = intercepted.newCall(METHOD, CallOptions.DEFAULT);
+        call.start(listener, new Metadata());
+        call.request(1);
+        call.sendMessage(request);
+        call.halfClose();
+        return listener;
+    }
+
+    private static final class FakePolicy implements CallPolicy {
+
+        private final List<Status.Code> outcomes = new ArrayList<>();
+        private volatile boolean open;
+
+        @Override
+        public boolean admit(CallContext context) {
+            return !open;
+        }
+
+        @Override
+        public void onOutcome(CallContext context, Outcome outcome) {
+            outcomes.add(outcome.status());
+        }
+    }
+
+    private static final class UnderlyingCalls implements ClientInterceptor {
+
+        private final List<UnderlyingCall<?, ?>> calls = new ArrayList<>();
+
+        @Override
+        public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+            final UnderlyingCall<ReqT, RespT> call = new UnderlyingCall<>(next.newCall(method, callOptions));
+            calls.add(call);
+            return call;
+        }
+    }
+
+    private static final class UnderlyingCall<ReqT, RespT> extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+        private String cancelled;
+        private int sent;
+
+        private UnderlyingCall(ClientCall<ReqT, RespT> delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public void sendMessage(ReqT message) {
+            sent++;
+            super.sendMessage(message);
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+            cancelled = message;
+            super.cancel(message, cause);
+        }
+    }
+
+    private static final class RecordingListener extends ClientCall.Listener<String> {
+
+        private Metadata headers;
+        private String message;
+        private Status status;
+        private int closed;
+
+        @Override
+        public void onHeaders(Metadata headers) {
+            this.headers = headers;
+        }
+
+        @Override
+        public void onMessage(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            this.status = status;
+            closed++;
+        }
+    }
+
+    private static final class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
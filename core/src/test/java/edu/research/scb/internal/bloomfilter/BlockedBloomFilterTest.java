@@ -0,0 +1,57 @@
+package edu.research.scb.internal.bloomfilter;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockedBloomFilterTest {
+
+    private static final int CAPACITY = 1000;
+    private static final int PROBES = 100000;
+
+    @Test
+    void neverMissesASignatureOncePut() {
+        final BlockedBloomFilter filter = new BlockedBloomFilter(StandardCharsets.UTF_8, CAPACITY, 0.05);
+        // A signature put may change no bit, if it is a false positive already.
+        for(int i = 0; i < CAPACITY; i++)
+            filter.put(signature(i));
+        for(int i = 0; i < CAPACITY; i++)
+            assertTrue(filter.mightContain(signature(i)), signature(i));
+
+        // Putting a signature again never changes a bit.
+        assertFalse(filter.put(signature(0)));
+        assertEquals(CAPACITY, filter.approximateElementCount(), CAPACITY * 0.1);
+    }
+
+    @Test
+    void measuredFppIsWithinTheDesiredOne() {
+        for(double fpp : new double[] { 0.05, 0.01 }) {
+            final BlockedBloomFilter filter = new BlockedBloomFilter(StandardCharsets.UTF_8, CAPACITY, fpp);
+            for(int i = 0; i < CAPACITY; i++)
+                filter.put(signature(i));
+
+            int falsePositives = 0;
+            for(int i = CAPACITY; i < CAPACITY + PROBES; i++) {
+                if(filter.mightContain(signature(i)))
+                    falsePositives++;
+            }
+            final double measured = (double) falsePositives / PROBES;
+            // The filter is sized for the desired fpp at its capacity, and its own estimate is of the same load.
+            assertTrue(measured <= fpp * 1.25, () -> "The measured fpp " + measured + " is above " + fpp);
+            assertEquals(filter.expectedFpp(), measured, fpp * 0.5, "fpp " + fpp);
+        }
+    }
+
+    @Test
+    void refusesTheInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(StandardCharsets.UTF_8, 0, 0.05));
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(StandardCharsets.UTF_8, CAPACITY, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BlockedBloomFilter(StandardCharsets.UTF_8, CAPACITY, 1));
+    }
+
+    private static String signature(int i) {
+        return "media.MediaStreamService/SearchByTitle-title: " + i;
+    }
+}
@@ -0,0 +1,84 @@
+package edu.research.scb.internal.bloomfilter;
+
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.CircuitThresholds;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterCircuitBreakerStrategyTest {
+
+    private static final String SERVICE = "media.MediaStreamService";
+    private static final String METHOD = "media.MediaStreamService/SearchByTitle";
+    private static final String POISON = "title: \"poison\"";
+    private static final long WAIT_SECONDS = 5;
+
+    private final TestClock clock = new TestClock();
+
+    @Test
+    void failedHalfOpenProbeOpensTheCircuitAgain() {
+        final BloomFilterCircuitBreakerStrategy strategy = strategy();
+        // transient + failure thresholds, and one more to open the circuit.
+        for(int i = 0; i < 7; i++) {
+            if(strategy.allowRequest(SERVICE, METHOD, POISON))
+                strategy.onFailure(SERVICE, METHOD, POISON);
+        }
+        assertFalse(strategy.allowRequest(SERVICE, METHOD, POISON));
+
+        // HALF-OPEN : a single probe is let through once the open wait elapsed, and fails.
+        clock.advanceSeconds(WAIT_SECONDS + 1);
+        assertTrue(strategy.allowRequest(SERVICE, METHOD, POISON));
+        strategy.onFailure(SERVICE, METHOD, POISON);
+        assertFalse(strategy.allowRequest(SERVICE, METHOD, POISON));
+    }
+
+    @Test
+    void storeOutlivesTheOpenWait() {
+        assertEquals(2 * WAIT_SECONDS, BloomFilterCircuitBreakerStrategy.storeTtlSeconds(null, WAIT_SECONDS));
+        assertEquals(60, BloomFilterCircuitBreakerStrategy.storeTtlSeconds(60L, WAIT_SECONDS));
+        assertEquals(WAIT_SECONDS + 1, BloomFilterCircuitBreakerStrategy.storeTtlSeconds(WAIT_SECONDS, WAIT_SECONDS));
+        assertEquals(1, BloomFilterCircuitBreakerStrategy.storeTtlSeconds(null, 0));
+    }
+
+    private BloomFilterCircuitBreakerStrategy strategy() {
+        final CircuitThresholds thresholds = new CircuitThresholds();
+        thresholds.setOpenStateWaitDurationInSeconds(WAIT_SECONDS);
+        // The service is never opened as a whole, for the circuit of the signature alone to be evaluated.
+        thresholds.setServiceFailureRateThreshold(100.0);
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(BLOOM_FILTER_STRATEGY);
+        properties.setThresholds(thresholds);
+        return new BloomFilterCircuitBreakerStrategy(properties, new SimpleMeterRegistry(), clock);
+    }
+
+    private static final class TestClock extends Clock {
+
+        private volatile Instant instant = Instant.parse("2000-01-01T00:00:00Z");
+
+        void advanceSeconds(long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package edu.research.scb.internal.bloomfilter;
+
+import edu.research.scb.internal.RequestMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashStoreAdapterTest {
+
+    private static final long TTL_SECONDS = 60;
+
+    private final TestClock clock = new TestClock();
+    private final List<HashStoreAdapter.EvictionCause> evictions = new ArrayList<>();
+
+    @Test
+    void concurrentFirstFailuresShareOneScheduledEntry() {
+        final HashStoreAdapter store = store(100);
+
+        // Both first failures obtain the entry before either one puts it back, as with a burst of identical requests.
+        final RequestMetrics first = store.getOrCreate("signature");
+        final RequestMetrics second = store.getOrCreate("signature");
+        assertSame(first, second);
+        store.put("signature", first);
+        store.put("signature", second);
+
+        clock.advanceSeconds(TTL_SECONDS + 1);
+        store.expire();
+        assertFalse(store.containsKey("signature"));
+        assertEquals(List.of(HashStoreAdapter.EvictionCause.EXPIRED), evictions);
+    }
+
+    @Test
+    void everyEntryInsertedByConcurrentThreadsExpires() throws Exception {
+        final HashStoreAdapter store = store(100_000);
+        final int threads = 8;
+        final int signatures = 2_000;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    for(int s = 0; s < signatures; s++) {
+                        final RequestMetrics rm = store.getOrCreate("signature-" + s);
+                        rm.incTransientFaultCount();
+                        store.put("signature-" + s, rm);
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(signatures, store.size());
+        assertEquals(signatures * threads, store.stream().mapToInt(RequestMetrics::getTransientFaultCount).sum());
+
+        clock.advanceSeconds(TTL_SECONDS + 1);
+        store.expire();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void evictsTheNearestExpiryAboveTheBudget() {
+        final HashStoreAdapter store = store(2);
+        store.getOrCreate("first");
+        clock.advanceSeconds(1);
+        store.getOrCreate("second");
+        clock.advanceSeconds(1);
+        store.getOrCreate("third");
+
+        assertEquals(2, store.size());
+        assertFalse(store.containsKey("first"));
+        assertEquals(List.of(HashStoreAdapter.EvictionCause.CAPACITY), evictions);
+    }
+
+    @Test
+    void reschedulesAnEntryFailingAgainBeforeItsExpiry() {
+        final HashStoreAdapter store = store(100);
+        final RequestMetrics rm = store.getOrCreate("signature");
+        clock.advanceSeconds(TTL_SECONDS / 2);
+        rm.updateLastFailureTimestamp(clock.now());
+
+        clock.advanceSeconds(TTL_SECONDS / 2 + 1);
+        store.expire();
+        assertTrue(store.containsKey("signature"));
+
+        clock.advanceSeconds(TTL_SECONDS / 2);
+        store.expire();
+        assertFalse(store.containsKey("signature"));
+    }
+
+    private HashStoreAdapter store(int capacity) {
+        final AtomicReference<Generation> generation = new AtomicReference<>(
+                new Generation(null, new ConcurrentHashMap<>(), new ConcurrentLinkedQueue<>()));
+        return new HashStoreAdapter(generation, capacity, () -> TTL_SECONDS, clock, (rm, cause) -> evictions.add(cause));
+    }
+
+    // A clock moved by the test only.
+    private static final class TestClock extends Clock {
+
+        private volatile Instant instant = Instant.parse("2000-01-01T00:00:00Z");
+
+        void advanceSeconds(long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        LocalDateTime now() {
+            return LocalDateTime.now(this);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
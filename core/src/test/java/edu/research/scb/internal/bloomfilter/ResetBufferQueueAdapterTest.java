@@ -0,0 +1,70 @@
+package edu.research.scb.internal.bloomfilter;
+
+import edu.research.scb.internal.RequestMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResetBufferQueueAdapterTest {
+
+    private final AtomicReference<Generation> generation = new AtomicReference<>(new Generation(
+            SignatureFilter.create(DEFAULT_BLOOM_FILTER_BACKEND, StandardCharsets.US_ASCII, 1000, 0.01),
+            new ConcurrentHashMap<>(), new ConcurrentLinkedQueue<>()));
+    private final ResetBufferQueueAdapter resetQueue = new ResetBufferQueueAdapter(generation);
+
+    @Test
+    void queuesAnEntryOnlyOnce() {
+        final RequestMetrics rm = new RequestMetrics("signature", LocalDateTime.now());
+        resetQueue.add(rm);
+        resetQueue.add(rm);
+        assertEquals(1, resetQueue.size());
+        assertEquals(1, generation.get().resetQueue().size());
+        assertEquals(DEFAULT_ESTIMATED_RESET_QUEUE_ENTRY_SIZE_IN_BYTES, resetQueue.getEstimatedSizeInBytes());
+
+        assertSame(rm, resetQueue.poll(generation.get()));
+        assertEquals(0, resetQueue.size());
+        assertNull(resetQueue.poll(generation.get()));
+
+        // Taken out of the queue, the entry can be queued again.
+        resetQueue.add(rm);
+        assertEquals(1, resetQueue.size());
+    }
+
+    @Test
+    void entriesEvictedForTheBudgetAreQueuedAndDroppedFromTheFilter() {
+        final BloomFilterAdapter bloomFilter = new BloomFilterAdapter(generation, DEFAULT_BLOOM_FILTER_BACKEND,
+                StandardCharsets.US_ASCII, () -> 1000, 0.01);
+        final HashStoreAdapter store = new HashStoreAdapter(generation, 100, () -> 60, Clock.systemUTC(),
+                (rm, cause) -> resetQueue.add(rm));
+        final BloomFilterFinalizer finalizer = new BloomFilterFinalizer(generation, resetQueue, bloomFilter, 100, 80.0, 2.0,
+                new SimpleMeterRegistry());
+        for(String signature : new String[]{"first", "second", "third"}) {
+            final RequestMetrics rm = store.getOrCreate(signature);
+            rm.incFailureCount();
+            bloomFilter.put(signature);
+        }
+
+        final long freed = store.evictForBudget(DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES);
+        assertEquals(DEFAULT_ESTIMATED_STORE_ENTRY_SIZE_IN_BYTES, freed);
+        assertEquals(2, store.size());
+        // The evicted entry is held by the queue, and accounted for, till the finalizer runs.
+        assertEquals(1, resetQueue.size());
+        final String evicted = generation.get().resetQueue().peek().getData();
+        assertFalse(store.containsKey(evicted));
+
+        finalizer.runFinalizerNow();
+        assertEquals(0, resetQueue.size());
+        assertEquals(0, resetQueue.getEstimatedSizeInBytes());
+        assertFalse(bloomFilter.mightContain(evicted));
+        store.stream().forEach(rm -> assertTrue(bloomFilter.mightContain(rm.getData())));
+    }
+}
@@ -0,0 +1,88 @@
+package edu.research.scb.internal.bloomfilter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedCircuitStateTest {
+
+    private static final int CAPACITY = 1 << 10;
+    private static final double FPP = 0.01;
+    private static final long NOW = 1_700_000_000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void failuresRecordedByOneMappingAreSeenByTheOther() throws Exception {
+        final Path file = directory.resolve("circuits.state");
+        try(SharedCircuitState first = new SharedCircuitState(file, CAPACITY, FPP);
+            SharedCircuitState second = new SharedCircuitState(file, CAPACITY, FPP)) {
+            for(int i = 0; i < 3; i++)
+                assertTrue(first.recordFailure("poison", Integer.MAX_VALUE, 60, NOW));
+            for(int i = 0; i < 2; i++)
+                assertTrue(second.recordFailure("poison", Integer.MAX_VALUE, 60, NOW));
+
+            assertEquals(5, first.getFailureCount("poison"));
+            assertEquals(5, second.getFailureCount("poison"));
+            assertTrue(second.isOpen("poison", 4, 30, NOW + 10));
+            assertFalse(second.isOpen("healthy", 0, 30, NOW + 10));
+
+            first.recordSuccess("poison");
+            assertEquals(4, second.getFailureCount("poison"));
+            assertFalse(second.isOpen("poison", 4, 30, NOW + 10));
+        }
+
+        // The state outlives the mappings, till the file is removed.
+        try(SharedCircuitState reopened = new SharedCircuitState(file, CAPACITY, FPP)) {
+            assertEquals(4, reopened.getFailureCount("poison"));
+        }
+    }
+
+    @Test
+    void mappingsOfTheSameJvmAreOpenedConcurrently() throws Exception {
+        final Path file = directory.resolve("circuits.state");
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<SharedCircuitState>> opened = new ArrayList<>();
+        try {
+            for(int i = 0; i < 8; i++)
+                opened.add(executor.submit(() -> new SharedCircuitState(file, CAPACITY, FPP)));
+            for(Future<SharedCircuitState> future : opened) {
+                try(SharedCircuitState state = future.get(30, TimeUnit.SECONDS)) {
+                    state.recordFailure("poison", Integer.MAX_VALUE, 60, NOW);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        try(SharedCircuitState state = new SharedCircuitState(file, CAPACITY, FPP)) {
+            assertEquals(8, state.getFailureCount("poison"));
+        }
+    }
+
+    @Test
+    void fileOfAnotherCapacityIsRejected() throws Exception {
+        final Path file = directory.resolve("circuits.state");
+        new SharedCircuitState(file, CAPACITY, FPP).close();
+        assertThrows(IllegalStateException.class, () -> new SharedCircuitState(file, CAPACITY * 2, FPP));
+        // The file is left as it is, and can still be opened with its own capacity.
+        new SharedCircuitState(file, CAPACITY, FPP).close();
+    }
+
+    @Test
+    void stateBeyondASingleMappedBufferIsRejected() {
+        final Path file = directory.resolve("circuits.state");
+        assertThrows(IllegalArgumentException.class, () -> new SharedCircuitState(file, 1 << 26, 1e-300));
+        assertFalse(Files.exists(file));
+    }
+}
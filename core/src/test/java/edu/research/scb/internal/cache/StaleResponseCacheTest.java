@@ -0,0 +1,78 @@
+package edu.research.scb.internal.cache;
+
+import edu.research.scb.internal.config.StaleResponseCacheProperties;
+import io.grpc.MethodDescriptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaleResponseCacheTest {
+
+    private static final MethodDescriptor<String, String> SEARCH = method("media.MediaStreamService/SearchByTitle", MethodDescriptor.MethodType.UNARY);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void cachesTheUnaryMethodsListedOnly() {
+        final StaleResponseCache cache = cache(true);
+        assertTrue(cache.isEnabled(SEARCH));
+        assertFalse(cache.isEnabled(method("media.MediaStreamService/Upload", MethodDescriptor.MethodType.UNARY)));
+        assertFalse(cache.isEnabled(method(SEARCH.getFullMethodName(), MethodDescriptor.MethodType.SERVER_STREAMING)));
+        assertFalse(cache(false).isEnabled(SEARCH));
+    }
+
+    @Test
+    void servesTheLastResponseOfTheSignature() {
+        final StaleResponseCache cache = cache(true);
+        assertNull(cache.get("title", SEARCH));
+
+        cache.put("title", SEARCH, "first");
+        cache.put("title", SEARCH, "second");
+        assertEquals("second", cache.get("title", SEARCH));
+        assertNull(cache.get("another title", SEARCH));
+        assertEquals(1.0, registry.get(METRIC_STALE_RESPONSE_SERVED_COUNTER_NAME).counter().count());
+        assertEquals("true", StaleResponseCache.staleResponseHeaders().get(StaleResponseCache.STALE_RESPONSE_HEADER));
+    }
+
+    private StaleResponseCache cache(boolean enabled) {
+        final StaleResponseCacheProperties properties = new StaleResponseCacheProperties();
+        properties.setEnabled(enabled);
+        properties.setMethods(List.of(SEARCH.getFullMethodName()));
+        return new StaleResponseCache(properties, registry);
+    }
+
+    private static MethodDescriptor<String, String> method(String name, MethodDescriptor.MethodType type) {
+        return MethodDescriptor.<String, String>newBuilder()
+                .setType(type)
+                .setFullMethodName(name)
+                .setRequestMarshaller(new StringMarshaller())
+                .setResponseMarshaller(new StringMarshaller())
+                .build();
+    }
+
+    private static final class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
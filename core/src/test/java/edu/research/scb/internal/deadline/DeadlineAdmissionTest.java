@@ -0,0 +1,77 @@
+package edu.research.scb.internal.deadline;
+
+import edu.research.scb.internal.config.DeadlineProperties;
+import io.grpc.Deadline;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineAdmissionTest {
+
+    private static final String SERVICE = "media.MediaStreamService";
+    private static final String METHOD = "media.MediaStreamService/SearchByTitle";
+
+    private AtomicLong nanos;
+    private DeadlineAdmission admission;
+
+    @BeforeEach
+    void setUp() {
+        final DeadlineProperties properties = new DeadlineProperties();
+        properties.setEnabled(true);
+        properties.setQuantile(0.5);
+        properties.setMinimumSamples(20);
+        properties.setDecayIntervalMillis(TimeUnit.HOURS.toMillis(1));
+        nanos = new AtomicLong();
+        admission = new DeadlineAdmission(properties, new SimpleMeterRegistry(), nanos::get);
+    }
+
+    @Test
+    void rejectsShortDeadlinesOnceEveryCallTimesOut() {
+        // The method slowed down, and every call runs out of its deadline of 100 ms.
+        for(int i = 0; i < 20; i++)
+            admission.record(METHOD, Status.Code.DEADLINE_EXCEEDED, TimeUnit.MILLISECONDS.toNanos(100));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertTrue(admission.getEstimatedLatencyNanos(METHOD) >= TimeUnit.MILLISECONDS.toNanos(75));
+        assertFalse(admission.admit(SERVICE, METHOD, Deadline.after(20, TimeUnit.MILLISECONDS)));
+        assertTrue(admission.admit(SERVICE, METHOD, Deadline.after(10, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    void censoredLatenciesNeverLowerTheEstimate() {
+        for(int i = 0; i < 20; i++)
+            admission.record(METHOD, Status.Code.OK, TimeUnit.MILLISECONDS.toNanos(400));
+        // The calls cancelled early by their callers are only known to take longer than they ran.
+        for(int i = 0; i < 100; i++)
+            admission.record(METHOD, Status.Code.CANCELLED, TimeUnit.MILLISECONDS.toNanos(10));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertTrue(admission.getEstimatedLatencyNanos(METHOD) >= TimeUnit.MILLISECONDS.toNanos(300));
+        assertFalse(admission.admit(SERVICE, METHOD, Deadline.after(100, TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    void censoredLatenciesRaiseTheEstimateAboveTheCompletedOnes() {
+        for(int i = 0; i < 10; i++)
+            admission.record(METHOD, Status.Code.OK, TimeUnit.MILLISECONDS.toNanos(20));
+        for(int i = 0; i < 30; i++)
+            admission.record(METHOD, Status.Code.DEADLINE_EXCEEDED, TimeUnit.MILLISECONDS.toNanos(200));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertTrue(admission.getEstimatedLatencyNanos(METHOD) >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    void recordsTheCallsFailedByTheServer() {
+        for(int i = 0; i < 20; i++)
+            admission.record(METHOD, Status.Code.UNAVAILABLE, TimeUnit.MILLISECONDS.toNanos(400));
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(admission.getEstimatedLatencyNanos(METHOD) >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+}
@@ -0,0 +1,242 @@
+package edu.research.scb.internal.endpoint;
+
+import edu.research.scb.internal.config.EndpointEjectionProperties;
+import io.grpc.CallOptions;
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.NameResolver;
+import io.grpc.NameResolverProvider;
+import io.grpc.NameResolverRegistry;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.inprocess.InProcessSocketAddress;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutlierEjectionLoadBalancerTest {
+
+    private static final String SCHEME = "outlier-ejection-test";
+    private static final int ENDPOINTS = 4;
+    private static final int FAILING = 0;
+
+    private static final MethodDescriptor<String, String> METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("media.MediaStreamService/SearchByTitle")
+            .setRequestMarshaller(new StringMarshaller())
+            .setResponseMarshaller(new StringMarshaller())
+            .build();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicIntegerArray calls = new AtomicIntegerArray(ENDPOINTS);
+    private final List<Server> servers = new ArrayList<>();
+    private final String prefix = "outlier-ejection-" + System.nanoTime() + "-";
+    private StaticResolverProvider resolverProvider;
+    private OutlierEjectionLoadBalancerProvider balancerProvider;
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final List<EquivalentAddressGroup> addresses = new ArrayList<>();
+        for(int i = 0; i < ENDPOINTS; i++) {
+            final int endpoint = i;
+            servers.add(InProcessServerBuilder.forName(prefix + i)
+                    .addService(ServerServiceDefinition.builder("media.MediaStreamService")
+                            .addMethod(METHOD, ServerCalls.asyncUnaryCall((request, observer) -> {
+                                calls.incrementAndGet(endpoint);
+                                if(endpoint == FAILING) {
+                                    observer.onError(Status.UNAVAILABLE.withDescription("The endpoint is bad").asRuntimeException());
+                                } else {
+                                    observer.onNext("response");
+                                    observer.onCompleted();
+                                }
+                            }))
+                            .build())
+                    .build()
+                    .start());
+            addresses.add(new EquivalentAddressGroup(new InProcessSocketAddress(prefix + i)));
+        }
+        resolverProvider = new StaticResolverProvider(addresses);
+        NameResolverRegistry.getDefaultRegistry().register(resolverProvider);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if(channel != null)
+            channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        servers.forEach(Server::shutdownNow);
+        if(balancerProvider != null)
+            balancerProvider.close();
+        NameResolverRegistry.getDefaultRegistry().deregister(resolverProvider);
+    }
+
+    @Test
+    void ejectsTheFailingEndpointFromThePickSet() throws InterruptedException {
+        connect(TimeUnit.MINUTES.toMillis(5));
+        awaitEjection();
+        assertEquals(1.0, meterRegistry.get(METRIC_EJECTED_ENDPOINTS_NAME).gauge().value());
+
+        final int[] before = snapshot();
+        int failures = 0;
+        for(int i = 0; i < ENDPOINTS * 10; i++)
+            failures += call() ? 0 : 1;
+        final int[] after = snapshot();
+
+        assertEquals(0, failures);
+        assertEquals(before[FAILING], after[FAILING]);
+        for(int i = 0; i < ENDPOINTS; i++) {
+            if(i != FAILING)
+                assertTrue(after[i] > before[i], "The healthy endpoint " + i + " was not picked");
+        }
+    }
+
+    @Test
+    void returnsTheEndpointOnceItsEjectionTimeElapsed() throws InterruptedException {
+        connect(200);
+        awaitEjection();
+
+        // Picked again once returned to the pick set, till it is ejected once more.
+        final int ejected = calls.get(FAILING);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while(calls.get(FAILING) == ejected) {
+            assertTrue(System.nanoTime() < deadline, "The ejected endpoint was never returned");
+            call();
+            Thread.sleep(5);
+        }
+    }
+
+    private void connect(long baseEjectionTimeMillis) {
+        final EndpointEjectionProperties properties = new EndpointEjectionProperties();
+        properties.setEnabled(true);
+        properties.setMinimumRequests(5);
+        properties.setIntervalMillis(50L);
+        properties.setBaseEjectionTimeMillis(baseEjectionTimeMillis);
+        properties.setMaxEjectionPercent(50);
+        balancerProvider = new OutlierEjectionLoadBalancerProvider(properties, meterRegistry).register();
+
+        channel = InProcessChannelBuilder.forTarget(SCHEME + ":///" + prefix)
+                .defaultLoadBalancingPolicy(OUTLIER_EJECTION_POLICY_NAME)
+                .build();
+    }
+
+    // Spreads the calls over the endpoints by round-robin, till the failing one is evaluated and ejected.
+    private void awaitEjection() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while(meterRegistry.counter(METRIC_ENDPOINT_EJECTION_COUNTER_NAME).count() == 0) {
+            assertTrue(System.nanoTime() < deadline, "The failing endpoint was never ejected");
+            for(int i = 0; i < ENDPOINTS * 5; i++)
+                call();
+            Thread.sleep(60);
+        }
+    }
+
+    private boolean call() {
+        try {
+            ClientCalls.blockingUnaryCall(channel, METHOD, CallOptions.DEFAULT.withDeadlineAfter(10, TimeUnit.SECONDS), "request");
+            return true;
+        } catch (StatusRuntimeException e) {
+            return false;
+        }
+    }
+
+    private int[] snapshot() {
+        final int[] snapshot = new int[ENDPOINTS];
+        for(int i = 0; i < ENDPOINTS; i++)
+            snapshot[i] = calls.get(i);
+        return snapshot;
+    }
+
+    // Resolves the target to the addresses of all the in-process servers.
+    private static final class StaticResolverProvider extends NameResolverProvider {
+
+        private final List<EquivalentAddressGroup> addresses;
+
+        StaticResolverProvider(List<EquivalentAddressGroup> addresses) {
+            this.addresses = addresses;
+        }
+
+        @Override
+        public NameResolver newNameResolver(URI targetUri, NameResolver.Args args) {
+            if(!SCHEME.equals(targetUri.getScheme()))
+                return null;
+            return new NameResolver() {
+
+                @Override
+                public String getServiceAuthority() {
+                    return "localhost";
+                }
+
+                @Override
+                public void start(Listener2 listener) {
+                    listener.onResult(ResolutionResult.newBuilder().setAddresses(addresses).build());
+                }
+
+                @Override
+                public void shutdown() {
+                }
+            };
+        }
+
+        @Override
+        public String getDefaultScheme() {
+            return SCHEME;
+        }
+
+        @Override
+        protected boolean isAvailable() {
+            return true;
+        }
+
+        @Override
+        protected int priority() {
+            return 5;
+        }
+
+        @Override
+        protected Collection<Class<? extends SocketAddress>> getProducedSocketAddressTypes() {
+            return Set.of(InProcessSocketAddress.class);
+        }
+    }
+
+    private static final class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package edu.research.scb.internal.memory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryAccountantTest {
+
+    @Test
+    void budgetIsOnlySetOnce() {
+        final MemoryAccountant accountant = new MemoryAccountant();
+        accountant.configure(1 << 20, 1000);
+        // Every strategy of the same configuration sets the same budget again.
+        accountant.configure(1 << 20, 1000);
+        assertEquals(1 << 20, accountant.getBudgetInBytes());
+
+        assertThrows(IllegalStateException.class, () -> accountant.configure(1 << 21, 1000));
+        assertThrows(IllegalStateException.class, () -> accountant.configure(1 << 20, 10));
+        assertEquals(1 << 20, accountant.getBudgetInBytes());
+    }
+
+    @Test
+    void freesTheExcessFromTheLargestAccountFirst() {
+        final MemoryAccountant accountant = new MemoryAccountant();
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final AtomicLong small = new AtomicLong(1000);
+        final AtomicLong large = new AtomicLong(5000);
+        final MemoryAccountant.Account smallAccount = accountant.open("small", registry)
+                .track("store", small::get)
+                .evictor(bytes -> freeUpTo(small, bytes));
+        final MemoryAccountant.Account largeAccount = accountant.open("large", registry)
+                .track("store", large::get)
+                .evictor(bytes -> freeUpTo(large, bytes));
+
+        assertEquals(0, accountant.enforce(6000));
+        assertEquals(2000, accountant.enforce(4000));
+        assertEquals(1000, smallAccount.getEstimatedSizeInBytes());
+        assertEquals(3000, largeAccount.getEstimatedSizeInBytes());
+        assertEquals(4000, accountant.getTotalInBytes());
+    }
+
+    private static long freeUpTo(AtomicLong size, long bytes) {
+        final long freed = Math.min(size.get(), bytes);
+        size.addAndGet(-freed);
+        return freed;
+    }
+}
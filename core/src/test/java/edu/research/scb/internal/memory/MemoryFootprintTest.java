@@ -0,0 +1,144 @@
+package edu.research.scb.internal.memory;
+
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy;
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.config.BloomFilterProperties;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.metrics.SignatureCardinality;
+import edu.research.scb.internal.throttling.AdaptiveThrottlingStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies the estimated heap of every structure reported by the {@code MemoryAccountant} against the heap measured
+ * by JOL, which walks the very objects of the structure. The structures are filled with failing signatures and services
+ * first, and an estimate fails when it is off by more than both a quarter and a kilobyte. The structures are reached
+ * by reflection, as they are internal to the strategies.
+ */
+class MemoryFootprintTest {
+
+    private static final int SIGNATURES = 20000;
+    private static final int SERVICES = 200;
+    private static final double TOLERANCE = 0.25;
+    private static final String METHOD = "media.MediaStreamService/SearchByTitle";
+
+    @Test
+    void bloomFilterEstimatesMatchTheMeasuredHeap() throws Exception {
+        verify(bloomFilter(), Map.of(
+                "bloom_filter", s -> generationField(s, "filter"),
+                "hash_store", s -> generationField(s, "store"),
+                "reset_queue", s -> generationField(s, "resetQueue"),
+                "service_counters", s -> field(s, AbstractCircuitBreakerStrategy.class, "serviceCounter"),
+                "hyperloglog", MemoryFootprintTest::hyperLogLogs));
+    }
+
+    @Test
+    void adaptiveThrottlingEstimatesMatchTheMeasuredHeap() throws Exception {
+        verify(adaptiveThrottling(), Map.of(
+                "sliding_windows", s -> field(s, AdaptiveThrottlingStrategy.class, "windows"),
+                "service_counters", s -> field(s, AbstractCircuitBreakerStrategy.class, "serviceCounter"),
+                "hyperloglog", MemoryFootprintTest::hyperLogLogs));
+    }
+
+    // The failing signatures are of a typical length, and a fifth of them recover into the reset queue. The reset
+    // buffer is large enough for the finalizer not to run meanwhile.
+    private static AbstractCircuitBreakerStrategy bloomFilter() {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(BLOOM_FILTER_STRATEGY);
+        properties.setBloomFilter(new BloomFilterProperties());
+        properties.getBloomFilter().setStoreCapacity(SIGNATURES);
+        properties.getBloomFilter().setCapacity((long) SIGNATURES);
+        properties.getBloomFilter().setResetBufferCapacity(SIGNATURES);
+        properties.getBloomFilter().setResetThreshold(100.0);
+        final BloomFilterCircuitBreakerStrategy strategy = new BloomFilterCircuitBreakerStrategy(properties, new SimpleMeterRegistry());
+        for(int i = 0; i < SIGNATURES; i++) {
+            final String service = "media.MediaStreamService" + (i % SERVICES);
+            final String data = "title: \"The Title Of A Movie " + i + "\"";
+            for(int f = 0; f < 4; f++)
+                strategy.onFailure(service, METHOD, data);
+            if(i % 5 == 0) {
+                for(int s = 0; s < 2; s++)
+                    strategy.onSuccess(service, METHOD, data);
+            }
+            strategy.allowRequest(service, METHOD, data);
+        }
+        return strategy;
+    }
+
+    private static AbstractCircuitBreakerStrategy adaptiveThrottling() {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(ADAPTIVE_THROTTLING_STRATEGY);
+        final AdaptiveThrottlingStrategy strategy = new AdaptiveThrottlingStrategy(properties, new SimpleMeterRegistry());
+        for(int i = 0; i < SERVICES * 10; i++) {
+            final String service = "media.MediaStreamService" + (i % SERVICES);
+            strategy.allowRequest(service, METHOD, "title: " + i);
+            strategy.onSuccess(service, METHOD, "title: " + i);
+        }
+        return strategy;
+    }
+
+    private static void verify(AbstractCircuitBreakerStrategy strategy, Map<String, Reach> structures) throws Exception {
+        final Map<String, Long> estimates = strategy.getMemoryAccount().getEstimatedSizesInBytes();
+        assertEquals(structures.keySet(), estimates.keySet());
+        final List<Executable> checks = new ArrayList<>();
+        for(Map.Entry<String, Long> estimate : estimates.entrySet()) {
+            final long measured = GraphLayout.parseInstance(structures.get(estimate.getKey()).of(strategy)).totalSize();
+            final double ratio = measured == 0 ? 1.0 : (double) estimate.getValue() / measured;
+            // The fixed overhead of an empty structure is not estimated.
+            checks.add(() -> assertTrue(Math.abs(ratio - 1.0) <= TOLERANCE || Math.abs(estimate.getValue() - measured) <= 1024,
+                    () -> String.format("The estimate of the %s is %d bytes, while %d bytes are measured", estimate.getKey(), estimate.getValue(), measured)));
+        }
+        assertAll(strategy.getMemoryAccount().getInstance(), checks);
+    }
+
+    // The services of the cardinality are inner objects, which would reach the registry through their outer object.
+    // Both the generations of sketches are reached, the previous one once rotated.
+    private static Object hyperLogLogs(AbstractCircuitBreakerStrategy strategy) throws Exception {
+        final Map<?, ?> services = (Map<?, ?>) field(strategy.getSignatureCardinality(), SignatureCardinality.class, "services");
+        final List<Object> hyperLogLogs = new ArrayList<>();
+        for(Object service : services.values()) {
+            for(String generation : List.of("current", "previous")) {
+                final Object window = field(service, service.getClass(), generation);
+                if(window != null) {
+                    hyperLogLogs.add(field(window, window.getClass(), "all"));
+                    hyperLogLogs.add(field(window, window.getClass(), "failing"));
+                }
+            }
+        }
+        return hyperLogLogs;
+    }
+
+    private static Object generationField(AbstractCircuitBreakerStrategy strategy, String name) throws Exception {
+        final Object generation = generation(strategy);
+        final var accessor = generation.getClass().getDeclaredMethod(name);
+        accessor.setAccessible(true);
+        return accessor.invoke(generation);
+    }
+
+    private static Object generation(AbstractCircuitBreakerStrategy strategy) throws Exception {
+        final Object adapter = field(strategy, BloomFilterCircuitBreakerStrategy.class, "bloomFilterAdapter");
+        return ((AtomicReference<?>) field(adapter, adapter.getClass(), "generation")).get();
+    }
+
+    private static Object field(Object target, Class<?> type, String name) throws Exception {
+        final Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    @FunctionalInterface
+    private interface Reach {
+        Object of(AbstractCircuitBreakerStrategy strategy) throws Exception;
+    }
+}
@@ -0,0 +1,50 @@
+package edu.research.scb.internal.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    // Three standard errors of the default precision of 12.
+    private static final double TOLERANCE = 3 * 1.04 / Math.sqrt(1 << 12);
+
+    @Test
+    void estimatesTheDistinctItemsWithinTheStandardError() {
+        for(int cardinality : new int[] { 100, 1000, 10000, 100000, 1000000 }) {
+            final HyperLogLog sketch = new HyperLogLog(12);
+            for(int i = 0; i < cardinality; i++)
+                sketch.offer("media.MediaStreamService/SearchByTitle-title: " + i);
+            assertEquals(cardinality, sketch.estimate(), cardinality * TOLERANCE, "cardinality " + cardinality);
+        }
+    }
+
+    @Test
+    void ignoresTheRepeatedItems() {
+        final HyperLogLog sketch = new HyperLogLog(12);
+        for(int repeat = 0; repeat < 10; repeat++) {
+            for(int i = 0; i < 5000; i++)
+                sketch.offer("title: " + i);
+        }
+        assertEquals(5000, sketch.estimate(), 5000 * TOLERANCE);
+        assertEquals(0, new HyperLogLog(12).estimate());
+    }
+
+    @Test
+    void estimatesTheUnionOfTwoSketches() {
+        final HyperLogLog first = new HyperLogLog(12);
+        final HyperLogLog second = new HyperLogLog(12);
+        final HyperLogLog both = new HyperLogLog(12);
+        // The sketches share half of their items.
+        for(int i = 0; i < 20000; i++) {
+            first.offer("title: " + i);
+            second.offer("title: " + (i + 10000));
+            both.offer("title: " + i);
+            both.offer("title: " + (i + 10000));
+        }
+        assertEquals(both.estimate(), first.estimateUnion(second));
+        assertEquals(30000, first.estimateUnion(second), 30000 * TOLERANCE);
+        assertEquals(first.estimate(), first.estimateUnion(null));
+        assertThrows(IllegalArgumentException.class, () -> first.estimateUnion(new HyperLogLog(10)));
+    }
+}
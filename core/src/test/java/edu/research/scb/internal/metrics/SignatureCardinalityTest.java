@@ -0,0 +1,116 @@
+package edu.research.scb.internal.metrics;
+
+import edu.research.scb.sdk.CallContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignatureCardinalityTest {
+
+    private static final String SERVICE = "media.MediaStreamService";
+    private static final long WINDOW_SECONDS = 60;
+
+    private TestClock clock;
+    private SimpleMeterRegistry registry;
+    private SignatureCardinality cardinality;
+
+    @BeforeEach
+    void setUp() {
+        clock = new TestClock();
+        registry = new SimpleMeterRegistry();
+        cardinality = new SignatureCardinality(registry, 12, 0.9, 1000, WINDOW_SECONDS, clock);
+    }
+
+    @Test
+    void flagsAndUnflagsAnExplosionOfSignatures() {
+        // Every request carries a unique id.
+        for(int i = 0; i < 2000; i++)
+            cardinality.offerRequest(SERVICE, hash("request_id: " + i));
+        clock.advanceSeconds(WINDOW_SECONDS);
+        cardinality.offerRequest(SERVICE, hash("request_id: 2000"));
+        assertTrue(cardinality.isExploding(SERVICE));
+        assertEquals(1.0, registry.get(METRIC_SIGNATURE_EXPLOSION_NAME).tag(METRIC_TAG_SERVICE, SERVICE).gauge().value());
+
+        // The unique id is left out of the signature, which repeats again.
+        for(int i = 0; i < 5000; i++)
+            cardinality.offerRequest(SERVICE, hash("title: " + i % 10));
+        clock.advanceSeconds(WINDOW_SECONDS);
+        cardinality.offerRequest(SERVICE, hash("title: 0"));
+        assertFalse(cardinality.isExploding(SERVICE));
+        assertEquals(0.0, registry.get(METRIC_SIGNATURE_EXPLOSION_NAME).tag(METRIC_TAG_SERVICE, SERVICE).gauge().value());
+    }
+
+    @Test
+    void leavesTheFewRequestsUnflagged() {
+        for(int i = 0; i < 500; i++)
+            cardinality.offerRequest(SERVICE, hash("request_id: " + i));
+        clock.advanceSeconds(WINDOW_SECONDS);
+        cardinality.offerRequest(SERVICE, hash("request_id: 500"));
+        assertFalse(cardinality.isExploding(SERVICE));
+    }
+
+    @Test
+    void failingCardinalityFallsBackOnceTheFailuresStop() {
+        for(int i = 0; i < 1000; i++)
+            cardinality.offerFailure(SERVICE, hash("title: " + i));
+        final long failing = cardinality.getFailingCardinality();
+        assertEquals(1000, failing, 50);
+
+        // The failures of the previous window are still estimated.
+        clock.advanceSeconds(WINDOW_SECONDS);
+        cardinality.offerFailure(SERVICE, hash("title: 1000"));
+        assertTrue(cardinality.getFailingCardinality() >= failing);
+        assertEquals(cardinality.getFailingCardinality(), registry.get(METRIC_SIGNATURE_CARDINALITY_NAME)
+                .tags(METRIC_TAG_SERVICE, SERVICE, METRIC_TAG_KIND, "failing").gauge().value());
+
+        clock.advanceSeconds(WINDOW_SECONDS);
+        assertEquals(1, cardinality.getFailingCardinality());
+        clock.advanceSeconds(2 * WINDOW_SECONDS);
+        assertEquals(0, cardinality.getFailingCardinality());
+    }
+
+    @Test
+    void accountsForBothTheGenerations() {
+        cardinality.offerRequest(SERVICE, hash("title: 0"));
+        assertEquals(2 * 4096, cardinality.getEstimatedSizeInBytes());
+        clock.advanceSeconds(WINDOW_SECONDS);
+        cardinality.offerRequest(SERVICE, hash("title: 0"));
+        assertEquals(4 * 4096, cardinality.getEstimatedSizeInBytes());
+    }
+
+    private static long hash(String data) {
+        return CallContext.hashOf(CallContext.signatureOf("media.MediaStreamService/SearchByTitle", data));
+    }
+
+    private static final class TestClock extends Clock {
+
+        private volatile Instant instant = Instant.parse("2000-01-01T00:00:00Z");
+
+        void advanceSeconds(long seconds) {
+            instant = instant.plusSeconds(seconds);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
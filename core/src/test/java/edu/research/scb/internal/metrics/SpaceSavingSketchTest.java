@@ -0,0 +1,109 @@
+package edu.research.scb.internal.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void countsExactlyWithinTheCapacity() {
+        final SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        for(int i = 0; i < 3; i++)
+            sketch.offer("a");
+        sketch.offer("b");
+        for(int i = 0; i < 2; i++)
+            sketch.offer("c");
+
+        assertEquals(List.of(
+                new SpaceSavingSketch.HeavyHitter("a", 3, 0),
+                new SpaceSavingSketch.HeavyHitter("c", 2, 0),
+                new SpaceSavingSketch.HeavyHitter("b", 1, 0)), sketch.topK());
+        assertEquals(List.of(new SpaceSavingSketch.HeavyHitter("a", 3, 0)), sketch.topK(1));
+    }
+
+    @Test
+    void replacesTheItemWithTheMinimumCount() {
+        final SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        for(int i = 0; i < 4; i++)
+            sketch.offer("a");
+        sketch.offer("b");
+        sketch.offer("b");
+        sketch.offer("c");
+
+        assertEquals(List.of(
+                new SpaceSavingSketch.HeavyHitter("a", 4, 0),
+                new SpaceSavingSketch.HeavyHitter("c", 3, 2)), sketch.topK());
+    }
+
+    @Test
+    void matchesTheReferenceSketchOnASkewedStream() {
+        final Random random = new Random(42);
+        final SpaceSavingSketch sketch = new SpaceSavingSketch(16);
+        final ReferenceSketch reference = new ReferenceSketch(16);
+        final Map<String, Long> actual = new HashMap<>();
+        final int n = 50000;
+        for(int i = 0; i < n; i++) {
+            // A Zipf-like stream where a few items occur far more often than the others.
+            final String item = "item" + (int) Math.floor(Math.pow(random.nextDouble(), 3) * 200);
+            sketch.offer(item);
+            reference.offer(item);
+            actual.merge(item, 1L, Long::sum);
+        }
+
+        final List<SpaceSavingSketch.HeavyHitter> top = sketch.topK();
+        assertEquals(16, top.size());
+        long total = 0;
+        for(SpaceSavingSketch.HeavyHitter hitter : top) {
+            final long[] expected = reference.entries.get(hitter.item());
+            assertArrayEquals(expected, new long[] { hitter.count(), hitter.error() }, hitter.item());
+            final long count = actual.get(hitter.item());
+            assertTrue(hitter.count() - hitter.error() <= count && count <= hitter.count(), hitter.item());
+            total += hitter.count();
+        }
+        assertEquals(n, total);
+        actual.forEach((item, count) -> {
+            if(count > n / 16)
+                assertTrue(top.stream().anyMatch(h -> h.item().equals(item)), item);
+        });
+    }
+
+    // The counters of the paper scanned for the minimum on every replacement. The ties of the minimum are broken
+    // alike, by the most recent item to reach the count.
+    private static final class ReferenceSketch {
+        private final int capacity;
+        private final Map<String, long[]> entries = new HashMap<>();
+        private final Map<String, Long> reached = new HashMap<>();
+        private long clock;
+
+        private ReferenceSketch(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void offer(String item) {
+            clock++;
+            final long[] entry = entries.get(item);
+            if(entry != null) {
+                entry[0]++;
+            } else if(entries.size() < capacity) {
+                entries.put(item, new long[] { 1, 0 });
+            } else {
+                String min = null;
+                for(Map.Entry<String, long[]> e : entries.entrySet()) {
+                    if(min == null || e.getValue()[0] < entries.get(min)[0]
+                            || e.getValue()[0] == entries.get(min)[0] && reached.get(e.getKey()) > reached.get(min))
+                        min = e.getKey();
+                }
+                final long count = entries.remove(min)[0];
+                reached.remove(min);
+                entries.put(item, new long[] { count + 1, count });
+            }
+            reached.put(item, clock);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package edu.research.scb.internal.outcome;
+
+import edu.research.scb.internal.config.OutcomeBufferProperties;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedOutcomeStrategyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void recordsTheOutcomesOnTheWriterThread() throws Exception {
+        final RecordingStrategy delegate = new RecordingStrategy();
+        try(BufferedOutcomeStrategy strategy = new BufferedOutcomeStrategy(delegate, properties(1, 64), meterRegistry)) {
+            delegate.expect(2);
+            strategy.onFailure("service", "service/Method", "failing");
+            strategy.onSuccess("service", "service/Method", "healthy");
+            assertTrue(delegate.latch.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals("failure:failing", delegate.outcomes.poll());
+        assertEquals("success:healthy", delegate.outcomes.poll());
+        assertTrue(delegate.threads.stream().allMatch("smart-circuit-breaker-outcome-writer"::equals));
+    }
+
+    @Test
+    void recordsTheOutcomesOnTheCallingThreadOnceAllTheRingsAreFull() {
+        final RecordingStrategy delegate = new RecordingStrategy();
+        final BufferedOutcomeStrategy strategy = new BufferedOutcomeStrategy(delegate, properties(1, 4), meterRegistry);
+        // The writer is held by the first outcome, thus the further ones fill the ring.
+        delegate.block();
+        final int outcomes = 100;
+        for(int i = 0; i < outcomes; i++)
+            strategy.onFailure("service", "service/Method", "signature-" + i);
+        assertTrue(meterRegistry.counter(METRIC_OUTCOME_OVERFLOW_COUNTER_NAME).count() > 0);
+        assertTrue(delegate.threads.contains(Thread.currentThread().getName()));
+
+        delegate.release();
+        strategy.close();
+        assertEquals(outcomes, delegate.outcomes.size());
+    }
+
+    @Test
+    void recordsTheOutcomesReportedOnceClosed() {
+        final RecordingStrategy delegate = new RecordingStrategy();
+        final BufferedOutcomeStrategy strategy = new BufferedOutcomeStrategy(delegate, properties(1, 64), meterRegistry);
+        strategy.onFailure("service", "service/Method", "before");
+        strategy.close();
+        strategy.onFailure("service", "service/Method", "after");
+        assertEquals(2, delegate.outcomes.size());
+    }
+
+    private static OutcomeBufferProperties properties(int stripes, int capacity) {
+        final OutcomeBufferProperties properties = new OutcomeBufferProperties();
+        properties.setEnabled(true);
+        properties.setStripes(stripes);
+        properties.setCapacity(capacity);
+        properties.setDrainIntervalMicros(100L);
+        return properties;
+    }
+
+    private static final class RecordingStrategy implements CircuitBreakerStrategy {
+
+        private final ConcurrentLinkedQueue<String> outcomes = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<String> threads = new ConcurrentLinkedQueue<>();
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+        private volatile CountDownLatch blocked = new CountDownLatch(0);
+
+        void expect(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        void block() {
+            blocked = new CountDownLatch(1);
+        }
+
+        void release() {
+            blocked.countDown();
+        }
+
+        @Override
+        public boolean allowRequest(String serviceName, String methodName, String data) {
+            return true;
+        }
+
+        @Override
+        public void onSuccess(String serviceName, String methodName, String data) {
+            record("success:" + data);
+        }
+
+        @Override
+        public void onFailure(String serviceName, String methodName, String data) {
+            record("failure:" + data);
+        }
+
+        private void record(String outcome) {
+            final String thread = Thread.currentThread().getName();
+            if(thread.equals("smart-circuit-breaker-outcome-writer")) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            threads.add(thread);
+            outcomes.add(outcome);
+            latch.countDown();
+        }
+    }
+}
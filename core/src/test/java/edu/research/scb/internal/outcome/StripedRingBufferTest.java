@@ -0,0 +1,93 @@
+package edu.research.scb.internal.outcome;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedRingBufferTest {
+
+    @Test
+    void drainsTheElementsInTheOrderOfTheirOffer() {
+        final StripedRingBuffer<Integer> buffer = new StripedRingBuffer<>(1, 8);
+        for(int i = 1; i <= 5; i++)
+            assertEquals(i, buffer.offer(i));
+        assertEquals(5, buffer.size());
+
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(5, buffer.drainTo(drained::add));
+        assertEquals(List.of(1, 2, 3, 4, 5), drained);
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.drainTo(drained::add));
+    }
+
+    @Test
+    void movesOnToTheOtherRingsOnceItsRingIsFull() {
+        final StripedRingBuffer<Integer> buffer = new StripedRingBuffer<>(4, 2);
+        for(int i = 0; i < 8; i++)
+            assertTrue(buffer.offer(i) > 0);
+        // Only rejected once all the rings are full.
+        assertEquals(-1, buffer.offer(8));
+        assertEquals(8, buffer.size());
+
+        final List<Integer> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+        drained.sort(null);
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), drained);
+        assertTrue(buffer.offer(8) > 0);
+    }
+
+    @Test
+    void keepsEveryElementOfConcurrentProducers() throws Exception {
+        final StripedRingBuffer<Integer> buffer = new StripedRingBuffer<>(2, 16);
+        final int producers = 4;
+        final int elements = 20_000;
+        final CyclicBarrier barrier = new CyclicBarrier(producers + 1);
+        final ExecutorService executor = Executors.newFixedThreadPool(producers);
+        final AtomicBoolean producing = new AtomicBoolean(true);
+        final long[] sum = new long[1];
+        final int[] count = new int[1];
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for(int p = 0; p < producers; p++) {
+                futures.add(executor.submit(() -> {
+                    barrier.await();
+                    int rejected = 0;
+                    for(int i = 1; i <= elements; i++) {
+                        // A rejected element is offered again, as the single consumer catches up.
+                        while(buffer.offer(i) < 0) {
+                            rejected++;
+                            Thread.yield();
+                        }
+                    }
+                    return rejected;
+                }));
+            }
+            barrier.await();
+            final Thread consumer = new Thread(() -> {
+                while(producing.get() || buffer.size() > 0) {
+                    buffer.drainTo(e -> {
+                        sum[0] += e;
+                        count[0]++;
+                    });
+                }
+            });
+            consumer.start();
+            for(Future<Integer> future : futures)
+                future.get();
+            producing.set(false);
+            consumer.join();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(producers * elements, count[0]);
+        assertEquals((long) producers * elements * (elements + 1) / 2, sum[0]);
+    }
+}
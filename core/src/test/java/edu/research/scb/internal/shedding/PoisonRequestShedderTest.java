@@ -0,0 +1,271 @@
+package edu.research.scb.internal.shedding;
+
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.LoadSheddingProperties;
+import edu.research.scb.sdk.CircuitBreakerStrategy;
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerCall;
+import io.grpc.ServerInterceptors;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.research.scb.internal.DefaultConstants.BLOOM_FILTER_STRATEGY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoisonRequestShedderTest {
+
+    private static final MethodDescriptor<String, String> METHOD = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("media.MediaStreamService/SearchByTitle")
+            .setRequestMarshaller(new StringMarshaller())
+            .setResponseMarshaller(new StringMarshaller())
+            .build();
+
+    private final FakeStrategy strategy = new FakeStrategy();
+    private final PoisonRequestShedder shedder = new PoisonRequestShedder(strategy, new LoadSheddingProperties(), new SimpleMeterRegistry());
+
+    @Test
+    void shedsTheRequestsOfAnOpenCircuitWithoutInvokingTheHandler() {
+        strategy.open.add("poison");
+        final FakeCall call = new FakeCall();
+        final RecordingHandler handler = new RecordingHandler(Status.OK);
+        final ServerCall.Listener<String> listener = shedder.interceptCall(call, new Metadata(), handler::startCall);
+
+        listener.onMessage("poison");
+        listener.onHalfClose();
+        listener.onReady();
+        // The call closed by the shedder is completed, or cancelled if the client went away meanwhile.
+        listener.onComplete();
+        listener.onCancel();
+
+        assertEquals(Status.Code.RESOURCE_EXHAUSTED, call.status.getCode());
+        assertEquals(List.of(), handler.events);
+        assertEquals(List.of(), strategy.outcomes);
+    }
+
+    @Test
+    void recordsTheFailuresOfTheHandler() {
+        final FakeCall call = new FakeCall();
+        final RecordingHandler handler = new RecordingHandler(Status.UNAVAILABLE);
+        final ServerCall.Listener<String> listener = shedder.interceptCall(call, new Metadata(), handler::startCall);
+
+        listener.onMessage("request");
+        listener.onHalfClose();
+        listener.onComplete();
+
+        assertEquals(Status.Code.UNAVAILABLE, call.status.getCode());
+        assertEquals(List.of("message:request", "halfClose", "complete"), handler.events);
+        assertEquals(List.of("failure:request"), strategy.outcomes);
+    }
+
+    @Test
+    void recordsTheRejectionsOnTheirMeritsAsSuccesses() {
+        final FakeCall call = new FakeCall();
+        final RecordingHandler handler = new RecordingHandler(Status.INVALID_ARGUMENT);
+        final ServerCall.Listener<String> listener = shedder.interceptCall(call, new Metadata(), handler::startCall);
+
+        listener.onMessage("request");
+        listener.onHalfClose();
+
+        assertEquals(Status.Code.INVALID_ARGUMENT, call.status.getCode());
+        assertEquals(List.of("success:request"), strategy.outcomes);
+    }
+
+    @Test
+    void recordsTheExceptionsThrownByTheHandler() {
+        final FakeCall call = new FakeCall();
+        final ServerCall.Listener<String> listener = shedder.interceptCall(call, new Metadata(), (c, headers) -> new ServerCall.Listener<>() {
+            @Override
+            public void onHalfClose() {
+                throw new NullPointerException("poison");
+            }
+        });
+
+        listener.onMessage("poison");
+        // The exception is left to the server, which closes the stream without going through the call.
+        assertThrows(NullPointerException.class, listener::onHalfClose);
+        assertNull(call.status);
+        assertEquals(List.of("failure:poison"), strategy.outcomes);
+    }
+
+    @Test
+    void shedsTheRequestsCrashingTheHandlerOfAServer() throws Exception {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(BLOOM_FILTER_STRATEGY);
+        final PoisonRequestShedder shedder = new PoisonRequestShedder(
+                new BloomFilterCircuitBreakerStrategy(properties, new SimpleMeterRegistry()), new LoadSheddingProperties(), new SimpleMeterRegistry());
+        final AtomicInteger invocations = new AtomicInteger();
+        final String name = "poison-request-shedder-" + System.nanoTime();
+        final Server server = InProcessServerBuilder.forName(name).directExecutor()
+                .addService(ServerInterceptors.intercept(ServerServiceDefinition.builder("media.MediaStreamService")
+                        .addMethod(METHOD, ServerCalls.asyncUnaryCall((request, observer) -> {
+                            invocations.incrementAndGet();
+                            throw new NullPointerException("The handler crashes on the " + request);
+                        }))
+                        .build(), shedder))
+                .build().start();
+        final ManagedChannel channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        try {
+            final List<Status.Code> codes = new ArrayList<>();
+            for(int i = 0; i < 20; i++) {
+                final StatusRuntimeException e = assertThrows(StatusRuntimeException.class,
+                        () -> ClientCalls.blockingUnaryCall(channel, METHOD, CallOptions.DEFAULT, "poison"));
+                codes.add(e.getStatus().getCode());
+            }
+            assertEquals(Status.Code.UNKNOWN, codes.get(0));
+            assertEquals(Status.Code.RESOURCE_EXHAUSTED, codes.get(codes.size() - 1));
+            assertEquals(invocations.get(), codes.stream().filter(code -> code == Status.Code.UNKNOWN).count());
+            assertTrue(invocations.get() < 20);
+        } finally {
+            channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+            server.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void forwardsTheCancellationOfAHandledRequest() {
+        final RecordingHandler handler = new RecordingHandler(Status.OK);
+        final ServerCall.Listener<String> listener = shedder.interceptCall(new FakeCall(), new Metadata(), handler::startCall);
+
+        listener.onMessage("request");
+        listener.onCancel();
+        assertEquals(List.of("message:request", "cancel"), handler.events);
+    }
+
+    // Closes the call with the given status once the request is half-closed, as a unary handler.
+    private static final class RecordingHandler {
+
+        private final Status status;
+        private final List<String> events = new ArrayList<>();
+
+        RecordingHandler(Status status) {
+            this.status = status;
+        }
+
+        ServerCall.Listener<String> startCall(ServerCall<String, String> call, Metadata headers) {
+            return new ServerCall.Listener<>() {
+
+                @Override
+                public void onMessage(String message) {
+                    events.add("message:" + message);
+                }
+
+                @Override
+                public void onHalfClose() {
+                    events.add("halfClose");
+                    call.close(status, new Metadata());
+                }
+
+                @Override
+                public void onCancel() {
+                    events.add("cancel");
+                }
+
+                @Override
+                public void onComplete() {
+                    events.add("complete");
+                }
+
+                @Override
+                public void onReady() {
+                    events.add("ready");
+                }
+            };
+        }
+    }
+
+    private static final class FakeCall extends ServerCall<String, String> {
+
+        private Status status;
+
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void sendHeaders(Metadata headers) {
+        }
+
+        @Override
+        public void sendMessage(String message) {
+        }
+
+        @Override
+        public void close(Status status, Metadata trailers) {
+            assertNull(this.status, "The call is closed twice");
+            this.status = status;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public MethodDescriptor<String, String> getMethodDescriptor() {
+            return METHOD;
+        }
+    }
+
+    private static final class FakeStrategy implements CircuitBreakerStrategy {
+
+        private final Set<String> open = new HashSet<>();
+        private final List<String> outcomes = new ArrayList<>();
+
+        @Override
+        public boolean allowRequest(String serviceName, String methodName, String data) {
+            return !open.contains(data);
+        }
+
+        @Override
+        public void onSuccess(String serviceName, String methodName, String data) {
+            outcomes.add("success:" + data);
+        }
+
+        @Override
+        public void onFailure(String serviceName, String methodName, String data) {
+            outcomes.add("failure:" + data);
+        }
+    }
+
+    private static final class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package edu.research.scb.internal.signature;
+
+import com.google.protobuf.Api;
+import com.google.protobuf.Method;
+import com.google.protobuf.SourceContext;
+import edu.research.scb.internal.config.SignatureProperties;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServiceDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Resolves the field paths against the well-known protobuf types, whose {@code Api} nests a {@code SourceContext}
+ * message and repeats the {@code Method} messages.
+ */
+class SignatureExtractorTest {
+
+    private static final MethodDescriptor<Api, Api> DESCRIBE = MethodDescriptor.<Api, Api>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("test.ApiService/Describe")
+            .setRequestMarshaller(ProtoUtils.marshaller(Api.getDefaultInstance()))
+            .setResponseMarshaller(ProtoUtils.marshaller(Api.getDefaultInstance()))
+            .build();
+
+    private static final MethodDescriptor<Api, Api> UPDATE = MethodDescriptor.<Api, Api>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("test.ApiService/Update")
+            .setRequestMarshaller(ProtoUtils.marshaller(Api.getDefaultInstance()))
+            .setResponseMarshaller(ProtoUtils.marshaller(Api.getDefaultInstance()))
+            .build();
+
+    private static final MethodDescriptor<String, String> ECHO = MethodDescriptor.<String, String>newBuilder()
+            .setType(MethodDescriptor.MethodType.UNARY)
+            .setFullMethodName("test.EchoService/Echo")
+            .setRequestMarshaller(new StringMarshaller())
+            .setResponseMarshaller(new StringMarshaller())
+            .build();
+
+    private static final List<ServiceDescriptor> SERVICES = List.of(
+            ServiceDescriptor.newBuilder("test.ApiService").addMethod(DESCRIBE).addMethod(UPDATE).build(),
+            ServiceDescriptor.newBuilder("test.EchoService").addMethod(ECHO).build());
+
+    private static final Api API = Api.newBuilder()
+            .setName("media.MediaStreamService")
+            .setVersion("v1")
+            .setSourceContext(SourceContext.newBuilder().setFileName("media.proto"))
+            .addMethods(Method.newBuilder().setName("SearchByTitle"))
+            .build();
+
+    @Test
+    void signsByTheNestedFields() {
+        final SignatureExtractor extractor = extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("Api.name", "source_context.file_name")));
+
+        assertEquals("Api.name=media.MediaStreamService,source_context.file_name=media.proto", extractor.extract(DESCRIBE, API));
+        // The fields left out of the signature never tell the requests apart.
+        assertEquals(extractor.extract(DESCRIBE, API), extractor.extract(DESCRIBE, API.toBuilder().setVersion("v2").build()));
+    }
+
+    @Test
+    void signsByTheDefaultsOfTheMissingFields() {
+        final SignatureExtractor extractor = extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("source_context.file_name", "methods")));
+
+        assertEquals("source_context.file_name=,methods=[]", extractor.extract(DESCRIBE, Api.getDefaultInstance()));
+        assertEquals("source_context.file_name=media.proto,methods=[name: \"SearchByTitle\"]", extractor.extract(DESCRIBE, API));
+    }
+
+    @Test
+    void signsTheMethodsWithoutFieldsByTheWholeMessage() {
+        final SignatureExtractor extractor = extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("name")));
+
+        assertEquals(API.toString(), extractor.extract(UPDATE, API));
+        assertEquals("poison", extractor.extract(ECHO, "poison"));
+    }
+
+    @Test
+    void failsOnTheFieldsThatDoNotExist() {
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("title"))));
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("source_context.file"))));
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("name", ""))));
+    }
+
+    @Test
+    void failsOnTheInvalidPaths() {
+        // Only the last field of a path may be a repeated one, and only the messages have nested fields.
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("methods.name"))));
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of(DESCRIBE.getFullMethodName(), List.of("name.length"))));
+    }
+
+    @Test
+    void failsOnTheMethodsThatCannotBeResolved() {
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of("test.ApiService/Delete", List.of("name"))));
+        assertThrows(IllegalArgumentException.class, () -> extractor(Map.of(ECHO.getFullMethodName(), List.of("name"))));
+    }
+
+    private static SignatureExtractor extractor(Map<String, List<String>> fields) {
+        final SignatureProperties properties = new SignatureProperties();
+        properties.setFields(fields);
+        return new SignatureExtractor(properties, SERVICES);
+    }
+
+    private static final class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+        @Override
+        public InputStream stream(String value) {
+            return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String parse(InputStream stream) {
+            try {
+                return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package edu.research.scb.internal.singleflight;
+
+import edu.research.scb.internal.config.SingleFlightProperties;
+import io.grpc.ClientCall;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightClientCallTest {
+
+    private SingleFlightGroup group;
+    private List<FakeCall> sent;
+
+    @BeforeEach
+    void setUp() {
+        final SingleFlightProperties properties = new SingleFlightProperties();
+        properties.setEnabled(true);
+        group = new SingleFlightGroup(properties, new SimpleMeterRegistry());
+        sent = new ArrayList<>();
+    }
+
+    @Test
+    void followersReceiveTheResponseOfTheLeader() {
+        final RecordingListener leader = start(null);
+        final RecordingListener first = start(null);
+        final RecordingListener second = start(null);
+        assertEquals(1, sent.size());
+
+        sent.get(0).respond("response", Status.OK);
+        for(RecordingListener listener : List.of(leader, first, second)) {
+            assertEquals(Status.Code.OK, listener.status.getCode());
+            assertEquals("response", listener.message);
+        }
+    }
+
+    @Test
+    void cancelledFollowerLeavesTheLeaderAlone() {
+        final RecordingListener leader = start(null);
+        final RecordingListener follower = new RecordingListener();
+        final SingleFlightClientCall<String, String> followerCall = call(null);
+        send(followerCall, follower);
+
+        followerCall.cancel("impatient", null);
+        assertEquals(Status.Code.CANCELLED, follower.status.getCode());
+        assertNull(sent.get(0).cancelled);
+
+        sent.get(0).respond("response", Status.OK);
+        assertEquals(Status.Code.OK, leader.status.getCode());
+        assertEquals(1, follower.closed);
+    }
+
+    @Test
+    void followersAreSentOnTheirOwnWhenTheLeaderIsCancelled() {
+        final SingleFlightClientCall<String, String> leaderCall = call(null);
+        final RecordingListener leader = new RecordingListener();
+        send(leaderCall, leader);
+        final RecordingListener follower = start(null);
+
+        leaderCall.cancel("impatient", null);
+        sent.get(0).respond(null, Status.CANCELLED);
+        assertEquals(Status.Code.CANCELLED, leader.status.getCode());
+        assertNull(follower.status);
+        assertEquals(2, sent.size());
+        assertEquals("request", sent.get(1).message);
+        assertTrue(sent.get(1).halfClosed);
+
+        sent.get(1).respond("response", Status.OK);
+        assertEquals(Status.Code.OK, follower.status.getCode());
+        assertEquals("response", follower.message);
+    }
+
+    @Test
+    void followersAreSentOnTheirOwnWhenTheLeaderRunsOutOfItsDeadline() {
+        final Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+        final RecordingListener leader = start(deadline);
+        final RecordingListener follower = start(Deadline.after(1, TimeUnit.MINUTES));
+
+        sent.get(0).respond(null, Status.DEADLINE_EXCEEDED);
+        assertEquals(Status.Code.DEADLINE_EXCEEDED, leader.status.getCode());
+        assertNull(follower.status);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void callWithAnEarlierDeadlineThanTheLeaderIsNotCoalesced() {
+        start(Deadline.after(1, TimeUnit.MINUTES));
+        start(Deadline.after(1, TimeUnit.SECONDS));
+        assertEquals(2, sent.size());
+
+        // The calls with a later deadline, or without any, follow the leader.
+        start(Deadline.after(2, TimeUnit.MINUTES));
+        start(null);
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void callWithADeadlineIsNotCoalescedWithALeaderWithoutAny() {
+        start(null);
+        start(Deadline.after(1, TimeUnit.MINUTES));
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void followerCancelledOnceReleasedIsClosedAsCancelled() {
+        final SingleFlightClientCall<String, String> leaderCall = call(null);
+        send(leaderCall, new RecordingListener());
+        final SingleFlightClientCall<String, String> followerCall = call(null);
+        final RecordingListener follower = new RecordingListener();
+        send(followerCall, follower);
+
+        // The follower is cancelled by its caller once released by the cancelled leader, before being sent on its own.
+        final SingleFlightGroup.Flight flight = group.join("request", call(null));
+        assertTrue(group.complete(flight).contains(followerCall));
+        followerCall.cancel("impatient", null);
+        assertNull(follower.status);
+        followerCall.sendAlone();
+        assertEquals(Status.Code.CANCELLED, follower.status.getCode());
+        assertEquals(1, sent.size());
+    }
+
+    private RecordingListener start(Deadline deadline) {
+        final RecordingListener listener = new RecordingListener();
+        send(call(deadline), listener);
+        return listener;
+    }
+
+    private SingleFlightClientCall<String, String> call(Deadline deadline) {
+        return new SingleFlightClientCall<>(group, message -> message, () -> {
+            final FakeCall call = new FakeCall();
+            sent.add(call);
+            return call;
+        }, null, deadline);
+    }
+
+    private static void send(SingleFlightClientCall<String, String> call, RecordingListener listener) {
+        call.start(listener, new Metadata());
+        call.request(2);
+        call.sendMessage("request");
+        call.halfClose();
+    }
+
+    private static final class FakeCall extends ClientCall<String, String> {
+
+        private Listener<String> listener;
+        private String message;
+        private boolean halfClosed;
+        private String cancelled;
+
+        void respond(String response, Status status) {
+            listener.onHeaders(new Metadata());
+            if(response != null)
+                listener.onMessage(response);
+            listener.onClose(status, new Metadata());
+        }
+
+        @Override
+        public void start(Listener<String> responseListener, Metadata headers) {
+            this.listener = responseListener;
+        }
+
+        @Override
+        public void request(int numMessages) {
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+            this.cancelled = message != null ? message : "cancelled";
+        }
+
+        @Override
+        public void halfClose() {
+            halfClosed = true;
+        }
+
+        @Override
+        public void sendMessage(String message) {
+            this.message = message;
+        }
+    }
+
+    private static final class RecordingListener extends ClientCall.Listener<String> {
+
+        private String message;
+        private Status status;
+        private int closed;
+
+        @Override
+        public void onMessage(String message) {
+            this.message = message;
+        }
+
+        @Override
+        public void onClose(Status status, Metadata trailers) {
+            this.status = status;
+            closed++;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package edu.research.scb.internal.throttling;
+
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.MetricsProperties;
+import edu.research.scb.internal.jfr.AdmissionPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static edu.research.scb.internal.DefaultConstants.ADAPTIVE_THROTTLING_STRATEGY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveThrottlingStrategyTest {
+
+    private static final String SERVICE = "media.MediaStreamService";
+    private static final String METHOD = "media.MediaStreamService/SearchByTitle";
+
+    @Test
+    void admittedAndRejectedRequestsTakeTheirOwnPath() throws Exception {
+        final MetricsProperties metrics = new MetricsProperties();
+        metrics.setAdmissionEventSampleRate(1);
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(ADAPTIVE_THROTTLING_STRATEGY);
+        properties.setMetrics(metrics);
+        final AdaptiveThrottlingStrategy strategy = new AdaptiveThrottlingStrategy(properties, new SimpleMeterRegistry());
+
+        final Path file = Files.createTempFile("scb-admission", ".jfr");
+        final List<RecordedEvent> events;
+        try(Recording recording = new Recording()) {
+            recording.enable("edu.research.scb.AdmissionDecision");
+            recording.start();
+            // Every request fails, the first one is admitted with a zero probability and the next ones mostly rejected.
+            for(int i = 0; i < 200; i++) {
+                if(strategy.allowRequest(SERVICE, METHOD, "title: \"poison\""))
+                    strategy.onFailure(SERVICE, METHOD, "title: \"poison\"");
+            }
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().equals("edu.research.scb.AdmissionDecision"))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertEquals(200, events.size());
+        for(RecordedEvent event : events)
+            assertEquals(event.getBoolean("allowed") ? AdmissionPath.THROTTLE_ADMITTED.name() : AdmissionPath.THROTTLED.name(), event.getString("path"));
+        assertTrue(events.stream().anyMatch(e -> e.getBoolean("allowed")));
+        assertTrue(events.stream().anyMatch(e -> !e.getBoolean("allowed")));
+    }
+}
@@ -0,0 +1,37 @@
+package edu.research.scb.internal.throttling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    @Test
+    void rejectsInProportionToTheFailedRequests() {
+        final SlidingWindowCounter window = new SlidingWindowCounter(60_000, 12);
+        assertEquals(0.0, window.rejectionProbability(0, 2.0));
+
+        // 10 requests of which 2 accepted : (10 - 2 * 2) / (10 + 1)
+        for(int i = 0; i < 10; i++)
+            window.incrementRequests(1_000);
+        window.incrementAccepts(1_000);
+        window.incrementAccepts(1_000);
+        assertEquals(6.0 / 11, window.rejectionProbability(1_000, 2.0), 1e-9);
+
+        // As long as one request out of K is accepted, nothing is rejected.
+        for(int i = 0; i < 3; i++)
+            window.incrementAccepts(1_000);
+        assertEquals(0.0, window.rejectionProbability(1_000, 2.0));
+    }
+
+    @Test
+    void leavesTheBucketsOlderThanTheWindowOut() {
+        final SlidingWindowCounter window = new SlidingWindowCounter(60_000, 12);
+        for(int i = 0; i < 10; i++)
+            window.incrementRequests(0);
+        window.incrementRequests(30_000);
+        assertEquals(11.0 / 12, window.rejectionProbability(30_000, 2.0), 1e-9);
+        assertEquals(1.0 / 2, window.rejectionProbability(60_000, 2.0), 1e-9);
+        assertEquals(0.0, window.rejectionProbability(120_000, 2.0));
+    }
+}
@@ -0,0 +1,100 @@
+package edu.research.scb.sdk;
+
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CallPipelineTest {
+
+    private final List<String> consulted = new ArrayList<>();
+    private final List<String> reported = new ArrayList<>();
+
+    @Test
+    void firstRejectingStageEndsTheAdmission() {
+        final CallPolicy pipeline = CallPipeline.of(stage("limiter", true), stage("strategy", false), stage("cache", true));
+        final CallContext context = context();
+
+        assertFalse(pipeline.admit(context));
+        assertEquals(List.of("limiter", "strategy"), consulted);
+    }
+
+    @Test
+    void outcomeIsReportedToTheConsultedStagesOnly() {
+        final CallPolicy pipeline = CallPipeline.of(stage("limiter", true), stage("strategy", false), stage("cache", true));
+        final CallContext context = context();
+        pipeline.admit(context);
+
+        pipeline.onOutcome(context, Outcome.of(context, Status.Code.CANCELLED, 1));
+        assertEquals(List.of("limiter", "strategy"), reported);
+    }
+
+    @Test
+    void outcomeOfAnAdmittedCallIsReportedToEveryStage() {
+        final CallPolicy pipeline = CallPipeline.of(stage("limiter", true), stage("strategy", true), stage("cache", true));
+        final CallContext context = context();
+
+        assertTrue(pipeline.admit(context));
+        pipeline.onOutcome(context, Outcome.of(context, Status.Code.OK, 1));
+        assertEquals(List.of("limiter", "strategy", "cache"), consulted);
+        assertEquals(List.of("limiter", "strategy", "cache"), reported);
+    }
+
+    @Test
+    void outcomeOfACallNeverAdmittedIsReportedToNoStage() {
+        final CallPolicy pipeline = CallPipeline.of(stage("limiter", true), stage("strategy", true));
+        final CallContext context = context();
+
+        pipeline.onOutcome(context, Outcome.of(context, Status.Code.UNAVAILABLE, 1));
+        assertEquals(List.of(), reported);
+    }
+
+    @Test
+    void nestedPipelinesAreFlattened() {
+        final CallPolicy inner = CallPipeline.of(stage("limiter", true), stage("deadline", false));
+        final CallPolicy pipeline = CallPipeline.of(inner, stage("strategy", true));
+        assertEquals("CallPipeline[limiter, deadline, strategy]", pipeline.toString());
+
+        // The stages of the nested pipeline are tracked by the outer one, which stops at the inner rejection.
+        final CallContext context = context();
+        assertFalse(pipeline.admit(context));
+        pipeline.onOutcome(context, Outcome.of(context, Status.Code.CANCELLED, 1));
+        assertEquals(List.of("limiter", "deadline"), consulted);
+        assertEquals(List.of("limiter", "deadline"), reported);
+    }
+
+    @Test
+    void singleStageIsItsOwnPipeline() {
+        final CallPolicy stage = stage("strategy", true);
+        assertSame(stage, CallPipeline.of(stage));
+        assertSame(stage, CallPipeline.of(List.of(stage)));
+        assertThrows(IllegalArgumentException.class, CallPipeline::of);
+    }
+
+    private static CallContext context() {
+        return CallContext.of("media.MediaStreamService", "media.MediaStreamService/SearchByTitle", "title: \"Movie\"");
+    }
+
+    private CallPolicy stage(String name, boolean admits) {
+        return new CallPolicy() {
+            @Override
+            public boolean admit(CallContext context) {
+                consulted.add(name);
+                return admits;
+            }
+
+            @Override
+            public void onOutcome(CallContext context, Outcome outcome) {
+                reported.add(name);
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+}
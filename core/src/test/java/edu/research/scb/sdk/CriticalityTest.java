@@ -0,0 +1,32 @@
+package edu.research.scb.sdk;
+
+import io.grpc.CallOptions;
+import io.grpc.Metadata;
+import org.junit.jupiter.api.Test;
+
+import static edu.research.scb.internal.DefaultConstants.CRITICALITY_HEADER_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CriticalityTest {
+
+    @Test
+    void headerIsTheOneReadByTheCircuitBreaker() {
+        assertEquals(CRITICALITY_HEADER_NAME, Criticality.HEADER.name());
+    }
+
+    @Test
+    void callOptionTakesPrecedenceOverTheHeader() {
+        final Metadata headers = new Metadata();
+        headers.put(Criticality.HEADER, " sheddable_plus ");
+        assertEquals(Criticality.SHEDDABLE_PLUS, Criticality.of(CallOptions.DEFAULT, headers));
+        assertEquals(Criticality.CRITICAL_PLUS, Criticality.of(CallOptions.DEFAULT.withOption(Criticality.CALL_OPTION, Criticality.CRITICAL_PLUS), headers));
+    }
+
+    @Test
+    void unknownHeaderIsIgnored() {
+        final Metadata headers = new Metadata();
+        headers.put(Criticality.HEADER, "urgent");
+        assertNull(Criticality.of(CallOptions.DEFAULT, headers));
+        assertNull(Criticality.of(CallOptions.DEFAULT, null));
+    }
+}
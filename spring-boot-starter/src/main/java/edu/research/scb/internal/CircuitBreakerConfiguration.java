@@ -0,0 +1,303 @@
+package edu.research.scb.internal;
+
+import edu.research.scb.internal.actuator.CircuitStateEndpoint;
+import edu.research.scb.internal.actuator.HeavyHittersEndpoint;
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.cache.StaleResponseCache;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.config.CircuitBreakerRetryConfiguration;
+import edu.research.scb.internal.config.ThresholdsReloadListener;
+import edu.research.scb.internal.deadline.DeadlineAdmission;
+import edu.research.scb.internal.endpoint.OutlierEjectionLoadBalancerProvider;
+import edu.research.scb.internal.outcome.BufferedOutcomeStrategy;
+import edu.research.scb.internal.shedding.PoisonRequestShedder;
+import edu.research.scb.internal.signature.SignatureExtractor;
+import edu.research.scb.internal.singleflight.SingleFlightGroup;
+import edu.research.scb.internal.throttling.AdaptiveThrottlingStrategy;
+import edu.research.scb.internal.trace.TraceRecorder;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.grpc.BindableService;
+import io.grpc.ServiceDescriptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static edu.research.scb.internal.DefaultConstants.*;
+
+/**
+ * The spring boot auto-configuration of the smart circuit breaker. All the beans are declared explicitly
+ * here, in place of scanning the packages of the core module, which is free of any spring annotations.
+ *
+ * <p>As for any auto-configuration processed ahead-of-time, the conditions on the properties, e.g. the strategy, are
+ * evaluated once at the build time of a native image, and the ones at its runtime are ignored.
+ */
+@AutoConfiguration
+@ImportRuntimeHints(CircuitBreakerRuntimeHints.class)
+public class CircuitBreakerConfiguration {
+
+    /**
+     * The circuit breaker configuration properties, bound to the prefix {@code circuit-breaker}.
+     * @return {@code CircuitBreakerProperties} instance
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConfigurationProperties(prefix = "circuit-breaker", ignoreInvalidFields = true)
+    public CircuitBreakerProperties circuitBreakerProperties(){
+        return new CircuitBreakerProperties();
+    }
+
+    /**
+     * The bloom-filter based strategy, governed by the property {@code circuit-breaker.strategy} with the value
+     * {@code bloom-filter}. Even if no strategy is specified, this is the default strategy to be used.
+     * @return {@code BloomFilterCircuitBreakerStrategy} instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "circuit-breaker.strategy", havingValue = "bloom-filter", matchIfMissing = true)
+    public BloomFilterCircuitBreakerStrategy bloomFilterCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new BloomFilterCircuitBreakerStrategy(config, meterRegistry);
+    }
+
+    /**
+     * The count-min-sketch based strategy, governed by the property {@code circuit-breaker.strategy} with the
+     * value {@code count-min-sketch}.
+     * @return {@code CountMinSketchCircuitBreakerStrategy} instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "circuit-breaker.strategy", havingValue = "count-min-sketch")
+    public CountMinSketchCircuitBreakerStrategy countMinSketchCircuitBreakerStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new CountMinSketchCircuitBreakerStrategy(config, meterRegistry);
+    }
+
+    /**
+     * The adaptive throttling strategy, governed by the property {@code circuit-breaker.strategy} with the value
+     * {@code adaptive-throttling}.
+     * @return {@code AdaptiveThrottlingStrategy} instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "circuit-breaker.strategy", havingValue = "adaptive-throttling")
+    public AdaptiveThrottlingStrategy adaptiveThrottlingStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new AdaptiveThrottlingStrategy(config, meterRegistry);
+    }
+
+    /**
+     * The single writer of the outcomes into the strategy, which is the primary {@code CircuitBreakerStrategy} to be
+     * passed on to the {@code SmartCircuitBreaker} by the clients. Only created if the property
+     * {@code circuit-breaker.outcome-buffer.enabled} is {@code true}.
+     * @return {@code BufferedOutcomeStrategy} instance
+     */
+    @Bean(destroyMethod = "close")
+    @Primary
+    @ConditionalOnProperty(prefix = "circuit-breaker.outcome-buffer", name = "enabled", havingValue = "true")
+    public BufferedOutcomeStrategy bufferedOutcomeStrategy(AbstractCircuitBreakerStrategy circuitBreakerStrategy, CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new BufferedOutcomeStrategy(circuitBreakerStrategy, config.getOutcomeBuffer(), meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreakerRetryConfiguration circuitBreakerRetryConfiguration(CircuitBreakerProperties config, RetryRegistry retryRegistry, MeterRegistry meterRegistry){
+        return new CircuitBreakerRetryConfiguration(config, retryRegistry, meterRegistry);
+    }
+
+    /**
+     * The custom retry configuration for the circuit breaker.
+     * @return {@code Retry} resiliency instance
+     */
+    @Bean
+    public Retry circuitBreakerRetryConfig(CircuitBreakerRetryConfiguration retryConfig){
+        return retryConfig.createCustomRetryConfiguration();
+    }
+
+    /**
+     * The group for coalescing identical in-flight unary requests, to be passed on to the
+     * {@code SmartCircuitBreaker} by the clients. Only created if the property
+     * {@code circuit-breaker.single-flight.enabled} is {@code true}.
+     * @return {@code SingleFlightGroup} instance
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "circuit-breaker.single-flight", name = "enabled", havingValue = "true")
+    public SingleFlightGroup singleFlightGroup(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new SingleFlightGroup(config.getSingleFlight(), meterRegistry);
+    }
+
+    /**
+     * The cache of successful responses that are served while the circuit is open, to be passed on to the
+     * {@code SmartCircuitBreaker} by the clients. Only created if the property
+     * {@code circuit-breaker.stale-response-cache.enabled} is {@code true}.
+     * @return {@code StaleResponseCache} instance
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "circuit-breaker.stale-response-cache", name = "enabled", havingValue = "true")
+    public StaleResponseCache staleResponseCache(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new StaleResponseCache(config.getStaleResponseCache(), meterRegistry);
+    }
+
+    /**
+     * The admission of the calls by their remaining deadline, to be passed on to the {@code SmartCircuitBreaker} by
+     * the clients. Only created if the property {@code circuit-breaker.deadline.enabled} is {@code true}.
+     * @return {@code DeadlineAdmission} instance
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "circuit-breaker.deadline", name = "enabled", havingValue = "true")
+    public DeadlineAdmission deadlineAdmission(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new DeadlineAdmission(config.getDeadline(), meterRegistry);
+    }
+
+    /**
+     * The extractor of the request signatures from the configured proto field paths, to be passed on to the
+     * {@code SmartCircuitBreaker} by the clients. Only created if any field path is configured under
+     * {@code circuit-breaker.signature.fields}, which has no flag of its own. The field paths are resolved against
+     * the {@code ServiceDescriptor} beans, e.g. of the services called by the clients, and the services of the
+     * {@code BindableService} beans, and a path that can't be resolved fails the startup.
+     * @return {@code SignatureExtractor} instance
+     */
+    @Bean
+    @Conditional(OnSignatureFieldsCondition.class)
+    public SignatureExtractor signatureExtractor(CircuitBreakerProperties config, ObjectProvider<ServiceDescriptor> serviceDescriptors,
+                                                 ObjectProvider<BindableService> bindableServices){
+        final List<ServiceDescriptor> services = new ArrayList<>();
+        serviceDescriptors.orderedStream().forEach(services::add);
+        bindableServices.orderedStream().forEach(service -> services.add(service.bindService().getServiceDescriptor()));
+        return new SignatureExtractor(config.getSignature(), services);
+    }
+
+    /**
+     * The recorder of the request outcomes into the trace file, to be passed on to the {@code SmartCircuitBreaker}
+     * by the clients. Only created if the property {@code circuit-breaker.trace.enabled} is {@code true}.
+     * @return {@code TraceRecorder} instance
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "circuit-breaker.trace", name = "enabled", havingValue = "true")
+    public TraceRecorder traceRecorder(CircuitBreakerProperties config) throws IOException {
+        return new TraceRecorder(config.getTrace());
+    }
+
+    /**
+     * The server-side interceptor shedding the poison requests with the same kind of strategy, registered for all the
+     * grpc services of the server. Only created if the property {@code circuit-breaker.load-shedding.enabled}
+     * is {@code true}.
+     * @return {@code PoisonRequestShedder} instance
+     */
+    @GrpcGlobalServerInterceptor
+    @ConditionalOnProperty(prefix = "circuit-breaker.load-shedding", name = "enabled", havingValue = "true")
+    public PoisonRequestShedder poisonRequestShedder(CircuitBreakerProperties config, ObjectProvider<SignatureExtractor> signatureExtractor,
+                                                     MeterRegistry meterRegistry){
+        return new PoisonRequestShedder(shedderStrategy(config, meterRegistry), config.getLoadShedding(),
+                signatureExtractor.getIfAvailable(), meterRegistry);
+    }
+
+    /**
+     * The strategy of the shedder, of the same kind and thresholds as the strategy of the clients, though a separate
+     * instance, so that the failures of the handlers and the ones of the remote calls never open the circuits of each
+     * other. It is not a bean, for the clients not to be wired with it, and it never shares its state with the other
+     * processes of the host, as the shared state is the one of the clients.
+     */
+    static AbstractCircuitBreakerStrategy shedderStrategy(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(config.getStrategy());
+        properties.setBloomFilter(config.getBloomFilter());
+        properties.setAdaptiveThrottling(config.getAdaptiveThrottling());
+        properties.setThresholds(config.getThresholds());
+        properties.setMetrics(config.getMetrics());
+        properties.setCriticality(config.getCriticality());
+        properties.setMemory(config.getMemory());
+
+        // As for the beans of the clients, the bloom-filter is the default strategy. The count-min-sketch strategy is
+        // refused, as it is not implemented yet and would shed every request of the server.
+        return switch (Objects.requireNonNullElse(config.getStrategy(), BLOOM_FILTER_STRATEGY)) {
+            case COUNT_MIN_SKETCH_STRATEGY -> throw new IllegalStateException("The load shedding can't be enabled with the strategy '" +
+                    COUNT_MIN_SKETCH_STRATEGY + "', which is not implemented yet");
+            case ADAPTIVE_THROTTLING_STRATEGY -> new AdaptiveThrottlingStrategy(properties, meterRegistry);
+            default -> new BloomFilterCircuitBreakerStrategy(properties, meterRegistry);
+        };
+    }
+
+    /**
+     * The load balancing policy {@code smart_circuit_breaker_outlier_ejection}, registered with the default grpc
+     * registry so that the clients can select it, e.g. by {@code grpc.client.<name>.default-load-balancing-policy}.
+     * Only created if the property {@code circuit-breaker.endpoint-ejection.enabled} is {@code true}.
+     * @return {@code OutlierEjectionLoadBalancerProvider} instance
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "circuit-breaker.endpoint-ejection", name = "enabled", havingValue = "true")
+    public OutlierEjectionLoadBalancerProvider outlierEjectionLoadBalancerProvider(CircuitBreakerProperties config, MeterRegistry meterRegistry){
+        return new OutlierEjectionLoadBalancerProvider(config.getEndpointEjection(), meterRegistry).register();
+    }
+
+    /**
+     * The actuator endpoint exposing the most frequently failing and rejected request signatures.
+     * @return {@code HeavyHittersEndpoint} instance
+     */
+    @Bean
+    public HeavyHittersEndpoint heavyHittersEndpoint(AbstractCircuitBreakerStrategy circuitBreakerStrategy){
+        return new HeavyHittersEndpoint(circuitBreakerStrategy);
+    }
+
+    /**
+     * The actuator endpoint to inspect the state of the circuits and to force it open or closed.
+     * @return {@code CircuitStateEndpoint} instance
+     */
+    @Bean
+    public CircuitStateEndpoint circuitStateEndpoint(AbstractCircuitBreakerStrategy circuitBreakerStrategy){
+        return new CircuitStateEndpoint(circuitBreakerStrategy);
+    }
+
+    /**
+     * Matches if any proto field path of the request signatures is configured, as bound to the properties.
+     */
+    static class OnSignatureFieldsCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(ConditionContext context, AnnotatedTypeMetadata metadata) {
+            final boolean configured = Binder.get(context.getEnvironment())
+                    .bind("circuit-breaker.signature.fields", Bindable.mapOf(String.class, Object.class))
+                    .map(fields -> !fields.isEmpty())
+                    .orElse(false);
+            return configured ? ConditionOutcome.match("circuit-breaker.signature.fields is configured")
+                    : ConditionOutcome.noMatch("circuit-breaker.signature.fields is not configured");
+        }
+    }
+
+    /**
+     * The reload of the thresholds on the refresh of the environment, only when spring cloud context is on the
+     * classpath, as the {@code EnvironmentChangeEvent} is published by it. Otherwise, the thresholds can still be
+     * reloaded through {@code AbstractCircuitBreakerStrategy#reloadThresholds}.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+    static class ThresholdsReloadConfiguration {
+
+        // The strategy of the shedder is not a bean, and is reloaded along with the one of the clients.
+        @Bean
+        public ThresholdsReloadListener thresholdsReloadListener(AbstractCircuitBreakerStrategy circuitBreakerStrategy,
+                                                                 ObjectProvider<PoisonRequestShedder> poisonRequestShedder, Environment environment){
+            final List<AbstractCircuitBreakerStrategy> strategies = new ArrayList<>(List.of(circuitBreakerStrategy));
+            poisonRequestShedder.ifAvailable(shedder -> {
+                if(shedder.getCircuitBreaker() instanceof AbstractCircuitBreakerStrategy strategy)
+                    strategies.add(strategy);
+            });
+            return new ThresholdsReloadListener(strategies, environment);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package edu.research.scb.internal;
+
+import edu.research.scb.internal.actuator.CircuitStateEndpoint;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * The runtime hints of the auto-configuration, for the applications built ahead-of-time by spring and compiled by
+ * GraalVM native-image. The properties bound to {@code circuit-breaker} are already hinted by spring boot, from the
+ * {@code @ConfigurationProperties} bean, and so are the payloads of the actuator endpoints, from the return type of
+ * their operations. Only the payloads of the operations returning an {@code Object} are hinted here, as they are
+ * serialized by jackson through reflection.
+ *
+ * <p>The metadata of the core module itself, used without spring as well, is shipped under
+ * {@code META-INF/native-image} of its jar.
+ */
+public class CircuitBreakerRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindingRegistrar = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // The signatures of a page are hinted through the components of the record.
+        bindingRegistrar.registerReflectionHints(hints.reflection(),
+                CircuitStateEndpoint.ServiceState.class,
+                CircuitStateEndpoint.SignaturePage.class);
+    }
+}
@@ -0,0 +1,132 @@
+package edu.research.scb.internal.actuator;
+
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy;
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy.States;
+import edu.research.scb.internal.RequestMetrics;
+import edu.research.scb.internal.ServiceCounter;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The actuator endpoint to inspect the state of the circuits and to override it during incidents.
+ *
+ * <ul>
+ *     <li>{@code GET /actuator/circuitbreaker} - the failure rates of the services and the forced states.</li>
+ *     <li>{@code GET /actuator/circuitbreaker/signatures?offset=0&limit=50} - a page of the failing signatures.</li>
+ *     <li>{@code POST /actuator/circuitbreaker/services} or {@code POST /actuator/circuitbreaker/signatures} with
+ *     the body {@code {"name": "...", "state": "OPEN|CLOSED|RELEASED"}} - forces the circuit of the service or the
+ *     signature, or releases it back to the evaluation. Any other scope or state is answered with a 400.</li>
+ * </ul>
+ *
+ * <p>All the reads are weakly consistent iterations over the concurrent stores. They never lock the stores, and
+ * so they never block the request path or the finalizer while it rebuilds the bloom filter. The pages
+ * are therefore best-effort, and a signature may be skipped or repeated across pages while the store changes.
+ */
+@Endpoint(id = "circuitbreaker")
+public class CircuitStateEndpoint {
+
+    private static final String SERVICES = "services";
+    private static final String SIGNATURES = "signatures";
+    private static final String RELEASED = "RELEASED";
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+
+    private final AbstractCircuitBreakerStrategy strategy;
+
+    public CircuitStateEndpoint(AbstractCircuitBreakerStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @ReadOperation
+    public CircuitState circuitState() {
+        return new CircuitState(services(), strategy.getForcedServiceStates(), strategy.getForcedSignatureStates());
+    }
+
+    @ReadOperation
+    public Object circuitState(@Selector String scope, @Nullable Integer offset, @Nullable Integer limit) {
+        return switch (scope) {
+            case SERVICES -> services();
+            case SIGNATURES -> signatures(offset != null ? offset : 0, limit != null ? limit : DEFAULT_PAGE_LIMIT);
+            default -> Map.of();
+        };
+    }
+
+    @WriteOperation
+    public Map<String, String> forceState(@Selector String scope, @Nullable String name, @Nullable String state) {
+        // The invalid requests are answered with a 400 by the actuator, rather than failing with a 500.
+        if(!SERVICES.equals(scope) && !SIGNATURES.equals(scope))
+            throw invalid("Unknown scope '" + scope + "', expected 'services' or 'signatures'");
+        if(name == null || name.isBlank())
+            throw invalid("The name of the service or the signature is missing");
+        final States forced = forcedState(state);
+
+        if(SERVICES.equals(scope))
+            strategy.forceServiceState(name, forced);
+        else
+            strategy.forceSignatureState(name, forced);
+        return Map.of("name", name, "state", forced != null ? forced.name() : RELEASED);
+    }
+
+    // The state to be forced, or null to release the circuit back to the evaluation.
+    private static States forcedState(String state) {
+        if(state != null && RELEASED.equalsIgnoreCase(state.trim()))
+            return null;
+        if(state != null) {
+            for(States forceable : List.of(States.OPEN, States.CLOSED)) {
+                if(forceable.name().equalsIgnoreCase(state.trim()))
+                    return forceable;
+            }
+        }
+        throw invalid("Invalid state '" + state + "', expected 'OPEN', 'CLOSED' or 'RELEASED'");
+    }
+
+    private static InvalidEndpointRequestException invalid(String message) {
+        return new InvalidEndpointRequestException(message, message);
+    }
+
+    private List<ServiceState> services() {
+        return strategy.getServiceCounters().stream()
+                .map(sc -> new ServiceState(sc.getServiceName(), sc.getTotalCount(), sc.getFailureCount(),
+                        sc.getFailurePercentage(), sc.getLastTimeStamp()))
+                .toList();
+    }
+
+    private SignaturePage signatures(int offset, int limit) {
+        // The ages are measured on the clock of the strategy, which may not be the system clock.
+        final LocalDateTime now = LocalDateTime.now(strategy.getClock());
+        final List<SignatureState> items = strategy.getFailingRequestMetrics()
+                .skip(offset)
+                .limit(limit)
+                .map(rm -> toSignatureState(rm, now))
+                .toList();
+        return new SignaturePage(offset, limit, items);
+    }
+
+    private SignatureState toSignatureState(RequestMetrics rm, LocalDateTime now) {
+        return new SignatureState(rm.getData(), rm.getTransientFaultCount(), rm.getFailureCount(),
+                ChronoUnit.SECONDS.between(rm.getLastFailureTimestamp(), now), strategy.mightBeFailing(rm.getData()));
+    }
+
+    public record CircuitState(List<ServiceState> services, Map<String, States> forcedServices,
+                               Map<String, States> forcedSignatures) {
+    }
+
+    public record ServiceState(String service, int totalCount, int failureCount, double failurePercentage,
+                               LocalDateTime lastTimestamp) {
+    }
+
+    public record SignaturePage(int offset, int limit, List<SignatureState> signatures) {
+    }
+
+    public record SignatureState(String signature, int transientFaultCount, int failureCount,
+                                 long secondsSinceLastFailure, boolean inMembershipFilter) {
+    }
+}
@@ -0,0 +1,48 @@
+package edu.research.scb.internal.actuator;
+
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy;
+import edu.research.scb.internal.metrics.SpaceSavingSketch;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The actuator endpoint exposing the most frequently failing and rejected request signatures, as tracked by
+ * the heavy-hitter sketches of the circuit breaker strategy.
+ *
+ * <p>Available at {@code /actuator/circuitbreakerhotspots}, once included in the exposed endpoints via the
+ * property {@code management.endpoints.web.exposure.include}.
+ */
+@Endpoint(id = "circuitbreakerhotspots")
+public class HeavyHittersEndpoint {
+
+    private static final String FAILING = "failing";
+    private static final String REJECTED = "rejected";
+
+    private final AbstractCircuitBreakerStrategy strategy;
+
+    public HeavyHittersEndpoint(AbstractCircuitBreakerStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    @ReadOperation
+    public Map<String, List<SpaceSavingSketch.HeavyHitter>> heavyHitters() {
+        final Map<String, List<SpaceSavingSketch.HeavyHitter>> result = new LinkedHashMap<>();
+        result.put(FAILING, strategy.getFailingSignatures().topK());
+        result.put(REJECTED, strategy.getRejectedSignatures().topK());
+        return result;
+    }
+
+    @ReadOperation
+    public List<SpaceSavingSketch.HeavyHitter> heavyHitters(@Selector String kind) {
+        return switch (kind) {
+            case FAILING -> strategy.getFailingSignatures().topK();
+            case REJECTED -> strategy.getRejectedSignatures().topK();
+            default -> List.of();
+        };
+    }
+}
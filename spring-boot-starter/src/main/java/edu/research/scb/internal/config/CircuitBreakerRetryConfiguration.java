@@ -10,30 +10,30 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Configuration;
 
 import java.util.List;
 
 import static edu.research.scb.internal.DefaultConstants.*;
 
-@Configuration
 public class CircuitBreakerRetryConfiguration {
 
     private static final Logger logger = LogManager.getLogger(CircuitBreakerRetryConfiguration.class);
 
-    @Autowired
-    private CircuitBreakerProperties config;
+    private final CircuitBreakerProperties config;
 
-    @Autowired
-    private RetryRegistry retryRegistry;
+    private final RetryRegistry retryRegistry;
 
-    @Autowired
-    private MeterRegistry meterRegistry;
+    private final MeterRegistry meterRegistry;
 
     private Counter retryCounterSuc;
     private Counter retryCounterFail;
 
+    public CircuitBreakerRetryConfiguration(CircuitBreakerProperties config, RetryRegistry retryRegistry, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.retryRegistry = retryRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
     /**
      * Creates a custom configuration {@code Bean} for the smart circuit breaker. The retry config handles
      * the {@code StatusRuntimeException} status codes and {@code ServiceInvocationNotPermittedException}
@@ -0,0 +1,49 @@
+package edu.research.scb.internal.config;
+
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+import java.util.List;
+
+/**
+ * Reloads the thresholds of the strategies when the environment is refreshed, for example by
+ * {@code POST /actuator/refresh} or by a config server, and any of the {@code circuit-breaker.thresholds}
+ * properties has changed. The thresholds are bound afresh from the environment, rather than read from the
+ * {@code CircuitBreakerProperties} bean, whose rebinding is another listener of the same event. Every strategy
+ * sharing the thresholds is reloaded, i.e. the one of the clients and the one of the load shedder if enabled.
+ */
+public class ThresholdsReloadListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+    private static final String THRESHOLDS_PREFIX = "circuit-breaker.thresholds";
+
+    private final List<AbstractCircuitBreakerStrategy> strategies;
+    private final Environment environment;
+
+    public ThresholdsReloadListener(AbstractCircuitBreakerStrategy strategy, Environment environment) {
+        this(List.of(strategy), environment);
+    }
+
+    public ThresholdsReloadListener(List<AbstractCircuitBreakerStrategy> strategies, Environment environment) {
+        this.strategies = List.copyOf(strategies);
+        this.environment = environment;
+    }
+
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if(event.getKeys().stream().noneMatch(ThresholdsReloadListener::isThresholdsKey))
+            return;
+
+        final CircuitThresholds thresholds = Binder.get(environment)
+                .bind(THRESHOLDS_PREFIX, CircuitThresholds.class)
+                .orElseGet(CircuitThresholds::new);
+        strategies.forEach(strategy -> strategy.reloadThresholds(thresholds));
+    }
+
+    // The keys are as they were changed in the property sources, thus either in the kebab or in the camel case.
+    private static boolean isThresholdsKey(String key) {
+        return key.startsWith(THRESHOLDS_PREFIX) || key.startsWith("circuitBreaker.thresholds");
+    }
+}
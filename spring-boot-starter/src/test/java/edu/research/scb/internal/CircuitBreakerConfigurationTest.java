@@ -0,0 +1,116 @@
+package edu.research.scb.internal;
+
+import com.google.protobuf.Api;
+import edu.research.scb.internal.cache.StaleResponseCache;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import edu.research.scb.internal.deadline.DeadlineAdmission;
+import edu.research.scb.internal.shedding.PoisonRequestShedder;
+import edu.research.scb.internal.signature.SignatureExtractor;
+import edu.research.scb.internal.singleflight.SingleFlightGroup;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServiceDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ConfigurationPropertiesAutoConfiguration.class, CircuitBreakerConfiguration.class))
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withBean(RetryRegistry.class, RetryRegistry::ofDefaults);
+
+    @Test
+    void optionalFeaturesAreNotCreatedByDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(AbstractCircuitBreakerStrategy.class);
+            assertThat(context).doesNotHaveBean(SingleFlightGroup.class);
+            assertThat(context).doesNotHaveBean(StaleResponseCache.class);
+            assertThat(context).doesNotHaveBean(DeadlineAdmission.class);
+            assertThat(context).doesNotHaveBean(SignatureExtractor.class);
+        });
+    }
+
+    @Test
+    void optionalFeaturesAreCreatedOnceEnabled() {
+        contextRunner.withPropertyValues(
+                        "circuit-breaker.single-flight.enabled=true",
+                        "circuit-breaker.stale-response-cache.enabled=true",
+                        "circuit-breaker.deadline.enabled=true",
+                        "circuit-breaker.signature.fields.[test.ApiService/Describe]=name")
+                .withBean(ServiceDescriptor.class, CircuitBreakerConfigurationTest::apiService)
+                .run(context -> {
+                    assertThat(context).hasSingleBean(SingleFlightGroup.class);
+                    assertThat(context).hasSingleBean(StaleResponseCache.class);
+                    assertThat(context).hasSingleBean(DeadlineAdmission.class);
+                    assertThat(context).hasSingleBean(SignatureExtractor.class);
+                });
+    }
+
+    @Test
+    void unresolvableSignatureFieldsFailTheStartup() {
+        contextRunner.withPropertyValues("circuit-breaker.signature.fields.[test.ApiService/Describe]=title")
+                .withBean(ServiceDescriptor.class, CircuitBreakerConfigurationTest::apiService)
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Test
+    void shedderRecordsOnAStrategyOfItsOwn() {
+        contextRunner.withPropertyValues("circuit-breaker.strategy=bloom-filter", "circuit-breaker.load-shedding.enabled=true")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(PoisonRequestShedder.class);
+                    assertThat(context).hasSingleBean(AbstractCircuitBreakerStrategy.class);
+
+                    final AbstractCircuitBreakerStrategy clients = context.getBean(AbstractCircuitBreakerStrategy.class);
+                    final AbstractCircuitBreakerStrategy shedder = CircuitBreakerConfiguration.shedderStrategy(
+                            context.getBean(CircuitBreakerProperties.class), context.getBean(MeterRegistry.class));
+                    assertThat(shedder).isNotSameAs(clients).hasSameClassAs(clients);
+                    for(int i = 0; i < 100; i++)
+                        shedder.onFailure("media.MediaStreamService", "media.MediaStreamService/SearchByTitle", "poison");
+                    assertThat(shedder.allowRequest("media.MediaStreamService", "media.MediaStreamService/SearchByTitle", "poison")).isFalse();
+                    assertThat(clients.allowRequest("media.MediaStreamService", "media.MediaStreamService/SearchByTitle", "poison")).isTrue();
+                });
+    }
+
+    @Test
+    void thresholdsOfTheShedderAreReloadedAlongWithTheClients() {
+        contextRunner.withPropertyValues("circuit-breaker.strategy=bloom-filter", "circuit-breaker.load-shedding.enabled=true",
+                        "circuit-breaker.thresholds.failure-count-threshold=3")
+                .run(context -> {
+                    final AbstractCircuitBreakerStrategy clients = context.getBean(AbstractCircuitBreakerStrategy.class);
+                    final AbstractCircuitBreakerStrategy shedder = (AbstractCircuitBreakerStrategy) context.getBean(PoisonRequestShedder.class).getCircuitBreaker();
+
+                    TestPropertyValues.of("circuit-breaker.thresholds.failure-count-threshold=7").applyTo(context.getEnvironment());
+                    context.publishEvent(new EnvironmentChangeEvent(context, Set.of("circuit-breaker.thresholds.failure-count-threshold")));
+                    assertThat(clients.getThresholds().failureCountThreshold()).isEqualTo(7);
+                    assertThat(shedder.getThresholds().failureCountThreshold()).isEqualTo(7);
+                });
+    }
+
+    @Test
+    void shedderRefusesTheUnimplementedStrategy() {
+        contextRunner.withPropertyValues("circuit-breaker.strategy=count-min-sketch", "circuit-breaker.load-shedding.enabled=true")
+                .run(context -> assertThat(context).hasFailed()
+                        .getFailure().rootCause().isInstanceOf(IllegalStateException.class).hasMessageContaining("count-min-sketch"));
+    }
+
+    private static ServiceDescriptor apiService() {
+        return ServiceDescriptor.newBuilder("test.ApiService").addMethod(MethodDescriptor.<Api, Api>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName("test.ApiService/Describe")
+                .setRequestMarshaller(ProtoUtils.marshaller(Api.getDefaultInstance()))
+                .setResponseMarshaller(ProtoUtils.marshaller(Api.getDefaultInstance()))
+                .build()).build();
+    }
+}
@@ -0,0 +1,62 @@
+package edu.research.scb.internal.actuator;
+
+import edu.research.scb.internal.AbstractCircuitBreakerStrategy.States;
+import edu.research.scb.internal.bloomfilter.BloomFilterCircuitBreakerStrategy;
+import edu.research.scb.internal.config.CircuitBreakerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static edu.research.scb.internal.DefaultConstants.BLOOM_FILTER_STRATEGY;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitStateEndpointTest {
+
+    // A clock far from the system one, as for a replayed trace.
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2000-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    private BloomFilterCircuitBreakerStrategy strategy;
+    private CircuitStateEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        final CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setStrategy(BLOOM_FILTER_STRATEGY);
+        strategy = new BloomFilterCircuitBreakerStrategy(properties, new SimpleMeterRegistry(), CLOCK);
+        endpoint = new CircuitStateEndpoint(strategy);
+    }
+
+    @Test
+    void forcesAndReleasesTheState() {
+        assertEquals(Map.of("name", "orders", "state", "OPEN"), endpoint.forceState("services", "orders", "open"));
+        assertEquals(States.OPEN, strategy.getForcedServiceStates().get("orders"));
+
+        assertEquals(Map.of("name", "orders", "state", "RELEASED"), endpoint.forceState("services", "orders", "released"));
+        assertFalse(strategy.getForcedServiceStates().containsKey("orders"));
+    }
+
+    @Test
+    void rejectsTheInvalidRequests() {
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.forceState("services", "orders", "ajar"));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.forceState("services", "orders", "half_open"));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.forceState("services", "orders", null));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.forceState("services", null, "OPEN"));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.forceState("methods", "orders", "OPEN"));
+        assertTrue(strategy.getForcedServiceStates().isEmpty());
+    }
+
+    @Test
+    void measuresTheAgesOnTheClockOfTheStrategy() {
+        strategy.onFailure("orders", "orders.Orders/Get", "id: 1");
+
+        final CircuitStateEndpoint.SignaturePage page = (CircuitStateEndpoint.SignaturePage) endpoint.circuitState("signatures", null, null);
+        assertEquals(1, page.signatures().size());
+        assertEquals(0, page.signatures().get(0).secondsSinceLastFailure());
+    }
+}